@@ -0,0 +1,150 @@
+package com.checkout.payment.gateway.standin;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * The answers of {@code imposters/bank_simulator.ejs}, decided by the last digit of the card
+ * number: odd is authorized, even declined, 0 answers 503, and a payment missing one of its five
+ * fields is a 400. A batch answers each of its payments the same way.
+ */
+final class BankRules {
+
+  static final Answer UNSUPPORTED = new Answer(400,
+      "{\"errorMessage\":\"The request supplied is not supported by the simulator\"}");
+  static final Answer UNAVAILABLE = new Answer(503, "{}");
+  private static final Answer MISSING_FIELDS = new Answer(400,
+      "{\"error_message\":\"Not all required properties were sent in the request\"}");
+  private static final Answer DECLINED =
+      new Answer(200, "{\"authorized\":false,\"authorization_code\":\"\"}");
+  private static final Answer NOT_A_BATCH =
+      new Answer(400, "{\"error_message\":\"A batch must be a JSON array of payments\"}");
+
+  private static final JsonFactory JSON = new JsonFactory();
+  private static final String[] FIELDS =
+      {"card_number", "expiry_date", "currency", "amount", "cvv"};
+  private static final int ALL_FIELDS = (1 << FIELDS.length) - 1;
+  // The last digit of a payment missing a field
+  private static final char MISSING = 'm';
+
+  private BankRules() {
+  }
+
+  static Answer payment(byte[] body, int offset, int length, Random random) {
+    char last;
+    try (JsonParser parser = JSON.createParser(body, offset, length)) {
+      last = parser.nextToken() == JsonToken.START_OBJECT ? lastDigit(parser) : MISSING;
+    } catch (IOException e) {
+      // The simulator finds no fields in a body that is not JSON
+      last = MISSING;
+    }
+    switch (status(last)) {
+      case 200:
+        return isOdd(last) ? new Answer(200, "{\"authorized\":true,\"authorization_code\":\""
+            + authorizationCode(random) + "\"}") : DECLINED;
+      case 503:
+        return UNAVAILABLE;
+      default:
+        return last == MISSING ? MISSING_FIELDS : UNSUPPORTED;
+    }
+  }
+
+  static Answer batch(byte[] body, int offset, int length, Random random) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(length);
+    try (JsonParser parser = JSON.createParser(body, offset, length);
+        JsonGenerator generator = JSON.createGenerator(out)) {
+      if (parser.nextToken() != JsonToken.START_ARRAY) {
+        return NOT_A_BATCH;
+      }
+      generator.writeStartArray();
+      for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY;
+          token = parser.nextToken()) {
+        char last = MISSING;
+        if (token == JsonToken.START_OBJECT) {
+          last = lastDigit(parser);
+        } else {
+          parser.skipChildren();
+        }
+        int status = status(last);
+        boolean authorized = status == 200 && isOdd(last);
+        generator.writeStartObject();
+        generator.writeNumberField("status_code", status);
+        generator.writeBooleanField("authorized", authorized);
+        generator.writeStringField("authorization_code",
+            authorized ? authorizationCode(random) : "");
+        generator.writeEndObject();
+      }
+      generator.writeEndArray();
+    } catch (IOException e) {
+      return NOT_A_BATCH;
+    }
+    return new Answer(200, out.toByteArray());
+  }
+
+  // Reads one payment object, leaving the parser on its end
+  private static char lastDigit(JsonParser parser) throws IOException {
+    int present = 0;
+    String cardNumber = "";
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String name = parser.currentName();
+      JsonToken value = parser.nextToken();
+      for (int i = 0; i < FIELDS.length; i++) {
+        if (FIELDS[i].equals(name)) {
+          present |= 1 << i;
+        }
+      }
+      if (name.equals("card_number") && value.isScalarValue()) {
+        cardNumber = parser.getText();
+      } else {
+        parser.skipChildren();
+      }
+    }
+    if (present != ALL_FIELDS) {
+      return MISSING;
+    }
+    return cardNumber.isEmpty() ? ' ' : cardNumber.charAt(cardNumber.length() - 1);
+  }
+
+  private static int status(char last) {
+    if (last == '0') {
+      return 503;
+    }
+    return last >= '1' && last <= '9' ? 200 : 400;
+  }
+
+  private static boolean isOdd(char last) {
+    return (last - '0') % 2 == 1;
+  }
+
+  // A version 4 UUID from the event loop's own random, not the contended secure one
+  private static String authorizationCode(Random random) {
+    long high = random.nextLong() & ~0xF000L | 0x4000L;
+    long low = random.nextLong() & 0x3FFF_FFFF_FFFF_FFFFL | 0x8000_0000_0000_0000L;
+    return new UUID(high, low).toString();
+  }
+
+  /**
+   * A status and JSON body.
+   */
+  static final class Answer {
+
+    final int status;
+    final byte[] body;
+
+    Answer(int status, String body) {
+      this(status, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    Answer(int status, byte[] body) {
+      this.status = status;
+      this.body = body;
+    }
+  }
+}
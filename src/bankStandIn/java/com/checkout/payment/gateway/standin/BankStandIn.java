@@ -0,0 +1,222 @@
+package com.checkout.payment.gateway.standin;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URI;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A bank that answers like the mountebank simulator in {@code imposters/bank_simulator.ejs}, on
+ * {@code POST /payments} and {@code POST /payments/batch}, fast enough never to be the bottleneck
+ * of a gateway benchmark. Answers can be held back by a {@link LatencyModel} and turned into 503s
+ * by {@link ErrorBursts}.
+ *
+ * <p>It speaks HTTP/1.1 with keep-alive and pipelining, without TLS. One thread accepts
+ * connections and hands them round-robin to a few {@link EventLoop}s, each a single thread
+ * serving its connections without blocking. Run it on its own with {@code ./gradlew bankStandIn},
+ * or start one in a test.
+ */
+public final class BankStandIn implements Closeable {
+
+  private static final Pattern DURATION = Pattern.compile("(\\d+)(ns|us|ms|s|m)");
+
+  final LatencyModel latency;
+  final ErrorBursts bursts;
+  final LongAdder requests = new LongAdder();
+  final LongAdder failed = new LongAdder();
+  final long startedAt = System.nanoTime();
+  private final ServerSocketChannel server;
+  private final EventLoop[] loops;
+  private final Thread[] threads;
+
+  /**
+   * Starts a stand-in on {@code port} of the loopback address, or on any free port for 0.
+   *
+   * @param threads the event loops serving connections
+   */
+  public BankStandIn(int port, int threads, LatencyModel latency, ErrorBursts bursts)
+      throws IOException {
+    this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), threads, latency, bursts);
+  }
+
+  BankStandIn(InetSocketAddress address, int threads, LatencyModel latency, ErrorBursts bursts)
+      throws IOException {
+    if (threads < 1) {
+      throw new IllegalArgumentException("the stand-in needs an event loop");
+    }
+    this.latency = latency;
+    this.bursts = bursts;
+    this.server = ServerSocketChannel.open();
+    server.bind(address, 4096);
+    this.loops = new EventLoop[threads];
+    this.threads = new Thread[threads + 1];
+    for (int i = 0; i < threads; i++) {
+      loops[i] = new EventLoop(this);
+      this.threads[i] = start(loops[i], "bank-stand-in-" + i);
+    }
+    this.threads[threads] = start(this::accept, "bank-stand-in-acceptor");
+  }
+
+  public int port() {
+    return server.socket().getLocalPort();
+  }
+
+  /**
+   * The URL to send single payments to.
+   */
+  public URI url() {
+    return URI.create("http://" + server.socket().getInetAddress().getHostAddress() + ":"
+        + port() + "/payments");
+  }
+
+  /**
+   * Requests answered since the stand-in started.
+   */
+  public long requests() {
+    return requests.sum();
+  }
+
+  /**
+   * Requests answered 503 by an error burst.
+   */
+  public long failed() {
+    return failed.sum();
+  }
+
+  @Override
+  public void close() {
+    try {
+      server.close();
+    } catch (IOException ignored) {
+      // Closed either way
+    }
+    for (EventLoop loop : loops) {
+      loop.close();
+    }
+    for (Thread thread : threads) {
+      try {
+        thread.join(1_000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  private void accept() {
+    int next = 0;
+    try {
+      while (true) {
+        SocketChannel channel = server.accept();
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        loops[next].adopt(channel);
+        next = (next + 1) % loops.length;
+      }
+    } catch (ClosedChannelException e) {
+      // Closed by close()
+    } catch (IOException e) {
+      System.err.println("Bank stand-in stopped accepting connections: " + e);
+    }
+  }
+
+  private static Thread start(Runnable task, String name) {
+    Thread thread = new Thread(task, name);
+    // An embedded stand-in must not keep a finished test run alive
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  }
+
+  /**
+   * Reads a delay such as {@code 500us}, {@code 5ms}, {@code 2s} or an ISO-8601 duration.
+   */
+  static Duration duration(String text) {
+    Matcher matcher = DURATION.matcher(text);
+    if (!matcher.matches()) {
+      return Duration.parse(text);
+    }
+    long amount = Long.parseLong(matcher.group(1));
+    switch (matcher.group(2)) {
+      case "ns":
+        return Duration.ofNanos(amount);
+      case "us":
+        return Duration.ofNanos(amount * 1_000);
+      case "ms":
+        return Duration.ofMillis(amount);
+      case "s":
+        return Duration.ofSeconds(amount);
+      default:
+        return Duration.ofMinutes(amount);
+    }
+  }
+
+  /**
+   * Runs a stand-in until the process is stopped. Options: {@code --port} (8080),
+   * {@code --bind} (0.0.0.0), {@code --threads} (one per processor), {@code --latency} (see
+   * {@link LatencyModel#parse}; none), and {@code --burst-every}, {@code --burst-for} and
+   * {@code --burst-error-rate} (1.0) for error bursts.
+   */
+  public static void main(String[] args) throws Exception {
+    int port = 8080;
+    String bind = "0.0.0.0";
+    int threads = Runtime.getRuntime().availableProcessors();
+    LatencyModel latency = LatencyModel.none();
+    Duration burstEvery = null;
+    Duration burstFor = null;
+    double burstErrorRate = 1;
+    for (String arg : args) {
+      int equals = arg.indexOf('=');
+      if (!arg.startsWith("--") || equals < 0) {
+        throw new IllegalArgumentException("expected --option=value, not " + arg);
+      }
+      String value = arg.substring(equals + 1);
+      switch (arg.substring(2, equals)) {
+        case "port":
+          port = Integer.parseInt(value);
+          break;
+        case "bind":
+          bind = value;
+          break;
+        case "threads":
+          threads = Integer.parseInt(value);
+          break;
+        case "latency":
+          latency = LatencyModel.parse(value);
+          break;
+        case "burst-every":
+          burstEvery = duration(value);
+          break;
+        case "burst-for":
+          burstFor = duration(value);
+          break;
+        case "burst-error-rate":
+          burstErrorRate = Double.parseDouble(value);
+          break;
+        default:
+          throw new IllegalArgumentException("unknown option " + arg);
+      }
+    }
+    if ((burstEvery == null) != (burstFor == null)) {
+      throw new IllegalArgumentException("--burst-every and --burst-for go together");
+    }
+    ErrorBursts bursts = burstEvery == null
+        ? ErrorBursts.none() : new ErrorBursts(burstEvery, burstFor, burstErrorRate);
+    BankStandIn bank =
+        new BankStandIn(new InetSocketAddress(bind, port), threads, latency, bursts);
+    Runtime.getRuntime().addShutdownHook(new Thread(bank::close));
+    System.out.printf("Bank stand-in listening on %s:%d with %d event loops%n", bind, bank.port(),
+        threads);
+    // The stand-in's threads are daemons; this one keeps the process up until it is stopped
+    Thread.currentThread().join();
+  }
+}
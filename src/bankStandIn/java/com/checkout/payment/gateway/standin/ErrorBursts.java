@@ -0,0 +1,52 @@
+package com.checkout.payment.gateway.standin;
+
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * Periods in which the {@link BankStandIn} answers 503 to some or all payments, like a bank
+ * falling over for a while and coming back. The last {@code length} of every {@code every} is a
+ * burst, so a run starts healthy.
+ */
+public final class ErrorBursts {
+
+  private static final ErrorBursts NONE = new ErrorBursts();
+
+  private final long everyNanos;
+  private final long lengthNanos;
+  private final double errorRate;
+
+  /**
+   * @param errorRate the share of payments answered 503 during a burst
+   */
+  public ErrorBursts(Duration every, Duration length, double errorRate) {
+    if (every.isNegative() || every.isZero() || length.isNegative() || length.compareTo(every) > 0
+        || errorRate < 0 || errorRate > 1) {
+      throw new IllegalArgumentException("bursts need a positive period no shorter than their "
+          + "length and an error rate between 0 and 1");
+    }
+    this.everyNanos = every.toNanos();
+    this.lengthNanos = length.toNanos();
+    this.errorRate = errorRate;
+  }
+
+  private ErrorBursts() {
+    this.everyNanos = 0;
+    this.lengthNanos = 0;
+    this.errorRate = 0;
+  }
+
+  public static ErrorBursts none() {
+    return NONE;
+  }
+
+  /**
+   * Whether to fail the payment arriving {@code sinceStartNanos} after the stand-in started.
+   */
+  boolean failing(long sinceStartNanos, Random random) {
+    if (lengthNanos == 0 || sinceStartNanos % everyNanos < everyNanos - lengthNanos) {
+      return false;
+    }
+    return errorRate >= 1 || random.nextDouble() < errorRate;
+  }
+}
@@ -0,0 +1,365 @@
+package com.checkout.payment.gateway.standin;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One selector thread serving HTTP/1.1 on the connections handed to it. Requests are read,
+ * answered and written without blocking; an answer held back by the latency model waits in a
+ * timer queue, not on a sleeping thread, so one loop keeps thousands of delayed answers in flight.
+ * Pipelined requests on a connection are answered in order, each no sooner than its own delay.
+ */
+final class EventLoop implements Runnable {
+
+  // Larger requests close the connection
+  private static final int MAX_REQUEST_BYTES = 1 << 20;
+  private static final byte[] CRLF_CRLF = {'\r', '\n', '\r', '\n'};
+
+  private final BankStandIn bank;
+  private final Selector selector;
+  private final Queue<SocketChannel> adopted = new ConcurrentLinkedQueue<>();
+  // The first pending answer of each connection that has one, soonest first
+  private final PriorityQueue<Pending> timers =
+      new PriorityQueue<>((a, b) -> Long.compare(a.due - b.due, 0));
+  private volatile boolean closed;
+
+  EventLoop(BankStandIn bank) throws IOException {
+    this.bank = bank;
+    this.selector = Selector.open();
+  }
+
+  /**
+   * Hands a connection to this loop; safe to call from any thread.
+   */
+  void adopt(SocketChannel channel) {
+    adopted.add(channel);
+    selector.wakeup();
+  }
+
+  void close() {
+    closed = true;
+    selector.wakeup();
+  }
+
+  @Override
+  public void run() {
+    try {
+      while (!closed) {
+        Pending next = timers.peek();
+        if (next == null) {
+          selector.select(this::ready);
+        } else {
+          long wait = next.due - System.nanoTime();
+          if (wait <= 0) {
+            selector.selectNow(this::ready);
+          } else {
+            // Rounded up, so the loop never wakes before the answer is due
+            selector.select(this::ready, TimeUnit.NANOSECONDS.toMillis(wait + 999_999));
+          }
+        }
+        register();
+        long now = System.nanoTime();
+        while ((next = timers.peek()) != null && next.due - now <= 0) {
+          timers.poll();
+          next.connection.flushDue(now);
+        }
+      }
+    } catch (IOException | ClosedSelectorException e) {
+      // The loop ends with its selector
+    } finally {
+      for (SelectionKey key : selector.keys()) {
+        ((Connection) key.attachment()).close();
+      }
+      try {
+        selector.close();
+      } catch (IOException ignored) {
+        // Nothing left to release
+      }
+    }
+  }
+
+  private void register() throws IOException {
+    SocketChannel channel;
+    while ((channel = adopted.poll()) != null) {
+      SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+      key.attach(new Connection(channel, key));
+    }
+  }
+
+  private void ready(SelectionKey key) {
+    Connection connection = (Connection) key.attachment();
+    try {
+      if (key.isReadable()) {
+        connection.read();
+      }
+      if (key.isValid() && key.isWritable()) {
+        connection.write();
+      }
+    } catch (IOException e) {
+      connection.close();
+    }
+  }
+
+  private static int indexOf(byte[] bytes, int from, int to, byte wanted) {
+    for (int i = from; i < to; i++) {
+      if (bytes[i] == wanted) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  // Index just past the blank line ending the headers, or -1 if it has not arrived yet
+  private static int headersEnd(byte[] bytes, int from, int to) {
+    outer:
+    for (int i = from; i <= to - CRLF_CRLF.length; i++) {
+      for (int j = 0; j < CRLF_CRLF.length; j++) {
+        if (bytes[i + j] != CRLF_CRLF[j]) {
+          continue outer;
+        }
+      }
+      return i + CRLF_CRLF.length;
+    }
+    return -1;
+  }
+
+  private static boolean equalsIgnoreCase(byte[] bytes, int from, int to, String expected) {
+    if (to - from != expected.length()) {
+      return false;
+    }
+    for (int i = 0; i < expected.length(); i++) {
+      if (Character.toLowerCase((char) bytes[from + i]) != expected.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String ascii(byte[] bytes, int from, int to) {
+    return new String(bytes, from, to - from, StandardCharsets.ISO_8859_1).trim();
+  }
+
+  private static byte[] encode(BankRules.Answer answer, boolean close) {
+    String reason;
+    switch (answer.status) {
+      case 200:
+        reason = "OK";
+        break;
+      case 503:
+        reason = "Service Unavailable";
+        break;
+      default:
+        reason = "Bad Request";
+        break;
+    }
+    byte[] head = ("HTTP/1.1 " + answer.status + " " + reason
+        + "\r\nContent-Type: application/json\r\nContent-Length: " + answer.body.length
+        + (close ? "\r\nConnection: close" : "") + "\r\n\r\n")
+        .getBytes(StandardCharsets.ISO_8859_1);
+    byte[] response = new byte[head.length + answer.body.length];
+    System.arraycopy(head, 0, response, 0, head.length);
+    System.arraycopy(answer.body, 0, response, head.length, answer.body.length);
+    return response;
+  }
+
+  private static final class Pending {
+
+    final Connection connection;
+    final long due;
+    final byte[] response;
+    final boolean close;
+
+    Pending(Connection connection, long due, byte[] response, boolean close) {
+      this.connection = connection;
+      this.due = due;
+      this.response = response;
+      this.close = close;
+    }
+  }
+
+  private final class Connection {
+
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    // Both kept ready to be filled
+    private ByteBuffer in = ByteBuffer.allocate(8192);
+    private ByteBuffer out = ByteBuffer.allocate(8192);
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+    // Set once a request asks to close; later requests are ignored
+    private boolean closing;
+    private boolean closeWhenWritten;
+    private boolean closed;
+
+    Connection(SocketChannel channel, SelectionKey key) {
+      this.channel = channel;
+      this.key = key;
+    }
+
+    void read() throws IOException {
+      if (channel.read(in) < 0) {
+        close();
+        return;
+      }
+      in.flip();
+      while (!closing && answerNext()) {
+        // Answer every complete request read so far
+      }
+      in.compact();
+      if (!in.hasRemaining()) {
+        if (in.capacity() >= MAX_REQUEST_BYTES) {
+          close();
+          return;
+        }
+        in = ByteBuffer.allocate(in.capacity() * 2).put(in.flip());
+      }
+      flushDue(System.nanoTime());
+    }
+
+    // Answers the request at the start of the buffer if all of it has arrived
+    private boolean answerNext() {
+      byte[] bytes = in.array();
+      int start = in.position();
+      int end = headersEnd(bytes, start, in.limit());
+      if (end < 0) {
+        return false;
+      }
+      int lineEnd = indexOf(bytes, start, end, (byte) '\r');
+      int methodEnd = indexOf(bytes, start, lineEnd, (byte) ' ');
+      int targetEnd = methodEnd < 0 ? -1 : indexOf(bytes, methodEnd + 1, lineEnd, (byte) ' ');
+      if (targetEnd < 0) {
+        respond(BankRules.UNSUPPORTED, true);
+        return false;
+      }
+      int pathEnd = indexOf(bytes, methodEnd + 1, targetEnd, (byte) '?');
+      String path = ascii(bytes, methodEnd + 1, pathEnd < 0 ? targetEnd : pathEnd);
+      long contentLength = 0;
+      boolean close = false;
+      for (int line = lineEnd + 2; line < end - 2; ) {
+        int next = indexOf(bytes, line, end, (byte) '\r');
+        int colon = indexOf(bytes, line, next, (byte) ':');
+        if (colon > 0) {
+          if (equalsIgnoreCase(bytes, line, colon, "content-length")) {
+            try {
+              contentLength = Long.parseLong(ascii(bytes, colon + 1, next));
+            } catch (NumberFormatException e) {
+              contentLength = -1;
+            }
+          } else if (equalsIgnoreCase(bytes, line, colon, "connection")) {
+            close = ascii(bytes, colon + 1, next).equalsIgnoreCase("close");
+          } else if (equalsIgnoreCase(bytes, line, colon, "transfer-encoding")) {
+            // Chunked bodies are not read; the gateway always sends a length
+            contentLength = -1;
+          }
+        }
+        line = next + 2;
+      }
+      if (contentLength < 0 || contentLength > MAX_REQUEST_BYTES) {
+        respond(BankRules.UNSUPPORTED, true);
+        return false;
+      }
+      if (in.limit() - end < contentLength) {
+        return false;
+      }
+      in.position(end + (int) contentLength);
+      respond(answer(equalsIgnoreCase(bytes, start, methodEnd, "post"), path, bytes, end,
+          (int) contentLength), close);
+      return true;
+    }
+
+    private BankRules.Answer answer(boolean post, String path, byte[] body, int offset,
+        int length) {
+      bank.requests.increment();
+      boolean payment = path.equals("/payments");
+      if (!post || !payment && !path.equals("/payments/batch")) {
+        return BankRules.UNSUPPORTED;
+      }
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      if (bank.bursts.failing(System.nanoTime() - bank.startedAt, random)) {
+        bank.failed.increment();
+        return BankRules.UNAVAILABLE;
+      }
+      return payment ? BankRules.payment(body, offset, length, random)
+          : BankRules.batch(body, offset, length, random);
+    }
+
+    private void respond(BankRules.Answer answer, boolean close) {
+      closing |= close;
+      long due = System.nanoTime() + bank.latency.nextNanos(ThreadLocalRandom.current());
+      Pending answered = new Pending(this, due, encode(answer, close), close);
+      pending.add(answered);
+      if (pending.size() == 1) {
+        timers.add(answered);
+      }
+    }
+
+    // Writes out the answers whose time has come, in the order their requests arrived
+    void flushDue(long now) {
+      if (closed) {
+        return;
+      }
+      boolean any = false;
+      Pending head;
+      while ((head = pending.peek()) != null && head.due - now <= 0) {
+        pending.poll();
+        if (out.remaining() < head.response.length) {
+          ByteBuffer larger = ByteBuffer.allocate(
+              Math.max(out.capacity() * 2, out.position() + head.response.length));
+          out = larger.put(out.flip());
+        }
+        out.put(head.response);
+        closeWhenWritten |= head.close;
+        any = true;
+      }
+      if (!any) {
+        return;
+      }
+      if (head != null) {
+        timers.add(head);
+      }
+      try {
+        write();
+      } catch (IOException e) {
+        close();
+      }
+    }
+
+    void write() throws IOException {
+      out.flip();
+      channel.write(out);
+      boolean left = out.hasRemaining();
+      out.compact();
+      if (left) {
+        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+      } else if (closeWhenWritten) {
+        close();
+      } else if ((key.interestOps() & SelectionKey.OP_WRITE) != 0) {
+        key.interestOps(SelectionKey.OP_READ);
+      }
+    }
+
+    void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      pending.clear();
+      key.cancel();
+      try {
+        channel.close();
+      } catch (IOException ignored) {
+        // Already gone
+      }
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package com.checkout.payment.gateway.standin;
+
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * How long the {@link BankStandIn} holds each answer back.
+ */
+@FunctionalInterface
+public interface LatencyModel {
+
+  /**
+   * The delay before the next answer, in nanoseconds.
+   */
+  long nextNanos(Random random);
+
+  static LatencyModel none() {
+    return random -> 0;
+  }
+
+  static LatencyModel fixed(Duration latency) {
+    long nanos = latency.toNanos();
+    if (nanos < 0) {
+      throw new IllegalArgumentException("latency must not be negative");
+    }
+    return random -> nanos;
+  }
+
+  /**
+   * Delays whose logarithm is normally distributed: most answers near {@code median}, with a long
+   * tail that grows with {@code sigma}. A sigma of 0.5 puts p99 at about three times the median.
+   */
+  static LatencyModel lognormal(Duration median, double sigma) {
+    if (median.isNegative() || median.isZero() || sigma < 0) {
+      throw new IllegalArgumentException("lognormal latency needs a positive median and sigma");
+    }
+    double mu = Math.log(median.toNanos());
+    return random -> (long) Math.exp(mu + sigma * random.nextGaussian());
+  }
+
+  /**
+   * Delays drawn from {@code slow} for a {@code slowFraction} of answers and from {@code fast}
+   * for the rest, like a bank that usually answers from cache and sometimes from its mainframe.
+   */
+  static LatencyModel bimodal(LatencyModel fast, LatencyModel slow, double slowFraction) {
+    if (slowFraction < 0 || slowFraction > 1) {
+      throw new IllegalArgumentException("the slow fraction must be between 0 and 1");
+    }
+    return random -> random.nextDouble() < slowFraction
+        ? slow.nextNanos(random) : fast.nextNanos(random);
+  }
+
+  /**
+   * Reads a model from {@code none}, {@code fixed:<delay>}, {@code lognormal:<median>:<sigma>} or
+   * {@code bimodal:<fast median>:<slow median>:<slow fraction>[:<sigma>]}; the modes of a bimodal
+   * model are fixed unless given a sigma. Delays read like {@code 500us}, {@code 5ms} or
+   * {@code 1s}.
+   */
+  static LatencyModel parse(String spec) {
+    String[] parts = spec.split(":");
+    try {
+      switch (parts[0]) {
+        case "none":
+          if (parts.length == 1) {
+            return none();
+          }
+          break;
+        case "fixed":
+          if (parts.length == 2) {
+            return fixed(BankStandIn.duration(parts[1]));
+          }
+          break;
+        case "lognormal":
+          if (parts.length == 3) {
+            return lognormal(BankStandIn.duration(parts[1]), Double.parseDouble(parts[2]));
+          }
+          break;
+        case "bimodal":
+          if (parts.length == 4 || parts.length == 5) {
+            Duration fast = BankStandIn.duration(parts[1]);
+            Duration slow = BankStandIn.duration(parts[2]);
+            double slowFraction = Double.parseDouble(parts[3]);
+            if (parts.length == 4) {
+              return bimodal(fixed(fast), fixed(slow), slowFraction);
+            }
+            double sigma = Double.parseDouble(parts[4]);
+            return bimodal(lognormal(fast, sigma), lognormal(slow, sigma), slowFraction);
+          }
+          break;
+        default:
+          break;
+      }
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("bad number in latency " + spec, e);
+    }
+    throw new IllegalArgumentException("latency must be none, fixed:<delay>, "
+        + "lognormal:<median>:<sigma> or bimodal:<fast>:<slow>:<slow fraction>[:<sigma>], not "
+        + spec);
+  }
+}
@@ -0,0 +1,75 @@
+package com.checkout.payment.gateway.benchmark;
+
+import com.checkout.payment.gateway.configuration.BankClientProperties;
+import com.checkout.payment.gateway.configuration.BankHttpClients;
+import com.checkout.payment.gateway.service.AcquirerRouter;
+import com.checkout.payment.gateway.service.BankSimulatorClient;
+import com.checkout.payment.gateway.service.CircuitBreaker;
+import com.checkout.payment.gateway.service.ConcurrencyLimiter;
+import com.checkout.payment.gateway.service.RetryBudget;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+
+/**
+ * Prints bank-call throughput and tail latency against each acquirer alone, and then routed over
+ * all of them. Needs the acquirer imposters running ({@code docker-compose up -d}); run with
+ * {@code ./gradlew acquirerRoutingReport}. The arguments are the number of calls kept in flight
+ * and then the acquirer URLs.
+ */
+public final class AcquirerRoutingReport {
+
+  private AcquirerRoutingReport() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    int inFlight = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+    List<URI> urls = new ArrayList<>();
+    for (int i = 1; i < args.length; i++) {
+      urls.add(URI.create(args[i]));
+    }
+    if (urls.isEmpty()) {
+      for (int port = 8081; port <= 8083; port++) {
+        urls.add(URI.create("http://localhost:" + port + "/payments"));
+      }
+    }
+    System.out.printf("%-24s %9s %12s %10s %10s %10s %8s %10s%n", "acquirers", "in-flight",
+        "calls/s", "p50 ms", "p99 ms", "p99.9 ms", "errors", "failovers");
+    for (URI url : urls) {
+      report(url.getAuthority(), List.of(url), inFlight);
+    }
+    report("all, routed", urls, inFlight);
+  }
+
+  private static void report(String label, List<URI> urls, int inFlight) throws Exception {
+    BankClientProperties properties = new BankClientProperties();
+    // The load driven is the point; bulkheads would cap it
+    properties.getBulkheads().setMaxPerCurrency(Integer.MAX_VALUE);
+    properties.getBulkheads().setMaxPerAcquirer(Integer.MAX_VALUE);
+    // Calls beyond the pool size queue for a connection rather than fail; failures are counted
+    properties.setConnectionRequestTimeout(properties.getReadTimeout().multipliedBy(6));
+    properties.getRetry().setMaxAttempts(1);
+    for (URI url : urls) {
+      BankClientProperties.Acquirer acquirer = new BankClientProperties.Acquirer();
+      acquirer.setUrl(url);
+      properties.getRouting().getAcquirers().add(acquirer);
+    }
+    try (PoolingAsyncClientConnectionManager manager =
+            BankHttpClients.connectionManager(properties);
+        CloseableHttpAsyncClient client = BankHttpClients.httpClient(manager, properties);
+        BankSimulatorClient bank = new BankSimulatorClient(client, new ObjectMapper(),
+            properties, new ConcurrencyLimiter(inFlight, inFlight, inFlight,
+                properties.getReadTimeout(), 0.5),
+            new CircuitBreaker(1, 100_000, 100_000, Duration.ofSeconds(1), 1),
+            new RetryBudget(0, 0), AcquirerRouter.from(properties))) {
+      BankPoolReport.Load load = BankPoolReport.drive(bank, inFlight);
+      System.out.printf("%-24s %9d %12.0f %10.2f %10.2f %10.2f %8d %10d%n", label, inFlight,
+          load.callsPerSecond(), load.percentileMillis(0.5), load.percentileMillis(0.99),
+          load.percentileMillis(0.999), load.errors, bank.failovers());
+    }
+  }
+}
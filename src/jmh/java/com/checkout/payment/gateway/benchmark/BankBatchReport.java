@@ -0,0 +1,68 @@
+package com.checkout.payment.gateway.benchmark;
+
+import com.checkout.payment.gateway.configuration.BankClientProperties;
+import com.checkout.payment.gateway.configuration.BankHttpClients;
+import com.checkout.payment.gateway.service.AcquirerRouter;
+import com.checkout.payment.gateway.service.BankSimulatorClient;
+import com.checkout.payment.gateway.service.CircuitBreaker;
+import com.checkout.payment.gateway.service.ConcurrencyLimiter;
+import com.checkout.payment.gateway.service.RetryBudget;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.util.Arrays;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+
+/**
+ * Prints bank-call throughput and latency with calls sent one per request and micro-batched at
+ * several batch sizes, so the throughput gained can be weighed against the latency added. Needs
+ * the bank simulator running ({@code docker-compose up -d}); run with
+ * {@code ./gradlew bankBatchReport}. The arguments are the number of calls kept in flight, the
+ * longest wait for a batch to fill in microseconds, and then the batch sizes; size 1 sends each
+ * call on its own.
+ */
+public final class BankBatchReport {
+
+  private BankBatchReport() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    int inFlight = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+    Duration maxWait = Duration.ofNanos(
+        (args.length > 1 ? Long.parseLong(args[1]) : 200) * 1_000);
+    int[] batchSizes = args.length > 2
+        ? Arrays.stream(args, 2, args.length).mapToInt(Integer::parseInt).toArray()
+        : new int[]{1, 8, 32, 128};
+    System.out.printf("%-8s %9s %8s %12s %10s %10s %10s %8s%n", "batch", "in-flight", "wait us",
+        "calls/s", "requests/s", "p50 ms", "p99 ms", "errors");
+    for (int batchSize : batchSizes) {
+      BankClientProperties properties = new BankClientProperties();
+      // The load driven is the point; bulkheads would cap it
+      properties.getBulkheads().setMaxPerCurrency(Integer.MAX_VALUE);
+      properties.getBulkheads().setMaxPerAcquirer(Integer.MAX_VALUE);
+      // Calls beyond the pool size queue for a connection rather than fail; failures are counted
+      properties.setConnectionRequestTimeout(properties.getReadTimeout().multipliedBy(6));
+      properties.getRetry().setMaxAttempts(1);
+      properties.getBatch().setEnabled(batchSize > 1);
+      properties.getBatch().setMaxSize(batchSize);
+      properties.getBatch().setMaxWait(maxWait);
+      try (PoolingAsyncClientConnectionManager manager =
+              BankHttpClients.connectionManager(properties);
+          CloseableHttpAsyncClient client = BankHttpClients.httpClient(manager, properties);
+          BankSimulatorClient bank = new BankSimulatorClient(client, new ObjectMapper(),
+              properties, new ConcurrencyLimiter(inFlight, inFlight, inFlight,
+                  properties.getReadTimeout(), 0.5),
+              new CircuitBreaker(1, 100_000, 100_000, Duration.ofSeconds(1), 1),
+              new RetryBudget(0, 0), AcquirerRouter.from(properties))) {
+        BankPoolReport.Load load = BankPoolReport.drive(bank, inFlight);
+        // Batches are counted over warm-up as well, so the average size covers it too
+        double averageBatch = batchSize > 1
+            ? (double) load.totalCalls / Math.max(1, bank.batches())
+            : 1;
+        System.out.printf("%-8d %9d %8d %12.0f %10.0f %10.2f %10.2f %8d%n", batchSize, inFlight,
+            maxWait.toNanos() / 1_000, load.callsPerSecond(), load.callsPerSecond() / averageBatch,
+            load.percentileMillis(0.5), load.percentileMillis(0.99), load.errors);
+      }
+    }
+  }
+}
@@ -0,0 +1,173 @@
+package com.checkout.payment.gateway.benchmark;
+
+import com.checkout.payment.gateway.configuration.BankClientProperties;
+import com.checkout.payment.gateway.configuration.BankHttpClients;
+import com.checkout.payment.gateway.enums.Currency;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.BankSimulatorRequest;
+import com.checkout.payment.gateway.service.AcquirerRouter;
+import com.checkout.payment.gateway.service.BankSimulatorClient;
+import com.checkout.payment.gateway.service.CircuitBreaker;
+import com.checkout.payment.gateway.service.ConcurrencyLimiter;
+import com.checkout.payment.gateway.service.RetryBudget;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+
+/**
+ * Prints bank-call throughput, latency and the JVM's live thread count with a fixed number of
+ * calls kept in flight through the non-blocking client. Needs the bank simulator running
+ * ({@code docker-compose up -d}); run with {@code ./gradlew bankPoolReport}. The arguments are the
+ * pool size, the HTTP version policy, and then the in-flight call counts to try.
+ */
+public final class BankPoolReport {
+
+  private static final long WARM_UP_SECONDS = 3;
+  static final long MEASURE_SECONDS = 10;
+  // An odd last digit is authorized by the simulator; anything else means the call failed
+  static final BankSimulatorRequest REQUEST =
+      new BankSimulatorRequest("2222405343248877", "04/2099", Currency.GBP, 100, "123");
+
+  private BankPoolReport() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    int poolSize = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+    HttpVersionPolicy version = args.length > 1
+        ? HttpVersionPolicy.valueOf(args[1]) : HttpVersionPolicy.NEGOTIATE;
+    int[] inFlight = args.length > 2
+        ? Arrays.stream(args, 2, args.length).mapToInt(Integer::parseInt).toArray()
+        : new int[]{200, 2_000, 20_000};
+    BankClientProperties properties = new BankClientProperties();
+    // The load driven is the point; bulkheads would cap it
+    properties.getBulkheads().setMaxPerCurrency(Integer.MAX_VALUE);
+    properties.getBulkheads().setMaxPerAcquirer(Integer.MAX_VALUE);
+    properties.setMaxConnections(poolSize);
+    properties.setMaxConnectionsPerRoute(poolSize);
+    properties.setHttpVersion(version);
+    // Calls beyond the pool size queue for a connection rather than fail
+    properties.setConnectionRequestTimeout(properties.getReadTimeout().multipliedBy(6));
+    System.out.printf("%-10s %6s %9s %12s %10s %10s %8s %8s%n", "version", "pool", "in-flight",
+        "calls/s", "p50 ms", "p99 ms", "errors", "threads");
+    // Neither may shed calls: the limit is pinned at the largest level, and the breaker only opens
+    // once 100,000 calls in a row have failed. Failures are counted, not retried.
+    properties.getRetry().setMaxAttempts(1);
+    int maxInFlight = Arrays.stream(inFlight).max().orElseThrow();
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(maxInFlight, maxInFlight, maxInFlight,
+        properties.getReadTimeout(), 0.5);
+    CircuitBreaker breaker = new CircuitBreaker(1, 100_000, 100_000, Duration.ofSeconds(1), 1);
+    try (PoolingAsyncClientConnectionManager manager =
+            BankHttpClients.connectionManager(properties);
+        CloseableHttpAsyncClient client = BankHttpClients.httpClient(manager, properties);
+        BankSimulatorClient bank = new BankSimulatorClient(client, new ObjectMapper(),
+            properties, limiter, breaker, new RetryBudget(0, 0),
+            AcquirerRouter.from(properties))) {
+      for (int calls : inFlight) {
+        report(version, poolSize, calls, bank);
+      }
+    }
+  }
+
+  private static void report(HttpVersionPolicy version, int poolSize, int inFlight,
+      BankSimulatorClient bank) throws InterruptedException, IOException {
+    Load load = drive(bank, inFlight);
+    System.out.printf("%-10s %6d %9d %12.0f %10.1f %10.1f %8d %8d%n", version, poolSize, inFlight,
+        load.callsPerSecond(), load.percentileMillis(0.5), load.percentileMillis(0.99),
+        load.errors, load.threads);
+  }
+
+  /**
+   * Keeps {@code inFlight} calls outstanding for the warm-up and measurement periods.
+   */
+  static Load drive(BankSimulatorClient bank, int inFlight)
+      throws InterruptedException, IOException {
+    return drive(bank, REQUEST, inFlight);
+  }
+
+  /**
+   * Keeps {@code inFlight} copies of {@code request} outstanding for the warm-up and measurement
+   * periods.
+   */
+  static Load drive(BankSimulatorClient bank, BankSimulatorRequest request, int inFlight)
+      throws InterruptedException, IOException {
+    AtomicBoolean measuring = new AtomicBoolean();
+    AtomicBoolean stopped = new AtomicBoolean();
+    AtomicLong errors = new AtomicLong();
+    AtomicLong completed = new AtomicLong();
+    ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+    // One thread keeps inFlight calls outstanding; completions free a permit for the next call
+    Semaphore permits = new Semaphore(inFlight);
+    Thread caller = new Thread(() -> {
+      while (!stopped.get()) {
+        try {
+          permits.acquire();
+        } catch (InterruptedException e) {
+          return;
+        }
+        long started = System.nanoTime();
+        bank.callBank(request).whenComplete((status, failure) -> {
+          if (measuring.get()) {
+            if (status != PaymentStatus.AUTHORIZED) {
+              errors.incrementAndGet();
+            } else {
+              latencies.add(System.nanoTime() - started);
+            }
+          }
+          completed.incrementAndGet();
+          permits.release();
+        });
+      }
+    }, "bank-pool-report");
+    caller.setDaemon(true);
+    caller.start();
+    TimeUnit.SECONDS.sleep(WARM_UP_SECONDS);
+    measuring.set(true);
+    TimeUnit.SECONDS.sleep(MEASURE_SECONDS);
+    int threads = Thread.activeCount();
+    measuring.set(false);
+    stopped.set(true);
+    caller.interrupt();
+    caller.join();
+    // Let the calls still in flight finish before the next level starts
+    permits.acquire(inFlight);
+    long[] all = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+    if (all.length == 0) {
+      throw new IOException("no bank calls completed; is the bank simulator running?");
+    }
+    return new Load(all, errors.get(), threads, completed.get());
+  }
+
+  static final class Load {
+
+    final long[] latencies;
+    final long errors;
+    final int threads;
+    // Warm-up included
+    final long totalCalls;
+
+    Load(long[] latencies, long errors, int threads, long totalCalls) {
+      this.latencies = latencies;
+      this.errors = errors;
+      this.threads = threads;
+      this.totalCalls = totalCalls;
+    }
+
+    double callsPerSecond() {
+      return (double) latencies.length / MEASURE_SECONDS;
+    }
+
+    double percentileMillis(double percentile) {
+      return latencies[Math.min(latencies.length - 1, (int) (latencies.length * percentile))]
+          / 1e6;
+    }
+  }
+}
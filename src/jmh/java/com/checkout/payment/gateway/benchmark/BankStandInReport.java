@@ -0,0 +1,128 @@
+package com.checkout.payment.gateway.benchmark;
+
+import com.checkout.payment.gateway.standin.BankStandIn;
+import com.checkout.payment.gateway.standin.ErrorBursts;
+import com.checkout.payment.gateway.standin.LatencyModel;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prints the requests per second an embedded {@link BankStandIn} answers with no latency, for
+ * each connection count, over raw sockets that keep a window of pipelined payments in flight so
+ * the client does as little work as possible. Run with {@code ./gradlew bankStandInReport}; the
+ * arguments are the event loops, the pipeline depth, and then the connection counts to try.
+ */
+public final class BankStandInReport {
+
+  private static final long WARM_UP_SECONDS = 2;
+  private static final long MEASURE_SECONDS = 5;
+  private static final String BODY = "{\"card_number\":\"2222405343248877\","
+      + "\"expiry_date\":\"04/2099\",\"currency\":\"GBP\",\"amount\":100,\"cvv\":\"123\"}";
+  private static final byte[] PAYMENT = ("POST /payments HTTP/1.1\r\nHost: bank\r\n"
+      + "Content-Type: application/json\r\nContent-Length: " + BODY.length() + "\r\n\r\n"
+      + BODY).getBytes(StandardCharsets.US_ASCII);
+
+  private BankStandInReport() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    int loops = args.length > 0
+        ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+    int depth = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+    List<Integer> connectionCounts = new ArrayList<>();
+    for (int i = 2; i < args.length; i++) {
+      connectionCounts.add(Integer.parseInt(args[i]));
+    }
+    if (connectionCounts.isEmpty()) {
+      connectionCounts = List.of(1, 4, 16, 64);
+    }
+    System.out.printf("%6s %12s %6s %14s%n", "loops", "connections", "depth", "requests/s");
+    try (BankStandIn bank = new BankStandIn(0, loops, LatencyModel.none(), ErrorBursts.none())) {
+      for (int connections : connectionCounts) {
+        System.out.printf("%6d %12d %6d %14.0f%n", loops, connections, depth,
+            requestsPerSecond(bank, connections, depth));
+      }
+    }
+  }
+
+  private static double requestsPerSecond(BankStandIn bank, int connections, int depth)
+      throws Exception {
+    byte[] window = new byte[PAYMENT.length * depth];
+    for (int i = 0; i < depth; i++) {
+      System.arraycopy(PAYMENT, 0, window, i * PAYMENT.length, PAYMENT.length);
+    }
+    AtomicBoolean measuring = new AtomicBoolean();
+    AtomicBoolean stopped = new AtomicBoolean();
+    LongAdder answered = new LongAdder();
+    List<Thread> clients = new ArrayList<>();
+    for (int i = 0; i < connections; i++) {
+      Thread client = new Thread(() -> {
+        try (Socket socket = new Socket(bank.url().getHost(), bank.port())) {
+          socket.setTcpNoDelay(true);
+          OutputStream out = socket.getOutputStream();
+          InputStream in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
+          while (!stopped.get()) {
+            out.write(window);
+            for (int j = 0; j < depth; j++) {
+              if (readResponse(in) != 200) {
+                throw new IOException("the stand-in did not authorize the payment");
+              }
+            }
+            if (measuring.get()) {
+              answered.add(depth);
+            }
+          }
+        } catch (IOException e) {
+          System.err.println("Connection failed: " + e);
+        }
+      }, "bank-stand-in-report-" + i);
+      client.setDaemon(true);
+      client.start();
+      clients.add(client);
+    }
+    TimeUnit.SECONDS.sleep(WARM_UP_SECONDS);
+    measuring.set(true);
+    TimeUnit.SECONDS.sleep(MEASURE_SECONDS);
+    measuring.set(false);
+    stopped.set(true);
+    for (Thread client : clients) {
+      client.join();
+    }
+    return (double) answered.sum() / MEASURE_SECONDS;
+  }
+
+  // Reads one response off the stream and returns its status
+  private static int readResponse(InputStream in) throws IOException {
+    String statusLine = readLine(in);
+    int contentLength = 0;
+    for (String header = readLine(in); !header.isEmpty(); header = readLine(in)) {
+      if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+        contentLength = Integer.parseInt(header.substring(15).trim());
+      }
+    }
+    in.readNBytes(contentLength);
+    return Integer.parseInt(statusLine.substring(9, 12));
+  }
+
+  private static String readLine(InputStream in) throws IOException {
+    StringBuilder line = new StringBuilder(64);
+    for (int b = in.read(); b != '\n'; b = in.read()) {
+      if (b < 0) {
+        throw new IOException("the stand-in closed the connection");
+      }
+      if (b != '\r') {
+        line.append((char) b);
+      }
+    }
+    return line.toString();
+  }
+}
@@ -0,0 +1,125 @@
+package com.checkout.payment.gateway.benchmark;
+
+import com.checkout.payment.gateway.configuration.BankClientProperties;
+import com.checkout.payment.gateway.configuration.BankHttpClients;
+import com.checkout.payment.gateway.enums.Currency;
+import com.checkout.payment.gateway.model.BankSimulatorRequest;
+import com.checkout.payment.gateway.service.AcquirerRouter;
+import com.checkout.payment.gateway.service.BankSimulatorClient;
+import com.checkout.payment.gateway.service.CircuitBreaker;
+import com.checkout.payment.gateway.service.ConcurrencyLimiter;
+import com.checkout.payment.gateway.service.RetryBudget;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+
+/**
+ * Prints bank-call latency per currency while the bank takes two seconds over every EUR payment
+ * and a few milliseconds over the others, first with no bulkhead to speak of and then with EUR
+ * capped. The bank runs in-process; run with {@code ./gradlew bulkheadReport}. The arguments are
+ * the EUR calls kept in flight, the calls kept in flight for each other currency, and the EUR cap.
+ */
+public final class BulkheadReport {
+
+  private static final long SLOW_MILLIS = 2_000;
+  private static final long FAST_MILLIS = 5;
+  // Shared by every currency, as the limit and pool of one gateway are
+  private static final int SHARED_CAPACITY = 200;
+  private static final byte[] AUTHORIZED =
+      "{\"authorized\":true,\"authorization_code\":\"0bb07405\"}".getBytes(StandardCharsets.UTF_8);
+
+  private BulkheadReport() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    int euroInFlight = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+    int otherInFlight = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+    int euroCap = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+    HttpServer bank = startBank();
+    try {
+      URI url = URI.create("http://127.0.0.1:" + bank.getAddress().getPort() + "/payments");
+      System.out.printf("%-12s %-8s %9s %12s %10s %10s %8s%n", "EUR cap", "currency", "in-flight",
+          "calls/s", "p50 ms", "p99 ms", "errors");
+      report(url, Integer.MAX_VALUE, euroInFlight, otherInFlight);
+      report(url, euroCap, euroInFlight, otherInFlight);
+    } finally {
+      bank.stop(0);
+    }
+  }
+
+  private static void report(URI url, int euroCap, int euroInFlight, int otherInFlight)
+      throws Exception {
+    BankClientProperties properties = new BankClientProperties();
+    properties.setUrl(url);
+    properties.setMaxConnections(SHARED_CAPACITY);
+    properties.setMaxConnectionsPerRoute(SHARED_CAPACITY);
+    properties.getRetry().setMaxAttempts(1);
+    properties.getBulkheads().setMaxPerCurrency(Integer.MAX_VALUE);
+    properties.getBulkheads().setMaxPerAcquirer(Integer.MAX_VALUE);
+    properties.getBulkheads().getCurrencies().put(Currency.EUR, euroCap);
+    ExecutorService drivers = Executors.newCachedThreadPool();
+    try (PoolingAsyncClientConnectionManager manager =
+            BankHttpClients.connectionManager(properties);
+        CloseableHttpAsyncClient client = BankHttpClients.httpClient(manager, properties);
+        BankSimulatorClient bank = new BankSimulatorClient(client, new ObjectMapper(),
+            properties, new ConcurrencyLimiter(SHARED_CAPACITY, SHARED_CAPACITY,
+                SHARED_CAPACITY, properties.getReadTimeout(), 0.5),
+            new CircuitBreaker(1, 100_000, 100_000, Duration.ofSeconds(1), 1),
+            new RetryBudget(0, 0), AcquirerRouter.from(properties))) {
+      Map<Currency, Future<BankPoolReport.Load>> loads = new EnumMap<>(Currency.class);
+      for (Currency currency : Currency.values()) {
+        int inFlight = currency == Currency.EUR ? euroInFlight : otherInFlight;
+        BankSimulatorRequest request =
+            new BankSimulatorRequest("2222405343248877", "04/2099", currency, 100, "123");
+        loads.put(currency, drivers.submit(() -> BankPoolReport.drive(bank, request, inFlight)));
+      }
+      String cap = euroCap == Integer.MAX_VALUE ? "none" : String.valueOf(euroCap);
+      for (Map.Entry<Currency, Future<BankPoolReport.Load>> entry : loads.entrySet()) {
+        BankPoolReport.Load load = entry.getValue().get();
+        System.out.printf("%-12s %-8s %9d %12.0f %10.2f %10.2f %8d%n", cap,
+            entry.getKey().getName(),
+            entry.getKey() == Currency.EUR ? euroInFlight : otherInFlight,
+            load.callsPerSecond(), load.percentileMillis(0.5), load.percentileMillis(0.99),
+            load.errors);
+      }
+    } finally {
+      drivers.shutdown();
+    }
+  }
+
+  // Authorizes every payment, taking its time over EUR ones
+  private static HttpServer startBank() throws Exception {
+    HttpServer bank =
+        HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+    bank.createContext("/payments", exchange -> {
+      String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+      try {
+        Thread.sleep(body.contains("\"EUR\"") ? SLOW_MILLIS : FAST_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, AUTHORIZED.length);
+      exchange.getResponseBody().write(AUTHORIZED);
+      exchange.close();
+    });
+    bank.setExecutor(Executors.newCachedThreadPool(task -> {
+      Thread thread = new Thread(task, "bulkhead-report-bank");
+      thread.setDaemon(true);
+      return thread;
+    }));
+    bank.start();
+    return bank;
+  }
+}
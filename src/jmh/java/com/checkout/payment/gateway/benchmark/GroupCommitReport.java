@@ -0,0 +1,123 @@
+package com.checkout.payment.gateway.benchmark;
+
+import com.checkout.payment.gateway.configuration.PaymentsRepositoryProperties;
+import com.checkout.payment.gateway.enums.Currency;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import com.checkout.payment.gateway.repository.JournalSync;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+/**
+ * Prints durable add throughput and commit latency of a journaled repository with one sync per
+ * add and with group commit at increasing batch sizes. Run with {@code ./gradlew
+ * groupCommitReport}; the arguments are the writer thread count and the adds per writer. Figures
+ * depend almost entirely on how long the device takes to sync.
+ */
+public final class GroupCommitReport {
+
+  private static final int[] BATCHES = {1, 8, 32, 128, 512};
+  private static final Duration MAX_WAIT = Duration.ofMillis(1);
+  private static final PaymentStatus[] STATUSES = {PaymentStatus.AUTHORIZED, PaymentStatus.DECLINED};
+  private static final Currency[] CURRENCIES = Currency.values();
+
+  private GroupCommitReport() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    int threads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+    int addsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+    System.out.printf("%-6s %6s %8s %14s %10s %10s%n", "sync", "batch", "threads", "payments/s",
+        "p50 us", "p99 us");
+    report(JournalSync.EACH, 1, threads, addsPerThread);
+    for (int batch : BATCHES) {
+      report(JournalSync.GROUP, batch, threads, addsPerThread);
+    }
+  }
+
+  private static void report(JournalSync sync, int batch, int threads, int addsPerThread)
+      throws Exception {
+    Path directory = Files.createTempDirectory("payments-group-commit");
+    try (PaymentsRepository repository = open(directory, sync, batch)) {
+      long[][] latencies = new long[threads][addsPerThread];
+      CountDownLatch start = new CountDownLatch(1);
+      Thread[] writers = new Thread[threads];
+      for (int t = 0; t < threads; t++) {
+        long[] writerLatencies = latencies[t];
+        SplittableRandom random = new SplittableRandom(t);
+        writers[t] = new Thread(() -> {
+          awaitQuietly(start);
+          for (int i = 0; i < addsPerThread; i++) {
+            SuccessfulPaymentResponse payment = payment(random);
+            long started = System.nanoTime();
+            repository.add(payment);
+            writerLatencies[i] = System.nanoTime() - started;
+          }
+        });
+        writers[t].start();
+      }
+      long started = System.nanoTime();
+      start.countDown();
+      for (Thread writer : writers) {
+        writer.join();
+      }
+      long elapsed = System.nanoTime() - started;
+      long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+      System.out.printf("%-6s %6d %8d %14.0f %10d %10d%n", sync.name().toLowerCase(), batch,
+          threads, all.length * 1e9 / elapsed, percentile(all, 0.50) / 1_000,
+          percentile(all, 0.99) / 1_000);
+    } finally {
+      delete(directory);
+    }
+  }
+
+  private static PaymentsRepository open(Path directory, JournalSync sync, int batch) {
+    PaymentsRepositoryProperties properties = new PaymentsRepositoryProperties();
+    properties.getJournal().setEnabled(true);
+    properties.getJournal().setDirectory(directory);
+    properties.getJournal().setSync(sync);
+    properties.getJournal().setMaxBatch(batch);
+    properties.getJournal().setMaxWait(MAX_WAIT);
+    return new PaymentsRepository(properties);
+  }
+
+  private static SuccessfulPaymentResponse payment(SplittableRandom random) {
+    return new SuccessfulPaymentResponse(
+        new UUID(random.nextLong(), random.nextLong()),
+        STATUSES[random.nextInt(STATUSES.length)],
+        String.format("%04d", random.nextInt(10_000)),
+        1 + random.nextInt(12),
+        25 + random.nextInt(10),
+        CURRENCIES[random.nextInt(CURRENCIES.length)],
+        1_000 + random.nextInt(1_000_000));
+  }
+
+  private static long percentile(long[] sorted, double quantile) {
+    return sorted[Math.min(sorted.length - 1, (int) (sorted.length * quantile))];
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void delete(Path directory) throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(file);
+      }
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package com.checkout.payment.gateway.benchmark;
+
+import com.checkout.payment.gateway.enums.Currency;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.BankSimulatorRequest;
+import com.checkout.payment.gateway.model.BankSimulatorResponse;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reads and writes the four JSON documents every payment goes through, with the hand-written
+ * codecs ({@code codec}) and with Jackson's reflective bean (de)serializers ({@code beans}). Both
+ * mappers have Spring Boot's settings. Add {@code -prof gc} for bytes allocated per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonCodecBenchmark {
+
+  private static final byte[] PAYMENT_REQUEST = ("{\"card_number\":\"2222405343248877\","
+      + "\"expiry_month\":4,\"expiry_year\":2099,\"currency\":\"GBP\",\"amount\":\"100\","
+      + "\"cvv\":\"123\"}").getBytes(StandardCharsets.UTF_8);
+  private static final byte[] BANK_RESPONSE = ("{\"authorized\":true,"
+      + "\"authorization_code\":\"0bb07405-6d44-4b50-a14f-7ae0beff13ad\"}")
+      .getBytes(StandardCharsets.UTF_8);
+  private static final BankSimulatorRequest BANK_REQUEST =
+      new BankSimulatorRequest("2222405343248877", "04/2099", Currency.GBP, 100, "123");
+  private static final SuccessfulPaymentResponse PAYMENT_RESPONSE = new SuccessfulPaymentResponse(
+      UUID.randomUUID(), PaymentStatus.AUTHORIZED, "8877", 4, 2099, Currency.GBP, 100,
+      Instant.now());
+
+  @Param({"codec", "beans"})
+  String mapper;
+
+  private ObjectReader paymentRequestReader;
+  private ObjectWriter bankRequestWriter;
+  private ObjectReader bankResponseReader;
+  private ObjectWriter paymentResponseWriter;
+
+  @Setup
+  public void setUp() {
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    if (mapper.equals("beans")) {
+      objectMapper.setAnnotationIntrospector(new JacksonAnnotationIntrospector() {
+        @Override
+        public Object findSerializer(Annotated annotated) {
+          return null;
+        }
+
+        @Override
+        public Object findDeserializer(Annotated annotated) {
+          return null;
+        }
+      });
+    }
+    paymentRequestReader = objectMapper.readerFor(PostPaymentRequest.class);
+    bankRequestWriter = objectMapper.writerFor(BankSimulatorRequest.class);
+    bankResponseReader = objectMapper.readerFor(BankSimulatorResponse.class);
+    paymentResponseWriter = objectMapper.writerFor(SuccessfulPaymentResponse.class);
+  }
+
+  @Benchmark
+  public PostPaymentRequest readPaymentRequest() throws IOException {
+    return paymentRequestReader.readValue(PAYMENT_REQUEST);
+  }
+
+  @Benchmark
+  public byte[] writeBankRequest() throws IOException {
+    return bankRequestWriter.writeValueAsBytes(BANK_REQUEST);
+  }
+
+  @Benchmark
+  public BankSimulatorResponse readBankResponse() throws IOException {
+    return bankResponseReader.readValue(BANK_RESPONSE);
+  }
+
+  @Benchmark
+  public byte[] writePaymentResponse() throws IOException {
+    return paymentResponseWriter.writeValueAsBytes(PAYMENT_RESPONSE);
+  }
+}
@@ -0,0 +1,113 @@
+package com.checkout.payment.gateway.benchmark;
+
+import com.checkout.payment.gateway.configuration.PaymentsRepositoryProperties;
+import com.checkout.payment.gateway.enums.Currency;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.service.PaymentResponseCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The work behind {@code GET /payment/{id}} for a store of {@code entries} payments: looking the
+ * payment up and serializing it on every read ({@code serialize}), as before the response cache,
+ * or taking its bytes from a {@link PaymentResponseCache} large enough to hold every payment
+ * ({@code cached}). Add {@code -prof gc} for bytes allocated per read.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PaymentGetBenchmark {
+
+  @Param({"serialize", "cached"})
+  String mode;
+
+  @Param({"1000", "100000"})
+  int entries;
+
+  private PaymentsRepository store;
+  private ObjectWriter writer;
+  private PaymentResponseCache cache;
+
+  @Setup(Level.Trial)
+  public void fill() {
+    store = new PaymentsRepository(new PaymentsRepositoryProperties());
+    SplittableRandom random = new SplittableRandom(42);
+    for (int i = 0; i < entries; i++) {
+      store.add(new SuccessfulPaymentResponse(id(i), PaymentStatus.AUTHORIZED,
+          String.format("%04d", random.nextInt(10_000)), 1 + random.nextInt(12),
+          2030 + random.nextInt(10), Currency.GBP, 1_000 + random.nextInt(1_000_000)));
+    }
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    writer = objectMapper.writerFor(SuccessfulPaymentResponse.class);
+    cache = new PaymentResponseCache(objectMapper, mode.equals("cached") ? entries : 0);
+    // Warm every entry, so that the measurement is of reads after the first
+    for (int i = 0; i < entries; i++) {
+      read(id(i));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void close() {
+    store.close();
+  }
+
+  @Benchmark
+  public byte[] get(Caller caller) {
+    return read(id(caller.random.nextInt(entries)));
+  }
+
+  @State(Scope.Thread)
+  public static class Caller {
+
+    final SplittableRandom random = new SplittableRandom();
+  }
+
+  private byte[] read(UUID id) {
+    if (mode.equals("cached")) {
+      return cache.get(id, () -> store.get(id).orElseThrow()).body();
+    }
+    try {
+      return writer.writeValueAsBytes(store.get(id).orElseThrow());
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Id of the {@code i}th prefilled payment, as in {@link PaymentStoreBenchmark}.
+   */
+  private static UUID id(int i) {
+    return new UUID(mix(i), mix(~i));
+  }
+
+  private static long mix(long value) {
+    long z = value * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
@@ -0,0 +1,168 @@
+package com.checkout.payment.gateway.benchmark;
+
+import com.checkout.payment.gateway.configuration.PaymentsRepositoryProperties;
+import com.checkout.payment.gateway.enums.Currency;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import com.checkout.payment.gateway.repository.ConcurrentMapPaymentStore;
+import com.checkout.payment.gateway.repository.PaymentStore;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.repository.StorageMode;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Put and get against each {@link PaymentStore} engine holding {@code entries} payments. Thread
+ * count comes from JMH ({@code -t}); {@link PaymentStoreScalingReport} sweeps it.
+ *
+ * <p>{@code get} looks up payments present in the store. {@code put} inserts new payments into a
+ * store refilled to {@code entries} before every iteration, so it measures inserts at that size.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class PaymentStoreBenchmark {
+
+  private static final PaymentStatus[] STATUSES = {PaymentStatus.AUTHORIZED, PaymentStatus.DECLINED};
+  private static final Currency[] CURRENCIES = Currency.values();
+  private static final String[] LAST_FOURS = new String[10_000];
+
+  static {
+    for (int i = 0; i < LAST_FOURS.length; i++) {
+      LAST_FOURS[i] = String.format("%04d", i);
+    }
+  }
+
+  @Benchmark
+  public SuccessfulPaymentResponse get(Filled filled, Caller caller) {
+    return filled.store.get(id(caller.random.nextInt(filled.entries))).orElseThrow();
+  }
+
+  @Benchmark
+  public void put(Refilled refilled, Caller caller) {
+    refilled.store.add(payment(new UUID(caller.random.nextLong(), caller.random.nextLong()),
+        caller.random));
+  }
+
+  /**
+   * Store filled once per trial; lookups do not change it.
+   */
+  @State(Scope.Benchmark)
+  public static class Filled {
+
+    @Param({"striped-objects", "striped-packed", "map"})
+    String engine;
+
+    @Param({"1000", "1000000"})
+    int entries;
+
+    PaymentStore store;
+
+    @Setup(Level.Trial)
+    public void fill() {
+      store = fillStore(engine, entries);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+      store.close();
+    }
+  }
+
+  /**
+   * Store refilled before every iteration, since inserts grow it.
+   */
+  @State(Scope.Benchmark)
+  public static class Refilled {
+
+    @Param({"striped-objects", "striped-packed", "map"})
+    String engine;
+
+    @Param({"1000", "1000000"})
+    int entries;
+
+    PaymentStore store;
+
+    @Setup(Level.Iteration)
+    public void fill() {
+      store = fillStore(engine, entries);
+    }
+
+    @TearDown(Level.Iteration)
+    public void close() {
+      store.close();
+      store = null;
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Caller {
+
+    final SplittableRandom random = new SplittableRandom();
+  }
+
+  private static PaymentStore createStore(String engine) {
+    if (engine.equals("map")) {
+      return new ConcurrentMapPaymentStore();
+    }
+    PaymentsRepositoryProperties properties = new PaymentsRepositoryProperties();
+    properties.setStorageMode(switch (engine) {
+      case "striped-objects" -> StorageMode.OBJECTS;
+      case "striped-packed" -> StorageMode.PACKED;
+      default -> throw new IllegalArgumentException("Unknown payment store engine " + engine);
+    });
+    return new PaymentsRepository(properties);
+  }
+
+  private static PaymentStore fillStore(String engine, int entries) {
+    PaymentStore store = createStore(engine);
+    SplittableRandom random = new SplittableRandom(42);
+    for (int i = 0; i < entries; i++) {
+      store.add(payment(id(i), random));
+    }
+    return store;
+  }
+
+  /**
+   * Id of the {@code i}th prefilled payment, recomputed on lookup so the benchmark does not hold
+   * 100M ids of its own.
+   */
+  private static UUID id(int i) {
+    return new UUID(mix(i), mix(~i));
+  }
+
+  private static long mix(long value) {
+    long z = value * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  private static SuccessfulPaymentResponse payment(UUID id, SplittableRandom random) {
+    return new SuccessfulPaymentResponse(
+        id,
+        STATUSES[random.nextInt(STATUSES.length)],
+        LAST_FOURS[random.nextInt(LAST_FOURS.length)],
+        1 + random.nextInt(12),
+        25 + random.nextInt(10),
+        CURRENCIES[random.nextInt(CURRENCIES.length)],
+        1_000 + random.nextInt(1_000_000)
+    );
+  }
+}
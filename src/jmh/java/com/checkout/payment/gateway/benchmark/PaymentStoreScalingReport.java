@@ -0,0 +1,64 @@
+package com.checkout.payment.gateway.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs {@link PaymentStoreBenchmark} for every engine at each store size given as a program
+ * argument and at 1, 2, 4, ... up to the number of processors threads, then prints put and get
+ * throughput and p99 latency side by side. Run with {@code ./gradlew storeScalingReport}.
+ */
+public final class PaymentStoreScalingReport {
+
+  private PaymentStoreScalingReport() {
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    String[] entries = args.length > 0 ? args : new String[]{"1000", "1000000"};
+    Map<String, double[]> rows = new TreeMap<>();
+    for (int threads : threadCounts(Runtime.getRuntime().availableProcessors())) {
+      Options options = new OptionsBuilder()
+          .include(PaymentStoreBenchmark.class.getName())
+          .param("entries", entries)
+          .threads(threads)
+          .build();
+      for (RunResult result : new Runner(options).run()) {
+        BenchmarkParams params = result.getParams();
+        String benchmark = params.getBenchmark();
+        String row = String.format("%-16s %12d %8d %4s", params.getParam("engine"),
+            Long.parseLong(params.getParam("entries")), threads,
+            benchmark.substring(benchmark.lastIndexOf('.') + 1));
+        double[] scores = rows.computeIfAbsent(row, key -> new double[2]);
+        switch (params.getMode()) {
+          // Scores are per microsecond, see the benchmark's output time unit
+          case Throughput -> scores[0] = result.getPrimaryResult().getScore() * 1_000_000;
+          case SampleTime -> scores[1] =
+              result.getPrimaryResult().getStatistics().getPercentile(99.0);
+          default -> {
+          }
+        }
+      }
+    }
+    System.out.printf("%-16s %12s %8s %4s %16s %12s%n", "engine", "entries", "threads", "op",
+        "ops/s", "p99 us");
+    rows.forEach((row, scores) -> System.out.printf("%s %16.0f %12.2f%n", row, scores[0],
+        scores[1]));
+  }
+
+  private static List<Integer> threadCounts(int processors) {
+    List<Integer> counts = new ArrayList<>();
+    for (int threads = 1; threads < processors; threads *= 2) {
+      counts.add(threads);
+    }
+    counts.add(processors);
+    return counts;
+  }
+}
@@ -0,0 +1,75 @@
+package com.checkout.payment.gateway.benchmark;
+
+import com.checkout.payment.gateway.configuration.PaymentsRepositoryProperties;
+import com.checkout.payment.gateway.enums.Currency;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.repository.StorageMode;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Prints the retained heap per stored payment for the original {@code HashMap} store and for each
+ * {@link StorageMode}. Run with {@code ./gradlew footprintReport}; entry counts are the program
+ * arguments.
+ */
+public final class PaymentsFootprintReport {
+
+  private static final PaymentStatus[] STATUSES = {PaymentStatus.AUTHORIZED, PaymentStatus.DECLINED};
+  private static final Currency[] CURRENCIES = Currency.values();
+
+  private PaymentsFootprintReport() {
+  }
+
+  public static void main(String[] args) {
+    String[] counts = args.length > 0 ? args : new String[]{"1000000", "10000000"};
+    System.out.printf("%-10s %12s %16s%n", "store", "payments", "bytes/payment");
+    for (String count : counts) {
+      int payments = Integer.parseInt(count);
+      Map<UUID, SuccessfulPaymentResponse> map = new HashMap<>();
+      report("hashmap", payments, p -> map.put(p.getId(), p));
+      map.clear();
+      for (StorageMode mode : StorageMode.values()) {
+        PaymentsRepositoryProperties properties = new PaymentsRepositoryProperties();
+        properties.setStorageMode(mode);
+        PaymentsRepository repository = new PaymentsRepository(properties);
+        report(mode.name().toLowerCase(), payments, repository::add);
+      }
+    }
+  }
+
+  private static void report(String store, int payments, Consumer<SuccessfulPaymentResponse> sink) {
+    SplittableRandom random = new SplittableRandom(42);
+    long before = usedHeap();
+    for (int i = 0; i < payments; i++) {
+      sink.accept(randomPayment(random));
+    }
+    long after = usedHeap();
+    System.out.printf("%-10s %12d %16.1f%n", store, payments, (after - before) / (double) payments);
+  }
+
+  private static SuccessfulPaymentResponse randomPayment(SplittableRandom random) {
+    String cardNumber = Long.toString(4_000_000_000_000_000L + random.nextLong(999_999_999_999_999L));
+    return new SuccessfulPaymentResponse(
+        UUID.randomUUID(),
+        STATUSES[random.nextInt(STATUSES.length)],
+        cardNumber.substring(cardNumber.length() - 4),
+        1 + random.nextInt(12),
+        25 + random.nextInt(10),
+        CURRENCIES[random.nextInt(CURRENCIES.length)],
+        1_000 + random.nextInt(1_000_000)
+    );
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 4; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
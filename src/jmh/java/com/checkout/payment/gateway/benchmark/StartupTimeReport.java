@@ -0,0 +1,105 @@
+package com.checkout.payment.gateway.benchmark;
+
+import com.checkout.payment.gateway.configuration.PaymentsRepositoryProperties;
+import com.checkout.payment.gateway.enums.Currency;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.repository.StorageMode;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Prints how long a journaled repository takes to start when it replays its whole journal and
+ * when it loads a snapshot and replays only the 1% of payments written after it. Run with
+ * {@code ./gradlew startupReport}; payment counts are the program arguments.
+ */
+public final class StartupTimeReport {
+
+  private static final PaymentStatus[] STATUSES = {PaymentStatus.AUTHORIZED, PaymentStatus.DECLINED};
+  private static final Currency[] CURRENCIES = Currency.values();
+
+  private StartupTimeReport() {
+  }
+
+  public static void main(String[] args) throws IOException {
+    String[] counts = args.length > 0 ? args : new String[]{"1000000"};
+    System.out.printf("%-10s %12s %14s %14s%n", "store", "payments", "replay ms", "snapshot ms");
+    for (String count : counts) {
+      int payments = Integer.parseInt(count);
+      for (StorageMode mode : StorageMode.values()) {
+        Path directory = Files.createTempDirectory("payments-startup");
+        try {
+          report(mode, payments, directory);
+        } finally {
+          delete(directory);
+        }
+      }
+    }
+  }
+
+  private static void report(StorageMode mode, int payments, Path directory) {
+    SplittableRandom random = new SplittableRandom(42);
+    int tail = payments / 100;
+    try (PaymentsRepository repository = open(mode, directory, false)) {
+      addPayments(repository, payments - tail, random);
+    }
+    long replayMillis;
+    try (PaymentsRepository repository = open(mode, directory, false)) {
+      replayMillis = repository.startupMillis();
+    }
+    // Opening with snapshots enabled and closing writes the snapshot; the tail comes after it
+    open(mode, directory, true).close();
+    try (PaymentsRepository repository = open(mode, directory, false)) {
+      addPayments(repository, tail, random);
+    }
+    long snapshotMillis;
+    try (PaymentsRepository repository = open(mode, directory, true)) {
+      snapshotMillis = repository.startupMillis();
+    }
+    System.out.printf("%-10s %12d %14d %14d%n", mode.name().toLowerCase(), payments,
+        replayMillis, snapshotMillis);
+  }
+
+  private static PaymentsRepository open(StorageMode mode, Path directory, boolean snapshots) {
+    PaymentsRepositoryProperties properties = new PaymentsRepositoryProperties();
+    properties.setStorageMode(mode);
+    properties.getJournal().setEnabled(true);
+    properties.getJournal().setDirectory(directory.resolve("journal"));
+    properties.getSnapshot().setEnabled(snapshots);
+    properties.getSnapshot().setDirectory(directory.resolve("snapshots"));
+    properties.getSnapshot().setInterval(Duration.ZERO);
+    return new PaymentsRepository(properties);
+  }
+
+  private static void addPayments(PaymentsRepository repository, int payments,
+      SplittableRandom random) {
+    for (int i = 0; i < payments; i++) {
+      String cardNumber = Long.toString(
+          4_000_000_000_000_000L + random.nextLong(999_999_999_999_999L));
+      repository.add(new SuccessfulPaymentResponse(
+          new UUID(random.nextLong(), random.nextLong()),
+          STATUSES[random.nextInt(STATUSES.length)],
+          cardNumber.substring(cardNumber.length() - 4),
+          1 + random.nextInt(12),
+          25 + random.nextInt(10),
+          CURRENCIES[random.nextInt(CURRENCIES.length)],
+          1_000 + random.nextInt(1_000_000)
+      ));
+    }
+  }
+
+  private static void delete(Path directory) throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(file);
+      }
+    }
+  }
+}
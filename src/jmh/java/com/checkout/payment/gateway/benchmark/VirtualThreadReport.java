@@ -0,0 +1,197 @@
+package com.checkout.payment.gateway.benchmark;
+
+import com.checkout.payment.gateway.configuration.BankClientProperties;
+import com.checkout.payment.gateway.configuration.BankHttpClients;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.service.AcquirerRouter;
+import com.checkout.payment.gateway.service.BankSimulatorClient;
+import com.checkout.payment.gateway.service.CircuitBreaker;
+import com.checkout.payment.gateway.service.ConcurrencyLimiter;
+import com.checkout.payment.gateway.service.RetryBudget;
+import com.checkout.payment.gateway.standin.BankStandIn;
+import com.checkout.payment.gateway.standin.ErrorBursts;
+import com.checkout.payment.gateway.standin.LatencyModel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+
+/**
+ * Prints payment throughput, latency and the JVM's platform thread count with a fixed number of
+ * payments kept in flight against a slow {@link BankStandIn}, for each way of running the request
+ * that waits on the bank call:
+ * <ul>
+ *   <li>{@code platform}: blocking on the call, on a pool of platform threads the size of
+ *   Tomcat's default, with the payments beyond it queued as Tomcat queues connections;</li>
+ *   <li>{@code virtual}: blocking on the call, on a virtual thread per payment, as with
+ *   {@code spring.threads.virtual.enabled=true};</li>
+ *   <li>{@code async}: chaining on the call's future with no thread waiting, as
+ *   {@code POST /payment} does.</li>
+ * </ul>
+ * Run with {@code ./gradlew virtualThreadReport}; the arguments are the connection pool size, the
+ * stand-in's latency, the platform pool size, and then the in-flight payment counts to try.
+ */
+public final class VirtualThreadReport {
+
+  private static final long WARM_UP_SECONDS = 3;
+
+  private VirtualThreadReport() {
+  }
+
+  private enum Mode {
+    PLATFORM, VIRTUAL, ASYNC
+  }
+
+  public static void main(String[] args) throws Exception {
+    int poolSize = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+    LatencyModel latency = LatencyModel.parse(args.length > 1 ? args[1] : "fixed:100ms");
+    int platformThreads = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+    int[] inFlight = args.length > 3
+        ? Arrays.stream(args, 3, args.length).mapToInt(Integer::parseInt).toArray()
+        : new int[]{1_000, 10_000, 50_000};
+    System.out.printf("%-9s %9s %12s %10s %10s %8s %8s%n", "mode", "in-flight", "calls/s",
+        "p50 ms", "p99 ms", "errors", "threads");
+    try (BankStandIn stand = new BankStandIn(0, Runtime.getRuntime().availableProcessors(),
+        latency, ErrorBursts.none())) {
+      for (int payments : inFlight) {
+        for (Mode mode : Mode.values()) {
+          report(mode, stand, poolSize, platformThreads, payments);
+        }
+      }
+    }
+  }
+
+  private static void report(Mode mode, BankStandIn stand, int poolSize, int platformThreads,
+      int inFlight) throws Exception {
+    BankClientProperties properties = new BankClientProperties();
+    properties.setUrl(stand.url());
+    // The load driven is the point; bulkheads would cap it, and a deadline cut it short
+    properties.getBulkheads().setMaxPerCurrency(Integer.MAX_VALUE);
+    properties.getBulkheads().setMaxPerAcquirer(Integer.MAX_VALUE);
+    properties.getDeadlines().setDefaultTimeout(Duration.ofMinutes(5));
+    properties.getDeadlines().setMaxTimeout(Duration.ofMinutes(5));
+    properties.setMaxConnections(poolSize);
+    properties.setMaxConnectionsPerRoute(poolSize);
+    // Calls beyond the pool size queue for a connection rather than fail
+    properties.setConnectionRequestTimeout(properties.getReadTimeout().multipliedBy(6));
+    properties.getRetry().setMaxAttempts(1);
+    properties.setVirtualThreads(mode == Mode.VIRTUAL);
+    ExecutorService handlers = handlers(mode, platformThreads);
+    try (PoolingAsyncClientConnectionManager manager =
+            BankHttpClients.connectionManager(properties);
+        CloseableHttpAsyncClient client = BankHttpClients.httpClient(manager, properties);
+        BankSimulatorClient bank = new BankSimulatorClient(client, new ObjectMapper(),
+            properties, new ConcurrencyLimiter(inFlight, inFlight, inFlight,
+                properties.getReadTimeout(), 0.5),
+            new CircuitBreaker(1, 100_000, 100_000, Duration.ofSeconds(1), 1),
+            new RetryBudget(0, 0), AcquirerRouter.from(properties))) {
+      BankPoolReport.Load load = drive(bank, handlers, inFlight);
+      System.out.printf("%-9s %9d %12.0f %10.1f %10.1f %8d %8d%n",
+          mode.name().toLowerCase(Locale.ROOT), inFlight, load.callsPerSecond(),
+          load.percentileMillis(0.5), load.percentileMillis(0.99), load.errors, load.threads);
+    } finally {
+      if (handlers != null) {
+        handlers.shutdownNow();
+      }
+    }
+  }
+
+  // Null for async, which needs no thread per payment
+  private static ExecutorService handlers(Mode mode, int platformThreads) {
+    switch (mode) {
+      case PLATFORM:
+        AtomicInteger created = new AtomicInteger();
+        return Executors.newFixedThreadPool(platformThreads, task -> {
+          Thread thread = new Thread(task, "report-handler-" + created.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+      case VIRTUAL:
+        return Executors.newVirtualThreadPerTaskExecutor();
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Keeps {@code inFlight} payments outstanding for the warm-up and measurement periods, each
+   * blocking a handler thread on its bank call, or none without handlers.
+   */
+  private static BankPoolReport.Load drive(BankSimulatorClient bank, ExecutorService handlers,
+      int inFlight) throws InterruptedException, IOException {
+    AtomicBoolean measuring = new AtomicBoolean();
+    AtomicBoolean stopped = new AtomicBoolean();
+    AtomicLong errors = new AtomicLong();
+    AtomicLong completed = new AtomicLong();
+    ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+    Semaphore permits = new Semaphore(inFlight);
+    Thread caller = new Thread(() -> {
+      while (!stopped.get()) {
+        try {
+          permits.acquire();
+        } catch (InterruptedException e) {
+          return;
+        }
+        // Timed from arrival, so the wait for a free handler counts as it does for a client
+        long started = System.nanoTime();
+        if (handlers == null) {
+          bank.callBank(BankPoolReport.REQUEST).whenComplete((status, failure) ->
+              done(status, started, measuring, errors, completed, latencies, permits));
+        } else {
+          handlers.execute(() -> {
+            PaymentStatus status;
+            try {
+              status = bank.callBank(BankPoolReport.REQUEST).get();
+            } catch (Exception e) {
+              status = null;
+            }
+            done(status, started, measuring, errors, completed, latencies, permits);
+          });
+        }
+      }
+    }, "virtual-thread-report");
+    caller.setDaemon(true);
+    caller.start();
+    TimeUnit.SECONDS.sleep(WARM_UP_SECONDS);
+    measuring.set(true);
+    TimeUnit.SECONDS.sleep(BankPoolReport.MEASURE_SECONDS);
+    int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+    measuring.set(false);
+    stopped.set(true);
+    caller.interrupt();
+    caller.join();
+    // Let the payments still in flight finish before the next run starts
+    permits.acquire(inFlight);
+    long[] all = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+    if (all.length == 0) {
+      throw new IOException("no payments completed");
+    }
+    return new BankPoolReport.Load(all, errors.get(), threads, completed.get());
+  }
+
+  private static void done(PaymentStatus status, long started, AtomicBoolean measuring,
+      AtomicLong errors, AtomicLong completed, ConcurrentLinkedQueue<Long> latencies,
+      Semaphore permits) {
+    if (measuring.get()) {
+      if (status != PaymentStatus.AUTHORIZED) {
+        errors.incrementAndGet();
+      } else {
+        latencies.add(System.nanoTime() - started);
+      }
+    }
+    completed.incrementAndGet();
+    permits.release();
+  }
+}
@@ -0,0 +1,110 @@
+package com.checkout.payment.gateway.cluster;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The current ring of cluster nodes and every earlier one this node has seen.
+ *
+ * <p>Payments are never moved when membership changes: each stays on the node that owned its id
+ * when it was created. Earlier rings are therefore kept, so a payment whose owner has changed
+ * can still be found on the node that owned it before. Rings with the same members are kept
+ * once, and only the newest {@code maxRings} are kept at all, which bounds how many nodes a
+ * lookup is forwarded to.
+ */
+final class ClusterMembership {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ClusterMembership.class);
+
+  private final String self;
+  private final int virtualNodes;
+  private final int maxRings;
+  // Current ring first; replaced as a whole so readers need no lock
+  private volatile List<ConsistentHashRing> rings;
+
+  ClusterMembership(String self, List<String> nodes, int virtualNodes, int maxRings) {
+    if (maxRings < 1) {
+      throw new IllegalArgumentException("maxRings must be at least 1");
+    }
+    this.self = normalize(self);
+    this.virtualNodes = virtualNodes;
+    this.maxRings = maxRings;
+    this.rings = List.of(new ConsistentHashRing(normalize(nodes), virtualNodes));
+  }
+
+  String self() {
+    return self;
+  }
+
+  ConsistentHashRing current() {
+    return rings.get(0);
+  }
+
+  /**
+   * Makes {@code nodes} the current members, keeping the previous ring for lookups. Beyond
+   * {@code maxRings} the oldest ring is forgotten, and payments only it placed are no longer found
+   * through forwarding.
+   */
+  synchronized void update(List<String> nodes) {
+    ConsistentHashRing next = new ConsistentHashRing(normalize(nodes), virtualNodes);
+    List<ConsistentHashRing> updated = new ArrayList<>();
+    updated.add(next);
+    for (ConsistentHashRing ring : rings) {
+      if (ring.nodes().equals(next.nodes())) {
+        continue;
+      }
+      if (updated.size() == maxRings) {
+        LOG.warn("Forgetting cluster membership {}", ring.nodes());
+        continue;
+      }
+      updated.add(ring);
+    }
+    rings = List.copyOf(updated);
+    if (!next.contains(self)) {
+      LOG.warn("This node {} is not a member of the cluster {}", self, next.nodes());
+    }
+    LOG.info("Cluster membership is now {}", next.nodes());
+  }
+
+  /**
+   * Nodes that own or have owned the payment, current owner first.
+   */
+  Set<String> owners(UUID id) {
+    Set<String> owners = new LinkedHashSet<>();
+    for (ConsistentHashRing ring : rings) {
+      owners.add(ring.owner(id));
+    }
+    return owners;
+  }
+
+  /**
+   * A random payment id owned by this node, so the payment can be stored where it is created.
+   * Drawing until one lands on this node's arcs takes as many draws as there are nodes, on
+   * average. A node outside the cluster gets an id it does not own; the payment can then only
+   * be read from this node itself.
+   */
+  UUID newLocalId() {
+    ConsistentHashRing ring = current();
+    UUID id = UUID.randomUUID();
+    if (!ring.contains(self)) {
+      return id;
+    }
+    while (!ring.owner(id).equals(self)) {
+      id = UUID.randomUUID();
+    }
+    return id;
+  }
+
+  private static List<String> normalize(List<String> nodes) {
+    return nodes.stream().map(ClusterMembership::normalize).toList();
+  }
+
+  private static String normalize(String node) {
+    return node.endsWith("/") ? node.substring(0, node.length() - 1) : node;
+  }
+}
@@ -0,0 +1,110 @@
+package com.checkout.payment.gateway.cluster;
+
+import com.checkout.payment.gateway.configuration.ClusterProperties;
+import com.checkout.payment.gateway.exception.PeerUnavailableException;
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import com.checkout.payment.gateway.repository.PaymentStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link PaymentRouting} for a cluster of gateway nodes behind a load balancer.
+ *
+ * <p>Payment ids are drawn so that the node creating a payment is its owner on the
+ * {@link ConsistentHashRing}, and the payment is stored there only. A lookup that misses locally
+ * is forwarded to the owner, and at the same time to earlier owners if membership has changed
+ * since. Forwarded lookups are answered locally, so a request crosses at most one extra hop.
+ */
+@Component
+@ConditionalOnProperty(name = "payments.cluster.enabled", havingValue = "true")
+public class ClusterPaymentRouting implements PaymentRouting {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ClusterPaymentRouting.class);
+
+  private final PaymentStore paymentStore;
+  private final ClusterMembership membership;
+  private final PeerClient peers;
+
+  public ClusterPaymentRouting(PaymentStore paymentStore, ClusterProperties properties,
+      ObjectMapper objectMapper) {
+    if (properties.getSelf() == null || properties.getSelf().isBlank()
+        || properties.getNodes().isEmpty()) {
+      throw new IllegalArgumentException("cluster mode needs payments.cluster.self and nodes");
+    }
+    this.paymentStore = paymentStore;
+    this.membership = new ClusterMembership(properties.getSelf(), properties.getNodes(),
+        properties.getVirtualNodes(), properties.getMaxRings());
+    this.peers = new PeerClient(objectMapper, properties.getConnectTimeout(),
+        properties.getForwardTimeout());
+  }
+
+  @Override
+  public UUID newPaymentId() {
+    return membership.newLocalId();
+  }
+
+  @Override
+  public Optional<SuccessfulPaymentResponse> find(UUID id, boolean forwarded) {
+    Optional<SuccessfulPaymentResponse> payment = paymentStore.get(id);
+    if (payment.isPresent() || forwarded) {
+      return payment;
+    }
+    // Ask the owner and every earlier owner at once, so a miss waits for one forward timeout at
+    // most rather than one per ring; the ring history cap bounds how many are asked
+    List<String> owners = membership.owners(id).stream()
+        .filter(owner -> !owner.equals(membership.self()))
+        .toList();
+    List<CompletableFuture<Optional<SuccessfulPaymentResponse>>> lookups = new ArrayList<>();
+    List<CompletableFuture<Void>> answered = new ArrayList<>();
+    CompletableFuture<Optional<SuccessfulPaymentResponse>> found = new CompletableFuture<>();
+    for (String owner : owners) {
+      CompletableFuture<Optional<SuccessfulPaymentResponse>> lookup = peers.get(owner, id);
+      lookups.add(lookup);
+      // Waited on below rather than the lookup itself, so a hit is taken before the miss is
+      answered.add(lookup.thenAccept(result -> result.ifPresent(hit -> found.complete(result))));
+    }
+    CompletableFuture.allOf(answered.toArray(CompletableFuture[]::new))
+        .whenComplete((ignored, failure) -> found.complete(Optional.empty()));
+    payment = found.join();
+    if (payment.isPresent()) {
+      return payment;
+    }
+    // No owner holds it; report a failure only if one of them could not say
+    PeerUnavailableException unavailable = null;
+    for (int i = 0; i < lookups.size(); i++) {
+      if (lookups.get(i).isCompletedExceptionally()) {
+        Throwable failure = lookups.get(i).exceptionNow();
+        unavailable = failure instanceof PeerUnavailableException peerUnavailable
+            ? peerUnavailable : new PeerUnavailableException(owners.get(i), failure);
+        LOG.warn("Could not forward lookup of payment {} to {}", id, owners.get(i), unavailable);
+      }
+    }
+    if (unavailable != null) {
+      throw unavailable;
+    }
+    return Optional.empty();
+  }
+
+  public List<String> members() {
+    return membership.current().nodes();
+  }
+
+  /**
+   * Replaces the cluster members. Every node must be given the same list.
+   */
+  public List<String> updateMembers(List<String> nodes) {
+    if (nodes.isEmpty()) {
+      throw new IllegalArgumentException("a cluster needs at least one node");
+    }
+    membership.update(nodes);
+    return members();
+  }
+}
@@ -0,0 +1,93 @@
+package com.checkout.payment.gateway.cluster;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Immutable consistent-hash ring assigning payment ids to cluster nodes.
+ *
+ * <p>Each node is placed at {@code virtualNodes} pseudo-random points on a 64-bit ring, and a
+ * payment belongs to the node at the first point at or after the hash of its id. Virtual nodes
+ * even out the share each node owns, and adding or removing a node moves only the ids on the arcs
+ * it gains or loses, roughly one node's share, instead of reshuffling all of them.
+ */
+public final class ConsistentHashRing {
+
+  private final List<String> nodes;
+  private final long[] points;
+  private final int[] owners;
+
+  /**
+   * @param nodes        node base URLs; duplicates are ignored
+   * @param virtualNodes points per node on the ring
+   */
+  public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+    if (nodes.isEmpty() || virtualNodes < 1) {
+      throw new IllegalArgumentException("a ring needs at least one node and one virtual node");
+    }
+    // Sorted so that every node builds the same ring from the same members in any order
+    this.nodes = List.copyOf(new TreeSet<>(nodes));
+    long[] unsorted = new long[this.nodes.size() * virtualNodes];
+    for (int node = 0; node < this.nodes.size(); node++) {
+      for (int replica = 0; replica < virtualNodes; replica++) {
+        unsorted[node * virtualNodes + replica] = position(this.nodes.get(node), replica);
+      }
+    }
+    Integer[] order = new Integer[unsorted.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> Long.compare(unsorted[a], unsorted[b]));
+    this.points = new long[unsorted.length];
+    this.owners = new int[unsorted.length];
+    for (int i = 0; i < order.length; i++) {
+      points[i] = unsorted[order[i]];
+      owners[i] = order[i] / virtualNodes;
+    }
+  }
+
+  /**
+   * Base URL of the node that owns the payment.
+   */
+  public String owner(UUID id) {
+    int index = Arrays.binarySearch(points, position(id));
+    if (index < 0) {
+      index = -index - 1;
+    }
+    // Past the last point the ring wraps round to the first
+    return nodes.get(owners[index == points.length ? 0 : index]);
+  }
+
+  public List<String> nodes() {
+    return nodes;
+  }
+
+  public boolean contains(String node) {
+    return nodes.contains(node);
+  }
+
+  private static long position(UUID id) {
+    return mix(id.getMostSignificantBits() ^ mix(id.getLeastSignificantBits()));
+  }
+
+  private static long position(String node, int replica) {
+    // 64-bit FNV-1a of the node URL and replica number
+    long hash = 0xCBF29CE484222325L;
+    for (int i = 0; i < node.length(); i++) {
+      hash = (hash ^ node.charAt(i)) * 0x100000001B3L;
+    }
+    hash = (hash ^ '#') * 0x100000001B3L;
+    hash = (hash ^ replica) * 0x100000001B3L;
+    return mix(hash);
+  }
+
+  // MurmurHash3 finalizer
+  private static long mix(long hash) {
+    hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+    hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+    return hash ^ (hash >>> 33);
+  }
+}
@@ -0,0 +1,33 @@
+package com.checkout.payment.gateway.cluster;
+
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import com.checkout.payment.gateway.repository.PaymentStore;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Single-node {@link PaymentRouting}: random ids, lookups answered from the local store.
+ */
+@Component
+@ConditionalOnProperty(name = "payments.cluster.enabled", havingValue = "false",
+    matchIfMissing = true)
+public class LocalPaymentRouting implements PaymentRouting {
+
+  private final PaymentStore paymentStore;
+
+  public LocalPaymentRouting(PaymentStore paymentStore) {
+    this.paymentStore = paymentStore;
+  }
+
+  @Override
+  public UUID newPaymentId() {
+    return UUID.randomUUID();
+  }
+
+  @Override
+  public Optional<SuccessfulPaymentResponse> find(UUID id, boolean forwarded) {
+    return paymentStore.get(id);
+  }
+}
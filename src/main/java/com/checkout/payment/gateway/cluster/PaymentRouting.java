@@ -0,0 +1,26 @@
+package com.checkout.payment.gateway.cluster;
+
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Decides which node a payment is stored on and where lookups by id are answered.
+ */
+public interface PaymentRouting {
+
+  /**
+   * Set on lookups one node forwards to another, which must answer from its own store.
+   */
+  String FORWARDED_HEADER = "X-Payment-Forwarded";
+
+  /**
+   * Id for a payment about to be stored on this node.
+   */
+  UUID newPaymentId();
+
+  /**
+   * @param forwarded whether the lookup was forwarded by another node
+   */
+  Optional<SuccessfulPaymentResponse> find(UUID id, boolean forwarded);
+}
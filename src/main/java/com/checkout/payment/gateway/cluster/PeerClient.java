@@ -0,0 +1,75 @@
+package com.checkout.payment.gateway.cluster;
+
+import com.checkout.payment.gateway.exception.PeerUnavailableException;
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Reads payments from other cluster nodes.
+ *
+ * <p>A single {@link HttpClient} is shared by all request threads. It keeps HTTP/1.1 connections
+ * to each peer alive in its pool, so a forwarded lookup normally costs one request on an open
+ * connection rather than a new TCP handshake.
+ */
+final class PeerClient {
+
+  private final HttpClient client;
+  private final ObjectMapper objectMapper;
+  private final Duration timeout;
+
+  PeerClient(ObjectMapper objectMapper, Duration connectTimeout, Duration timeout) {
+    this.client = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(connectTimeout)
+        .build();
+    this.objectMapper = objectMapper;
+    this.timeout = timeout;
+  }
+
+  /**
+   * Looks the payment up in the store of {@code node}, which does not forward it any further. The
+   * request is sent without blocking the caller, so lookups on several nodes can run at once.
+   *
+   * @return the payment, or empty if the node does not hold it; completes exceptionally with
+   *     {@link PeerUnavailableException} if the node cannot be reached or fails to answer
+   */
+  CompletableFuture<Optional<SuccessfulPaymentResponse>> get(String node, UUID id) {
+    HttpRequest request = HttpRequest.newBuilder(URI.create(node + "/payment/" + id))
+        .header(PaymentRouting.FORWARDED_HEADER, "true")
+        .timeout(timeout)
+        .GET()
+        .build();
+    return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+        .handle((response, failure) -> {
+          if (failure != null) {
+            throw new PeerUnavailableException(node,
+                failure instanceof CompletionException ? failure.getCause() : failure);
+          }
+          return read(node, response);
+        });
+  }
+
+  private Optional<SuccessfulPaymentResponse> read(String node, HttpResponse<byte[]> response) {
+    if (response.statusCode() == 404) {
+      return Optional.empty();
+    }
+    if (response.statusCode() != 200) {
+      throw new PeerUnavailableException(node, "status " + response.statusCode());
+    }
+    try {
+      return Optional.of(objectMapper.readValue(response.body(), SuccessfulPaymentResponse.class));
+    } catch (IOException e) {
+      throw new PeerUnavailableException(node, e);
+    }
+  }
+}
@@ -1,19 +1,84 @@
 package com.checkout.payment.gateway.configuration;
 
-import java.time.Duration;
-import org.springframework.boot.web.client.RestTemplateBuilder;
+import com.checkout.payment.gateway.service.AcquirerRouter;
+import com.checkout.payment.gateway.service.CircuitBreaker;
+import com.checkout.payment.gateway.service.ConcurrencyLimiter;
+import com.checkout.payment.gateway.service.IdempotencyTable;
+import com.checkout.payment.gateway.service.PaymentResponseCache;
+import com.checkout.payment.gateway.service.RetryBudget;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.concurrent.Executors;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
 
 @Configuration
+@EnableConfigurationProperties({PaymentsRepositoryProperties.class, ClusterProperties.class,
+    BankClientProperties.class, PaymentBatchProperties.class, IdempotencyProperties.class,
+    PaymentResponseCacheProperties.class})
 public class ApplicationConfiguration {
 
   @Bean
-  public RestTemplate restTemplate(RestTemplateBuilder builder) {
-    return builder
-        .setConnectTimeout(Duration.ofMillis(10000))
-        .setReadTimeout(Duration.ofMillis(10000))
-        .build();
+  public PoolingAsyncClientConnectionManager bankConnectionManager(
+      BankClientProperties properties) {
+    return BankHttpClients.connectionManager(properties);
+  }
+
+  @Bean
+  public CloseableHttpAsyncClient bankHttpClient(
+      PoolingAsyncClientConnectionManager bankConnectionManager, BankClientProperties properties) {
+    return BankHttpClients.httpClient(bankConnectionManager, properties);
+  }
+
+  @Bean
+  public ConcurrencyLimiter bankConcurrencyLimiter(BankClientProperties properties) {
+    BankClientProperties.Limiter limiter = properties.getLimiter();
+    return new ConcurrencyLimiter(limiter.getInitialLimit(), limiter.getMinLimit(),
+        limiter.getMaxLimit(), limiter.getLatencyThreshold(), limiter.getBackoffRatio());
+  }
+
+  @Bean
+  public CircuitBreaker bankCircuitBreaker(BankClientProperties properties) {
+    BankClientProperties.Breaker breaker = properties.getBreaker();
+    return new CircuitBreaker(breaker.getFailureRateThreshold(), breaker.getWindowSize(),
+        breaker.getMinimumCalls(), breaker.getOpenDuration(), breaker.getHalfOpenCalls());
+  }
+
+  @Bean
+  public RetryBudget bankRetryBudget(BankClientProperties properties) {
+    return new RetryBudget(properties.getRetry().getBudgetRatio(),
+        properties.getRetry().getMinPerSecond());
+  }
+
+  @Bean
+  public AcquirerRouter bankAcquirerRouter(BankClientProperties properties) {
+    return AcquirerRouter.from(properties);
+  }
+
+  @Bean
+  public IdempotencyTable idempotencyTable(IdempotencyProperties properties) {
+    return new IdempotencyTable(properties.getMaxKeys(), properties.getTtl());
+  }
+
+  @Bean
+  public PaymentResponseCache paymentResponseCache(ObjectMapper objectMapper,
+      PaymentResponseCacheProperties properties) {
+    return new PaymentResponseCache(objectMapper, properties.getMaxEntries());
+  }
+
+  /**
+   * Hands each HTTP request to a virtual thread of its own rather than to Tomcat's pool of
+   * {@code server.tomcat.threads.max} platform threads, so requests that block, such as lookups
+   * forwarded to a peer, wait without holding one. Tomcat still caps open connections.
+   */
+  @Bean
+  @ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+  public TomcatProtocolHandlerCustomizer<?> virtualThreadRequestHandling() {
+    return protocolHandler -> protocolHandler.setExecutor(Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("http-virtual-", 1).factory()));
   }
 }
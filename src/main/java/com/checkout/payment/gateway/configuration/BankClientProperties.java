@@ -0,0 +1,611 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.enums.Currency;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "payments.bank")
+public class BankClientProperties {
+
+  private URI url = URI.create("http://localhost:8080/payments");
+  private int maxConnections = 200;
+  // Connections to each acquirer host; with one acquirer, this is the effective pool size
+  private int maxConnectionsPerRoute = 200;
+  private Duration connectTimeout = Duration.ofSeconds(10);
+  private Duration readTimeout = Duration.ofSeconds(10);
+  // How long a call waits for a free pooled connection once all are leased
+  private Duration connectionRequestTimeout = Duration.ofSeconds(5);
+  // Pooled connections idle for longer are closed by a background evictor
+  private Duration idleTimeout = Duration.ofSeconds(30);
+  // A connection idle for longer is checked for a half-closed socket before reuse
+  private Duration validateAfterInactivity = Duration.ofSeconds(2);
+  // Connections opened when the application is ready, before the first payment
+  private int warmUpConnections = 8;
+  // NEGOTIATE uses HTTP/2 where TLS negotiates it; FORCE_HTTP_2 needs every acquirer on https
+  private HttpVersionPolicy httpVersion = HttpVersionPolicy.NEGOTIATE;
+  // Threads bank responses are handled on; 0 uses one per available processor
+  private int callbackThreads = 0;
+  // Handles each bank response, storing the payment included, on a virtual thread of its own
+  // instead of on the callback threads
+  private boolean virtualThreads = false;
+  private final Limiter limiter = new Limiter();
+  private final Breaker breaker = new Breaker();
+  private final Retry retry = new Retry();
+  private final Hedge hedge = new Hedge();
+  private final Batch batch = new Batch();
+  private final Routing routing = new Routing();
+  private final Bulkheads bulkheads = new Bulkheads();
+  private final Deadlines deadlines = new Deadlines();
+
+  public URI getUrl() {
+    return url;
+  }
+
+  public void setUrl(URI url) {
+    this.url = url;
+  }
+
+  public int getMaxConnections() {
+    return maxConnections;
+  }
+
+  public void setMaxConnections(int maxConnections) {
+    this.maxConnections = maxConnections;
+  }
+
+  public int getMaxConnectionsPerRoute() {
+    return maxConnectionsPerRoute;
+  }
+
+  public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+    this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+  }
+
+  public Duration getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  public void setConnectTimeout(Duration connectTimeout) {
+    this.connectTimeout = connectTimeout;
+  }
+
+  public Duration getReadTimeout() {
+    return readTimeout;
+  }
+
+  public void setReadTimeout(Duration readTimeout) {
+    this.readTimeout = readTimeout;
+  }
+
+  public Duration getConnectionRequestTimeout() {
+    return connectionRequestTimeout;
+  }
+
+  public void setConnectionRequestTimeout(Duration connectionRequestTimeout) {
+    this.connectionRequestTimeout = connectionRequestTimeout;
+  }
+
+  public Duration getIdleTimeout() {
+    return idleTimeout;
+  }
+
+  public void setIdleTimeout(Duration idleTimeout) {
+    this.idleTimeout = idleTimeout;
+  }
+
+  public Duration getValidateAfterInactivity() {
+    return validateAfterInactivity;
+  }
+
+  public void setValidateAfterInactivity(Duration validateAfterInactivity) {
+    this.validateAfterInactivity = validateAfterInactivity;
+  }
+
+  public int getWarmUpConnections() {
+    return warmUpConnections;
+  }
+
+  public void setWarmUpConnections(int warmUpConnections) {
+    this.warmUpConnections = warmUpConnections;
+  }
+
+  public HttpVersionPolicy getHttpVersion() {
+    return httpVersion;
+  }
+
+  public void setHttpVersion(HttpVersionPolicy httpVersion) {
+    this.httpVersion = httpVersion;
+  }
+
+  public int getCallbackThreads() {
+    return callbackThreads;
+  }
+
+  public void setCallbackThreads(int callbackThreads) {
+    this.callbackThreads = callbackThreads;
+  }
+
+  public boolean isVirtualThreads() {
+    return virtualThreads;
+  }
+
+  public void setVirtualThreads(boolean virtualThreads) {
+    this.virtualThreads = virtualThreads;
+  }
+
+  public Limiter getLimiter() {
+    return limiter;
+  }
+
+  public Breaker getBreaker() {
+    return breaker;
+  }
+
+  public Retry getRetry() {
+    return retry;
+  }
+
+  public Hedge getHedge() {
+    return hedge;
+  }
+
+  public Batch getBatch() {
+    return batch;
+  }
+
+  public Routing getRouting() {
+    return routing;
+  }
+
+  public Bulkheads getBulkheads() {
+    return bulkheads;
+  }
+
+  public Deadlines getDeadlines() {
+    return deadlines;
+  }
+
+  /**
+   * The acquirers calls are routed over: those configured under {@code routing}, or else the one
+   * at {@code url} and {@code batch.url}.
+   */
+  public List<Acquirer> acquirers() {
+    if (!routing.getAcquirers().isEmpty()) {
+      return routing.getAcquirers();
+    }
+    Acquirer only = new Acquirer();
+    only.setName("default");
+    only.setUrl(url);
+    only.setBatchUrl(batch.getUrl());
+    return List.of(only);
+  }
+
+  public static class Limiter {
+
+    // Calls in flight allowed at startup, and the range the limit adapts within
+    private int initialLimit = 50;
+    private int minLimit = 1;
+    private int maxLimit = 1000;
+    // A call slower than this counts as a sign of overload, like a failed one
+    private Duration latencyThreshold = Duration.ofSeconds(1);
+    // The limit is multiplied by this on overload
+    private double backoffRatio = 0.9;
+
+    public int getInitialLimit() {
+      return initialLimit;
+    }
+
+    public void setInitialLimit(int initialLimit) {
+      this.initialLimit = initialLimit;
+    }
+
+    public int getMinLimit() {
+      return minLimit;
+    }
+
+    public void setMinLimit(int minLimit) {
+      this.minLimit = minLimit;
+    }
+
+    public int getMaxLimit() {
+      return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+      this.maxLimit = maxLimit;
+    }
+
+    public Duration getLatencyThreshold() {
+      return latencyThreshold;
+    }
+
+    public void setLatencyThreshold(Duration latencyThreshold) {
+      this.latencyThreshold = latencyThreshold;
+    }
+
+    public double getBackoffRatio() {
+      return backoffRatio;
+    }
+
+    public void setBackoffRatio(double backoffRatio) {
+      this.backoffRatio = backoffRatio;
+    }
+  }
+
+  public static class Breaker {
+
+    // Share of failed calls in the window that opens the breaker
+    private double failureRateThreshold = 0.5;
+    private int windowSize = 100;
+    // Fewer calls than this in the window never open the breaker
+    private int minimumCalls = 20;
+    private Duration openDuration = Duration.ofSeconds(5);
+    // Trial calls let through after openDuration; all must succeed to close again
+    private int halfOpenCalls = 5;
+
+    public double getFailureRateThreshold() {
+      return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(double failureRateThreshold) {
+      this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public int getWindowSize() {
+      return windowSize;
+    }
+
+    public void setWindowSize(int windowSize) {
+      this.windowSize = windowSize;
+    }
+
+    public int getMinimumCalls() {
+      return minimumCalls;
+    }
+
+    public void setMinimumCalls(int minimumCalls) {
+      this.minimumCalls = minimumCalls;
+    }
+
+    public Duration getOpenDuration() {
+      return openDuration;
+    }
+
+    public void setOpenDuration(Duration openDuration) {
+      this.openDuration = openDuration;
+    }
+
+    public int getHalfOpenCalls() {
+      return halfOpenCalls;
+    }
+
+    public void setHalfOpenCalls(int halfOpenCalls) {
+      this.halfOpenCalls = halfOpenCalls;
+    }
+  }
+
+  public static class Retry {
+
+    // Calls per payment in all, the first included; 1 disables retries
+    private int maxAttempts = 3;
+    // Delay before the first retry, doubling per retry up to maxBackoff, jittered by up to half
+    private Duration initialBackoff = Duration.ofMillis(50);
+    private Duration maxBackoff = Duration.ofMillis(500);
+    // Retries and hedges allowed per payment call over the last 10 seconds
+    private double budgetRatio = 0.1;
+    // Retries and hedges allowed per second on top, however quiet the gateway is
+    private int minPerSecond = 10;
+
+    public int getMaxAttempts() {
+      return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+      this.maxAttempts = maxAttempts;
+    }
+
+    public Duration getInitialBackoff() {
+      return initialBackoff;
+    }
+
+    public void setInitialBackoff(Duration initialBackoff) {
+      this.initialBackoff = initialBackoff;
+    }
+
+    public Duration getMaxBackoff() {
+      return maxBackoff;
+    }
+
+    public void setMaxBackoff(Duration maxBackoff) {
+      this.maxBackoff = maxBackoff;
+    }
+
+    public double getBudgetRatio() {
+      return budgetRatio;
+    }
+
+    public void setBudgetRatio(double budgetRatio) {
+      this.budgetRatio = budgetRatio;
+    }
+
+    public int getMinPerSecond() {
+      return minPerSecond;
+    }
+
+    public void setMinPerSecond(int minPerSecond) {
+      this.minPerSecond = minPerSecond;
+    }
+  }
+
+  public static class Hedge {
+
+    private boolean enabled = false;
+    // A call unanswered after this percentile of recent latencies gets a second one
+    private double percentile = 0.95;
+    // Never hedge sooner than this, however fast the bank has been
+    private Duration minDelay = Duration.ofMillis(10);
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public double getPercentile() {
+      return percentile;
+    }
+
+    public void setPercentile(double percentile) {
+      this.percentile = percentile;
+    }
+
+    public Duration getMinDelay() {
+      return minDelay;
+    }
+
+    public void setMinDelay(Duration minDelay) {
+      this.minDelay = minDelay;
+    }
+  }
+
+  public static class Batch {
+
+    private boolean enabled = false;
+    private URI url = URI.create("http://localhost:8080/payments/batch");
+    // A batch is sent once it holds maxSize payments, or maxWait after its first one
+    private int maxSize = 32;
+    private Duration maxWait = Duration.ofNanos(200_000);
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public URI getUrl() {
+      return url;
+    }
+
+    public void setUrl(URI url) {
+      this.url = url;
+    }
+
+    public int getMaxSize() {
+      return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+      this.maxSize = maxSize;
+    }
+
+    public Duration getMaxWait() {
+      return maxWait;
+    }
+
+    public void setMaxWait(Duration maxWait) {
+      this.maxWait = maxWait;
+    }
+  }
+
+  public static class Routing {
+
+    // Empty sends every call to url and batch.url
+    private List<Acquirer> acquirers = new ArrayList<>();
+    // A call answered 503, or not connected, is resent at once to another acquirer this many times
+    private int maxFailovers = 1;
+    // Failures in a row that take an acquirer out of rotation, and for how long
+    private int ejectAfter = 5;
+    private Duration ejectFor = Duration.ofSeconds(30);
+
+    public List<Acquirer> getAcquirers() {
+      return acquirers;
+    }
+
+    public void setAcquirers(List<Acquirer> acquirers) {
+      this.acquirers = acquirers;
+    }
+
+    public int getMaxFailovers() {
+      return maxFailovers;
+    }
+
+    public void setMaxFailovers(int maxFailovers) {
+      this.maxFailovers = maxFailovers;
+    }
+
+    public int getEjectAfter() {
+      return ejectAfter;
+    }
+
+    public void setEjectAfter(int ejectAfter) {
+      this.ejectAfter = ejectAfter;
+    }
+
+    public Duration getEjectFor() {
+      return ejectFor;
+    }
+
+    public void setEjectFor(Duration ejectFor) {
+      this.ejectFor = ejectFor;
+    }
+  }
+
+  public static class Bulkheads {
+
+    // Bank calls in flight at once per currency; a call beyond it is turned away at once
+    private int maxPerCurrency = 500;
+    // Caps for single currencies, in place of maxPerCurrency
+    private Map<Currency, Integer> currencies = new EnumMap<>(Currency.class);
+    // Bank calls in flight at once per acquirer, unless the acquirer sets its own
+    private int maxPerAcquirer = 1000;
+
+    public int getMaxPerCurrency() {
+      return maxPerCurrency;
+    }
+
+    public void setMaxPerCurrency(int maxPerCurrency) {
+      this.maxPerCurrency = maxPerCurrency;
+    }
+
+    public Map<Currency, Integer> getCurrencies() {
+      return currencies;
+    }
+
+    public void setCurrencies(Map<Currency, Integer> currencies) {
+      this.currencies = currencies;
+    }
+
+    public int getMaxPerAcquirer() {
+      return maxPerAcquirer;
+    }
+
+    public void setMaxPerAcquirer(int maxPerAcquirer) {
+      this.maxPerAcquirer = maxPerAcquirer;
+    }
+  }
+
+  public static class Deadlines {
+
+    // How long a bank call may take when the client sends no deadline
+    private Duration defaultTimeout = Duration.ofSeconds(10);
+    // Longer client deadlines are cut to this
+    private Duration maxTimeout = Duration.ofSeconds(30);
+    // Kept back from the client's deadline to store the payment and write the response
+    private Duration reserve = Duration.ofMillis(20);
+    // Time out each request to the bank after multiplier times the recent p99 latency, kept
+    // between minAttemptTimeout and readTimeout, instead of after readTimeout
+    private boolean adaptiveAttemptTimeout = false;
+    private double attemptTimeoutMultiplier = 3;
+    private Duration minAttemptTimeout = Duration.ofMillis(100);
+    // Resolution of the timing wheel that times bank calls out
+    private Duration tick = Duration.ofMillis(1);
+
+    public Duration getDefaultTimeout() {
+      return defaultTimeout;
+    }
+
+    public void setDefaultTimeout(Duration defaultTimeout) {
+      this.defaultTimeout = defaultTimeout;
+    }
+
+    public Duration getMaxTimeout() {
+      return maxTimeout;
+    }
+
+    public void setMaxTimeout(Duration maxTimeout) {
+      this.maxTimeout = maxTimeout;
+    }
+
+    public Duration getReserve() {
+      return reserve;
+    }
+
+    public void setReserve(Duration reserve) {
+      this.reserve = reserve;
+    }
+
+    public boolean isAdaptiveAttemptTimeout() {
+      return adaptiveAttemptTimeout;
+    }
+
+    public void setAdaptiveAttemptTimeout(boolean adaptiveAttemptTimeout) {
+      this.adaptiveAttemptTimeout = adaptiveAttemptTimeout;
+    }
+
+    public double getAttemptTimeoutMultiplier() {
+      return attemptTimeoutMultiplier;
+    }
+
+    public void setAttemptTimeoutMultiplier(double attemptTimeoutMultiplier) {
+      this.attemptTimeoutMultiplier = attemptTimeoutMultiplier;
+    }
+
+    public Duration getMinAttemptTimeout() {
+      return minAttemptTimeout;
+    }
+
+    public void setMinAttemptTimeout(Duration minAttemptTimeout) {
+      this.minAttemptTimeout = minAttemptTimeout;
+    }
+
+    public Duration getTick() {
+      return tick;
+    }
+
+    public void setTick(Duration tick) {
+      this.tick = tick;
+    }
+  }
+
+  public static class Acquirer {
+
+    // Shown in logs and metrics
+    private String name;
+    private URI url;
+    private URI batchUrl;
+    // Calls in flight at once; unset takes bulkheads.maxPerAcquirer
+    private Integer maxConcurrent;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public URI getUrl() {
+      return url;
+    }
+
+    public void setUrl(URI url) {
+      this.url = url;
+    }
+
+    public URI getBatchUrl() {
+      return batchUrl;
+    }
+
+    public void setBatchUrl(URI batchUrl) {
+      this.batchUrl = batchUrl;
+    }
+
+    public Integer getMaxConcurrent() {
+      return maxConcurrent;
+    }
+
+    public void setMaxConcurrent(Integer maxConcurrent) {
+      this.maxConcurrent = maxConcurrent;
+    }
+  }
+}
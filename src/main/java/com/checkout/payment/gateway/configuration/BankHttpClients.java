@@ -0,0 +1,152 @@
+package com.checkout.payment.gateway.configuration;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Builds the pooled, non-blocking Apache HttpClient used for bank calls.
+ *
+ * <p>Requests are written and responses read by a few I/O reactor threads, so a bank call holds a
+ * pooled connection while in flight but no thread. Over HTTP/1.1 up to
+ * {@code maxConnectionsPerRoute} calls are on the wire at once and the rest queue for a
+ * connection; over HTTP/2 calls are multiplexed as streams on a shared connection. Connections
+ * are kept alive between calls. A background thread closes those idle for longer than
+ * {@code idleTimeout}, and one idle for longer than {@code validateAfterInactivity} is checked
+ * before reuse, so a bank-side close is noticed before a request is written to a dead socket.
+ *
+ * <p>HTTP/2 is only spoken over TLS. The pool does not do HTTP/2 over plain HTTP (h2c), so
+ * {@code FORCE_HTTP_2} is refused for an acquirer whose URL is not {@code https}.
+ */
+public final class BankHttpClients {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BankHttpClients.class);
+
+  private BankHttpClients() {
+  }
+
+  public static PoolingAsyncClientConnectionManager connectionManager(
+      BankClientProperties properties) {
+    if (properties.getHttpVersion() == HttpVersionPolicy.FORCE_HTTP_2) {
+      requireTls(properties);
+    }
+    return PoolingAsyncClientConnectionManagerBuilder.create()
+        .setMaxConnTotal(properties.getMaxConnections())
+        .setMaxConnPerRoute(properties.getMaxConnectionsPerRoute())
+        .setDefaultConnectionConfig(ConnectionConfig.custom()
+            .setConnectTimeout(timeout(properties.getConnectTimeout()))
+            .setSocketTimeout(timeout(properties.getReadTimeout()))
+            .setValidateAfterInactivity(timeValue(properties.getValidateAfterInactivity()))
+            .build())
+        .setDefaultTlsConfig(TlsConfig.custom()
+            .setVersionPolicy(properties.getHttpVersion())
+            .build())
+        .build();
+  }
+
+  /**
+   * A started client on the given pool.
+   */
+  public static CloseableHttpAsyncClient httpClient(
+      PoolingAsyncClientConnectionManager connectionManager, BankClientProperties properties) {
+    CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+        .setConnectionManager(connectionManager)
+        .setDefaultRequestConfig(RequestConfig.custom()
+            .setConnectionRequestTimeout(timeout(properties.getConnectionRequestTimeout()))
+            .setResponseTimeout(timeout(properties.getReadTimeout()))
+            .build())
+        .evictExpiredConnections()
+        .evictIdleConnections(timeValue(properties.getIdleTimeout()))
+        .build();
+    client.start();
+    return client;
+  }
+
+  /**
+   * Opens connections to the bank by sending {@code warmUpConnections} concurrent {@code HEAD}
+   * requests to each acquirer, each of which needs a connection of its own over HTTP/1.1.
+   * Whatever the bank answers, the connections stay idle in the pool afterwards.
+   *
+   * @return number of requests the bank answered
+   */
+  public static int warmUp(CloseableHttpAsyncClient client, BankClientProperties properties) {
+    List<CompletableFuture<SimpleHttpResponse>> requests = new ArrayList<>();
+    for (BankClientProperties.Acquirer acquirer : properties.acquirers()) {
+      for (int i = 0; i < properties.getWarmUpConnections(); i++) {
+        CompletableFuture<SimpleHttpResponse> response = new CompletableFuture<>();
+        client.execute(SimpleRequestBuilder.head(acquirer.getUrl()).build(),
+            new FutureCallback<>() {
+              @Override
+              public void completed(SimpleHttpResponse result) {
+                response.complete(result);
+              }
+
+              @Override
+              public void failed(Exception e) {
+                response.completeExceptionally(e);
+              }
+
+              @Override
+              public void cancelled() {
+                response.cancel(false);
+              }
+            });
+        requests.add(response);
+      }
+    }
+    int answered = 0;
+    long deadline = System.nanoTime() + properties.getConnectTimeout()
+        .plus(properties.getReadTimeout()).toNanos();
+    for (CompletableFuture<SimpleHttpResponse> request : requests) {
+      try {
+        request.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        answered++;
+      } catch (ExecutionException | TimeoutException e) {
+        LOG.warn("Bank connection warm-up request failed: {}", e.getMessage());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    return answered;
+  }
+
+  private static void requireTls(BankClientProperties properties) {
+    for (BankClientProperties.Acquirer acquirer : properties.acquirers()) {
+      for (URI url : new URI[] {acquirer.getUrl(), acquirer.getBatchUrl()}) {
+        if (url != null && !"https".equalsIgnoreCase(url.getScheme())) {
+          throw new IllegalStateException("payments.bank.http-version=FORCE_HTTP_2 needs https,"
+              + " but acquirer " + acquirer.getName() + " is at " + url);
+        }
+      }
+    }
+  }
+
+  private static Timeout timeout(Duration duration) {
+    return Timeout.ofMilliseconds(duration.toMillis());
+  }
+
+  private static TimeValue timeValue(Duration duration) {
+    return TimeValue.ofMilliseconds(duration.toMillis());
+  }
+}
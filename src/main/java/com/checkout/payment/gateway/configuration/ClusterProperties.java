@@ -0,0 +1,76 @@
+package com.checkout.payment.gateway.configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "payments.cluster")
+public class ClusterProperties {
+
+  private boolean enabled = false;
+  // Base URL the other nodes reach this one on, exactly as it appears in nodes
+  private String self;
+  private List<String> nodes = new ArrayList<>();
+  private int virtualNodes = 128;
+  // Memberships remembered for lookups, current included; a miss is forwarded to one node per ring
+  private int maxRings = 8;
+  private Duration connectTimeout = Duration.ofSeconds(1);
+  private Duration forwardTimeout = Duration.ofSeconds(2);
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public String getSelf() {
+    return self;
+  }
+
+  public void setSelf(String self) {
+    this.self = self;
+  }
+
+  public List<String> getNodes() {
+    return nodes;
+  }
+
+  public void setNodes(List<String> nodes) {
+    this.nodes = nodes;
+  }
+
+  public int getVirtualNodes() {
+    return virtualNodes;
+  }
+
+  public void setVirtualNodes(int virtualNodes) {
+    this.virtualNodes = virtualNodes;
+  }
+
+  public int getMaxRings() {
+    return maxRings;
+  }
+
+  public void setMaxRings(int maxRings) {
+    this.maxRings = maxRings;
+  }
+
+  public Duration getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  public void setConnectTimeout(Duration connectTimeout) {
+    this.connectTimeout = connectTimeout;
+  }
+
+  public Duration getForwardTimeout() {
+    return forwardTimeout;
+  }
+
+  public void setForwardTimeout(Duration forwardTimeout) {
+    this.forwardTimeout = forwardTimeout;
+  }
+}
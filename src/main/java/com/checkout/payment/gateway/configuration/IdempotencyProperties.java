@@ -0,0 +1,29 @@
+package com.checkout.payment.gateway.configuration;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "payments.idempotency")
+public class IdempotencyProperties {
+
+  // Most keys remembered; beyond it the oldest are forgotten first
+  private int maxKeys = 100_000;
+  // How long a key is remembered after the payment made for it was first requested
+  private Duration ttl = Duration.ofHours(24);
+
+  public int getMaxKeys() {
+    return maxKeys;
+  }
+
+  public void setMaxKeys(int maxKeys) {
+    this.maxKeys = maxKeys;
+  }
+
+  public Duration getTtl() {
+    return ttl;
+  }
+
+  public void setTtl(Duration ttl) {
+    this.ttl = ttl;
+  }
+}
@@ -0,0 +1,39 @@
+package com.checkout.payment.gateway.configuration;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "payments.batch")
+public class PaymentBatchProperties {
+
+  // Most payments accepted in one POST /payments/batch
+  private int maxSize = 10_000;
+  // Bank calls one batch keeps in flight; kept below the bank limiter's limit, which sheds the rest
+  private int parallelism = 16;
+  // How long the response may stream before it is cut off; the payments still complete
+  private Duration timeout = Duration.ofMinutes(5);
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public void setMaxSize(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  public void setParallelism(int parallelism) {
+    this.parallelism = parallelism;
+  }
+
+  public Duration getTimeout() {
+    return timeout;
+  }
+
+  public void setTimeout(Duration timeout) {
+    this.timeout = timeout;
+  }
+}
@@ -0,0 +1,29 @@
+package com.checkout.payment.gateway.configuration;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "payments.response-cache")
+public class PaymentResponseCacheProperties {
+
+  // Payment bodies kept serialized, about 400 bytes each; 0 serializes on every read
+  private int maxEntries = 100_000;
+  // Sent as Cache-Control max-age; a stored payment never changes
+  private Duration maxAge = Duration.ofDays(365);
+
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  public void setMaxEntries(int maxEntries) {
+    this.maxEntries = maxEntries;
+  }
+
+  public Duration getMaxAge() {
+    return maxAge;
+  }
+
+  public void setMaxAge(Duration maxAge) {
+    this.maxAge = maxAge;
+  }
+}
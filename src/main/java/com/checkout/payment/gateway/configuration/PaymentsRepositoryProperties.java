@@ -0,0 +1,217 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.repository.JournalSync;
+import com.checkout.payment.gateway.repository.PaymentStoreEngine;
+import com.checkout.payment.gateway.repository.StorageMode;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@ConfigurationProperties(prefix = "payments.repository")
+public class PaymentsRepositoryProperties {
+
+  // Read by the @ConditionalOnProperty on each engine; bound here so typos fail at startup
+  private PaymentStoreEngine engine = PaymentStoreEngine.STRIPED;
+  private StorageMode storageMode = StorageMode.OBJECTS;
+  // 0 sizes the stripes from the number of available processors
+  private int stripes = 0;
+  private final Journal journal = new Journal();
+  private final Retention retention = new Retention();
+  private final Snapshot snapshot = new Snapshot();
+
+  public PaymentStoreEngine getEngine() {
+    return engine;
+  }
+
+  public void setEngine(PaymentStoreEngine engine) {
+    this.engine = engine;
+  }
+
+  public StorageMode getStorageMode() {
+    return storageMode;
+  }
+
+  public void setStorageMode(StorageMode storageMode) {
+    this.storageMode = storageMode;
+  }
+
+  public int getStripes() {
+    return stripes;
+  }
+
+  public void setStripes(int stripes) {
+    this.stripes = stripes;
+  }
+
+  public Journal getJournal() {
+    return journal;
+  }
+
+  public Retention getRetention() {
+    return retention;
+  }
+
+  public Snapshot getSnapshot() {
+    return snapshot;
+  }
+
+  public static class Journal {
+
+    private boolean enabled = false;
+    private Path directory = Path.of("data", "journal");
+    private DataSize segmentSize = DataSize.ofMegabytes(16);
+    private JournalSync sync = JournalSync.NONE;
+    // Group commit only: adds waiting for a sync, and how long the first may wait for company
+    private int maxBatch = 256;
+    private Duration maxWait = Duration.ofMillis(1);
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public Path getDirectory() {
+      return directory;
+    }
+
+    public void setDirectory(Path directory) {
+      this.directory = directory;
+    }
+
+    public DataSize getSegmentSize() {
+      return segmentSize;
+    }
+
+    public void setSegmentSize(DataSize segmentSize) {
+      this.segmentSize = segmentSize;
+    }
+
+    public JournalSync getSync() {
+      return sync;
+    }
+
+    public void setSync(JournalSync sync) {
+      this.sync = sync;
+    }
+
+    public int getMaxBatch() {
+      return maxBatch;
+    }
+
+    public void setMaxBatch(int maxBatch) {
+      this.maxBatch = maxBatch;
+    }
+
+    public Duration getMaxWait() {
+      return maxWait;
+    }
+
+    public void setMaxWait(Duration maxWait) {
+      this.maxWait = maxWait;
+    }
+  }
+
+  public static class Retention {
+
+    private boolean enabled = false;
+    // Heap budget for payments kept in memory; older ones are spilled to disk beyond it
+    private DataSize maxHeap = DataSize.ofMegabytes(256);
+    private Duration ttl = Duration.ofDays(7);
+    private Path directory = Path.of("data", "cold");
+    private Duration evictionInterval = Duration.ofSeconds(1);
+    private int evictionBatch = 65_536;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public DataSize getMaxHeap() {
+      return maxHeap;
+    }
+
+    public void setMaxHeap(DataSize maxHeap) {
+      this.maxHeap = maxHeap;
+    }
+
+    public Duration getTtl() {
+      return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+      this.ttl = ttl;
+    }
+
+    public Path getDirectory() {
+      return directory;
+    }
+
+    public void setDirectory(Path directory) {
+      this.directory = directory;
+    }
+
+    public Duration getEvictionInterval() {
+      return evictionInterval;
+    }
+
+    public void setEvictionInterval(Duration evictionInterval) {
+      this.evictionInterval = evictionInterval;
+    }
+
+    public int getEvictionBatch() {
+      return evictionBatch;
+    }
+
+    public void setEvictionBatch(int evictionBatch) {
+      this.evictionBatch = evictionBatch;
+    }
+  }
+
+  public static class Snapshot {
+
+    private boolean enabled = false;
+    private Path directory = Path.of("data", "snapshots");
+    // 0 only snapshots on shutdown
+    private Duration interval = Duration.ofMinutes(5);
+    private int retained = 2;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public Path getDirectory() {
+      return directory;
+    }
+
+    public void setDirectory(Path directory) {
+      this.directory = directory;
+    }
+
+    public Duration getInterval() {
+      return interval;
+    }
+
+    public void setInterval(Duration interval) {
+      this.interval = interval;
+    }
+
+    public int getRetained() {
+      return retained;
+    }
+
+    public void setRetained(int retained) {
+      this.retained = retained;
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package com.checkout.payment.gateway.controller;
+
+import com.checkout.payment.gateway.cluster.ClusterPaymentRouting;
+import java.util.List;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Membership of the gateway cluster, at {@code /actuator/cluster}.
+ *
+ * <p>A membership change makes this node forward lookups to the URLs it is given, so it is an
+ * actuator endpoint, served on the management port rather than next to the payments API.
+ */
+@Component
+@Endpoint(id = "cluster")
+@ConditionalOnProperty(name = "payments.cluster.enabled", havingValue = "true")
+public class ClusterEndpoint {
+
+  private final ClusterPaymentRouting clusterPaymentRouting;
+
+  public ClusterEndpoint(ClusterPaymentRouting clusterPaymentRouting) {
+    this.clusterPaymentRouting = clusterPaymentRouting;
+  }
+
+  /**
+   * Base URLs of the nodes payments are currently spread over.
+   */
+  @ReadOperation
+  public List<String> nodes() {
+    return clusterPaymentRouting.members();
+  }
+
+  /**
+   * Replaces the cluster members on this node; every node must be sent the same list. Stored
+   * payments stay where they are and remain readable from any node.
+   */
+  @WriteOperation
+  public List<String> updateNodes(List<String> nodes) {
+    try {
+      return clusterPaymentRouting.updateMembers(nodes);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+    }
+  }
+}
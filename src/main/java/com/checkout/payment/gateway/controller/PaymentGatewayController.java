@@ -1,41 +1,101 @@
 package com.checkout.payment.gateway.controller;
 
+import com.checkout.payment.gateway.cluster.PaymentRouting;
+import com.checkout.payment.gateway.configuration.BankClientProperties;
+import com.checkout.payment.gateway.configuration.PaymentBatchProperties;
+import com.checkout.payment.gateway.configuration.PaymentResponseCacheProperties;
 import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.CommonExceptionHandler;
+import com.checkout.payment.gateway.exception.InvalidDeadlineException;
 import com.checkout.payment.gateway.util.RejectionMessages;
+import com.checkout.payment.gateway.metrics.PaymentStatistics;
+import com.checkout.payment.gateway.model.BatchPaymentResponse;
+import com.checkout.payment.gateway.model.PaymentPage;
+import com.checkout.payment.gateway.model.PaymentStatisticsResponse;
 import com.checkout.payment.gateway.model.PostPaymentRequest;
 import com.checkout.payment.gateway.model.PostPaymentResponse;
 import com.checkout.payment.gateway.model.RejectedPaymentResponse;
 import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import com.checkout.payment.gateway.service.Deadline;
+import com.checkout.payment.gateway.service.IdempotencyTable;
+import com.checkout.payment.gateway.service.PaymentBatchService;
+import com.checkout.payment.gateway.service.PaymentExportService;
 import com.checkout.payment.gateway.service.PaymentGatewayService;
+import com.checkout.payment.gateway.service.PaymentResponseCache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @Tag(name = "Payment Gateway", description = "API for processing and retrieving payments")
 public class PaymentGatewayController {
 
   private static final String HTTP_OK = "200";
+  private static final String HTTP_NOT_MODIFIED = "304";
   private static final String HTTP_BAD_REQUEST = "400";
   private static final String HTTP_UNPROCESSABLE_ENTITY = "422";
   private static final String HTTP_NOT_FOUND = "404";
+  private static final String HTTP_SERVICE_UNAVAILABLE = "503";
+  private static final String HTTP_GATEWAY_TIMEOUT = "504";
   private static final String JSON = "application/json";
+  private static final String NDJSON = "application/x-ndjson";
+  private static final MediaType NDJSON_TYPE = MediaType.parseMediaType(NDJSON);
 
   private final PaymentGatewayService paymentGatewayService;
+  private final PaymentExportService paymentExportService;
+  private final PaymentBatchService paymentBatchService;
+  private final CommonExceptionHandler exceptionHandler;
+  private final ObjectWriter batchWriter;
+  private final long batchTimeoutMillis;
+  private final PaymentResponseCache paymentResponseCache;
+  private final CacheControl paymentCacheControl;
+  private final long maxTimeoutMillis;
 
-  public PaymentGatewayController(PaymentGatewayService paymentGatewayService) {
+  public PaymentGatewayController(PaymentGatewayService paymentGatewayService,
+      PaymentExportService paymentExportService, PaymentBatchService paymentBatchService,
+      CommonExceptionHandler exceptionHandler, ObjectMapper objectMapper,
+      PaymentBatchProperties batchProperties, PaymentResponseCache paymentResponseCache,
+      PaymentResponseCacheProperties cacheProperties, BankClientProperties bankProperties) {
     this.paymentGatewayService = paymentGatewayService;
+    this.paymentExportService = paymentExportService;
+    this.paymentBatchService = paymentBatchService;
+    this.exceptionHandler = exceptionHandler;
+    this.batchWriter = objectMapper.writerFor(BatchPaymentResponse.class);
+    this.batchTimeoutMillis = batchProperties.getTimeout().toMillis();
+    this.paymentResponseCache = paymentResponseCache;
+    // Private: the body carries card details, which shared caches should not keep
+    this.paymentCacheControl = CacheControl.maxAge(cacheProperties.getMaxAge())
+        .cachePrivate()
+        .immutable();
+    this.maxTimeoutMillis = bankProperties.getDeadlines().getMaxTimeout().toMillis();
   }
 
   @PostMapping("/payment")
@@ -43,13 +103,138 @@ public class PaymentGatewayController {
   @ApiResponses(value = {
       @ApiResponse(responseCode = HTTP_OK, description = "Payment processed successfully - Approved/Declined",
           content = @Content(mediaType = JSON, schema = @Schema(implementation = SuccessfulPaymentResponse.class))),
-      @ApiResponse(responseCode = HTTP_BAD_REQUEST, description = "Malformed request, missing required fields - Rejected",
-          content = @Content(mediaType = JSON, schema = @Schema(implementation = RejectedPaymentResponse.class))),
-      @ApiResponse(responseCode = HTTP_UNPROCESSABLE_ENTITY, description = "Payment rejected due to validation errors - Rejected",
-          content = @Content(mediaType = JSON, schema = @Schema(implementation = RejectedPaymentResponse.class)))
+      // One response per status code: a status two failures share has the schema of either
+      @ApiResponse(responseCode = HTTP_BAD_REQUEST, description = "Malformed request, missing required fields - Rejected (RejectedPaymentResponse); or invalid Idempotency-Key or X-Request-Timeout-Ms (ErrorResponse)",
+          content = @Content(mediaType = JSON, schema = @Schema(oneOf = {RejectedPaymentResponse.class, com.checkout.payment.gateway.model.ErrorResponse.class}))),
+      @ApiResponse(responseCode = HTTP_UNPROCESSABLE_ENTITY, description = "Payment rejected due to validation errors - Rejected (RejectedPaymentResponse); or Idempotency-Key reused for a different payment (ErrorResponse)",
+          content = @Content(mediaType = JSON, schema = @Schema(oneOf = {RejectedPaymentResponse.class, com.checkout.payment.gateway.model.ErrorResponse.class}))),
+      @ApiResponse(responseCode = HTTP_GATEWAY_TIMEOUT, description = "No bank answer within the client's deadline",
+          content = @Content(mediaType = JSON, schema = @Schema(implementation = com.checkout.payment.gateway.model.ErrorResponse.class)))
+  })
+  public CompletableFuture<ResponseEntity<PostPaymentResponse>> processPayment(@RequestBody PostPaymentRequest request,
+      @Parameter(description = "Milliseconds the client will wait for the answer") @RequestHeader(value = Deadline.HEADER, required = false) Long timeoutMillis,
+      @Parameter(description = "Client's key for the payment; a retry with the same key gets the first answer instead of a second payment") @RequestHeader(value = IdempotencyTable.HEADER, required = false) String idempotencyKey) {
+    Deadline deadline = deadline(timeoutMillis);
+    // The servlet thread is released here; the response is written when the bank has answered
+    return paymentGatewayService.processPayment(request, deadline, idempotencyKey)
+        .thenApply(PaymentGatewayController::toResponseEntity);
+  }
+
+  @PostMapping(value = "/payments/batch", produces = NDJSON)
+  @Operation(summary = "Process a batch of payments", description = "Submit an array of payment requests; each outcome is streamed back as a line of newline-delimited JSON as soon as it is known, with the status and body POST /payment would have answered")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = HTTP_OK, description = "One outcome per line, in completion order",
+          content = @Content(mediaType = NDJSON, schema = @Schema(implementation = BatchPaymentResponse.class))),
+      @ApiResponse(responseCode = HTTP_BAD_REQUEST, description = "Malformed, empty or oversized batch, or invalid X-Request-Timeout-Ms",
+          content = @Content(mediaType = JSON, schema = @Schema(implementation = com.checkout.payment.gateway.model.ErrorResponse.class)))
   })
-  public ResponseEntity<PostPaymentResponse> processPayment(@RequestBody PostPaymentRequest request) {
-    PostPaymentResponse response = paymentGatewayService.processPayment(request);
+  public ResponseEntity<ResponseBodyEmitter> processPayments(@RequestBody List<PostPaymentRequest> requests,
+      @Parameter(description = "Milliseconds the client will wait for the whole batch") @RequestHeader(value = Deadline.HEADER, required = false) Long timeoutMillis) {
+    Deadline deadline = deadline(timeoutMillis);
+    ResponseBodyEmitter emitter = new ResponseBodyEmitter(batchTimeoutMillis);
+    // Outcomes reported before the response is committed are held by the emitter until it is
+    paymentBatchService.processBatch(requests, deadline, (index, response, failure) -> {
+      ResponseEntity<?> outcome = failure == null
+          ? toResponseEntity(response)
+          : exceptionHandler.handle(failure);
+      send(emitter, new BatchPaymentResponse(index, outcome.getStatusCode().value(), outcome.getBody()));
+    }).whenComplete((done, failure) -> emitter.complete());
+    return ResponseEntity.ok().contentType(NDJSON_TYPE).body(emitter);
+  }
+
+  @GetMapping("/payment/{id}")
+  @Operation(summary = "Retrieve payment details", description = "Get details of a previously processed payment by ID")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = HTTP_OK, description = "Payment found, with a strong ETag; a stored payment never changes, so it may be cached for good",
+          content = @Content(mediaType = JSON, schema = @Schema(implementation = SuccessfulPaymentResponse.class))),
+      @ApiResponse(responseCode = HTTP_NOT_MODIFIED, description = "If-None-Match names the payment's ETag", content = @Content),
+      @ApiResponse(responseCode = HTTP_NOT_FOUND, description = "Payment not found",
+          content = @Content(mediaType = JSON, schema = @Schema(implementation = com.checkout.payment.gateway.model.ErrorResponse.class))),
+      @ApiResponse(responseCode = HTTP_SERVICE_UNAVAILABLE, description = "Cluster node owning the payment unreachable",
+          content = @Content(mediaType = JSON, schema = @Schema(implementation = com.checkout.payment.gateway.model.ErrorResponse.class)))
+  })
+  public ResponseEntity<byte[]> getPaymentById(@PathVariable UUID id,
+      @Parameter(description = "ETag of the copy the client holds; answered 304 if it is current") @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+      @Parameter(hidden = true) @RequestHeader(value = PaymentRouting.FORWARDED_HEADER, required = false) String forwarded) {
+    // A current copy costs at most a lookup to confirm the payment exists, never serialization
+    if (paymentResponseCache.notModified(id, ifNoneMatch,
+        () -> paymentGatewayService.getPaymentById(id, forwarded != null))) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+          .eTag(paymentResponseCache.etag(id))
+          .cacheControl(paymentCacheControl)
+          .build();
+    }
+    PaymentResponseCache.Cached payment = paymentResponseCache.get(id,
+        () -> paymentGatewayService.getPaymentById(id, forwarded != null));
+    return ResponseEntity.ok()
+        .eTag(payment.etag())
+        .cacheControl(paymentCacheControl)
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(payment.body());
+  }
+
+  @GetMapping("/payments")
+  @Operation(summary = "List payments", description = "List processed payments, newest first, filtered by status, currency, creation time and card last four digits")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = HTTP_OK, description = "Page of matching payments",
+          content = @Content(mediaType = JSON, schema = @Schema(implementation = PaymentPage.class))),
+      @ApiResponse(responseCode = HTTP_BAD_REQUEST, description = "Invalid filter, limit or cursor",
+          content = @Content(mediaType = JSON, schema = @Schema(implementation = com.checkout.payment.gateway.model.ErrorResponse.class)))
+  })
+  public ResponseEntity<PaymentPage> listPayments(
+      @Parameter(description = "Authorized or Declined") @RequestParam(required = false) String status,
+      @Parameter(description = "ISO currency code") @RequestParam(required = false) String currency,
+      @RequestParam(required = false) String cardNumberLastFour,
+      @Parameter(description = "Created at or after, ISO-8601") @RequestParam(required = false) Instant from,
+      @Parameter(description = "Created before, ISO-8601") @RequestParam(required = false) Instant to,
+      @RequestParam(defaultValue = "20") int limit,
+      @Parameter(description = "nextCursor of the previous page") @RequestParam(required = false) String cursor) {
+    PaymentPage page = paymentGatewayService.listPayments(status, currency, cardNumberLastFour,
+        from, to, limit, cursor);
+    return new ResponseEntity<>(page, HttpStatus.OK);
+  }
+
+  @GetMapping(value = "/payments/export", produces = NDJSON)
+  @Operation(summary = "Export payments", description = "Stream every stored payment, newest first, as newline-delimited JSON, optionally limited to a creation time range")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = HTTP_OK, description = "One payment per line",
+          content = @Content(mediaType = NDJSON, schema = @Schema(implementation = SuccessfulPaymentResponse.class)))
+  })
+  public ResponseEntity<StreamingResponseBody> exportPayments(
+      @Parameter(description = "Created at or after, ISO-8601") @RequestParam(required = false) Instant from,
+      @Parameter(description = "Created before, ISO-8601") @RequestParam(required = false) Instant to) {
+    StreamingResponseBody body = out -> paymentExportService.export(from, to, out);
+    return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+  }
+
+  @GetMapping("/payments/stats")
+  @Operation(summary = "Payment statistics", description = "Authorization and decline rates, volumes and request counts per currency per minute, and an estimate of distinct cards, for the last minutes")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = HTTP_OK, description = "Statistics, oldest minute first",
+          content = @Content(mediaType = JSON, schema = @Schema(implementation = PaymentStatisticsResponse.class))),
+      @ApiResponse(responseCode = HTTP_BAD_REQUEST, description = "Invalid number of minutes",
+          content = @Content(mediaType = JSON, schema = @Schema(implementation = com.checkout.payment.gateway.model.ErrorResponse.class)))
+  })
+  public ResponseEntity<PaymentStatisticsResponse> getStatistics(
+      @Parameter(description = "Minutes to cover, current one included, 1-" + PaymentStatistics.MINUTES) @RequestParam(defaultValue = "60") int minutes) {
+    return new ResponseEntity<>(paymentGatewayService.getStatistics(minutes), HttpStatus.OK);
+  }
+
+  /**
+   * The client's deadline, if it sent one; longer ones are cut to the bank's max-timeout, which
+   * the bank call would be held to anyway.
+   */
+  private Deadline deadline(Long timeoutMillis) {
+    if (timeoutMillis == null) {
+      return null;
+    }
+    if (timeoutMillis <= 0) {
+      throw new InvalidDeadlineException(Deadline.HEADER + " must be positive");
+    }
+    return Deadline.after(Duration.ofMillis(Math.min(timeoutMillis, maxTimeoutMillis)));
+  }
+
+  private static ResponseEntity<PostPaymentResponse> toResponseEntity(PostPaymentResponse response) {
     if (response.getStatus() == PaymentStatus.REJECTED) {
       RejectedPaymentResponse rejected = (RejectedPaymentResponse) response;
       HttpStatus status = RejectionMessages.MALFORMED_REQUEST.equals(rejected.getRejectionReason())
@@ -61,16 +246,18 @@ public class PaymentGatewayController {
     }
   }
 
-  @GetMapping("/payment/{id}")
-  @Operation(summary = "Retrieve payment details", description = "Get details of a previously processed payment by ID")
-  @ApiResponses(value = {
-      @ApiResponse(responseCode = HTTP_OK, description = "Payment found",
-          content = @Content(mediaType = JSON, schema = @Schema(implementation = SuccessfulPaymentResponse.class))),
-      @ApiResponse(responseCode = HTTP_NOT_FOUND, description = "Payment not found",
-          content = @Content(mediaType = JSON, schema = @Schema(implementation = com.checkout.payment.gateway.model.ErrorResponse.class)))
-  })
-  public ResponseEntity<SuccessfulPaymentResponse> getPaymentById(@PathVariable UUID id) {
-    SuccessfulPaymentResponse payment = paymentGatewayService.getPaymentById(id);
-    return new ResponseEntity<>(payment, HttpStatus.OK);
+  // Each line goes out in one send, so lines from different threads cannot interleave
+  private void send(ResponseBodyEmitter emitter, BatchPaymentResponse outcome) {
+    byte[] line;
+    try {
+      line = (batchWriter.writeValueAsString(outcome) + '\n').getBytes(StandardCharsets.UTF_8);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+    try {
+      emitter.send(line, NDJSON_TYPE);
+    } catch (IOException | IllegalStateException e) {
+      // The client has gone or the response timed out; the payment is stored all the same
+    }
   }
 }
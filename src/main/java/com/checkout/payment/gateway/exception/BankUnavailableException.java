@@ -0,0 +1,7 @@
+package com.checkout.payment.gateway.exception;
+
+public class BankUnavailableException extends RuntimeException {
+  public BankUnavailableException(String reason) {
+    super("bank call not attempted: " + reason);
+  }
+}
@@ -23,6 +23,78 @@ public class CommonExceptionHandler {
         HttpStatus.NOT_FOUND);
   }
 
+  @ExceptionHandler(InvalidQueryException.class)
+  public ResponseEntity<ErrorResponse> handleInvalidQueryException(InvalidQueryException ex) {
+    LOG.info("Invalid payment query: {}", ex.getMessage());
+    return new ResponseEntity<>(new ErrorResponse(ex.getMessage()),
+        HttpStatus.BAD_REQUEST);
+  }
+
+  @ExceptionHandler(PeerUnavailableException.class)
+  public ResponseEntity<ErrorResponse> handlePeerUnavailableException(PeerUnavailableException ex) {
+    LOG.warn("Payment lookup failed: {}", ex.getMessage());
+    return new ResponseEntity<>(new ErrorResponse("payment owner unavailable"),
+        HttpStatus.SERVICE_UNAVAILABLE);
+  }
+
+  @ExceptionHandler(BankUnavailableException.class)
+  public ResponseEntity<ErrorResponse> handleBankUnavailableException(BankUnavailableException ex) {
+    LOG.warn("Payment not sent to the bank: {}", ex.getMessage());
+    return new ResponseEntity<>(new ErrorResponse("bank unavailable"),
+        HttpStatus.SERVICE_UNAVAILABLE);
+  }
+
+  @ExceptionHandler(DeadlineExceededException.class)
+  public ResponseEntity<ErrorResponse> handleDeadlineExceededException(DeadlineExceededException ex) {
+    LOG.info("Payment abandoned: {}", ex.getMessage());
+    return new ResponseEntity<>(new ErrorResponse("deadline exceeded"),
+        HttpStatus.GATEWAY_TIMEOUT);
+  }
+
+  @ExceptionHandler(InvalidBatchException.class)
+  public ResponseEntity<ErrorResponse> handleInvalidBatchException(InvalidBatchException ex) {
+    LOG.info("Invalid payment batch: {}", ex.getMessage());
+    return new ResponseEntity<>(new ErrorResponse(ex.getMessage()),
+        HttpStatus.BAD_REQUEST);
+  }
+
+  @ExceptionHandler(InvalidDeadlineException.class)
+  public ResponseEntity<ErrorResponse> handleInvalidDeadlineException(InvalidDeadlineException ex) {
+    LOG.info("Invalid deadline: {}", ex.getMessage());
+    return new ResponseEntity<>(new ErrorResponse(ex.getMessage()),
+        HttpStatus.BAD_REQUEST);
+  }
+
+  @ExceptionHandler(InvalidIdempotencyKeyException.class)
+  public ResponseEntity<ErrorResponse> handleInvalidIdempotencyKeyException(InvalidIdempotencyKeyException ex) {
+    LOG.info("Invalid idempotency key: {}", ex.getMessage());
+    return new ResponseEntity<>(new ErrorResponse(ex.getMessage()),
+        HttpStatus.BAD_REQUEST);
+  }
+
+  @ExceptionHandler(IdempotencyKeyReusedException.class)
+  public ResponseEntity<ErrorResponse> handleIdempotencyKeyReusedException(IdempotencyKeyReusedException ex) {
+    LOG.info("Payment refused: {}", ex.getMessage());
+    return new ResponseEntity<>(new ErrorResponse(ex.getMessage()),
+        HttpStatus.UNPROCESSABLE_ENTITY);
+  }
+
+  /**
+   * Answers a failure that was not thrown out of a handler method, such as that of one payment of
+   * a batch, as it would have been answered had it been.
+   */
+  public ResponseEntity<ErrorResponse> handle(Throwable failure) {
+    if (failure instanceof BankUnavailableException) {
+      return handleBankUnavailableException((BankUnavailableException) failure);
+    } else if (failure instanceof DeadlineExceededException) {
+      return handleDeadlineExceededException((DeadlineExceededException) failure);
+    } else {
+      LOG.error("Payment failed", failure);
+      return new ResponseEntity<>(new ErrorResponse("internal error"),
+          HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+  }
+
   @ExceptionHandler(MethodArgumentNotValidException.class)
   public ResponseEntity<ErrorResponse> handleValidationException(MethodArgumentNotValidException ex) {
     LOG.info("Validation failed: {}", ex.getMessage());
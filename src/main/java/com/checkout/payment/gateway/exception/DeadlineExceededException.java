@@ -0,0 +1,7 @@
+package com.checkout.payment.gateway.exception;
+
+public class DeadlineExceededException extends RuntimeException {
+  public DeadlineExceededException(String reason) {
+    super("deadline exceeded: " + reason);
+  }
+}
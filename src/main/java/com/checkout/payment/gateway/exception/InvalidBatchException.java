@@ -0,0 +1,7 @@
+package com.checkout.payment.gateway.exception;
+
+public class InvalidBatchException extends RuntimeException {
+  public InvalidBatchException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,7 @@
+package com.checkout.payment.gateway.exception;
+
+public class InvalidDeadlineException extends RuntimeException {
+  public InvalidDeadlineException(String message) {
+    super(message);
+  }
+}
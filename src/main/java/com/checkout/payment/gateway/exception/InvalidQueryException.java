@@ -0,0 +1,7 @@
+package com.checkout.payment.gateway.exception;
+
+public class InvalidQueryException extends RuntimeException {
+  public InvalidQueryException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,11 @@
+package com.checkout.payment.gateway.exception;
+
+public class PeerUnavailableException extends RuntimeException {
+  public PeerUnavailableException(String node, Throwable cause) {
+    super("cluster node " + node + " is unavailable", cause);
+  }
+
+  public PeerUnavailableException(String node, String reason) {
+    super("cluster node " + node + " is unavailable: " + reason);
+  }
+}
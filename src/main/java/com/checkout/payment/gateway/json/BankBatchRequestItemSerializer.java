@@ -0,0 +1,29 @@
+package com.checkout.payment.gateway.json;
+
+import com.checkout.payment.gateway.model.BankBatchRequestItem;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+
+/**
+ * Writes a batch item as its idempotency key followed by the request's own fields, flattened into
+ * one object.
+ */
+public class BankBatchRequestItemSerializer extends StdSerializer<BankBatchRequestItem> {
+
+  public BankBatchRequestItemSerializer() {
+    super(BankBatchRequestItem.class);
+  }
+
+  @Override
+  public void serialize(BankBatchRequestItem item, JsonGenerator generator,
+      SerializerProvider provider) throws IOException {
+    generator.writeStartObject(item);
+    JsonFields.writeString(generator, "idempotency_key", item.getIdempotencyKey());
+    if (item.getRequest() != null) {
+      BankSimulatorRequestSerializer.writeFields(item.getRequest(), generator);
+    }
+    generator.writeEndObject();
+  }
+}
@@ -0,0 +1,39 @@
+package com.checkout.payment.gateway.json;
+
+import com.checkout.payment.gateway.model.BankSimulatorRequest;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+
+/**
+ * Writes a bank request straight to the generator, fields in the order the bean serializer
+ * would use.
+ */
+public class BankSimulatorRequestSerializer extends StdSerializer<BankSimulatorRequest> {
+
+  public BankSimulatorRequestSerializer() {
+    super(BankSimulatorRequest.class);
+  }
+
+  @Override
+  public void serialize(BankSimulatorRequest request, JsonGenerator generator,
+      SerializerProvider provider) throws IOException {
+    generator.writeStartObject(request);
+    writeFields(request, generator);
+    generator.writeEndObject();
+  }
+
+  /**
+   * Writes the request's fields into an object the caller has started.
+   */
+  static void writeFields(BankSimulatorRequest request, JsonGenerator generator)
+      throws IOException {
+    JsonFields.writeString(generator, "card_number", request.getCardNumber());
+    JsonFields.writeString(generator, "expiry_date", request.getExpiryDate());
+    JsonFields.writeString(generator, "currency",
+        request.getCurrency() == null ? null : request.getCurrency().getName());
+    generator.writeNumberField("amount", request.getAmount());
+    JsonFields.writeString(generator, "cvv", request.getCvv());
+  }
+}
@@ -0,0 +1,63 @@
+package com.checkout.payment.gateway.json;
+
+import com.checkout.payment.gateway.model.BankSimulatorResponse;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import java.io.IOException;
+
+/**
+ * Reads the bank's answer field by field off the parser. A missing or null {@code authorized} is
+ * read as false, as the bean deserializer does for the primitive.
+ */
+public class BankSimulatorResponseDeserializer extends StdDeserializer<BankSimulatorResponse> {
+
+  public BankSimulatorResponseDeserializer() {
+    super(BankSimulatorResponse.class);
+  }
+
+  @Override
+  public BankSimulatorResponse deserialize(JsonParser parser, DeserializationContext context)
+      throws IOException {
+    JsonToken token = parser.currentToken();
+    if (token == JsonToken.START_OBJECT) {
+      token = parser.nextToken();
+    } else if (token != JsonToken.FIELD_NAME) {
+      return (BankSimulatorResponse) context.handleUnexpectedToken(BankSimulatorResponse.class,
+          parser);
+    }
+    BankSimulatorResponse response = new BankSimulatorResponse();
+    for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+      String field = parser.currentName();
+      parser.nextToken();
+      boolean known;
+      try {
+        known = readField(parser, context, response, field);
+      } catch (JsonProcessingException e) {
+        // As the bean deserializer does, so the error names the field
+        throw JsonMappingException.wrapWithPath(e, response, field);
+      }
+      if (!known) {
+        context.handleUnknownProperty(parser, this, response, field);
+      }
+    }
+    return response;
+  }
+
+  private static boolean readField(JsonParser parser, DeserializationContext context,
+      BankSimulatorResponse response, String field) throws IOException {
+    switch (field) {
+      case "authorized":
+        response.setAuthorized(JsonFields.readBoolean(parser, context));
+        return true;
+      case "authorization_code":
+        response.setAuthorizationCode(JsonFields.readString(parser, context));
+        return true;
+      default:
+        return false;
+    }
+  }
+}
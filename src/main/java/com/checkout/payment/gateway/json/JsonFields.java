@@ -0,0 +1,75 @@
+package com.checkout.payment.gateway.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import java.io.IOException;
+
+/**
+ * Field readers and writers shared by the hand-written codecs.
+ *
+ * <p>Readers take the token the field is normally sent as straight off the parser. Anything else,
+ * a number sent as a string for instance, goes to Jackson's own deserializer for the type, so
+ * coercion rules and error messages stay those of the default codecs.
+ */
+final class JsonFields {
+
+  private JsonFields() {
+  }
+
+  static String readString(JsonParser parser, DeserializationContext context) throws IOException {
+    JsonToken token = parser.currentToken();
+    if (token == JsonToken.VALUE_STRING) {
+      return parser.getText();
+    }
+    if (token == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    return context.readValue(parser, String.class);
+  }
+
+  static Integer readInteger(JsonParser parser, DeserializationContext context)
+      throws IOException {
+    JsonToken token = parser.currentToken();
+    if (token == JsonToken.VALUE_NUMBER_INT && parser.getNumberType() == JsonParser.NumberType.INT) {
+      return parser.getIntValue();
+    }
+    if (token == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    return context.readValue(parser, Integer.class);
+  }
+
+  static boolean readBoolean(JsonParser parser, DeserializationContext context)
+      throws IOException {
+    JsonToken token = parser.currentToken();
+    if (token == JsonToken.VALUE_TRUE) {
+      return true;
+    }
+    if (token == JsonToken.VALUE_FALSE || token == JsonToken.VALUE_NULL) {
+      return false;
+    }
+    return Boolean.TRUE.equals(context.readValue(parser, Boolean.class));
+  }
+
+  static void writeString(JsonGenerator generator, String name, String value)
+      throws IOException {
+    generator.writeFieldName(name);
+    if (value == null) {
+      generator.writeNull();
+    } else {
+      generator.writeString(value);
+    }
+  }
+
+  static void writeInteger(JsonGenerator generator, String name, Integer value)
+      throws IOException {
+    generator.writeFieldName(name);
+    if (value == null) {
+      generator.writeNull();
+    } else {
+      generator.writeNumber(value.intValue());
+    }
+  }
+}
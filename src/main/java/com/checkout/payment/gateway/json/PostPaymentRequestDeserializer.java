@@ -0,0 +1,75 @@
+package com.checkout.payment.gateway.json;
+
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import java.io.IOException;
+
+/**
+ * Reads a payment request field by field off the parser, without the bean deserializer's
+ * reflective property lookup. Unknown fields are handled as the default codec would: skipped,
+ * unless {@code FAIL_ON_UNKNOWN_PROPERTIES} is on.
+ */
+public class PostPaymentRequestDeserializer extends StdDeserializer<PostPaymentRequest> {
+
+  public PostPaymentRequestDeserializer() {
+    super(PostPaymentRequest.class);
+  }
+
+  @Override
+  public PostPaymentRequest deserialize(JsonParser parser, DeserializationContext context)
+      throws IOException {
+    JsonToken token = parser.currentToken();
+    if (token == JsonToken.START_OBJECT) {
+      token = parser.nextToken();
+    } else if (token != JsonToken.FIELD_NAME) {
+      return (PostPaymentRequest) context.handleUnexpectedToken(PostPaymentRequest.class, parser);
+    }
+    PostPaymentRequest request = new PostPaymentRequest();
+    for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+      String field = parser.currentName();
+      parser.nextToken();
+      boolean known;
+      try {
+        known = readField(parser, context, request, field);
+      } catch (JsonProcessingException e) {
+        // As the bean deserializer does, so the error names the field
+        throw JsonMappingException.wrapWithPath(e, request, field);
+      }
+      if (!known) {
+        context.handleUnknownProperty(parser, this, request, field);
+      }
+    }
+    return request;
+  }
+
+  private static boolean readField(JsonParser parser, DeserializationContext context,
+      PostPaymentRequest request, String field) throws IOException {
+    switch (field) {
+      case "card_number":
+        request.setCardNumber(JsonFields.readString(parser, context));
+        return true;
+      case "expiry_month":
+        request.setExpiryMonth(JsonFields.readInteger(parser, context));
+        return true;
+      case "expiry_year":
+        request.setExpiryYear(JsonFields.readInteger(parser, context));
+        return true;
+      case "currency":
+        request.setCurrency(JsonFields.readString(parser, context));
+        return true;
+      case "amount":
+        request.setAmount(JsonFields.readString(parser, context));
+        return true;
+      case "cvv":
+        request.setCvv(JsonFields.readString(parser, context));
+        return true;
+      default:
+        return false;
+    }
+  }
+}
@@ -0,0 +1,27 @@
+package com.checkout.payment.gateway.json;
+
+import com.checkout.payment.gateway.model.RejectedPaymentResponse;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+
+/**
+ * Writes a rejection straight to the generator.
+ */
+public class RejectedPaymentResponseSerializer extends StdSerializer<RejectedPaymentResponse> {
+
+  public RejectedPaymentResponseSerializer() {
+    super(RejectedPaymentResponse.class);
+  }
+
+  @Override
+  public void serialize(RejectedPaymentResponse rejection, JsonGenerator generator,
+      SerializerProvider provider) throws IOException {
+    generator.writeStartObject(rejection);
+    JsonFields.writeString(generator, "status",
+        rejection.getStatus() == null ? null : rejection.getStatus().getName());
+    JsonFields.writeString(generator, "rejectionReason", rejection.getRejectionReason());
+    generator.writeEndObject();
+  }
+}
@@ -0,0 +1,37 @@
+package com.checkout.payment.gateway.json;
+
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+
+/**
+ * Writes a payment straight to the generator, fields in the order the bean serializer would use.
+ * The creation time still goes through the provider, so the mapper's date settings apply.
+ * Reading a payment back is left to the bean deserializer.
+ */
+public class SuccessfulPaymentResponseSerializer extends StdSerializer<SuccessfulPaymentResponse> {
+
+  public SuccessfulPaymentResponseSerializer() {
+    super(SuccessfulPaymentResponse.class);
+  }
+
+  @Override
+  public void serialize(SuccessfulPaymentResponse payment, JsonGenerator generator,
+      SerializerProvider provider) throws IOException {
+    generator.writeStartObject(payment);
+    JsonFields.writeString(generator, "id",
+        payment.getId() == null ? null : payment.getId().toString());
+    JsonFields.writeString(generator, "status",
+        payment.getStatus() == null ? null : payment.getStatus().getName());
+    JsonFields.writeString(generator, "cardNumberLastFour", payment.getCardNumberLastFour());
+    JsonFields.writeInteger(generator, "expiryMonth", payment.getExpiryMonth());
+    JsonFields.writeInteger(generator, "expiryYear", payment.getExpiryYear());
+    JsonFields.writeString(generator, "currency",
+        payment.getCurrency() == null ? null : payment.getCurrency().getName());
+    JsonFields.writeInteger(generator, "amount", payment.getAmount());
+    provider.defaultSerializeField("createdAt", payment.getCreatedAt(), generator);
+    generator.writeEndObject();
+  }
+}
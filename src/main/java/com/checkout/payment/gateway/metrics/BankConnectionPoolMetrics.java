@@ -0,0 +1,41 @@
+package com.checkout.payment.gateway.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.function.ToDoubleFunction;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.core5.pool.PoolStats;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the state of the bank connection pool: connections in use, idle ones ready for reuse,
+ * and calls waiting for a connection because all are in use.
+ */
+@Component
+public class BankConnectionPoolMetrics implements MeterBinder {
+
+  private final PoolingAsyncClientConnectionManager bankConnectionManager;
+
+  public BankConnectionPoolMetrics(PoolingAsyncClientConnectionManager bankConnectionManager) {
+    this.bankConnectionManager = bankConnectionManager;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    register(registry, "leased", "Bank connections in use by a call", PoolStats::getLeased);
+    register(registry, "available", "Idle bank connections kept alive for reuse",
+        PoolStats::getAvailable);
+    register(registry, "pending", "Bank calls waiting for a connection", PoolStats::getPending);
+    register(registry, "max", "Most bank connections the pool opens", PoolStats::getMax);
+  }
+
+  private void register(MeterRegistry registry, String state, String description,
+      ToDoubleFunction<PoolStats> value) {
+    Gauge.builder("payments.bank.connections", bankConnectionManager,
+            manager -> value.applyAsDouble(manager.getTotalStats()))
+        .description(description)
+        .tag("state", state)
+        .register(registry);
+  }
+}
@@ -0,0 +1,146 @@
+package com.checkout.payment.gateway.metrics;
+
+import com.checkout.payment.gateway.service.Acquirer;
+import com.checkout.payment.gateway.service.AcquirerRouter;
+import com.checkout.payment.gateway.service.BankSimulatorClient;
+import com.checkout.payment.gateway.service.Bulkhead;
+import com.checkout.payment.gateway.service.CircuitBreaker;
+import com.checkout.payment.gateway.service.CircuitBreaker.State;
+import com.checkout.payment.gateway.service.ConcurrencyLimiter;
+import com.checkout.payment.gateway.service.RetryBudget;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.Locale;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the adaptive concurrency limit on bank calls and the state of the bank circuit
+ * breaker, with the calls each of them turned away, the retries and hedges made within the
+ * retry budget, how each acquirer is doing, how full each bulkhead is, and the calls and
+ * requests timed out.
+ */
+@Component
+public class BankResilienceMetrics implements MeterBinder {
+
+  private final ConcurrencyLimiter limiter;
+  private final CircuitBreaker breaker;
+  private final RetryBudget budget;
+  private final BankSimulatorClient bankClient;
+  private final AcquirerRouter router;
+
+  public BankResilienceMetrics(ConcurrencyLimiter bankConcurrencyLimiter,
+      CircuitBreaker bankCircuitBreaker, RetryBudget bankRetryBudget,
+      BankSimulatorClient bankClient, AcquirerRouter bankAcquirerRouter) {
+    this.limiter = bankConcurrencyLimiter;
+    this.breaker = bankCircuitBreaker;
+    this.budget = bankRetryBudget;
+    this.bankClient = bankClient;
+    this.router = bankAcquirerRouter;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("payments.bank.limiter.limit", limiter, ConcurrencyLimiter::limit)
+        .description("Bank calls allowed in flight at once")
+        .register(registry);
+    Gauge.builder("payments.bank.limiter.in.flight", limiter, ConcurrencyLimiter::inFlight)
+        .description("Bank calls in flight")
+        .register(registry);
+    FunctionCounter.builder("payments.bank.rejected", limiter, ConcurrencyLimiter::rejected)
+        .description("Bank calls not sent because the concurrency limit was reached")
+        .tag("reason", "limiter")
+        .register(registry);
+    FunctionCounter.builder("payments.bank.rejected", breaker, CircuitBreaker::rejected)
+        .description("Bank calls not sent because the circuit breaker was open")
+        .tag("reason", "breaker")
+        .register(registry);
+    FunctionCounter.builder("payments.bank.extra.calls", bankClient, BankSimulatorClient::retries)
+        .description("Bank calls retried after a failed attempt")
+        .tag("kind", "retry")
+        .register(registry);
+    FunctionCounter.builder("payments.bank.extra.calls", bankClient, BankSimulatorClient::hedges)
+        .description("Second bank calls sent for an attempt slower than the hedge delay")
+        .tag("kind", "hedge")
+        .register(registry);
+    FunctionCounter.builder("payments.bank.extra.calls", bankClient, BankSimulatorClient::failovers)
+        .description("Bank calls resent to another acquirer after a 503 or no answer")
+        .tag("kind", "failover")
+        .register(registry);
+    FunctionCounter.builder("payments.bank.batches", bankClient, BankSimulatorClient::batches)
+        .description("Batch requests sent to the bank, when bank calls are batched")
+        .register(registry);
+    FunctionCounter.builder("payments.bank.deadline.exceeded", bankClient,
+            BankSimulatorClient::deadlinesExceeded)
+        .description("Bank calls failed because the caller's deadline passed first")
+        .register(registry);
+    FunctionCounter.builder("payments.bank.attempt.timeouts", bankClient,
+            BankSimulatorClient::attemptTimeouts)
+        .description("Requests to the bank given up on after the per-request timeout")
+        .register(registry);
+    Gauge.builder("payments.bank.attempt.timeout", bankClient,
+            BankSimulatorClient::attemptTimeoutMillis)
+        .description("Milliseconds a request to the bank may take before it is given up on")
+        .register(registry);
+    FunctionCounter.builder("payments.bank.retry.budget.denied", budget, RetryBudget::denied)
+        .description("Retries and hedges not made because the retry budget was spent")
+        .register(registry);
+    for (Acquirer acquirer : router.acquirers()) {
+      Gauge.builder("payments.bank.acquirer.latency", acquirer, a -> a.latencyNanos() / 1e6)
+          .description("Moving average of the acquirer's answer time in milliseconds")
+          .tag("acquirer", acquirer.name())
+          .register(registry);
+      Gauge.builder("payments.bank.acquirer.in.flight", acquirer, Acquirer::inFlight)
+          .description("Bank calls in flight to the acquirer")
+          .tag("acquirer", acquirer.name())
+          .register(registry);
+      // 1 while out of rotation, 0 otherwise
+      Gauge.builder("payments.bank.acquirer.ejected", acquirer, a -> router.ejected(a) ? 1 : 0)
+          .description("Whether the acquirer is out of rotation after failing")
+          .tag("acquirer", acquirer.name())
+          .register(registry);
+      FunctionCounter.builder("payments.bank.acquirer.ejections", acquirer, Acquirer::ejections)
+          .description("Times the acquirer was taken out of rotation")
+          .tag("acquirer", acquirer.name())
+          .register(registry);
+    }
+    for (Bulkhead bulkhead : bankClient.currencyBulkheads().values()) {
+      bindBulkhead(registry, bulkhead, "currency");
+    }
+    for (Acquirer acquirer : router.acquirers()) {
+      bindBulkhead(registry, acquirer.bulkhead(), "acquirer");
+    }
+    for (State state : State.values()) {
+      String name = state.name().toLowerCase(Locale.ROOT);
+      // 1 for the current state, 0 for the others
+      Gauge.builder("payments.bank.breaker.state", breaker, b -> b.state() == state ? 1 : 0)
+          .description("Whether the bank circuit breaker is in this state")
+          .tag("state", name)
+          .register(registry);
+      FunctionCounter.builder("payments.bank.breaker.transitions", breaker,
+              b -> b.transitions(state))
+          .description("Times the bank circuit breaker moved into this state")
+          .tag("state", name)
+          .register(registry);
+    }
+  }
+
+  private static void bindBulkhead(MeterRegistry registry, Bulkhead bulkhead, String type) {
+    Gauge.builder("payments.bank.bulkhead.limit", bulkhead, Bulkhead::maxConcurrent)
+        .description("Bank calls the bulkhead lets in at once")
+        .tag("type", type)
+        .tag("name", bulkhead.name())
+        .register(registry);
+    Gauge.builder("payments.bank.bulkhead.in.use", bulkhead, Bulkhead::inUse)
+        .description("Bank calls inside the bulkhead")
+        .tag("type", type)
+        .tag("name", bulkhead.name())
+        .register(registry);
+    FunctionCounter.builder("payments.bank.bulkhead.rejected", bulkhead, Bulkhead::rejected)
+        .description("Bank calls turned away because the bulkhead was full")
+        .tag("type", type)
+        .tag("name", bulkhead.name())
+        .register(registry);
+  }
+}
@@ -0,0 +1,60 @@
+package com.checkout.payment.gateway.metrics;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Cardinality estimate over 64-bit hashes in 2<sup>12</sup> one-byte registers (4 KB), with a
+ * standard error of about 1.6%. Adds are lock-free and safe from any thread; sketches of the same
+ * precision merge by taking the larger of each register.
+ */
+final class HyperLogLog {
+
+  private static final int PRECISION = 12;
+  private static final int REGISTERS = 1 << PRECISION;
+  private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+  private static final VarHandle REGISTER = MethodHandles.arrayElementVarHandle(byte[].class);
+
+  private final byte[] registers = new byte[REGISTERS];
+
+  void add(long hash) {
+    int index = (int) (hash >>> (Long.SIZE - PRECISION));
+    // The sentinel bit caps the rank when the remaining bits are all zero
+    byte rank = (byte) (Long.numberOfLeadingZeros(hash << PRECISION | 1L << (PRECISION - 1)) + 1);
+    byte current = (byte) REGISTER.getVolatile(registers, index);
+    while (rank > current) {
+      byte witness = (byte) REGISTER.compareAndExchange(registers, index, current, rank);
+      if (witness == current) {
+        return;
+      }
+      current = witness;
+    }
+  }
+
+  void mergeFrom(HyperLogLog other) {
+    for (int i = 0; i < REGISTERS; i++) {
+      byte rank = (byte) REGISTER.getVolatile(other.registers, i);
+      if (rank > registers[i]) {
+        registers[i] = rank;
+      }
+    }
+  }
+
+  long estimate() {
+    double sum = 0;
+    int zeros = 0;
+    for (int i = 0; i < REGISTERS; i++) {
+      byte rank = (byte) REGISTER.getVolatile(registers, i);
+      sum += 1.0 / (1L << rank);
+      if (rank == 0) {
+        zeros++;
+      }
+    }
+    double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+    if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+      // Linear counting is more accurate while many registers are still empty
+      estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+    }
+    return Math.round(estimate);
+  }
+}
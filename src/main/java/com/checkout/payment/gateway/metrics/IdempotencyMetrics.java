@@ -0,0 +1,35 @@
+package com.checkout.payment.gateway.metrics;
+
+import com.checkout.payment.gateway.service.IdempotencyTable;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes how many idempotency keys are held, and how many payments were answered from them or
+ * refused for reusing one.
+ */
+@Component
+public class IdempotencyMetrics implements MeterBinder {
+
+  private final IdempotencyTable table;
+
+  public IdempotencyMetrics(IdempotencyTable idempotencyTable) {
+    this.table = idempotencyTable;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("payments.idempotency.keys", table, IdempotencyTable::size)
+        .description("Idempotency keys held, including those of payments in flight")
+        .register(registry);
+    FunctionCounter.builder("payments.idempotency.replays", table, IdempotencyTable::replays)
+        .description("Payments answered from an earlier request with the same idempotency key")
+        .register(registry);
+    FunctionCounter.builder("payments.idempotency.conflicts", table, IdempotencyTable::conflicts)
+        .description("Payments refused for reusing an idempotency key held for another payment")
+        .register(registry);
+  }
+}
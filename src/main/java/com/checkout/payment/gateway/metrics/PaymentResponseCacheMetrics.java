@@ -0,0 +1,42 @@
+package com.checkout.payment.gateway.metrics;
+
+import com.checkout.payment.gateway.service.PaymentResponseCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes how many payment bodies are held serialized, and how many reads were answered from
+ * them, had to serialize the payment, or were answered 304 from the payment's id alone.
+ */
+@Component
+public class PaymentResponseCacheMetrics implements MeterBinder {
+
+  private final PaymentResponseCache cache;
+
+  public PaymentResponseCacheMetrics(PaymentResponseCache paymentResponseCache) {
+    this.cache = paymentResponseCache;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("payments.response.cache.size", cache, PaymentResponseCache::size)
+        .description("Payment bodies held serialized")
+        .register(registry);
+    FunctionCounter.builder("payments.response.cache.reads", cache, PaymentResponseCache::hits)
+        .description("Payment reads answered from a serialized body")
+        .tag("result", "hit")
+        .register(registry);
+    FunctionCounter.builder("payments.response.cache.reads", cache, PaymentResponseCache::misses)
+        .description("Payment reads that serialized the payment")
+        .tag("result", "miss")
+        .register(registry);
+    FunctionCounter.builder("payments.response.cache.reads", cache,
+            PaymentResponseCache::revalidations)
+        .description("Conditional payment reads answered 304 without a lookup")
+        .tag("result", "not-modified")
+        .register(registry);
+  }
+}
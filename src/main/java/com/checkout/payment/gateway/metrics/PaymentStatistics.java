@@ -0,0 +1,180 @@
+package com.checkout.payment.gateway.metrics;
+
+import com.checkout.payment.gateway.enums.Currency;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.CurrencyStatistics;
+import com.checkout.payment.gateway.model.MinuteStatistics;
+import com.checkout.payment.gateway.model.PaymentStatisticsResponse;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-minute payment counts and volumes by status and currency for the last hour, plus a
+ * HyperLogLog of distinct cards per minute.
+ *
+ * <p>Each minute has its own bucket in a ring of {@link #MINUTES}. Recording is a
+ * {@link LongAdder} increment on the current bucket, so request threads never contend on a single
+ * counter. A bucket is replaced, not cleared, when its slot comes round again an hour later, so an
+ * increment racing the rollover cannot be wiped. Reads walk the requested buckets only and never
+ * look at stored payments.
+ */
+@Component
+public class PaymentStatistics {
+
+  public static final int MINUTES = 60;
+
+  private static final PaymentStatus[] STATUSES = PaymentStatus.values();
+  private static final Currency[] CURRENCIES = Currency.values();
+  // Rejected requests may carry no currency, or one that is not supported
+  private static final int UNKNOWN_CURRENCY = CURRENCIES.length;
+  private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+  private final Clock clock;
+  private final AtomicReferenceArray<Bucket> buckets = new AtomicReferenceArray<>(MINUTES);
+
+  public PaymentStatistics() {
+    this(Clock.systemUTC());
+  }
+
+  PaymentStatistics(Clock clock) {
+    this.clock = clock;
+  }
+
+  /**
+   * Records a payment the bank authorized or declined.
+   */
+  public void recordProcessed(PaymentStatus status, Currency currency, long amount,
+      String cardNumber) {
+    Bucket bucket = current();
+    int cell = cell(status, currency.ordinal());
+    bucket.counts[cell].increment();
+    bucket.amounts[cell].add(amount);
+    bucket.cards.add(fingerprint(cardNumber));
+  }
+
+  /**
+   * Records a request rejected by validation; {@code currency} is the code as sent, if any.
+   */
+  public void recordRejected(String currency) {
+    current().counts[cell(PaymentStatus.REJECTED, currencyIndex(currency))].increment();
+  }
+
+  /**
+   * Statistics for the last {@code minutes} minutes, the current one included, oldest first.
+   */
+  public PaymentStatisticsResponse snapshot(int minutes) {
+    if (minutes < 1 || minutes > MINUTES) {
+      throw new IllegalArgumentException("minutes must be between 1 and " + MINUTES);
+    }
+    long now = clock.millis() / MINUTE_MILLIS;
+    HyperLogLog cards = new HyperLogLog();
+    List<MinuteStatistics> series = new ArrayList<>(minutes);
+    for (long minute = now - minutes + 1; minute <= now; minute++) {
+      Bucket bucket = buckets.get(slot(minute));
+      List<CurrencyStatistics> currencies = new ArrayList<>();
+      if (bucket != null && bucket.minute == minute) {
+        cards.mergeFrom(bucket.cards);
+        for (int currency = 0; currency <= UNKNOWN_CURRENCY; currency++) {
+          CurrencyStatistics statistics = currencyStatistics(bucket, currency);
+          if (statistics != null) {
+            currencies.add(statistics);
+          }
+        }
+      }
+      series.add(new MinuteStatistics(Instant.ofEpochMilli(minute * MINUTE_MILLIS), currencies));
+    }
+    return new PaymentStatisticsResponse(
+        Instant.ofEpochMilli((now - minutes + 1) * MINUTE_MILLIS),
+        Instant.ofEpochMilli((now + 1) * MINUTE_MILLIS),
+        cards.estimate(), series);
+  }
+
+  private Bucket current() {
+    long minute = clock.millis() / MINUTE_MILLIS;
+    int slot = slot(minute);
+    Bucket bucket = buckets.get(slot);
+    while (bucket == null || bucket.minute < minute) {
+      Bucket fresh = new Bucket(minute);
+      if (buckets.compareAndSet(slot, bucket, fresh)) {
+        return fresh;
+      }
+      bucket = buckets.get(slot);
+    }
+    // A clock stepping back lands in a newer bucket rather than reviving an old one
+    return bucket;
+  }
+
+  private static CurrencyStatistics currencyStatistics(Bucket bucket, int currency) {
+    long authorized = bucket.counts[cell(PaymentStatus.AUTHORIZED, currency)].sum();
+    long declined = bucket.counts[cell(PaymentStatus.DECLINED, currency)].sum();
+    long rejected = bucket.counts[cell(PaymentStatus.REJECTED, currency)].sum();
+    long total = authorized + declined + rejected;
+    if (total == 0) {
+      return null;
+    }
+    return new CurrencyStatistics(
+        currency == UNKNOWN_CURRENCY ? null : CURRENCIES[currency].getName(),
+        authorized, declined, rejected,
+        bucket.amounts[cell(PaymentStatus.AUTHORIZED, currency)].sum(),
+        bucket.amounts[cell(PaymentStatus.DECLINED, currency)].sum(),
+        (double) authorized / total, (double) declined / total);
+  }
+
+  private static int slot(long minute) {
+    return (int) Math.floorMod(minute, (long) MINUTES);
+  }
+
+  private static int cell(PaymentStatus status, int currency) {
+    return status.ordinal() * (CURRENCIES.length + 1) + currency;
+  }
+
+  private static int currencyIndex(String currency) {
+    for (Currency candidate : CURRENCIES) {
+      if (candidate.name().equals(currency)) {
+        return candidate.ordinal();
+      }
+    }
+    return UNKNOWN_CURRENCY;
+  }
+
+  /**
+   * 64-bit FNV-1a of the card number with a MurmurHash3 finalizer, so the HyperLogLog sees well
+   * spread bits. Only register maxima derived from it are kept, never the card number.
+   */
+  static long fingerprint(String cardNumber) {
+    long hash = 0xCBF29CE484222325L;
+    for (int i = 0; i < cardNumber.length(); i++) {
+      hash = (hash ^ cardNumber.charAt(i)) * 0x100000001B3L;
+    }
+    hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+    hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+    return hash ^ (hash >>> 33);
+  }
+
+  private static final class Bucket {
+
+    final long minute;
+    final LongAdder[] counts = adders();
+    // Sum of amounts in minor units; rejected requests have no trusted amount
+    final LongAdder[] amounts = adders();
+    final HyperLogLog cards = new HyperLogLog();
+
+    Bucket(long minute) {
+      this.minute = minute;
+    }
+
+    private static LongAdder[] adders() {
+      LongAdder[] adders = new LongAdder[STATUSES.length * (CURRENCIES.length + 1)];
+      for (int i = 0; i < adders.length; i++) {
+        adders[i] = new LongAdder();
+      }
+      return adders;
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package com.checkout.payment.gateway.metrics;
+
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes {@link PaymentsRepository} statistics: where reads were served from, how many
+ * payments sit in memory and on disk, and write contention per stripe.
+ */
+@Component
+@ConditionalOnProperty(name = "payments.repository.engine", havingValue = "striped",
+    matchIfMissing = true)
+public class PaymentsRepositoryMetrics implements MeterBinder {
+
+  private final PaymentsRepository repository;
+
+  public PaymentsRepositoryMetrics(PaymentsRepository repository) {
+    this.repository = repository;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("payments.repository.reads", repository, PaymentsRepository::hotReads)
+        .description("Payment lookups served from memory")
+        .tag("tier", "hot")
+        .register(registry);
+    FunctionCounter.builder("payments.repository.reads", repository, PaymentsRepository::coldReads)
+        .description("Payment lookups served from the cold store")
+        .tag("tier", "cold")
+        .register(registry);
+    FunctionCounter.builder("payments.repository.reads", repository,
+            PaymentsRepository::missedReads)
+        .description("Payment lookups for unknown ids")
+        .tag("tier", "miss")
+        .register(registry);
+    Gauge.builder("payments.repository.hit.ratio", repository, r -> ratio(r.hotReads(), r))
+        .description("Share of lookups served from memory")
+        .tag("tier", "hot")
+        .register(registry);
+    Gauge.builder("payments.repository.hit.ratio", repository, r -> ratio(r.coldReads(), r))
+        .description("Share of lookups served from the cold store")
+        .tag("tier", "cold")
+        .register(registry);
+    Gauge.builder("payments.repository.size", repository, PaymentsRepository::hotSize)
+        .description("Payments held")
+        .tag("tier", "hot")
+        .register(registry);
+    Gauge.builder("payments.repository.size", repository, PaymentsRepository::coldSize)
+        .description("Payments held")
+        .tag("tier", "cold")
+        .register(registry);
+    FunctionCounter.builder("payments.repository.evictions", repository,
+            PaymentsRepository::evictedPayments)
+        .description("Payments moved from memory to the cold store")
+        .register(registry);
+    for (int i = 0; i < repository.stripeCount(); i++) {
+      int stripe = i;
+      FunctionCounter.builder("payments.repository.contention", repository,
+              r -> r.contentionCounts()[stripe])
+          .description("Writes that waited for another writer on the stripe")
+          .tag("stripe", Integer.toString(stripe))
+          .register(registry);
+    }
+  }
+
+  private static double ratio(long reads, PaymentsRepository repository) {
+    long total = repository.hotReads() + repository.coldReads() + repository.missedReads();
+    return total == 0 ? Double.NaN : (double) reads / total;
+  }
+}
@@ -0,0 +1,39 @@
+package com.checkout.payment.gateway.model;
+
+import com.checkout.payment.gateway.json.BankBatchRequestItemSerializer;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * One payment in a batch sent to the bank: the usual request fields plus the idempotency key a
+ * single call would send as a header, written as one flat object.
+ */
+@JsonSerialize(using = BankBatchRequestItemSerializer.class)
+public class BankBatchRequestItem {
+  @JsonProperty("idempotency_key")
+  private String idempotencyKey;
+  private BankSimulatorRequest request;
+
+  public BankBatchRequestItem() {}
+
+  public BankBatchRequestItem(String idempotencyKey, BankSimulatorRequest request) {
+    this.idempotencyKey = idempotencyKey;
+    this.request = request;
+  }
+
+  public String getIdempotencyKey() {
+    return idempotencyKey;
+  }
+
+  public void setIdempotencyKey(String idempotencyKey) {
+    this.idempotencyKey = idempotencyKey;
+  }
+
+  public BankSimulatorRequest getRequest() {
+    return request;
+  }
+
+  public void setRequest(BankSimulatorRequest request) {
+    this.request = request;
+  }
+}
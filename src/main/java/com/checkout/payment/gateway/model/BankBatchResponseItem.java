@@ -0,0 +1,46 @@
+package com.checkout.payment.gateway.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The bank's answer to one payment of a batch, with the HTTP status a single call would have got.
+ */
+public class BankBatchResponseItem {
+  @JsonProperty("status_code")
+  private int statusCode;
+  private boolean authorized;
+  @JsonProperty("authorization_code")
+  private String authorizationCode;
+
+  public BankBatchResponseItem() {}
+
+  public BankBatchResponseItem(int statusCode, boolean authorized, String authorizationCode) {
+    this.statusCode = statusCode;
+    this.authorized = authorized;
+    this.authorizationCode = authorizationCode;
+  }
+
+  public int getStatusCode() {
+    return statusCode;
+  }
+
+  public void setStatusCode(int statusCode) {
+    this.statusCode = statusCode;
+  }
+
+  public boolean isAuthorized() {
+    return authorized;
+  }
+
+  public void setAuthorized(boolean authorized) {
+    this.authorized = authorized;
+  }
+
+  public String getAuthorizationCode() {
+    return authorizationCode;
+  }
+
+  public void setAuthorizationCode(String authorizationCode) {
+    this.authorizationCode = authorizationCode;
+  }
+}
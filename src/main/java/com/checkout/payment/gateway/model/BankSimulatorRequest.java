@@ -1,8 +1,11 @@
 package com.checkout.payment.gateway.model;
 
 import com.checkout.payment.gateway.enums.Currency;
+import com.checkout.payment.gateway.json.BankSimulatorRequestSerializer;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
+@JsonSerialize(using = BankSimulatorRequestSerializer.class)
 public class BankSimulatorRequest {
   @JsonProperty("card_number")
   private String cardNumber;
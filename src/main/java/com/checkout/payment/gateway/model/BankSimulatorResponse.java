@@ -1,7 +1,10 @@
 package com.checkout.payment.gateway.model;
 
+import com.checkout.payment.gateway.json.BankSimulatorResponseDeserializer;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
+@JsonDeserialize(using = BankSimulatorResponseDeserializer.class)
 public class BankSimulatorResponse {
   private boolean authorized;
   @JsonProperty("authorization_code")
@@ -0,0 +1,41 @@
+package com.checkout.payment.gateway.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Outcome of one payment of a batch, as POST /payment would have answered it")
+public class BatchPaymentResponse {
+  @Schema(description = "Position of the payment in the submitted batch")
+  private final int index;
+  @Schema(description = "HTTP status POST /payment would have answered with")
+  private final int status;
+  @Schema(description = "Body POST /payment would have answered with",
+      oneOf = {SuccessfulPaymentResponse.class, RejectedPaymentResponse.class, ErrorResponse.class})
+  private final Object body;
+
+  public BatchPaymentResponse(int index, int status, Object body) {
+    this.index = index;
+    this.status = status;
+    this.body = body;
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public int getStatus() {
+    return status;
+  }
+
+  public Object getBody() {
+    return body;
+  }
+
+  @Override
+  public String toString() {
+    return "BatchPaymentResponse{" +
+        "index=" + index +
+        ", status=" + status +
+        ", body=" + body +
+        '}';
+  }
+}
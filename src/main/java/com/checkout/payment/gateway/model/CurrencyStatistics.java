@@ -0,0 +1,76 @@
+package com.checkout.payment.gateway.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Payment counts and volumes for one currency in one minute")
+public class CurrencyStatistics {
+  @Schema(description = "ISO currency code; null for rejected requests without a supported currency")
+  private final String currency;
+  private final long authorized;
+  private final long declined;
+  private final long rejected;
+  @Schema(description = "Sum of authorized amounts in minor units")
+  private final long authorizedVolume;
+  @Schema(description = "Sum of declined amounts in minor units")
+  private final long declinedVolume;
+  @Schema(description = "Authorized share of all requests, rejected ones included")
+  private final double authorizationRate;
+  @Schema(description = "Declined share of all requests, rejected ones included")
+  private final double declineRate;
+
+  public CurrencyStatistics(String currency, long authorized, long declined, long rejected,
+      long authorizedVolume, long declinedVolume, double authorizationRate, double declineRate) {
+    this.currency = currency;
+    this.authorized = authorized;
+    this.declined = declined;
+    this.rejected = rejected;
+    this.authorizedVolume = authorizedVolume;
+    this.declinedVolume = declinedVolume;
+    this.authorizationRate = authorizationRate;
+    this.declineRate = declineRate;
+  }
+
+  public String getCurrency() {
+    return currency;
+  }
+
+  public long getAuthorized() {
+    return authorized;
+  }
+
+  public long getDeclined() {
+    return declined;
+  }
+
+  public long getRejected() {
+    return rejected;
+  }
+
+  public long getAuthorizedVolume() {
+    return authorizedVolume;
+  }
+
+  public long getDeclinedVolume() {
+    return declinedVolume;
+  }
+
+  public double getAuthorizationRate() {
+    return authorizationRate;
+  }
+
+  public double getDeclineRate() {
+    return declineRate;
+  }
+
+  @Override
+  public String toString() {
+    return "CurrencyStatistics{" +
+        "currency='" + currency + '\'' +
+        ", authorized=" + authorized +
+        ", declined=" + declined +
+        ", rejected=" + rejected +
+        ", authorizedVolume=" + authorizedVolume +
+        ", declinedVolume=" + declinedVolume +
+        '}';
+  }
+}
@@ -0,0 +1,34 @@
+package com.checkout.payment.gateway.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.Instant;
+import java.util.List;
+
+@Schema(description = "Payment statistics for one minute")
+public class MinuteStatistics {
+  @Schema(description = "Start of the minute")
+  private final Instant minute;
+  @Schema(description = "One entry per currency seen in the minute")
+  private final List<CurrencyStatistics> currencies;
+
+  public MinuteStatistics(Instant minute, List<CurrencyStatistics> currencies) {
+    this.minute = minute;
+    this.currencies = currencies;
+  }
+
+  public Instant getMinute() {
+    return minute;
+  }
+
+  public List<CurrencyStatistics> getCurrencies() {
+    return currencies;
+  }
+
+  @Override
+  public String toString() {
+    return "MinuteStatistics{" +
+        "minute=" + minute +
+        ", currencies=" + currencies +
+        '}';
+  }
+}
@@ -0,0 +1,32 @@
+package com.checkout.payment.gateway.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.List;
+
+@Schema(description = "One page of a payment listing, newest first")
+public class PaymentPage {
+  private final List<SuccessfulPaymentResponse> payments;
+  @Schema(description = "Opaque cursor for the next page; null on the last page")
+  private final String nextCursor;
+
+  public PaymentPage(List<SuccessfulPaymentResponse> payments, String nextCursor) {
+    this.payments = payments;
+    this.nextCursor = nextCursor;
+  }
+
+  public List<SuccessfulPaymentResponse> getPayments() {
+    return payments;
+  }
+
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  @Override
+  public String toString() {
+    return "PaymentPage{" +
+        "payments=" + payments +
+        ", nextCursor='" + nextCursor + '\'' +
+        '}';
+  }
+}
@@ -0,0 +1,50 @@
+package com.checkout.payment.gateway.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.Instant;
+import java.util.List;
+
+@Schema(description = "Per-minute payment statistics, oldest minute first")
+public class PaymentStatisticsResponse {
+  @Schema(description = "Start of the first minute, inclusive")
+  private final Instant from;
+  @Schema(description = "End of the last minute, exclusive")
+  private final Instant to;
+  @Schema(description = "Estimated number of distinct cards processed in the window, within about 2%")
+  private final long distinctCards;
+  private final List<MinuteStatistics> minutes;
+
+  public PaymentStatisticsResponse(Instant from, Instant to, long distinctCards,
+      List<MinuteStatistics> minutes) {
+    this.from = from;
+    this.to = to;
+    this.distinctCards = distinctCards;
+    this.minutes = minutes;
+  }
+
+  public Instant getFrom() {
+    return from;
+  }
+
+  public Instant getTo() {
+    return to;
+  }
+
+  public long getDistinctCards() {
+    return distinctCards;
+  }
+
+  public List<MinuteStatistics> getMinutes() {
+    return minutes;
+  }
+
+  @Override
+  public String toString() {
+    return "PaymentStatisticsResponse{" +
+        "from=" + from +
+        ", to=" + to +
+        ", distinctCards=" + distinctCards +
+        ", minutes=" + minutes +
+        '}';
+  }
+}
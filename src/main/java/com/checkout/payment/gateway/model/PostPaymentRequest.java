@@ -1,9 +1,11 @@
 package com.checkout.payment.gateway.model;
 
+import com.checkout.payment.gateway.json.PostPaymentRequestDeserializer;
 import com.checkout.payment.gateway.util.RejectionMessages;
 import com.checkout.payment.gateway.validation.ValidCurrency;
 import com.checkout.payment.gateway.validation.ValidExpiryDate;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
@@ -12,6 +14,7 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
 import java.io.Serializable;
 
+@JsonDeserialize(using = PostPaymentRequestDeserializer.class)
 @ValidExpiryDate
 @Schema(description = "Payment processing request")
 public class PostPaymentRequest implements Serializable {
@@ -1,8 +1,11 @@
 package com.checkout.payment.gateway.model;
 
 import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.json.RejectedPaymentResponseSerializer;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import io.swagger.v3.oas.annotations.media.Schema;
 
+@JsonSerialize(using = RejectedPaymentResponseSerializer.class)
 @Schema(description = "Rejected payment response")
 public class RejectedPaymentResponse extends PostPaymentResponse {
   private String rejectionReason;
@@ -2,9 +2,15 @@ package com.checkout.payment.gateway.model;
 
 import com.checkout.payment.gateway.enums.Currency;
 import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.json.SuccessfulPaymentResponseSerializer;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.UUID;
 
+@JsonSerialize(using = SuccessfulPaymentResponseSerializer.class)
 @Schema(description = "Successful payment processing response")
 public class SuccessfulPaymentResponse extends PostPaymentResponse {
   private UUID id;
@@ -13,9 +19,17 @@ public class SuccessfulPaymentResponse extends PostPaymentResponse {
   private Integer expiryYear;
   private Currency currency;
   private Integer amount;
+  private Instant createdAt;
 
   public SuccessfulPaymentResponse(UUID id, PaymentStatus status, String cardNumberLastFour,
                                    Integer expiryMonth, Integer expiryYear, Currency currency, Integer amount) {
+    this(id, status, cardNumberLastFour, expiryMonth, expiryYear, currency, amount, Instant.now());
+  }
+
+  @JsonCreator
+  public SuccessfulPaymentResponse(UUID id, PaymentStatus status, String cardNumberLastFour,
+                                   Integer expiryMonth, Integer expiryYear, Currency currency, Integer amount,
+                                   Instant createdAt) {
     super(status);
     this.id = id;
     this.cardNumberLastFour = cardNumberLastFour;
@@ -23,6 +37,8 @@ public class SuccessfulPaymentResponse extends PostPaymentResponse {
     this.expiryYear = expiryYear;
     this.currency = currency;
     this.amount = amount;
+    // Stored payments keep millisecond precision, so responses do too
+    this.createdAt = createdAt == null ? null : createdAt.truncatedTo(ChronoUnit.MILLIS);
   }
 
   public UUID getId() {
@@ -49,6 +65,10 @@ public class SuccessfulPaymentResponse extends PostPaymentResponse {
     return amount;
   }
 
+  public Instant getCreatedAt() {
+    return createdAt;
+  }
+
   @Override
   public String toString() {
     return "SuccessfulPaymentResponse{" +
@@ -59,6 +79,7 @@ public class SuccessfulPaymentResponse extends PostPaymentResponse {
         ", expiryYear=" + expiryYear +
         ", currency='" + currency + '\'' +
         ", amount=" + amount +
+        ", createdAt=" + createdAt +
         '}';
   }
 }
@@ -0,0 +1,117 @@
+package com.checkout.payment.gateway.repository;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Which {@link ColdSegment} holds each cold payment, so a lookup reads one segment however many
+ * eviction passes have written one.
+ *
+ * <p>Open-addressing table of ids with linear probing, at 20 bytes a slot and at most three
+ * quarters full. The evictor thread is the only writer and readers take no lock: a slot's segment
+ * number is written after its id with release semantics and read before it with acquire
+ * semantics, so a reader that sees the number also sees the id. Growing builds a new table and
+ * replaces the old one as a whole. Entries are never removed.
+ */
+final class ColdIndex {
+
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final VarHandle SEGMENT = MethodHandles.arrayElementVarHandle(int[].class);
+
+  private volatile Table table = new Table(INITIAL_CAPACITY);
+  private int size;
+
+  /**
+   * Records that {@code segment} holds the payment; a later segment replaces an earlier one.
+   * Called by the evictor thread only.
+   */
+  void put(long msb, long lsb, int segment) {
+    Table current = table;
+    if (size + 1 > threshold(current.capacity)) {
+      current = current.grow();
+      table = current;
+    }
+    if (current.put(msb, lsb, segment)) {
+      size++;
+    }
+  }
+
+  /**
+   * The segment holding the payment, or -1 if no cold segment does.
+   */
+  int segmentOf(long msb, long lsb) {
+    return table.get(msb, lsb);
+  }
+
+  int size() {
+    return size;
+  }
+
+  private static int threshold(int capacity) {
+    return capacity - (capacity >>> 2);
+  }
+
+  private static final class Table {
+
+    private final int capacity;
+    private final long[] ids;
+    // Segment number plus one, so that zero marks an empty slot
+    private final int[] segments;
+
+    Table(int capacity) {
+      this.capacity = capacity;
+      this.ids = new long[capacity * 2];
+      this.segments = new int[capacity];
+    }
+
+    boolean put(long msb, long lsb, int segment) {
+      int mask = capacity - 1;
+      int index = spread(msb, lsb) & mask;
+      while (true) {
+        int current = segments[index];
+        if (current == 0) {
+          ids[index * 2] = msb;
+          ids[index * 2 + 1] = lsb;
+          SEGMENT.setRelease(segments, index, segment + 1);
+          return true;
+        }
+        if (ids[index * 2] == msb && ids[index * 2 + 1] == lsb) {
+          SEGMENT.setRelease(segments, index, segment + 1);
+          return false;
+        }
+        index = (index + 1) & mask;
+      }
+    }
+
+    int get(long msb, long lsb) {
+      int mask = capacity - 1;
+      int index = spread(msb, lsb) & mask;
+      for (int probes = 0; probes < capacity; probes++) {
+        int segment = (int) SEGMENT.getAcquire(segments, index);
+        if (segment == 0) {
+          return -1;
+        }
+        if (ids[index * 2] == msb && ids[index * 2 + 1] == lsb) {
+          return segment - 1;
+        }
+        index = (index + 1) & mask;
+      }
+      return -1;
+    }
+
+    Table grow() {
+      Table grown = new Table(capacity * 2);
+      for (int i = 0; i < capacity; i++) {
+        if (segments[i] != 0) {
+          grown.put(ids[i * 2], ids[i * 2 + 1], segments[i] - 1);
+        }
+      }
+      return grown;
+    }
+  }
+
+  private static int spread(long msb, long lsb) {
+    long h = (msb ^ Long.rotateLeft(lsb, 32)) * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 29));
+  }
+}
@@ -0,0 +1,164 @@
+package com.checkout.payment.gateway.repository;
+
+import static com.checkout.payment.gateway.repository.PaymentRecordLayout.WORDS;
+
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Payments evicted from memory, kept as a growing list of immutable {@link ColdSegment} files.
+ *
+ * <p>Readers see a copy-on-write array of segments and a {@link ColdIndex} naming the segment
+ * that holds each payment, so a lookup reads at most one segment however many there are; the
+ * single evictor thread is the only writer. The index is rebuilt from the segments on open. A
+ * watermark file records the creation time below which every journaled payment is known to be
+ * held here, so journal replay can skip those records.
+ */
+final class ColdPaymentStore implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ColdPaymentStore.class);
+
+  private static final String SEGMENT_SUFFIX = ".cold";
+  private static final String WATERMARK_FILE = "watermark";
+
+  private static final ThreadLocal<long[]> SLOT = ThreadLocal.withInitial(() -> new long[WORDS]);
+
+  private final Path directory;
+  private volatile ColdSegment[] segments;
+  private final ColdIndex index = new ColdIndex();
+  private volatile long records;
+  private long nextSequence;
+  private long watermark;
+
+  private ColdPaymentStore(Path directory, List<ColdSegment> segments, long watermark) {
+    this.directory = directory;
+    this.segments = segments.toArray(new ColdSegment[0]);
+    this.watermark = watermark;
+    long total = 0;
+    for (int i = 0; i < segments.size(); i++) {
+      segments.get(i).indexInto(index, i);
+      total += segments.get(i).records();
+    }
+    this.records = total;
+    this.nextSequence = segments.size();
+  }
+
+  static ColdPaymentStore open(Path directory) {
+    try {
+      Files.createDirectories(directory);
+      List<Path> files;
+      try (Stream<Path> children = Files.list(directory)) {
+        files = children.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+            .sorted()
+            .toList();
+      }
+      List<ColdSegment> segments = new ArrayList<>();
+      for (Path file : files) {
+        segments.add(ColdSegment.open(file));
+      }
+      Path watermarkFile = directory.resolve(WATERMARK_FILE);
+      long watermark = Files.exists(watermarkFile)
+          ? ByteBuffer.wrap(Files.readAllBytes(watermarkFile)).getLong()
+          : Long.MIN_VALUE;
+      ColdPaymentStore store = new ColdPaymentStore(directory, segments, watermark);
+      if (!files.isEmpty()) {
+        store.nextSequence = sequenceOf(files.get(files.size() - 1)) + 1;
+      }
+      LOG.info("Opened {} cold payment segments holding {} payments in {}", segments.size(),
+          store.records, directory);
+      return store;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to open cold payment store " + directory, e);
+    }
+  }
+
+  SuccessfulPaymentResponse get(long msb, long lsb) {
+    // Read before the segments, which are published ahead of the index entries naming them
+    int segment = index.segmentOf(msb, lsb);
+    if (segment < 0) {
+      return null;
+    }
+    long[] slot = SLOT.get();
+    if (!segments[segment].find(msb, lsb, slot)) {
+      return null;
+    }
+    return PaymentRecordLayout.unpack(slot[0], slot[1], slot[2], slot[3], slot[4]);
+  }
+
+  /**
+   * Writes the first {@code count} slots of {@code slots} into a new segment, makes it visible
+   * to readers and then indexes its payments. Called by the evictor thread only.
+   */
+  void write(long[] slots, int count) {
+    Path file = directory.resolve(String.format("%020d%s", nextSequence, SEGMENT_SUFFIX));
+    try {
+      ColdSegment segment = ColdSegment.write(file, slots, count);
+      nextSequence++;
+      ColdSegment[] current = segments;
+      ColdSegment[] grown = new ColdSegment[current.length + 1];
+      System.arraycopy(current, 0, grown, 0, current.length);
+      grown[current.length] = segment;
+      segments = grown;
+      for (int i = 0; i < count; i++) {
+        index.put(slots[i * WORDS], slots[i * WORDS + 1], current.length);
+      }
+      records += count;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to write cold payment segment " + file, e);
+    }
+  }
+
+  long watermark() {
+    return watermark;
+  }
+
+  /**
+   * Persists a new watermark by replacing the watermark file atomically. Called by the evictor
+   * thread only.
+   */
+  void advanceWatermark(long createdAt) {
+    if (createdAt <= watermark) {
+      return;
+    }
+    Path file = directory.resolve(WATERMARK_FILE);
+    Path temporary = directory.resolve(WATERMARK_FILE + ".tmp");
+    try {
+      Files.write(temporary, ByteBuffer.allocate(Long.BYTES).putLong(createdAt).array());
+      Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+      watermark = createdAt;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to write cold payment watermark " + file, e);
+    }
+  }
+
+  long records() {
+    return records;
+  }
+
+  int segmentCount() {
+    return segments.length;
+  }
+
+  @Override
+  public void close() {
+    for (ColdSegment segment : segments) {
+      segment.close();
+    }
+  }
+
+  private static long sequenceOf(Path file) {
+    String name = file.getFileName().toString();
+    return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+  }
+}
@@ -0,0 +1,338 @@
+package com.checkout.payment.gateway.repository;
+
+import static com.checkout.payment.gateway.repository.PaymentRecordLayout.BYTES;
+import static com.checkout.payment.gateway.repository.PaymentRecordLayout.WORDS;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Immutable, compressed file of evicted payments.
+ *
+ * <pre>
+ *   header   magic:8 | version:4 | records per block:4
+ *   blocks   deflated runs of {@link PaymentRecordLayout} slots, sorted by id
+ *   index    per block: first msb:8 | first lsb:8 | offset:8 | compressed length:4 | records:4
+ *   bloom    bloom filter words over the ids
+ *   trailer  index offset:8 | blocks:4 | bloom words:4 | records:8 | magic:8
+ * </pre>
+ *
+ * <p>Only the block index and bloom filter stay in memory; a lookup reads and inflates a single
+ * block.
+ */
+final class ColdSegment implements AutoCloseable {
+
+  private static final long MAGIC = 0x504159434F4C4431L; // "PAYCOLD1"
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 16;
+  private static final int INDEX_ENTRY_BYTES = 32;
+  private static final int TRAILER_BYTES = 32;
+  private static final int BLOCK_RECORDS = 256;
+  private static final int BLOOM_BITS_PER_RECORD = 10;
+  private static final int BLOOM_HASHES = 7;
+
+  private static final ThreadLocal<byte[]> COMPRESSED = ThreadLocal.withInitial(
+      () -> new byte[BLOCK_RECORDS * BYTES + 64]);
+  private static final ThreadLocal<byte[]> INFLATED = ThreadLocal.withInitial(
+      () -> new byte[BLOCK_RECORDS * BYTES]);
+  private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+  private final Path file;
+  private final FileChannel channel;
+  private final long[] firstKeys;
+  private final long[] offsets;
+  private final int[] lengths;
+  private final int[] counts;
+  private final long[] bloom;
+  private final long records;
+
+  private ColdSegment(Path file, FileChannel channel, long[] firstKeys, long[] offsets,
+      int[] lengths, int[] counts, long[] bloom, long records) {
+    this.file = file;
+    this.channel = channel;
+    this.firstKeys = firstKeys;
+    this.offsets = offsets;
+    this.lengths = lengths;
+    this.counts = counts;
+    this.bloom = bloom;
+    this.records = records;
+  }
+
+  /**
+   * Writes {@code count} slots from {@code slots} into a new segment file. The file is written
+   * under a temporary name, synced and then moved into place, so a visible segment is complete.
+   */
+  static ColdSegment write(Path file, long[] slots, int count) throws IOException {
+    Integer[] order = new Integer[count];
+    for (int i = 0; i < count; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, Comparator.<Integer>comparingLong(i -> slots[i * WORDS])
+        .thenComparingLong(i -> slots[i * WORDS + 1]));
+
+    int blocks = (count + BLOCK_RECORDS - 1) / BLOCK_RECORDS;
+    int bloomWords = Math.max(1, (count * BLOOM_BITS_PER_RECORD + 63) / 64);
+    long[] bloom = new long[bloomWords];
+    Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+          .putLong(MAGIC).putInt(VERSION).putInt(BLOCK_RECORDS).flip();
+      writeFully(out, header);
+
+      ByteBuffer index = ByteBuffer.allocate(blocks * INDEX_ENTRY_BYTES);
+      ByteBuffer raw = ByteBuffer.allocate(BLOCK_RECORDS * BYTES);
+      byte[] compressed = new byte[BLOCK_RECORDS * BYTES + 64];
+      long position = HEADER_BYTES;
+      for (int block = 0; block < blocks; block++) {
+        int from = block * BLOCK_RECORDS;
+        int to = Math.min(count, from + BLOCK_RECORDS);
+        raw.clear();
+        for (int i = from; i < to; i++) {
+          int slot = order[i] * WORDS;
+          for (int word = 0; word < WORDS; word++) {
+            raw.putLong(slots[slot + word]);
+          }
+          addToBloom(bloom, slots[slot], slots[slot + 1]);
+        }
+        deflater.reset();
+        deflater.setInput(raw.array(), 0, raw.position());
+        deflater.finish();
+        int length = deflater.deflate(compressed);
+        writeFully(out, ByteBuffer.wrap(compressed, 0, length));
+        int first = order[from] * WORDS;
+        index.putLong(slots[first]).putLong(slots[first + 1]).putLong(position)
+            .putInt(length).putInt(to - from);
+        position += length;
+      }
+      long indexOffset = position;
+      writeFully(out, index.flip());
+      ByteBuffer bloomBuffer = ByteBuffer.allocate(bloomWords * Long.BYTES);
+      for (long word : bloom) {
+        bloomBuffer.putLong(word);
+      }
+      writeFully(out, bloomBuffer.flip());
+      ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES)
+          .putLong(indexOffset).putInt(blocks).putInt(bloomWords).putLong(count).putLong(MAGIC)
+          .flip();
+      writeFully(out, trailer);
+      out.force(true);
+    } finally {
+      deflater.end();
+    }
+    Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+    return open(file);
+  }
+
+  static ColdSegment open(Path file) throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      long size = channel.size();
+      ByteBuffer header = readAt(channel, 0, HEADER_BYTES);
+      ByteBuffer trailer = readAt(channel, size - TRAILER_BYTES, TRAILER_BYTES);
+      if (header.getLong(0) != MAGIC || header.getInt(8) != VERSION
+          || trailer.getLong(24) != MAGIC) {
+        throw new IOException("Not a cold payment segment: " + file);
+      }
+      long indexOffset = trailer.getLong(0);
+      int blocks = trailer.getInt(8);
+      int bloomWords = trailer.getInt(12);
+      long records = trailer.getLong(16);
+
+      ByteBuffer index = readAt(channel, indexOffset, blocks * INDEX_ENTRY_BYTES);
+      long[] firstKeys = new long[blocks * 2];
+      long[] offsets = new long[blocks];
+      int[] lengths = new int[blocks];
+      int[] counts = new int[blocks];
+      for (int block = 0; block < blocks; block++) {
+        firstKeys[block * 2] = index.getLong();
+        firstKeys[block * 2 + 1] = index.getLong();
+        offsets[block] = index.getLong();
+        lengths[block] = index.getInt();
+        counts[block] = index.getInt();
+      }
+      ByteBuffer bloomBuffer = readAt(channel,
+          indexOffset + (long) blocks * INDEX_ENTRY_BYTES, bloomWords * Long.BYTES);
+      long[] bloom = new long[bloomWords];
+      for (int i = 0; i < bloomWords; i++) {
+        bloom[i] = bloomBuffer.getLong();
+      }
+      return new ColdSegment(file, channel, firstKeys, offsets, lengths, counts, bloom, records);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Copies the five slot words of the payment into {@code target}, returning false if the
+   * segment does not hold it.
+   */
+  boolean find(long msb, long lsb, long[] target) {
+    if (!mightContain(bloom, msb, lsb)) {
+      return false;
+    }
+    int block = blockFor(msb, lsb);
+    if (block < 0) {
+      return false;
+    }
+    byte[] inflated = inflate(block);
+    ByteBuffer slots = ByteBuffer.wrap(inflated);
+    int low = 0;
+    int high = counts[block] - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int offset = mid * BYTES;
+      int cmp = compare(slots.getLong(offset), slots.getLong(offset + 8), msb, lsb);
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        for (int word = 0; word < WORDS; word++) {
+          target[word] = slots.getLong(offset + word * Long.BYTES);
+        }
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Adds every payment in the segment to {@code index} as held by segment number
+   * {@code segment}, reading and inflating each block once.
+   */
+  void indexInto(ColdIndex index, int segment) {
+    for (int block = 0; block < offsets.length; block++) {
+      ByteBuffer slots = ByteBuffer.wrap(inflate(block));
+      for (int i = 0; i < counts[block]; i++) {
+        index.put(slots.getLong(i * BYTES), slots.getLong(i * BYTES + 8), segment);
+      }
+    }
+  }
+
+  long records() {
+    return records;
+  }
+
+  Path file() {
+    return file;
+  }
+
+  @Override
+  public void close() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private int blockFor(long msb, long lsb) {
+    // Last block whose first key is <= the searched key
+    int low = 0;
+    int high = offsets.length - 1;
+    int found = -1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (compare(firstKeys[mid * 2], firstKeys[mid * 2 + 1], msb, lsb) <= 0) {
+        found = mid;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return found;
+  }
+
+  private byte[] inflate(int block) {
+    byte[] compressed = COMPRESSED.get();
+    byte[] inflated = INFLATED.get();
+    Inflater inflater = INFLATER.get();
+    try {
+      ByteBuffer target = ByteBuffer.wrap(compressed, 0, lengths[block]);
+      long position = offsets[block];
+      while (target.hasRemaining()) {
+        int read = channel.read(target, position);
+        if (read < 0) {
+          throw new IOException("Unexpected end of cold segment " + file);
+        }
+        position += read;
+      }
+      inflater.reset();
+      inflater.setInput(compressed, 0, lengths[block]);
+      int length = inflater.inflate(inflated);
+      if (length != counts[block] * BYTES) {
+        throw new IOException("Corrupt block " + block + " in cold segment " + file);
+      }
+      return inflated;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (DataFormatException e) {
+      throw new UncheckedIOException(new IOException("Corrupt cold segment " + file, e));
+    }
+  }
+
+  private static int compare(long msb, long lsb, long otherMsb, long otherLsb) {
+    int cmp = Long.compare(msb, otherMsb);
+    return cmp != 0 ? cmp : Long.compare(lsb, otherLsb);
+  }
+
+  private static void addToBloom(long[] bloom, long msb, long lsb) {
+    long bits = (long) bloom.length * 64;
+    long h1 = mix(msb ^ Long.rotateLeft(lsb, 17));
+    long h2 = mix(lsb + 0x9E3779B97F4A7C15L) | 1;
+    for (int i = 0; i < BLOOM_HASHES; i++) {
+      long bit = Math.floorMod(h1 + i * h2, bits);
+      bloom[(int) (bit >>> 6)] |= 1L << bit;
+    }
+  }
+
+  private static boolean mightContain(long[] bloom, long msb, long lsb) {
+    long bits = (long) bloom.length * 64;
+    long h1 = mix(msb ^ Long.rotateLeft(lsb, 17));
+    long h2 = mix(lsb + 0x9E3779B97F4A7C15L) | 1;
+    for (int i = 0; i < BLOOM_HASHES; i++) {
+      long bit = Math.floorMod(h1 + i * h2, bits);
+      if ((bloom[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static long mix(long z) {
+    z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+    z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+    return z ^ (z >>> 33);
+  }
+
+  private static ByteBuffer readAt(FileChannel channel, long position, int length)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of file");
+      }
+    }
+    return buffer.flip();
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package com.checkout.payment.gateway.repository;
+
+import java.time.Duration;
+
+/**
+ * When {@link PaymentsRepository} makes journaled adds durable before returning them to the
+ * caller.
+ */
+final class CommitPolicy {
+
+  static final CommitPolicy NONE = new CommitPolicy(JournalSync.NONE, 1, Duration.ZERO);
+
+  private final JournalSync sync;
+  private final int maxBatch;
+  private final Duration maxWait;
+
+  CommitPolicy(JournalSync sync, int maxBatch, Duration maxWait) {
+    if (maxBatch < 1 || maxWait.isNegative()) {
+      throw new IllegalArgumentException(
+          "group commit needs a positive batch size and a non-negative wait");
+    }
+    this.sync = sync;
+    this.maxBatch = maxBatch;
+    this.maxWait = maxWait;
+  }
+
+  JournalSync sync() {
+    return sync;
+  }
+
+  /**
+   * Waiting adds that start a group sync straight away.
+   */
+  int maxBatch() {
+    return maxBatch;
+  }
+
+  /**
+   * Longest an add waits for others to join its group before the sync starts.
+   */
+  Duration maxWait() {
+    return maxWait;
+  }
+}
@@ -0,0 +1,90 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.model.PaymentPage;
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+/**
+ * {@link PaymentStore} over a single {@link ConcurrentHashMap}, the way payments were first
+ * stored. Listing filters and sorts every payment held on each call, so this engine suits small
+ * deployments and serves as the baseline {@link PaymentsRepository} is benchmarked against.
+ */
+@Repository
+@ConditionalOnProperty(name = "payments.repository.engine", havingValue = "map")
+public class ConcurrentMapPaymentStore implements PaymentStore {
+
+  // Newest first, ties broken by insertion order as the striped index does within a stripe
+  private static final Comparator<Entry> NEWEST_FIRST = Comparator
+      .comparingLong((Entry entry) -> entry.createdAt)
+      .thenComparingInt(entry -> entry.sequence)
+      .reversed();
+
+  private final Map<UUID, Entry> payments = new ConcurrentHashMap<>();
+  private final AtomicInteger sequence = new AtomicInteger();
+
+  @Override
+  public void add(SuccessfulPaymentResponse payment) {
+    payments.compute(payment.getId(), (id, held) -> new Entry(payment,
+        held != null ? held.sequence : sequence.getAndIncrement()));
+  }
+
+  @Override
+  public Optional<SuccessfulPaymentResponse> get(UUID id) {
+    Entry entry = payments.get(id);
+    return entry != null ? Optional.of(entry.payment) : Optional.empty();
+  }
+
+  @Override
+  public PaymentPage find(PaymentQuery query) {
+    PaymentCursor cursor = query.cursor();
+    List<Entry> page = payments.values().stream()
+        .filter(entry -> matches(entry, query))
+        .filter(entry -> cursor == null || cursor.isAfter(entry.createdAt, 0, entry.sequence))
+        .sorted(NEWEST_FIRST)
+        .limit(query.limit() + 1L)
+        .toList();
+    if (page.size() <= query.limit()) {
+      return new PaymentPage(page.stream().map(entry -> entry.payment).toList(), null);
+    }
+    Entry last = page.get(query.limit() - 1);
+    return new PaymentPage(
+        page.subList(0, query.limit()).stream().map(entry -> entry.payment).toList(),
+        new PaymentCursor(last.createdAt, 0, last.sequence).encode());
+  }
+
+  @Override
+  public int size() {
+    return payments.size();
+  }
+
+  private static boolean matches(Entry entry, PaymentQuery query) {
+    SuccessfulPaymentResponse payment = entry.payment;
+    return (query.status() == null || payment.getStatus() == query.status())
+        && (query.currency() == null || payment.getCurrency() == query.currency())
+        && (query.lastFour() < 0
+            || Integer.parseInt(payment.getCardNumberLastFour()) == query.lastFour())
+        && entry.createdAt >= query.fromMillis()
+        && entry.createdAt < query.toMillis();
+  }
+
+  private static final class Entry {
+
+    final SuccessfulPaymentResponse payment;
+    final long createdAt;
+    final int sequence;
+
+    Entry(SuccessfulPaymentResponse payment, int sequence) {
+      this.payment = payment;
+      this.createdAt = payment.getCreatedAt().toEpochMilli();
+      this.sequence = sequence;
+    }
+  }
+}
@@ -0,0 +1,178 @@
+package com.checkout.payment.gateway.repository;
+
+import java.time.Duration;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Makes journal appends durable in groups: each writer takes a ticket after appending and waits,
+ * while a single commit thread syncs the journal once for every ticket issued so far and then
+ * releases all of their holders together.
+ *
+ * <p>The commit thread starts a sync as soon as {@code maxBatch} tickets are waiting, or
+ * {@code maxWait} after the first of them arrived. Tickets issued while a sync is running join
+ * the next batch, so under load batches grow to match the sync latency on their own.
+ *
+ * <p>A failed sync is final: pages it should have written may have been dropped by the kernel, so
+ * retrying cannot prove them durable. The writes of that batch and every write after it fail.
+ */
+final class GroupCommitter implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(GroupCommitter.class);
+
+  private final Runnable sync;
+  private final int maxBatch;
+  private final long maxWaitNanos;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition pending = lock.newCondition();
+  private final Condition committed = lock.newCondition();
+  private final Thread committer;
+
+  // Guarded by lock
+  private long issued;
+  private long durable;
+  private RuntimeException failure;
+  private long oldestWaitingSince;
+  private boolean closed;
+
+  // Guarded by lock, written only by the commit thread
+  private long commits;
+
+  GroupCommitter(Runnable sync, int maxBatch, Duration maxWait) {
+    if (maxBatch < 1 || maxWait.isNegative()) {
+      throw new IllegalArgumentException(
+          "group commit needs a positive batch size and a non-negative wait");
+    }
+    this.sync = sync;
+    this.maxBatch = maxBatch;
+    this.maxWaitNanos = maxWait.toNanos();
+    this.committer = new Thread(this::run, "payments-group-commit");
+    committer.setDaemon(true);
+    committer.start();
+  }
+
+  /**
+   * Blocks until everything appended by the calling thread so far has been synced.
+   *
+   * @throws RuntimeException whatever the sync covering this call, or an earlier one, threw
+   */
+  void awaitDurable() {
+    lock.lock();
+    try {
+      if (failure != null) {
+        throw failure;
+      }
+      if (closed) {
+        throw new IllegalStateException("journal is closed");
+      }
+      long ticket = ++issued;
+      if (ticket == durable + 1) {
+        oldestWaitingSince = System.nanoTime();
+      }
+      if (ticket - durable == 1 || ticket - durable >= maxBatch) {
+        pending.signal();
+      }
+      boolean interrupted = false;
+      while (durable < ticket && failure == null) {
+        try {
+          committed.await();
+        } catch (InterruptedException e) {
+          // The record is already appended; the caller must learn whether it is durable
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      if (durable < ticket) {
+        throw failure;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Number of syncs performed, each covering one batch.
+   */
+  long commits() {
+    lock.lock();
+    try {
+      return commits;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Syncs whatever is still waiting and stops the commit thread.
+   */
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      closed = true;
+      pending.signal();
+    } finally {
+      lock.unlock();
+    }
+    try {
+      committer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void run() {
+    while (true) {
+      long batch;
+      lock.lock();
+      try {
+        while (issued == durable && !closed) {
+          pending.awaitUninterruptibly();
+        }
+        if (issued == durable || failure != null) {
+          return;
+        }
+        // Give the batch until maxWait after its first ticket to fill up
+        long deadline = oldestWaitingSince + maxWaitNanos;
+        long remaining;
+        while (!closed && issued - durable < maxBatch
+            && (remaining = deadline - System.nanoTime()) > 0) {
+          try {
+            pending.awaitNanos(remaining);
+          } catch (InterruptedException e) {
+            break;
+          }
+        }
+        batch = issued;
+      } finally {
+        lock.unlock();
+      }
+      RuntimeException error = null;
+      try {
+        sync.run();
+      } catch (RuntimeException e) {
+        LOG.error("Journal sync failed; failing {} waiting writes", batch - durable, e);
+        error = e;
+      }
+      lock.lock();
+      try {
+        if (error == null) {
+          durable = batch;
+          commits++;
+        } else {
+          failure = error;
+        }
+        if (issued > durable) {
+          oldestWaitingSince = System.nanoTime();
+        }
+        committed.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package com.checkout.payment.gateway.repository;
+
+/**
+ * On-disk layout of journal segments.
+ *
+ * <pre>
+ *   segment header (16 bytes): magic:8 | version:4 | record size:4
+ *   record (48 bytes):         marker:4 | crc32c:4 | payment slot:40
+ * </pre>
+ *
+ * <p>The payment slot is the five-word {@link PaymentRecordLayout} encoding and the checksum
+ * covers exactly those 40 bytes. Segment files are pre-sized, so unused space reads as zeros.
+ */
+final class JournalFormat {
+
+  static final long SEGMENT_MAGIC = 0x5041594A524E4C31L; // "PAYJRNL1"
+  static final int VERSION = 2;
+  static final int HEADER_BYTES = 16;
+
+  static final int RECORD_MARKER = 0x50415931; // "PAY1"
+  static final int PAYLOAD_OFFSET = 8;
+  static final int RECORD_BYTES = PAYLOAD_OFFSET + PaymentRecordLayout.BYTES;
+
+  static final String STRIPE_DIRECTORY_PREFIX = "stripe-";
+  private static final String SEGMENT_SUFFIX = ".journal";
+
+  private JournalFormat() {
+  }
+
+  static String stripeDirectoryName(int stripe) {
+    return String.format("%s%03d", STRIPE_DIRECTORY_PREFIX, stripe);
+  }
+
+  /**
+   * Returns the stripe number of a stripe directory name, or -1 if it is not one.
+   */
+  static int stripeNumber(String directoryName) {
+    if (!directoryName.startsWith(STRIPE_DIRECTORY_PREFIX)) {
+      return -1;
+    }
+    try {
+      return Integer.parseInt(directoryName.substring(STRIPE_DIRECTORY_PREFIX.length()));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  static String segmentName(long sequence) {
+    return String.format("%020d%s", sequence, SEGMENT_SUFFIX);
+  }
+
+  /**
+   * Returns the sequence number of a segment file name, or -1 if it is not a segment.
+   */
+  static long segmentSequence(String fileName) {
+    if (!fileName.endsWith(SEGMENT_SUFFIX)) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length()));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+}
@@ -0,0 +1,26 @@
+package com.checkout.payment.gateway.repository;
+
+/**
+ * A point in one stripe's journal: the segment sequence number and the byte offset of the next
+ * record within it. Offset zero of sequence zero is the start of the journal.
+ */
+final class JournalPosition {
+
+  static final JournalPosition START = new JournalPosition(0, 0);
+
+  private final long sequence;
+  private final int offset;
+
+  JournalPosition(long sequence, int offset) {
+    this.sequence = sequence;
+    this.offset = offset;
+  }
+
+  long sequence() {
+    return sequence;
+  }
+
+  int offset() {
+    return offset;
+  }
+}
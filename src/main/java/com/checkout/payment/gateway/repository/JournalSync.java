@@ -0,0 +1,17 @@
+package com.checkout.payment.gateway.repository;
+
+public enum JournalSync {
+  /**
+   * Adds return once the payment is in the page cache; it survives a process crash, and reaches
+   * the device on the next snapshot, flush or close.
+   */
+  NONE,
+  /**
+   * Every add syncs its stripe's journal before returning.
+   */
+  EACH,
+  /**
+   * Concurrent adds wait together for one sync of the journal by a single commit thread.
+   */
+  GROUP
+}
@@ -0,0 +1,54 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class ObjectPaymentStripe extends PaymentStripe {
+
+  private final Map<UUID, SuccessfulPaymentResponse> payments = new ConcurrentHashMap<>();
+
+  ObjectPaymentStripe(int number) {
+    super(number);
+  }
+
+  @Override
+  protected boolean put(SuccessfulPaymentResponse payment) {
+    return payments.put(payment.getId(), payment) == null;
+  }
+
+  @Override
+  protected boolean putPacked(long msb, long lsb, long amount, long meta, long createdAt) {
+    return put(PaymentRecordLayout.unpack(msb, lsb, amount, meta, createdAt));
+  }
+
+  @Override
+  protected boolean copyPacked(long msb, long lsb, long[] target, int offset) {
+    SuccessfulPaymentResponse payment = payments.get(new UUID(msb, lsb));
+    if (payment == null) {
+      return false;
+    }
+    target[offset] = msb;
+    target[offset + 1] = lsb;
+    target[offset + 2] = payment.getAmount();
+    target[offset + 3] = PaymentRecordLayout.packMeta(payment);
+    target[offset + 4] = payment.getCreatedAt().toEpochMilli();
+    return true;
+  }
+
+  @Override
+  protected void remove(long msb, long lsb) {
+    payments.remove(new UUID(msb, lsb));
+  }
+
+  @Override
+  SuccessfulPaymentResponse get(UUID id) {
+    return payments.get(id);
+  }
+
+  @Override
+  int size() {
+    return payments.size();
+  }
+}
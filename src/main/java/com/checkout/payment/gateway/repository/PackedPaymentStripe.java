@@ -0,0 +1,203 @@
+package com.checkout.payment.gateway.repository;
+
+import static com.checkout.payment.gateway.repository.PaymentRecordLayout.WORDS;
+
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Open-addressing table of packed payment slots in a single {@code long[]}.
+ *
+ * <p>Readers use the stripe lock's optimistic mode: they copy the slot words they need and then
+ * validate that no writer ran in between. Only a reader that keeps losing that race to writers
+ * falls back to the read lock.
+ */
+final class PackedPaymentStripe extends PaymentStripe {
+
+  private static final int INITIAL_CAPACITY = 64;
+  private static final int OPTIMISTIC_ATTEMPTS = 3;
+
+  private long[] slots = new long[INITIAL_CAPACITY * WORDS];
+  private int size;
+  private int resizeThreshold = threshold(INITIAL_CAPACITY);
+
+  PackedPaymentStripe(int number) {
+    super(number);
+  }
+
+  @Override
+  protected boolean put(SuccessfulPaymentResponse payment) {
+    long meta = PaymentRecordLayout.packMeta(payment);
+    UUID id = payment.getId();
+    return putPacked(id.getMostSignificantBits(), id.getLeastSignificantBits(),
+        payment.getAmount(), meta, payment.getCreatedAt().toEpochMilli());
+  }
+
+  @Override
+  protected boolean putPacked(long msb, long lsb, long amount, long meta, long createdAt) {
+    if (size + 1 > resizeThreshold) {
+      resize();
+    }
+    int slot = findSlot(slots, msb, lsb);
+    boolean inserted = !PaymentRecordLayout.isOccupied(slots[slot + 3]);
+    if (inserted) {
+      size++;
+    }
+    slots[slot] = msb;
+    slots[slot + 1] = lsb;
+    slots[slot + 2] = amount;
+    slots[slot + 3] = meta;
+    slots[slot + 4] = createdAt;
+    return inserted;
+  }
+
+  @Override
+  protected boolean copyPacked(long msb, long lsb, long[] target, int offset) {
+    int slot = findSlot(slots, msb, lsb);
+    if (!PaymentRecordLayout.isOccupied(slots[slot + 3])) {
+      return false;
+    }
+    System.arraycopy(slots, slot, target, offset, WORDS);
+    return true;
+  }
+
+  /**
+   * Removes the key with backward-shift deletion, so probe chains stay unbroken without
+   * tombstones. Optimistic readers that overlap the shift fail validation and retry.
+   */
+  @Override
+  protected void remove(long msb, long lsb) {
+    long[] table = slots;
+    int hole = findSlot(table, msb, lsb);
+    if (!PaymentRecordLayout.isOccupied(table[hole + 3])) {
+      return;
+    }
+    int mask = table.length / WORDS - 1;
+    int holeIndex = hole / WORDS;
+    int index = holeIndex;
+    while (true) {
+      index = (index + 1) & mask;
+      int slot = index * WORDS;
+      if (!PaymentRecordLayout.isOccupied(table[slot + 3])) {
+        break;
+      }
+      int home = spread(table[slot], table[slot + 1]) & mask;
+      // The entry may fill the hole unless its home lies cyclically in (hole, index]
+      boolean reachable = holeIndex <= index
+          ? home > holeIndex && home <= index
+          : home > holeIndex || home <= index;
+      if (!reachable) {
+        System.arraycopy(table, slot, table, holeIndex * WORDS, WORDS);
+        holeIndex = index;
+      }
+    }
+    Arrays.fill(table, holeIndex * WORDS, holeIndex * WORDS + WORDS, 0L);
+    size--;
+  }
+
+  @Override
+  SuccessfulPaymentResponse get(UUID id) {
+    long msb = id.getMostSignificantBits();
+    long lsb = id.getLeastSignificantBits();
+    for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+      long stamp = lock.tryOptimisticRead();
+      if (stamp == 0L) {
+        continue;
+      }
+      long[] table = slots;
+      int slot = findSlot(table, msb, lsb);
+      long amount = table[slot + 2];
+      long meta = table[slot + 3];
+      long createdAt = table[slot + 4];
+      if (lock.validate(stamp)) {
+        return toPayment(msb, lsb, amount, meta, createdAt);
+      }
+    }
+    long stamp = lock.readLock();
+    try {
+      int slot = findSlot(slots, msb, lsb);
+      return toPayment(msb, lsb, slots[slot + 2], slots[slot + 3], slots[slot + 4]);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  @Override
+  int size() {
+    long stamp = lock.tryOptimisticRead();
+    int current = size;
+    if (lock.validate(stamp)) {
+      return current;
+    }
+    stamp = lock.readLock();
+    try {
+      return size;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  private static SuccessfulPaymentResponse toPayment(long msb, long lsb, long amount, long meta,
+      long createdAt) {
+    return PaymentRecordLayout.isOccupied(meta)
+        ? PaymentRecordLayout.unpack(msb, lsb, amount, meta, createdAt)
+        : null;
+  }
+
+  /**
+   * Returns the offset of the slot holding the key, or of the empty slot where it would go. The
+   * probe is bounded by the table capacity so a torn optimistic read can never loop forever.
+   */
+  private static int findSlot(long[] table, long msb, long lsb) {
+    int capacity = table.length / WORDS;
+    int mask = capacity - 1;
+    int index = spread(msb, lsb) & mask;
+    for (int probes = 0; probes < capacity; probes++) {
+      int slot = index * WORDS;
+      if (!PaymentRecordLayout.isOccupied(table[slot + 3])
+          || (table[slot] == msb && table[slot + 1] == lsb)) {
+        return slot;
+      }
+      index = (index + 1) & mask;
+    }
+    return index * WORDS;
+  }
+
+  @Override
+  protected void reserveSlots(int payments) {
+    int capacity = slots.length / WORDS;
+    while (threshold(capacity) < size + payments) {
+      capacity *= 2;
+    }
+    if (capacity > slots.length / WORDS) {
+      resize(capacity);
+    }
+  }
+
+  private void resize() {
+    resize(slots.length / WORDS * 2);
+  }
+
+  private void resize(int capacity) {
+    long[] old = slots;
+    long[] table = new long[capacity * WORDS];
+    for (int slot = 0; slot < old.length; slot += WORDS) {
+      if (PaymentRecordLayout.isOccupied(old[slot + 3])) {
+        int target = findSlot(table, old[slot], old[slot + 1]);
+        System.arraycopy(old, slot, table, target, WORDS);
+      }
+    }
+    slots = table;
+    resizeThreshold = threshold(table.length / WORDS);
+  }
+
+  private static int threshold(int capacity) {
+    return capacity - (capacity >>> 2);
+  }
+
+  private static int spread(long msb, long lsb) {
+    long h = (msb ^ Long.rotateLeft(lsb, 32)) * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 29));
+  }
+}
@@ -0,0 +1,66 @@
+package com.checkout.payment.gateway.repository;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Position in a payment listing: the index key {@code (index time, stripe, sequence)} of the last
+ * payment returned. Encoded for clients as an opaque URL-safe string.
+ */
+final class PaymentCursor {
+
+  private static final byte VERSION = 1;
+  private static final int BYTES = 1 + Long.BYTES + Integer.BYTES + Integer.BYTES;
+
+  private final long indexTime;
+  private final int stripe;
+  private final int sequence;
+
+  PaymentCursor(long indexTime, int stripe, int sequence) {
+    this.indexTime = indexTime;
+    this.stripe = stripe;
+    this.sequence = sequence;
+  }
+
+  /**
+   * Whether the given key sorts before this cursor, i.e. belongs on a later page.
+   */
+  boolean isAfter(long otherIndexTime, int otherStripe, int otherSequence) {
+    if (otherIndexTime != indexTime) {
+      return otherIndexTime < indexTime;
+    }
+    if (otherStripe != stripe) {
+      return otherStripe < stripe;
+    }
+    return otherSequence < sequence;
+  }
+
+  String encode() {
+    ByteBuffer buffer = ByteBuffer.allocate(BYTES)
+        .put(VERSION).putLong(indexTime).putInt(stripe).putInt(sequence);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+  }
+
+  /**
+   * @throws IllegalArgumentException if the value was not produced by {@link #encode()}
+   */
+  static PaymentCursor decode(String value) {
+    byte[] bytes;
+    try {
+      bytes = Base64.getUrlDecoder().decode(value);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("invalid cursor");
+    }
+    if (bytes.length != BYTES || bytes[0] != VERSION) {
+      throw new IllegalArgumentException("invalid cursor");
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, BYTES - 1);
+    long indexTime = buffer.getLong();
+    int stripe = buffer.getInt();
+    int sequence = buffer.getInt();
+    if (stripe < 0 || sequence < 0) {
+      throw new IllegalArgumentException("invalid cursor");
+    }
+    return new PaymentCursor(indexTime, stripe, sequence);
+  }
+}
@@ -0,0 +1,281 @@
+package com.checkout.payment.gateway.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only, memory-mapped journal of stored payments, split into one directory per
+ * repository stripe so that appends are serialised by the stripe lock that is already held.
+ *
+ * <p>Opening the journal replays every valid record into a {@link RecordSink}, or only those after
+ * given per-stripe positions when the state before them was restored from a snapshot. Records
+ * that fail their checksum are skipped; a torn tail after the last valid record of a stripe is
+ * zeroed so that new appends continue from a clean position.
+ */
+final class PaymentJournal {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PaymentJournal.class);
+
+  static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+  @FunctionalInterface
+  interface RecordSink {
+    void accept(long msb, long lsb, long amount, long meta, long createdAt);
+  }
+
+  private final Path directory;
+  private final StripeJournal[] stripes;
+  private final long recoveredRecords;
+
+  private PaymentJournal(Path directory, StripeJournal[] stripes, long recoveredRecords) {
+    this.directory = directory;
+    this.stripes = stripes;
+    this.recoveredRecords = recoveredRecords;
+  }
+
+  static PaymentJournal open(Path directory, int stripeCount, long segmentBytes, RecordSink sink) {
+    return open(directory, stripeCount, segmentBytes, sink, new JournalPosition[0]);
+  }
+
+  /**
+   * Opens the journal, replaying stripe directory {@code i} from {@code resumeFrom[i]} onwards.
+   * Stripe directories without an entry are replayed from the start.
+   */
+  static PaymentJournal open(Path directory, int stripeCount, long segmentBytes, RecordSink sink,
+      JournalPosition[] resumeFrom) {
+    if (segmentBytes < JournalFormat.HEADER_BYTES + JournalFormat.RECORD_BYTES
+        || segmentBytes > MAX_SEGMENT_BYTES) {
+      throw new IllegalArgumentException("journal segment size must be between "
+          + (JournalFormat.HEADER_BYTES + JournalFormat.RECORD_BYTES) + " and "
+          + MAX_SEGMENT_BYTES + " bytes");
+    }
+    long started = System.nanoTime();
+    long recovered = 0;
+    try {
+      Files.createDirectories(directory);
+      // Replay every stripe directory, including ones left over from a larger stripe count
+      try (Stream<Path> children = Files.list(directory)) {
+        for (Path stripeDirectory : children.filter(Files::isDirectory).sorted().toList()) {
+          int stripe = JournalFormat.stripeNumber(stripeDirectory.getFileName().toString());
+          if (stripe >= 0) {
+            JournalPosition from = stripe < resumeFrom.length
+                ? resumeFrom[stripe]
+                : JournalPosition.START;
+            recovered += replay(stripeDirectory, sink, false, from).records;
+          }
+        }
+      }
+      StripeJournal[] writers = new StripeJournal[stripeCount];
+      for (int i = 0; i < stripeCount; i++) {
+        Path stripeDirectory = directory.resolve(JournalFormat.stripeDirectoryName(i));
+        Tail tail = replay(stripeDirectory, null, true, JournalPosition.START);
+        writers[i] = new StripeJournal(stripeDirectory, segmentBytes, tail.sequence, tail.segment,
+            tail.position);
+      }
+      LOG.info("Recovered {} payments from journal {} in {} ms", recovered, directory,
+          (System.nanoTime() - started) / 1_000_000);
+      return new PaymentJournal(directory, writers, recovered);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to open payment journal " + directory, e);
+    }
+  }
+
+  StripeJournal stripe(int index) {
+    return stripes[index];
+  }
+
+  long recoveredRecords() {
+    return recoveredRecords;
+  }
+
+  Path directory() {
+    return directory;
+  }
+
+  void force() {
+    for (StripeJournal stripe : stripes) {
+      stripe.force();
+    }
+  }
+
+  /**
+   * Deletes the segments of stripe directory {@code i} that lie wholly before {@code keep[i]},
+   * once a durable snapshot has made them redundant.
+   */
+  void deleteSegmentsBefore(JournalPosition[] keep) {
+    for (int stripe = 0; stripe < keep.length; stripe++) {
+      Path stripeDirectory = directory.resolve(JournalFormat.stripeDirectoryName(stripe));
+      if (!Files.isDirectory(stripeDirectory)) {
+        continue;
+      }
+      try (Stream<Path> files = Files.list(stripeDirectory)) {
+        for (Path file : files.toList()) {
+          long sequence = JournalFormat.segmentSequence(file.getFileName().toString());
+          if (sequence >= 0 && sequence < keep[stripe].sequence()) {
+            Files.deleteIfExists(file);
+          }
+        }
+      } catch (IOException e) {
+        LOG.warn("Failed to delete journal segments in {}", stripeDirectory, e);
+      }
+    }
+  }
+
+  /**
+   * Scans the segments of one stripe directory in sequence order. With a sink, valid records are
+   * delivered to it; with {@code openTail}, the last segment is mapped for writing and its torn
+   * tail is cleared.
+   */
+  private static Tail replay(Path stripeDirectory, RecordSink sink, boolean openTail,
+      JournalPosition from) throws IOException {
+    Tail tail = new Tail();
+    if (!Files.isDirectory(stripeDirectory)) {
+      return tail;
+    }
+    List<Long> sequences = new ArrayList<>();
+    try (Stream<Path> files = Files.list(stripeDirectory)) {
+      files.map(file -> JournalFormat.segmentSequence(file.getFileName().toString()))
+          .filter(sequence -> sequence >= 0)
+          .sorted()
+          .forEach(sequences::add);
+    }
+    CRC32C crc = new CRC32C();
+    for (int i = 0; i < sequences.size(); i++) {
+      boolean last = i == sequences.size() - 1;
+      Path file = stripeDirectory.resolve(JournalFormat.segmentName(sequences.get(i)));
+      if (!openTail) {
+        long sequence = sequences.get(i);
+        if (sequence >= from.sequence()) {
+          int start = sequence == from.sequence()
+              ? Math.max(from.offset(), JournalFormat.HEADER_BYTES)
+              : JournalFormat.HEADER_BYTES;
+          tail.records += scan(file, map(file, FileChannel.MapMode.READ_ONLY), crc, sink, start);
+        }
+      } else if (last) {
+        MappedByteBuffer segment = map(file, FileChannel.MapMode.READ_WRITE);
+        int end = scanEnd(file, segment, crc);
+        tail.sequence = sequences.get(i);
+        tail.segment = segment;
+        tail.position = end;
+      } else {
+        tail.sequence = sequences.get(i);
+      }
+    }
+    return tail;
+  }
+
+  private static long scan(Path file, ByteBuffer segment, CRC32C crc, RecordSink sink,
+      int start) {
+    if (!hasValidHeader(file, segment)) {
+      return 0;
+    }
+    long records = 0;
+    for (int offset = start;
+        offset + JournalFormat.RECORD_BYTES <= segment.capacity();
+        offset += JournalFormat.RECORD_BYTES) {
+      int marker = segment.getInt(offset);
+      if (marker == 0 && isZero(segment, offset)) {
+        break;
+      }
+      if (marker != JournalFormat.RECORD_MARKER || !checksumMatches(segment, offset, crc)) {
+        LOG.warn("Skipping corrupt journal record at {}:{}", file, offset);
+        continue;
+      }
+      int payload = offset + JournalFormat.PAYLOAD_OFFSET;
+      sink.accept(segment.getLong(payload), segment.getLong(payload + 8),
+          segment.getLong(payload + 16), segment.getLong(payload + 24),
+          segment.getLong(payload + 32));
+      records++;
+    }
+    return records;
+  }
+
+  /**
+   * Finds where appends should resume in a segment: just after its last valid record. Anything
+   * between there and the first all-zero record is a torn write and is cleared.
+   */
+  private static int scanEnd(Path file, MappedByteBuffer segment, CRC32C crc) {
+    if (!hasValidHeader(file, segment)) {
+      // Unusable segment; a full position forces the writer to roll to a fresh one
+      return segment.capacity();
+    }
+    int end = JournalFormat.HEADER_BYTES;
+    int offset = JournalFormat.HEADER_BYTES;
+    for (; offset + JournalFormat.RECORD_BYTES <= segment.capacity();
+        offset += JournalFormat.RECORD_BYTES) {
+      int marker = segment.getInt(offset);
+      if (marker == 0 && isZero(segment, offset)) {
+        break;
+      }
+      if (marker == JournalFormat.RECORD_MARKER && checksumMatches(segment, offset, crc)) {
+        end = offset + JournalFormat.RECORD_BYTES;
+      }
+    }
+    if (offset > end) {
+      LOG.warn("Truncating torn journal tail of {} bytes in {}", offset - end, file);
+      for (int i = end; i < offset; i += Long.BYTES) {
+        segment.putLong(i, 0L);
+      }
+      segment.force();
+    }
+    return end;
+  }
+
+  private static boolean hasValidHeader(Path file, ByteBuffer segment) {
+    if (segment.capacity() < JournalFormat.HEADER_BYTES
+        || segment.getLong(0) != JournalFormat.SEGMENT_MAGIC
+        || segment.getInt(8) != JournalFormat.VERSION
+        || segment.getInt(12) != JournalFormat.RECORD_BYTES) {
+      LOG.warn("Ignoring journal segment with unrecognised header: {}", file);
+      return false;
+    }
+    return true;
+  }
+
+  private static boolean checksumMatches(ByteBuffer segment, int offset, CRC32C crc) {
+    ByteBuffer payload = segment.duplicate();
+    payload.clear()
+        .position(offset + JournalFormat.PAYLOAD_OFFSET)
+        .limit(offset + JournalFormat.RECORD_BYTES);
+    crc.reset();
+    crc.update(payload);
+    return (int) crc.getValue() == segment.getInt(offset + 4);
+  }
+
+  private static boolean isZero(ByteBuffer segment, int offset) {
+    for (int i = 0; i < JournalFormat.RECORD_BYTES; i += Long.BYTES) {
+      if (segment.getLong(offset + i) != 0L) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static MappedByteBuffer map(Path file, FileChannel.MapMode mode) throws IOException {
+    StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+        ? new StandardOpenOption[]{StandardOpenOption.READ}
+        : new StandardOpenOption[]{StandardOpenOption.READ, StandardOpenOption.WRITE};
+    try (FileChannel channel = FileChannel.open(file, options)) {
+      return channel.map(mode, 0, channel.size());
+    }
+  }
+
+  private static final class Tail {
+    private long records;
+    private long sequence;
+    private MappedByteBuffer segment;
+    private int position;
+  }
+}
@@ -0,0 +1,81 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.enums.Currency;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import java.time.Instant;
+
+/**
+ * Filters and page position for {@link PaymentStore#find(PaymentQuery)}. Every filter is
+ * optional; results are ordered newest first.
+ */
+public final class PaymentQuery {
+
+  public static final int MAX_LIMIT = 100;
+
+  private final PaymentStatus status;
+  private final Currency currency;
+  private final int lastFour;
+  private final long fromMillis;
+  private final long toMillis;
+  private final int limit;
+  private final PaymentCursor cursor;
+
+  /**
+   * @param from   inclusive lower bound on the creation time, or null
+   * @param to     exclusive upper bound on the creation time, or null
+   * @param cursor value of {@link com.checkout.payment.gateway.model.PaymentPage#getNextCursor()}
+   *               from the previous page, or null for the first page
+   * @throws IllegalArgumentException if a filter, the limit or the cursor is invalid
+   */
+  public PaymentQuery(PaymentStatus status, Currency currency, String cardNumberLastFour,
+      Instant from, Instant to, int limit, String cursor) {
+    if (limit < 1 || limit > MAX_LIMIT) {
+      throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+    }
+    this.status = status;
+    this.currency = currency;
+    this.lastFour = cardNumberLastFour == null ? -1 : parseLastFour(cardNumberLastFour);
+    this.fromMillis = from == null ? Long.MIN_VALUE : from.toEpochMilli();
+    this.toMillis = to == null ? Long.MAX_VALUE : to.toEpochMilli();
+    this.limit = limit;
+    this.cursor = cursor == null ? null : PaymentCursor.decode(cursor);
+  }
+
+  PaymentStatus status() {
+    return status;
+  }
+
+  Currency currency() {
+    return currency;
+  }
+
+  /**
+   * Last four digits as a number, or -1 when not filtered on.
+   */
+  int lastFour() {
+    return lastFour;
+  }
+
+  long fromMillis() {
+    return fromMillis;
+  }
+
+  long toMillis() {
+    return toMillis;
+  }
+
+  int limit() {
+    return limit;
+  }
+
+  PaymentCursor cursor() {
+    return cursor;
+  }
+
+  private static int parseLastFour(String lastFour) {
+    if (lastFour.length() != 4 || !lastFour.chars().allMatch(c -> c >= '0' && c <= '9')) {
+      throw new IllegalArgumentException("card number last four must be exactly four digits");
+    }
+    return Integer.parseInt(lastFour);
+  }
+}
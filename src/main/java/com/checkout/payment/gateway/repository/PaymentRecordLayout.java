@@ -0,0 +1,100 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.enums.Currency;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Fixed-width, primitive encoding of a stored payment as five longs:
+ *
+ * <pre>
+ *   word 0  UUID most significant bits
+ *   word 1  UUID least significant bits
+ *   word 2  amount
+ *   word 3  bit 63 occupied | status:8 | currency:8 | month:8 | year:16 | last four:16
+ *   word 4  creation time in epoch milliseconds
+ * </pre>
+ *
+ * <p>The occupied bit lets an all-zero slot mean "empty" even for the nil UUID.
+ */
+final class PaymentRecordLayout {
+
+  static final int WORDS = 5;
+  static final int BYTES = WORDS * Long.BYTES;
+
+  static final long OCCUPIED = 1L << 63;
+
+  private static final PaymentStatus[] STATUSES = PaymentStatus.values();
+  private static final Currency[] CURRENCIES = Currency.values();
+
+  private PaymentRecordLayout() {
+  }
+
+  /**
+   * Packs the payment fields that are not part of the key into the metadata word.
+   *
+   * @throws IllegalArgumentException if the payment has a field that cannot be packed
+   */
+  static long packMeta(SuccessfulPaymentResponse payment) {
+    if (payment.getStatus() == null || payment.getCurrency() == null
+        || payment.getExpiryMonth() == null || payment.getExpiryYear() == null
+        || payment.getAmount() == null || payment.getCreatedAt() == null) {
+      throw new IllegalArgumentException("payment " + payment.getId() + " has missing fields");
+    }
+    int month = payment.getExpiryMonth();
+    int year = payment.getExpiryYear();
+    if (month < 0 || month > 0xFF || year < 0 || year > 0xFFFF) {
+      throw new IllegalArgumentException("payment " + payment.getId() + " has unpackable expiry");
+    }
+    return OCCUPIED
+        | (long) payment.getStatus().ordinal() << 48
+        | (long) payment.getCurrency().ordinal() << 40
+        | (long) month << 32
+        | (long) year << 16
+        | packLastFour(payment.getCardNumberLastFour());
+  }
+
+  static SuccessfulPaymentResponse unpack(long msb, long lsb, long amount, long meta,
+      long createdAt) {
+    return new SuccessfulPaymentResponse(
+        new UUID(msb, lsb),
+        STATUSES[(int) (meta >>> 48) & 0xFF],
+        unpackLastFour((int) meta & 0xFFFF),
+        (int) (meta >>> 32) & 0xFF,
+        (int) (meta >>> 16) & 0xFFFF,
+        CURRENCIES[(int) (meta >>> 40) & 0xFF],
+        (int) amount,
+        Instant.ofEpochMilli(createdAt)
+    );
+  }
+
+  static boolean isOccupied(long meta) {
+    return (meta & OCCUPIED) != 0;
+  }
+
+  private static int packLastFour(String lastFour) {
+    if (lastFour == null || lastFour.length() != 4) {
+      throw new IllegalArgumentException("last four digits must be exactly four digits");
+    }
+    int value = 0;
+    for (int i = 0; i < 4; i++) {
+      char c = lastFour.charAt(i);
+      if (c < '0' || c > '9') {
+        throw new IllegalArgumentException("last four digits must be exactly four digits");
+      }
+      value = value * 10 + (c - '0');
+    }
+    return value;
+  }
+
+  private static String unpackLastFour(int value) {
+    char[] digits = new char[4];
+    for (int i = 3; i >= 0; i--) {
+      digits[i] = (char) ('0' + value % 10);
+      value /= 10;
+    }
+    return new String(digits);
+  }
+}
@@ -0,0 +1,277 @@
+package com.checkout.payment.gateway.repository;
+
+import static com.checkout.payment.gateway.repository.PaymentRecordLayout.BYTES;
+import static com.checkout.payment.gateway.repository.PaymentRecordLayout.WORDS;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Point-in-time copies of the repository stripes, written next to the journal so startup can
+ * load a snapshot and replay only the journal written after it.
+ *
+ * <pre>
+ *   header   magic:8 | version:4 | sections:4 | created at:8
+ *   table    per section: journal sequence:8 | journal offset:8 | data offset:8 | slots:8 |
+ *            crc32c:4 | padding:4
+ *   data     per section: {@link PaymentRecordLayout} slots in index order
+ * </pre>
+ *
+ * <p>Section {@code i} holds stripe {@code i} and the position in stripe directory {@code i} of
+ * the journal that its slots cover. Sections are captured one at a time and copied in chunks
+ * under the stripe read lock, so writers are only ever held up by one chunk copy.
+ */
+final class PaymentSnapshots {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PaymentSnapshots.class);
+
+  private static final long MAGIC = 0x504159534E415031L; // "PAYSNAP1"
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 24;
+  private static final int SECTION_BYTES = 40;
+  private static final int CHUNK_SLOTS = 16_384;
+  private static final String PREFIX = "snapshot-";
+  private static final String SUFFIX = ".snap";
+
+  private final Path directory;
+  private final int retained;
+
+  PaymentSnapshots(Path directory, int retained) {
+    if (retained < 1) {
+      throw new IllegalArgumentException("at least one snapshot must be retained");
+    }
+    this.directory = directory;
+    this.retained = retained;
+  }
+
+  /**
+   * Writes a snapshot of the stripes, then deletes all but the newest {@code retained} ones.
+   *
+   * @return the journal positions the oldest retained snapshot starts from, one per stripe
+   */
+  JournalPosition[] write(PaymentStripe[] stripes, long createdAt) {
+    List<Path> existing = list();
+    if (!existing.isEmpty()) {
+      // Names order snapshots, so two taken within the same millisecond must not collide
+      createdAt = Math.max(createdAt, createdAt(existing.get(existing.size() - 1)) + 1);
+    }
+    Path file = directory.resolve(String.format("%s%020d%s", PREFIX, createdAt, SUFFIX));
+    Path temporary = directory.resolve(file.getFileName() + ".tmp");
+    long started = System.nanoTime();
+    long slots = 0;
+    try {
+      Files.createDirectories(directory);
+      try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+        ByteBuffer table = ByteBuffer.allocate(HEADER_BYTES + stripes.length * SECTION_BYTES);
+        table.putLong(MAGIC).putInt(VERSION).putInt(stripes.length).putLong(createdAt);
+        long position = table.capacity();
+        long[] chunk = new long[CHUNK_SLOTS * WORDS];
+        ByteBuffer bytes = ByteBuffer.allocate(CHUNK_SLOTS * BYTES);
+        CRC32C crc = new CRC32C();
+        for (PaymentStripe stripe : stripes) {
+          PaymentStripe.SnapshotMark mark = stripe.mark();
+          crc.reset();
+          for (int from = 0; from < mark.count; from += CHUNK_SLOTS) {
+            int to = Math.min(mark.count, from + CHUNK_SLOTS);
+            stripe.copySnapshot(from, to, chunk);
+            bytes.clear();
+            bytes.asLongBuffer().put(chunk, 0, (to - from) * WORDS);
+            bytes.limit((to - from) * BYTES);
+            crc.update(bytes.duplicate());
+            writeFully(out, bytes, position + (long) from * BYTES);
+          }
+          table.putLong(mark.position.sequence()).putLong(mark.position.offset())
+              .putLong(position).putLong(mark.count).putInt((int) crc.getValue()).putInt(0);
+          position += (long) mark.count * BYTES;
+          slots += mark.count;
+        }
+        writeFully(out, table.flip(), 0);
+        out.force(true);
+      }
+      Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+      LOG.info("Wrote snapshot of {} payments to {} in {} ms", slots, file,
+          (System.nanoTime() - started) / 1_000_000);
+      return prune();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to write payment snapshot " + file, e);
+    }
+  }
+
+  /**
+   * Loads the newest readable snapshot into the stripes, in parallel across sections. Payments
+   * created before {@code watermark} have since been evicted and are only indexed.
+   *
+   * @return the journal position each section covers, indexed by stripe directory, or null if
+   *     there is no snapshot
+   * @throws IllegalStateException if snapshots exist but none can be read, since the journal
+   *     before them may already have been deleted
+   */
+  JournalPosition[] load(PaymentStripe[] stripes, StripeRouter router, long watermark) {
+    List<Path> snapshots = list();
+    for (int i = snapshots.size() - 1; i >= 0; i--) {
+      Path file = snapshots.get(i);
+      try {
+        return load(file, stripes, router, watermark);
+      } catch (IOException | RuntimeException e) {
+        LOG.warn("Skipping unreadable payment snapshot {}", file, e);
+      }
+    }
+    if (!snapshots.isEmpty()) {
+      throw new IllegalStateException("None of the payment snapshots in " + directory
+          + " could be read; refusing to start from a journal that may be incomplete");
+    }
+    return null;
+  }
+
+  private JournalPosition[] load(Path file, PaymentStripe[] stripes, StripeRouter router,
+      long watermark) throws IOException {
+    long started = System.nanoTime();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+      readFully(channel, header, 0);
+      if (header.getLong(0) != MAGIC || header.getInt(8) != VERSION) {
+        throw new IOException("Not a payment snapshot: " + file);
+      }
+      int sections = header.getInt(12);
+      ByteBuffer table = ByteBuffer.allocate(sections * SECTION_BYTES);
+      readFully(channel, table, HEADER_BYTES);
+      JournalPosition[] positions = new JournalPosition[sections];
+      MappedByteBuffer[] data = new MappedByteBuffer[sections];
+      int[] checksums = new int[sections];
+      for (int i = 0; i < sections; i++) {
+        int entry = i * SECTION_BYTES;
+        positions[i] = new JournalPosition(table.getLong(entry), (int) table.getLong(entry + 8));
+        long count = table.getLong(entry + 24);
+        data[i] = channel.map(FileChannel.MapMode.READ_ONLY, table.getLong(entry + 16),
+            count * BYTES);
+        checksums[i] = table.getInt(entry + 32);
+      }
+      // Verify every section before restoring any, so a bad file leaves the stripes empty
+      IntStream.range(0, sections).parallel().forEach(i -> {
+        CRC32C crc = new CRC32C();
+        crc.update(data[i].duplicate());
+        if ((int) crc.getValue() != checksums[i]) {
+          throw new IllegalStateException("Checksum mismatch in section " + i + " of " + file);
+        }
+      });
+      boolean sameLayout = sections == stripes.length;
+      IntStream.range(0, sections).parallel().forEach(i -> {
+        ByteBuffer section = data[i].duplicate().order(ByteOrder.BIG_ENDIAN);
+        int count = section.capacity() / BYTES;
+        if (sameLayout) {
+          stripes[i].reserve(count);
+          restore(stripes[i], section, count, watermark);
+        } else {
+          // The stripe count changed since the snapshot; route every slot to its new stripe
+          for (int slot = 0; slot < count; slot++) {
+            int offset = slot * BYTES;
+            restore(router.stripeFor(section.getLong(offset), section.getLong(offset + 8)),
+                section.slice(offset, BYTES), 1, watermark);
+          }
+        }
+      });
+      LOG.info("Loaded payment snapshot {} in {} ms", file,
+          (System.nanoTime() - started) / 1_000_000);
+      return positions;
+    }
+  }
+
+  private static void restore(PaymentStripe stripe, ByteBuffer section, int count,
+      long watermark) {
+    for (int from = 0; from < count; from += CHUNK_SLOTS) {
+      int slots = Math.min(CHUNK_SLOTS, count - from);
+      stripe.restoreSnapshot(
+          section.slice(from * BYTES, slots * BYTES).asLongBuffer(), slots, watermark);
+    }
+  }
+
+  /**
+   * Deletes all but the newest {@code retained} snapshots and returns the journal positions of
+   * the oldest one kept, before which the journal is no longer needed.
+   */
+  private JournalPosition[] prune() throws IOException {
+    List<Path> snapshots = list();
+    int keepFrom = Math.max(0, snapshots.size() - retained);
+    for (int i = 0; i < keepFrom; i++) {
+      Files.deleteIfExists(snapshots.get(i));
+    }
+    Path oldest = snapshots.get(keepFrom);
+    try (FileChannel channel = FileChannel.open(oldest, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+      readFully(channel, header, 0);
+      int sections = header.getInt(12);
+      ByteBuffer table = ByteBuffer.allocate(sections * SECTION_BYTES);
+      readFully(channel, table, HEADER_BYTES);
+      JournalPosition[] positions = new JournalPosition[sections];
+      for (int i = 0; i < sections; i++) {
+        positions[i] = new JournalPosition(table.getLong(i * SECTION_BYTES),
+            (int) table.getLong(i * SECTION_BYTES + 8));
+      }
+      return positions;
+    }
+  }
+
+  private List<Path> list() {
+    if (!Files.isDirectory(directory)) {
+      return List.of();
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      return new ArrayList<>(files
+          .filter(file -> {
+            String name = file.getFileName().toString();
+            return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+          })
+          .sorted(Comparator.comparing(Path::getFileName))
+          .toList());
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to list payment snapshots in " + directory, e);
+    }
+  }
+
+  private static long createdAt(Path snapshot) {
+    String name = snapshot.getFileName().toString();
+    return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position + buffer.position());
+      if (read < 0) {
+        throw new IOException("Unexpected end of snapshot");
+      }
+    }
+  }
+
+  /**
+   * Maps a payment id to the stripe that holds it.
+   */
+  @FunctionalInterface
+  interface StripeRouter {
+    PaymentStripe stripeFor(long msb, long lsb);
+  }
+}
@@ -0,0 +1,41 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.model.PaymentPage;
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Storage engine for processed payments. The engine is chosen with
+ * {@code payments.repository.engine}; see {@link PaymentStoreEngine}.
+ *
+ * <p>Implementations are shared by all request threads and must be safe for concurrent use. A
+ * payment added by one thread is visible to every {@link #get} that starts after the add returns.
+ * Adding a payment whose id is already held replaces it. Every implementation must pass
+ * {@code PaymentStoreConformanceTest}.
+ */
+public interface PaymentStore extends AutoCloseable {
+
+  void add(SuccessfulPaymentResponse payment);
+
+  Optional<SuccessfulPaymentResponse> get(UUID id);
+
+  /**
+   * Lists the payments matching the query, newest first. Passing back the returned
+   * {@link PaymentPage#getNextCursor() cursor} continues after the last payment returned; the
+   * cursor is null once there is nothing left, though a page may come back empty first.
+   */
+  PaymentPage find(PaymentQuery query);
+
+  /**
+   * Number of distinct payments held.
+   */
+  int size();
+
+  /**
+   * Releases files and background threads; the store is not used afterwards.
+   */
+  @Override
+  default void close() {
+  }
+}
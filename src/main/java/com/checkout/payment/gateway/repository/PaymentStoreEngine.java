@@ -0,0 +1,12 @@
+package com.checkout.payment.gateway.repository;
+
+public enum PaymentStoreEngine {
+  /**
+   * {@link PaymentsRepository}: lock-striped, indexed, optionally journaled and bounded.
+   */
+  STRIPED,
+  /**
+   * {@link ConcurrentMapPaymentStore}: one concurrent map, listings sort on every call.
+   */
+  MAP
+}
@@ -0,0 +1,331 @@
+package com.checkout.payment.gateway.repository;
+
+import static com.checkout.payment.gateway.repository.PaymentRecordLayout.WORDS;
+
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import java.nio.LongBuffer;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * One stripe of {@link PaymentsRepository}. Writers hold the stripe's write lock; how readers
+ * stay lock-free depends on the storage layout of the subclass. When the repository is journaled,
+ * each payment is appended to the stripe's journal before it becomes visible in memory.
+ *
+ * <p>Every new payment is also added to the stripe's {@link StripeIndex}, under the same write
+ * lock, so the secondary indexes never need synchronisation of their own.
+ *
+ * <p>With retention enabled the stripe also remembers its payments in insertion order, so the
+ * evictor can take the oldest ones without scanning the table.
+ */
+abstract class PaymentStripe {
+
+  protected final StampedLock lock = new StampedLock();
+  private final LongAdder contended = new LongAdder();
+  private final StripeIndex index;
+  private StripeJournal journal;
+  private RetentionQueue retention;
+
+  protected PaymentStripe(int number) {
+    this.index = new StripeIndex(number);
+  }
+
+  final void add(SuccessfulPaymentResponse payment) {
+    long stamp = writeLock();
+    try {
+      UUID id = payment.getId();
+      long msb = id.getMostSignificantBits();
+      long lsb = id.getLeastSignificantBits();
+      long meta = PaymentRecordLayout.packMeta(payment);
+      long createdAt = payment.getCreatedAt().toEpochMilli();
+      if (journal != null) {
+        journal.append(msb, lsb, payment.getAmount(), meta, createdAt);
+      }
+      if (put(payment)) {
+        added(msb, lsb, meta, createdAt);
+      }
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Re-inserts a payment read back from the journal without journaling it again.
+   */
+  final void restore(long msb, long lsb, long amount, long meta, long createdAt) {
+    long stamp = writeLock();
+    try {
+      if (putPacked(msb, lsb, amount, meta, createdAt)) {
+        added(msb, lsb, meta, createdAt);
+      }
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Records that a payment held elsewhere, such as the cold store, belongs in this stripe's
+   * indexes.
+   */
+  final void restoreIndexOnly(long msb, long lsb, long meta, long createdAt) {
+    long stamp = writeLock();
+    try {
+      index.add(msb, lsb, meta, createdAt);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Makes room for {@code payments} more entries ahead of a bulk restore, so the tables are sized
+   * once instead of doubling their way there.
+   */
+  final void reserve(int payments) {
+    long stamp = writeLock();
+    try {
+      index.reserve(payments);
+      reserveSlots(payments);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Restores {@code count} consecutive snapshot slots from {@code slots}: occupied slots created
+   * from {@code watermark} on become held payments, the others index-only entries for payments
+   * in the cold store.
+   */
+  final void restoreSnapshot(LongBuffer slots, int count, long watermark) {
+    long stamp = writeLock();
+    try {
+      for (int i = 0; i < count; i++) {
+        long msb = slots.get();
+        long lsb = slots.get();
+        long amount = slots.get();
+        long meta = slots.get();
+        long createdAt = slots.get();
+        if (!PaymentRecordLayout.isOccupied(meta) || createdAt < watermark) {
+          index.add(msb, lsb, meta, createdAt);
+        } else if (putPacked(msb, lsb, amount, meta, createdAt)) {
+          added(msb, lsb, meta, createdAt);
+        }
+      }
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Number of indexed payments together with the journal position they were all appended
+   * before, captured atomically so a snapshot of the first {@code count} entries plus the journal
+   * from {@code position} onwards is the complete stripe.
+   */
+  final SnapshotMark mark() {
+    long stamp = lock.readLock();
+    try {
+      return new SnapshotMark(index.size(),
+          journal != null ? journal.position() : JournalPosition.START);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Copies index entries {@code from} to {@code to} in {@link PaymentRecordLayout} form into
+   * {@code target}. Payments no longer held, because they were evicted, are written without the
+   * occupied bit and carry only their indexed attributes.
+   */
+  final void copySnapshot(int from, int to, long[] target) {
+    long stamp = lock.readLock();
+    try {
+      for (int sequence = from; sequence < to; sequence++) {
+        int offset = (sequence - from) * WORDS;
+        long msb = index.msb(sequence);
+        long lsb = index.lsb(sequence);
+        if (!copyPacked(msb, lsb, target, offset)) {
+          target[offset] = msb;
+          target[offset + 1] = lsb;
+          target[offset + 2] = 0L;
+          target[offset + 3] = index.meta(sequence);
+          target[offset + 4] = index.createdAt(sequence);
+        }
+      }
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  private void added(long msb, long lsb, long meta, long createdAt) {
+    index.add(msb, lsb, meta, createdAt);
+    if (retention != null) {
+      retention.append(msb, lsb, createdAt);
+    }
+  }
+
+  final StripeIndex.Search openSearch(PaymentQuery query) {
+    long stamp = lock.readLock();
+    try {
+      return index.search(query);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Continues a search from {@link #openSearch}, collecting up to {@code max} matches.
+   *
+   * @return false once the search is exhausted
+   */
+  final boolean search(StripeIndex.Search search, int max, StripeIndex.Matches out) {
+    long stamp = lock.readLock();
+    try {
+      return search.next(max, out);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  final void attachJournal(StripeJournal journal) {
+    long stamp = writeLock();
+    try {
+      this.journal = journal;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Flushes this stripe's journal to the storage device; does nothing when it is not journaled.
+   */
+  final void forceJournal() {
+    StripeJournal journal = this.journal;
+    if (journal != null) {
+      journal.force();
+    }
+  }
+
+  final void enableRetention() {
+    long stamp = writeLock();
+    try {
+      this.retention = new RetentionQueue();
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Copies the oldest payments that are due for eviction into {@code target}, starting at slot
+   * {@code offset}. A payment is due if it was created before {@code expiresBefore} or if it is
+   * among the {@code excess} oldest. At most {@code max} payments are copied; nothing is removed.
+   *
+   * @return the number of payments copied
+   */
+  final int copyEvictable(long expiresBefore, int excess, int max, long[] target, int offset) {
+    long stamp = lock.readLock();
+    try {
+      int count = 0;
+      while (count < max && count < retention.size()
+          && (count < excess || retention.createdAt(count) < expiresBefore)) {
+        copyPacked(retention.msb(count), retention.lsb(count), target,
+            (offset + count) * WORDS);
+        count++;
+      }
+      return count;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Removes the {@code count} oldest payments, which the caller copied with
+   * {@link #copyEvictable} and has since stored elsewhere.
+   */
+  final void evictOldest(int count) {
+    long stamp = writeLock();
+    try {
+      for (int i = 0; i < count; i++) {
+        remove(retention.msb(i), retention.lsb(i));
+      }
+      retention.removeOldest(count);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Creation time of the oldest payment still held, or {@link Long#MAX_VALUE} if there is none.
+   */
+  final long oldestCreatedAt() {
+    long stamp = lock.readLock();
+    try {
+      return retention.size() == 0 ? Long.MAX_VALUE : retention.createdAt(0);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  private long writeLock() {
+    long stamp = lock.tryWriteLock();
+    if (stamp == 0L) {
+      contended.increment();
+      stamp = lock.writeLock();
+    }
+    return stamp;
+  }
+
+  final long contentionCount() {
+    return contended.sum();
+  }
+
+  /**
+   * Stores the payment; always called with the write lock held.
+   *
+   * @return true if the payment was not held before
+   */
+  protected abstract boolean put(SuccessfulPaymentResponse payment);
+
+  /**
+   * Stores a payment given in its {@link PaymentRecordLayout} form; always called with the write
+   * lock held.
+   *
+   * @return true if the payment was not held before
+   */
+  protected abstract boolean putPacked(long msb, long lsb, long amount, long meta,
+      long createdAt);
+
+  /**
+   * Writes the {@link PaymentRecordLayout} form of a payment into {@code target}; always called
+   * with the lock held.
+   *
+   * @return false, leaving {@code target} untouched, if the payment is not held
+   */
+  protected abstract boolean copyPacked(long msb, long lsb, long[] target, int offset);
+
+  /**
+   * Grows the storage to hold {@code payments} more without resizing; always called with the
+   * write lock held.
+   */
+  protected void reserveSlots(int payments) {
+  }
+
+  /**
+   * Drops a payment; always called with the write lock held.
+   */
+  protected abstract void remove(long msb, long lsb);
+
+  abstract SuccessfulPaymentResponse get(UUID id);
+
+  abstract int size();
+
+  static final class SnapshotMark {
+
+    final int count;
+    final JournalPosition position;
+
+    SnapshotMark(int count, JournalPosition position) {
+      this.count = count;
+      this.position = position;
+    }
+  }
+}
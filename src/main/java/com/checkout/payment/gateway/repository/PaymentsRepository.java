@@ -1,26 +1,567 @@
 package com.checkout.payment.gateway.repository;
 
+import com.checkout.payment.gateway.configuration.PaymentsRepositoryProperties;
+import com.checkout.payment.gateway.model.PaymentPage;
 import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
-import java.util.HashMap;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.PriorityQueue;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
+/**
+ * Default {@link PaymentStore}: an in-memory payment store shared by all request threads.
+ *
+ * <p>Payments are spread over a power-of-two number of stripes selected from the bits of the
+ * payment UUID. Writers serialise per stripe only, so concurrent adds for different payments
+ * rarely meet; readers never take a lock. Each stripe counts how often a writer had to wait for
+ * its lock, which is exposed through {@link #contentionCounts()}.
+ *
+ * <p>The {@link StorageMode} decides how a stripe holds its payments: as the response objects
+ * themselves, or packed into primitive slots that are turned back into responses on read.
+ *
+ * <p>With the journal enabled every payment is also appended to a memory-mapped
+ * {@link PaymentJournal}, which is replayed into the stripes when the repository is created.
+ * Appends reach the page cache only; the {@link JournalSync} mode decides whether an add also
+ * waits for them to reach the device, either on its own or grouped with concurrent adds by a
+ * {@link GroupCommitter} so that one sync covers all of them.
+ *
+ * <p>Each stripe maintains secondary indexes on status, currency, creation time and last four card
+ * digits, which {@link #find(PaymentQuery)} merges across stripes to list payments page by page.
+ *
+ * <p>A journaled repository can also write periodic {@link PaymentSnapshots} in the background.
+ * Startup then loads the newest snapshot and replays only the journal written after it.
+ *
+ * <p>With retention enabled the repository is bounded: a background evictor moves payments that
+ * are past their TTL, or the oldest ones beyond the in-memory budget, into a compressed
+ * {@link ColdPaymentStore}. Eviction takes stripe locks briefly and in small batches, so adds
+ * never wait for disk I/O. Lookups that miss in memory fall back to the cold store.
+ */
 @Repository
-public class PaymentsRepository {
+@ConditionalOnProperty(name = "payments.repository.engine", havingValue = "striped",
+    matchIfMissing = true)
+public class PaymentsRepository implements PaymentStore {
 
-  private final HashMap<UUID, SuccessfulPaymentResponse> payments = new HashMap<>();
+  private static final Logger LOG = LoggerFactory.getLogger(PaymentsRepository.class);
 
+  private static final int DEFAULT_STRIPES = defaultStripeCount();
+  // Allowance for payments created before, but added after, the oldest payment held in memory
+  private static final long WATERMARK_SLACK_MILLIS = Duration.ofMinutes(1).toMillis();
+
+  private final StorageMode storageMode;
+  private final PaymentStripe[] stripes;
+  private final int stripeMask;
+  private final PaymentJournal journal;
+  private final JournalSync sync;
+  private final GroupCommitter committer;
+  private final RetentionPolicy retention;
+  private final ColdPaymentStore cold;
+  private final PaymentSnapshots snapshots;
+  private final ScheduledExecutorService maintenance;
+  private final long startupMillis;
+  private final Clock clock;
+  private final long[] evictionBuffer;
+  private final LongAdder hotReads = new LongAdder();
+  private final LongAdder coldReads = new LongAdder();
+  private final LongAdder missedReads = new LongAdder();
+  private final LongAdder evictedPayments = new LongAdder();
+  // Locks rather than monitors: both are held over file I/O, which would pin a virtual thread
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final ReentrantLock snapshotLock = new ReentrantLock();
+  // Guarded by evictionLock
+  private boolean overCeilingReported;
+
+  public PaymentsRepository() {
+    this(StorageMode.OBJECTS, DEFAULT_STRIPES);
+  }
+
+  @Autowired
+  public PaymentsRepository(PaymentsRepositoryProperties properties) {
+    this(properties.getStorageMode(),
+        properties.getStripes() > 0 ? properties.getStripes() : DEFAULT_STRIPES,
+        properties.getJournal().isEnabled() ? properties.getJournal().getDirectory() : null,
+        properties.getJournal().getSegmentSize().toBytes(),
+        properties.getRetention().isEnabled() ? retentionPolicy(properties) : null,
+        properties.getSnapshot().isEnabled() ? snapshotPolicy(properties) : null,
+        commitPolicy(properties), Clock.systemUTC());
+  }
+
+  PaymentsRepository(StorageMode storageMode, int stripeCount) {
+    this(storageMode, stripeCount, null, 0);
+  }
+
+  PaymentsRepository(StorageMode storageMode, int stripeCount, Path journalDirectory,
+      long journalSegmentBytes) {
+    this(storageMode, stripeCount, journalDirectory, journalSegmentBytes, null, null,
+        Clock.systemUTC());
+  }
+
+  PaymentsRepository(StorageMode storageMode, int stripeCount, Path journalDirectory,
+      long journalSegmentBytes, RetentionPolicy retention, SnapshotPolicy snapshotPolicy,
+      Clock clock) {
+    this(storageMode, stripeCount, journalDirectory, journalSegmentBytes, retention,
+        snapshotPolicy, CommitPolicy.NONE, clock);
+  }
+
+  PaymentsRepository(StorageMode storageMode, int stripeCount, Path journalDirectory,
+      long journalSegmentBytes, RetentionPolicy retention, SnapshotPolicy snapshotPolicy,
+      CommitPolicy commitPolicy, Clock clock) {
+    if (stripeCount <= 0 || Integer.bitCount(stripeCount) != 1) {
+      throw new IllegalArgumentException("stripe count must be a positive power of two");
+    }
+    if (snapshotPolicy != null && journalDirectory == null) {
+      throw new IllegalArgumentException("snapshots require the journal");
+    }
+    if (retention != null && journalDirectory != null && snapshotPolicy == null) {
+      // Replay rebuilds evicted payments' index rows from the journal, which only a snapshot
+      // lets it trim
+      throw new IllegalArgumentException("retention with the journal requires snapshots");
+    }
+    this.storageMode = storageMode;
+    this.stripes = new PaymentStripe[stripeCount];
+    for (int i = 0; i < stripeCount; i++) {
+      stripes[i] = storageMode == StorageMode.PACKED
+          ? new PackedPaymentStripe(i)
+          : new ObjectPaymentStripe(i);
+    }
+    this.stripeMask = stripeCount - 1;
+    this.retention = retention;
+    this.clock = clock;
+    if (retention != null) {
+      for (PaymentStripe stripe : stripes) {
+        stripe.enableRetention();
+      }
+      cold = ColdPaymentStore.open(retention.directory());
+      evictionBuffer = new long[retention.evictionBatch() * PaymentRecordLayout.WORDS];
+    } else {
+      cold = null;
+      evictionBuffer = null;
+    }
+    snapshots = snapshotPolicy != null
+        ? new PaymentSnapshots(snapshotPolicy.directory(), snapshotPolicy.retained())
+        : null;
+    if (journalDirectory != null) {
+      long started = System.nanoTime();
+      // Journaled payments created before the watermark were already spilled to the cold store
+      long watermark = cold != null ? cold.watermark() : Long.MIN_VALUE;
+      JournalPosition[] resumeFrom = snapshots != null
+          ? snapshots.load(stripes, this::stripeFor, watermark)
+          : null;
+      PaymentJournal.RecordSink sink = (msb, lsb, amount, meta, createdAt) -> {
+        if (createdAt >= watermark) {
+          stripeFor(msb, lsb).restore(msb, lsb, amount, meta, createdAt);
+        } else {
+          stripeFor(msb, lsb).restoreIndexOnly(msb, lsb, meta, createdAt);
+        }
+      };
+      journal = resumeFrom != null
+          ? PaymentJournal.open(journalDirectory, stripeCount, journalSegmentBytes, sink,
+              resumeFrom)
+          : PaymentJournal.open(journalDirectory, stripeCount, journalSegmentBytes, sink);
+      for (int i = 0; i < stripeCount; i++) {
+        stripes[i].attachJournal(journal.stripe(i));
+      }
+      startupMillis = (System.nanoTime() - started) / 1_000_000;
+    } else {
+      journal = null;
+      startupMillis = 0;
+    }
+    this.sync = journal != null ? commitPolicy.sync() : JournalSync.NONE;
+    committer = sync == JournalSync.GROUP
+        ? new GroupCommitter(journal::force, commitPolicy.maxBatch(), commitPolicy.maxWait())
+        : null;
+    boolean evicting = retention != null && !retention.evictionInterval().isZero();
+    boolean snapshotting = snapshotPolicy != null && !snapshotPolicy.interval().isZero();
+    if (evicting || snapshotting) {
+      maintenance = Executors.newScheduledThreadPool(evicting && snapshotting ? 2 : 1,
+          runnable -> {
+            Thread thread = new Thread(runnable, "payments-maintenance");
+            thread.setDaemon(true);
+            return thread;
+          });
+      if (evicting) {
+        long interval = retention.evictionInterval().toMillis();
+        maintenance.scheduleWithFixedDelay(this::evictInBackground, interval, interval,
+            TimeUnit.MILLISECONDS);
+      }
+      if (snapshotting) {
+        long interval = snapshotPolicy.interval().toMillis();
+        maintenance.scheduleWithFixedDelay(this::snapshotInBackground, interval, interval,
+            TimeUnit.MILLISECONDS);
+      }
+    } else {
+      maintenance = null;
+    }
+  }
+
+  @Override
   public void add(SuccessfulPaymentResponse payment) {
-    payments.put(payment.getId(), payment);
+    PaymentStripe stripe = stripeFor(payment.getId());
+    stripe.add(payment);
+    // Synced outside the stripe lock, so other adds to the stripe can join the same sync
+    if (sync == JournalSync.GROUP) {
+      committer.awaitDurable();
+    } else if (sync == JournalSync.EACH) {
+      stripe.forceJournal();
+    }
   }
 
+  @Override
   public Optional<SuccessfulPaymentResponse> get(UUID id) {
-    return Optional.ofNullable(payments.get(id));
+    SuccessfulPaymentResponse payment = stripeFor(id).get(id);
+    if (payment != null) {
+      hotReads.increment();
+      return Optional.of(payment);
+    }
+    // Eviction publishes a payment to the cold store before dropping it from memory
+    if (cold != null) {
+      payment = cold.get(id.getMostSignificantBits(), id.getLeastSignificantBits());
+      if (payment != null) {
+        coldReads.increment();
+        return Optional.of(payment);
+      }
+    }
+    missedReads.increment();
+    return Optional.empty();
   }
 
+  /**
+   * Lists the payments matching the query, newest first. Each stripe walks its most selective
+   * index backwards from the cursor in small batches, and the stripes are merged by index key,
+   * so the work done grows with the page size rather than with the number of payments held.
+   */
+  @Override
+  public PaymentPage find(PaymentQuery query) {
+    int limit = query.limit();
+    // Enough per stripe that a page drawn evenly from all stripes needs one batch each
+    int batch = Math.max(4, limit / stripes.length + 1);
+    PriorityQueue<SearchCursor> heads = new PriorityQueue<>(stripes.length);
+    for (PaymentStripe stripe : stripes) {
+      SearchCursor cursor = new SearchCursor(stripe, stripe.openSearch(query), batch);
+      if (cursor.advance()) {
+        heads.add(cursor);
+      }
+    }
+    List<SuccessfulPaymentResponse> payments = new ArrayList<>(limit);
+    PaymentCursor last = null;
+    while (payments.size() < limit && !heads.isEmpty()) {
+      SearchCursor head = heads.poll();
+      StripeIndex.Matches matches = head.matches;
+      int read = matches.read++;
+      last = new PaymentCursor(matches.keys[read], matches.stripes[read],
+          matches.sequences[read]);
+      SuccessfulPaymentResponse payment = lookup(matches.ids[read * 2],
+          matches.ids[read * 2 + 1]);
+      if (payment != null) {
+        payments.add(payment);
+      }
+      if (head.advance()) {
+        heads.add(head);
+      }
+    }
+    return new PaymentPage(payments, heads.isEmpty() ? null : last.encode());
+  }
+
+  /**
+   * Number of payments held, in memory and in the cold store.
+   */
+  @Override
   public int size() {
-    return payments.size();
+    return (int) Math.min(Integer.MAX_VALUE, hotSize() + coldSize());
+  }
+
+  public int hotSize() {
+    int size = 0;
+    for (PaymentStripe stripe : stripes) {
+      size += stripe.size();
+    }
+    return size;
   }
 
+  public long coldSize() {
+    return cold != null ? cold.records() : 0;
+  }
+
+  public long hotReads() {
+    return hotReads.sum();
+  }
+
+  public long coldReads() {
+    return coldReads.sum();
+  }
+
+  public long missedReads() {
+    return missedReads.sum();
+  }
+
+  public long evictedPayments() {
+    return evictedPayments.sum();
+  }
+
+  public boolean isRetentionEnabled() {
+    return retention != null;
+  }
+
+  /**
+   * Runs eviction passes until no stripe holds payments that are expired or over budget.
+   *
+   * @return the number of payments moved to the cold store
+   */
+  long evict() {
+    evictionLock.lock();
+    try {
+      long evicted = 0;
+      int moved;
+      do {
+        moved = evictBatch();
+        evicted += moved;
+      } while (moved > 0);
+      if (journal != null) {
+        // Everything journaled before the oldest payment still in memory is now in the cold store
+        long oldest = clock.millis();
+        for (PaymentStripe stripe : stripes) {
+          oldest = Math.min(oldest, stripe.oldestCreatedAt());
+        }
+        cold.advanceWatermark(oldest - WATERMARK_SLACK_MILLIS);
+      }
+      return evicted;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Copies up to one batch of evictable payments from the stripes, writes them as one cold
+   * segment and only then removes them from memory.
+   */
+  private int evictBatch() {
+    long expiresBefore = clock.millis() - retention.ttl().toMillis();
+    long stored = hotSize() + coldSize();
+    if (stored > retention.maxStoredPayments() && !overCeilingReported) {
+      overCeilingReported = true;
+      LOG.warn("{} payments are stored, more than the {} whose index rows fit the retention heap"
+          + " budget; heap now grows with every payment", stored, retention.maxStoredPayments());
+    }
+    long stripeBudget = Math.max(1, retention.hotBudget(stored) / stripes.length);
+    int batch = retention.evictionBatch();
+    // Bounding each stripe's share keeps its lock hold short
+    int stripeShare = Math.max(1, batch / stripes.length);
+    int[] taken = new int[stripes.length];
+    int total = 0;
+    for (int i = 0; i < stripes.length && total < batch; i++) {
+      int excess = (int) Math.max(0, stripes[i].size() - stripeBudget);
+      taken[i] = stripes[i].copyEvictable(expiresBefore, excess,
+          Math.min(stripeShare, batch - total), evictionBuffer, total);
+      total += taken[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+    cold.write(evictionBuffer, total);
+    for (int i = 0; i < stripes.length; i++) {
+      if (taken[i] > 0) {
+        stripes[i].evictOldest(taken[i]);
+      }
+    }
+    evictedPayments.add(total);
+    return total;
+  }
+
+  /**
+   * Writes a snapshot of every stripe and deletes the journal segments that no retained
+   * snapshot needs any more.
+   */
+  void snapshot() {
+    snapshotLock.lock();
+    try {
+      // Pages of the journal tail must be durable before older segments can be dropped
+      journal.force();
+      JournalPosition[] keep = snapshots.write(stripes, clock.millis());
+      journal.deleteSegmentsBefore(keep);
+    } finally {
+      snapshotLock.unlock();
+    }
+  }
+
+  /**
+   * Milliseconds spent loading the snapshot and replaying the journal when the repository was
+   * created.
+   */
+  public long startupMillis() {
+    return startupMillis;
+  }
+
+  private void snapshotInBackground() {
+    try {
+      snapshot();
+    } catch (RuntimeException e) {
+      LOG.error("Payment snapshot failed; the journal is kept until the next one succeeds", e);
+    }
+  }
+
+  private void evictInBackground() {
+    try {
+      long evicted = evict();
+      if (evicted > 0) {
+        LOG.debug("Evicted {} payments to the cold store", evicted);
+      }
+    } catch (RuntimeException e) {
+      LOG.error("Payment eviction failed; payments stay in memory until the next pass", e);
+    }
+  }
+
+  public StorageMode storageMode() {
+    return storageMode;
+  }
+
+  public int stripeCount() {
+    return stripes.length;
+  }
+
+  /**
+   * Number of times a writer found its stripe locked by another writer, one entry per stripe.
+   */
+  public long[] contentionCounts() {
+    long[] counts = new long[stripes.length];
+    for (int i = 0; i < stripes.length; i++) {
+      counts[i] = stripes[i].contentionCount();
+    }
+    return counts;
+  }
+
+  public boolean isJournaled() {
+    return journal != null;
+  }
+
+  /**
+   * Flushes journaled payments to the storage device. Appends only reach the page cache, so this
+   * is what makes them survive a machine crash rather than just a process crash.
+   */
+  public void flush() {
+    if (journal != null) {
+      journal.force();
+    }
+  }
+
+  @Override
+  public void close() {
+    if (maintenance != null) {
+      maintenance.shutdown();
+      try {
+        maintenance.awaitTermination(30, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (committer != null) {
+      committer.close();
+    }
+    flush();
+    if (snapshots != null) {
+      // A snapshot on the way down leaves the next startup with no journal tail to replay
+      snapshot();
+    }
+    if (cold != null) {
+      cold.close();
+    }
+  }
+
+  private SuccessfulPaymentResponse lookup(long msb, long lsb) {
+    UUID id = new UUID(msb, lsb);
+    SuccessfulPaymentResponse payment = stripeFor(msb, lsb).get(id);
+    if (payment == null && cold != null) {
+      payment = cold.get(msb, lsb);
+    }
+    return payment;
+  }
+
+  private PaymentStripe stripeFor(UUID id) {
+    return stripeFor(id.getMostSignificantBits(), id.getLeastSignificantBits());
+  }
+
+  private PaymentStripe stripeFor(long msb, long lsb) {
+    // Random UUIDs carry 122 random bits; fold both halves so sequential ids spread as well
+    long bits = msb ^ lsb;
+    int hash = (int) (bits ^ (bits >>> 32));
+    return stripes[(hash ^ (hash >>> 16)) & stripeMask];
+  }
+
+  private static RetentionPolicy retentionPolicy(PaymentsRepositoryProperties properties) {
+    PaymentsRepositoryProperties.Retention retention = properties.getRetention();
+    return RetentionPolicy.forHeap(retention.getDirectory(), retention.getMaxHeap().toBytes(),
+        properties.getStorageMode(), retention.getTtl(), retention.getEvictionInterval(),
+        retention.getEvictionBatch());
+  }
+
+  private static SnapshotPolicy snapshotPolicy(PaymentsRepositoryProperties properties) {
+    PaymentsRepositoryProperties.Snapshot snapshot = properties.getSnapshot();
+    return new SnapshotPolicy(snapshot.getDirectory(), snapshot.getInterval(),
+        snapshot.getRetained());
+  }
+
+  private static CommitPolicy commitPolicy(PaymentsRepositoryProperties properties) {
+    PaymentsRepositoryProperties.Journal journal = properties.getJournal();
+    return new CommitPolicy(journal.getSync(), journal.getMaxBatch(), journal.getMaxWait());
+  }
+
+  private static int defaultStripeCount() {
+    int target = Runtime.getRuntime().availableProcessors() * 4;
+    return Integer.highestOneBit(Math.max(16, target) - 1) << 1;
+  }
+
+  /**
+   * The buffered matches of one stripe's search, ordered by the key of their next match so a
+   * priority queue of them yields payments newest first across stripes.
+   */
+  private static final class SearchCursor implements Comparable<SearchCursor> {
+
+    private final PaymentStripe stripe;
+    private final StripeIndex.Search search;
+    private final StripeIndex.Matches matches = new StripeIndex.Matches();
+    private final int batch;
+    private boolean more = true;
+
+    private SearchCursor(PaymentStripe stripe, StripeIndex.Search search, int batch) {
+      this.stripe = stripe;
+      this.search = search;
+      this.batch = batch;
+    }
+
+    /**
+     * Makes sure a match is buffered, fetching the next batch if needed.
+     *
+     * @return false if the stripe has no further matches
+     */
+    private boolean advance() {
+      while (!matches.hasNext() && more) {
+        matches.clear();
+        more = stripe.search(search, batch, matches);
+      }
+      return matches.hasNext();
+    }
+
+    @Override
+    public int compareTo(SearchCursor other) {
+      // Descending by (index time, stripe, sequence)
+      int cmp = Long.compare(other.matches.keys[other.matches.read], matches.keys[matches.read]);
+      if (cmp != 0) {
+        return cmp;
+      }
+      return Integer.compare(other.matches.stripes[other.matches.read],
+          matches.stripes[matches.read]);
+    }
+  }
 }
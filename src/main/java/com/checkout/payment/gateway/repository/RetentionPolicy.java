@@ -0,0 +1,96 @@
+package com.checkout.payment.gateway.repository;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * How long and how many payments {@link PaymentsRepository} keeps in memory before they are
+ * spilled to its {@link ColdPaymentStore}.
+ */
+final class RetentionPolicy {
+
+  // Heap per in-memory payment from footprintReport, less the index entry that outlives
+  // eviction, plus 24-48 bytes of retention queue entry
+  private static final long OBJECTS_BYTES_PER_PAYMENT = 260;
+  private static final long PACKED_BYTES_PER_PAYMENT = 120;
+  // Heap every stored payment keeps after eviction: its ~66-byte StripeIndex row and a 20-byte
+  // ColdIndex slot in a table that can be as little as three eighths full
+  private static final long RETAINED_BYTES_PER_PAYMENT = 66 + 54;
+
+  private final Path directory;
+  private final long maxHeapBytes;
+  private final long hotBytesPerPayment;
+  private final long retainedBytesPerPayment;
+  private final Duration ttl;
+  private final Duration evictionInterval;
+  private final int evictionBatch;
+
+  RetentionPolicy(Path directory, long maxHeapBytes, long hotBytesPerPayment,
+      long retainedBytesPerPayment, Duration ttl, Duration evictionInterval, int evictionBatch) {
+    if (maxHeapBytes <= 0 || hotBytesPerPayment <= 0 || retainedBytesPerPayment < 0
+        || ttl.isNegative() || ttl.isZero() || evictionBatch <= 0) {
+      throw new IllegalArgumentException(
+          "retention needs a positive heap budget, payment footprint, ttl and eviction batch");
+    }
+    this.directory = directory;
+    this.maxHeapBytes = maxHeapBytes;
+    this.hotBytesPerPayment = hotBytesPerPayment;
+    this.retainedBytesPerPayment = retainedBytesPerPayment;
+    this.ttl = ttl;
+    this.evictionInterval = evictionInterval;
+    this.evictionBatch = evictionBatch;
+  }
+
+  /**
+   * A policy whose heap budget covers the hot payments of the storage mode, at their measured
+   * footprint, plus what every stored payment keeps after eviction. The budget does not cover
+   * the rest of the application.
+   */
+  static RetentionPolicy forHeap(Path directory, long heapBytes, StorageMode storageMode,
+      Duration ttl, Duration evictionInterval, int evictionBatch) {
+    long hotBytes = storageMode == StorageMode.PACKED
+        ? PACKED_BYTES_PER_PAYMENT
+        : OBJECTS_BYTES_PER_PAYMENT;
+    return new RetentionPolicy(directory, heapBytes, hotBytes, RETAINED_BYTES_PER_PAYMENT, ttl,
+        evictionInterval, evictionBatch);
+  }
+
+  /**
+   * How many payments may stay in memory while {@code storedPayments} payments, hot and cold,
+   * are held: what is left of the heap budget once every stored payment's retained bytes are
+   * counted. Zero once the store reaches {@link #maxStoredPayments()}.
+   */
+  long hotBudget(long storedPayments) {
+    long left = maxHeapBytes - Math.min(maxHeapBytes, storedPayments * retainedBytesPerPayment);
+    return left / hotBytesPerPayment;
+  }
+
+  /**
+   * The hard ceiling on stored payments: beyond it the retained bytes alone exceed the heap
+   * budget and grow with every payment added, however much is evicted.
+   */
+  long maxStoredPayments() {
+    return retainedBytesPerPayment == 0
+        ? Long.MAX_VALUE
+        : maxHeapBytes / retainedBytesPerPayment;
+  }
+
+  Path directory() {
+    return directory;
+  }
+
+  Duration ttl() {
+    return ttl;
+  }
+
+  /**
+   * Delay between background eviction passes; zero disables the background evictor.
+   */
+  Duration evictionInterval() {
+    return evictionInterval;
+  }
+
+  int evictionBatch() {
+    return evictionBatch;
+  }
+}
@@ -0,0 +1,66 @@
+package com.checkout.payment.gateway.repository;
+
+/**
+ * Insertion-ordered ring of (id, creation time) triples for the payments held in one stripe, so
+ * the oldest payments can be found for eviction without scanning the stripe. Guarded by the
+ * owning stripe's write lock.
+ */
+final class RetentionQueue {
+
+  private static final int ENTRY_WORDS = 3;
+  private static final int INITIAL_CAPACITY = 64;
+
+  private long[] ring = new long[INITIAL_CAPACITY * ENTRY_WORDS];
+  private int head;
+  private int size;
+
+  void append(long msb, long lsb, long createdAt) {
+    int capacity = ring.length / ENTRY_WORDS;
+    if (size == capacity) {
+      grow();
+      capacity = ring.length / ENTRY_WORDS;
+    }
+    int entry = ((head + size) & (capacity - 1)) * ENTRY_WORDS;
+    ring[entry] = msb;
+    ring[entry + 1] = lsb;
+    ring[entry + 2] = createdAt;
+    size++;
+  }
+
+  int size() {
+    return size;
+  }
+
+  long msb(int index) {
+    return ring[offset(index)];
+  }
+
+  long lsb(int index) {
+    return ring[offset(index) + 1];
+  }
+
+  long createdAt(int index) {
+    return ring[offset(index) + 2];
+  }
+
+  void removeOldest(int count) {
+    int capacity = ring.length / ENTRY_WORDS;
+    head = (head + count) & (capacity - 1);
+    size -= count;
+  }
+
+  private int offset(int index) {
+    int capacity = ring.length / ENTRY_WORDS;
+    return ((head + index) & (capacity - 1)) * ENTRY_WORDS;
+  }
+
+  private void grow() {
+    int capacity = ring.length / ENTRY_WORDS;
+    long[] grown = new long[ring.length * 2];
+    int first = Math.min(size, capacity - head);
+    System.arraycopy(ring, head * ENTRY_WORDS, grown, 0, first * ENTRY_WORDS);
+    System.arraycopy(ring, 0, grown, first * ENTRY_WORDS, (size - first) * ENTRY_WORDS);
+    ring = grown;
+    head = 0;
+  }
+}
@@ -0,0 +1,39 @@
+package com.checkout.payment.gateway.repository;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Where and how often {@link PaymentsRepository} snapshots a journaled store.
+ */
+final class SnapshotPolicy {
+
+  private final Path directory;
+  private final Duration interval;
+  private final int retained;
+
+  SnapshotPolicy(Path directory, Duration interval, int retained) {
+    if (interval.isNegative() || retained < 1) {
+      throw new IllegalArgumentException(
+          "snapshots need a non-negative interval and at least one retained snapshot");
+    }
+    this.directory = directory;
+    this.interval = interval;
+    this.retained = retained;
+  }
+
+  Path directory() {
+    return directory;
+  }
+
+  /**
+   * Delay between background snapshots; zero disables them, leaving only the one taken on close.
+   */
+  Duration interval() {
+    return interval;
+  }
+
+  int retained() {
+    return retained;
+  }
+}
@@ -0,0 +1,13 @@
+package com.checkout.payment.gateway.repository;
+
+public enum StorageMode {
+  /**
+   * Payments are kept as the {@code SuccessfulPaymentResponse} objects they were added as.
+   */
+  OBJECTS,
+  /**
+   * Payments are packed into fixed-width slots of primitive arrays; response objects are only
+   * rebuilt on read.
+   */
+  PACKED
+}
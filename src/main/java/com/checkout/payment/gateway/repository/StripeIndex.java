@@ -0,0 +1,282 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.enums.Currency;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import java.util.Arrays;
+
+/**
+ * Secondary indexes over the payments of one stripe. Not thread-safe: the owning stripe appends
+ * under its write lock and searches under its read lock.
+ *
+ * <p>Every payment gets the next stripe-local sequence number and an index time, its creation
+ * time clamped so it never goes backwards within the stripe. Entries are therefore ordered by
+ * both at once, and the key {@code (index time, stripe, sequence)} orders payments across stripes.
+ * An entry's index time exceeds its creation time by at most the stripe's largest skew, which
+ * bounds how far past the end of a time range a search must start.
+ * Posting lists per status, currency, status and currency, and last four digits hold ascending
+ * sequence numbers, so a search walks one list backwards from a binary-searched position and
+ * touches only the entries it returns plus those rejected by the remaining filters.
+ */
+final class StripeIndex {
+
+  private static final int INITIAL_CAPACITY = 64;
+  private static final int LAST_FOUR_VALUES = 10_000;
+  private static final int STATUSES = PaymentStatus.values().length;
+  private static final int CURRENCIES = Currency.values().length;
+  private static final PostingList EMPTY = new PostingList();
+
+  private final int stripe;
+  private int size;
+  // Largest amount by which an index time exceeds its creation time
+  private long maxSkew;
+  private long[] ids = new long[INITIAL_CAPACITY * 2];
+  private long[] indexTimes = new long[INITIAL_CAPACITY];
+  private long[] createdAts = new long[INITIAL_CAPACITY];
+  // status:4 | currency:8 | last four:16, as in the PaymentRecordLayout metadata word
+  private int[] attributes = new int[INITIAL_CAPACITY];
+
+  private final PostingList[] byStatus = new PostingList[STATUSES];
+  private final PostingList[] byCurrency = new PostingList[CURRENCIES];
+  private final PostingList[] byStatusAndCurrency = new PostingList[STATUSES * CURRENCIES];
+  private final PostingList[] byLastFour = new PostingList[LAST_FOUR_VALUES];
+
+  StripeIndex(int stripe) {
+    this.stripe = stripe;
+  }
+
+  void add(long msb, long lsb, long meta, long createdAt) {
+    if (size == indexTimes.length) {
+      grow();
+    }
+    int sequence = size;
+    int status = (int) (meta >>> 48) & 0xFF;
+    int currency = (int) (meta >>> 40) & 0xFF;
+    int lastFour = (int) meta & 0xFFFF;
+    ids[sequence * 2] = msb;
+    ids[sequence * 2 + 1] = lsb;
+    indexTimes[sequence] = sequence == 0
+        ? createdAt
+        : Math.max(indexTimes[sequence - 1], createdAt);
+    createdAts[sequence] = createdAt;
+    maxSkew = Math.max(maxSkew, indexTimes[sequence] - createdAt);
+    attributes[sequence] = status << 24 | currency << 16 | lastFour;
+    append(byStatus, status, sequence);
+    append(byCurrency, currency, sequence);
+    append(byStatusAndCurrency, status * CURRENCIES + currency, sequence);
+    append(byLastFour, lastFour, sequence);
+    size = sequence + 1;
+  }
+
+  int size() {
+    return size;
+  }
+
+  long msb(int sequence) {
+    return ids[sequence * 2];
+  }
+
+  long lsb(int sequence) {
+    return ids[sequence * 2 + 1];
+  }
+
+  long createdAt(int sequence) {
+    return createdAts[sequence];
+  }
+
+  /**
+   * The indexed attributes of an entry in the {@link PaymentRecordLayout} metadata word format,
+   * without the occupied bit and the expiry fields.
+   */
+  long meta(int sequence) {
+    int attribute = attributes[sequence];
+    return (long) (attribute >>> 24) << 48
+        | (long) (attribute >>> 16 & 0xFF) << 40
+        | attribute & 0xFFFF;
+  }
+
+  /**
+   * Opens a search over this stripe; see {@link PaymentQuery} for the filters.
+   */
+  Search search(PaymentQuery query) {
+    PostingList list;
+    if (query.lastFour() >= 0) {
+      list = byLastFour[query.lastFour()];
+    } else if (query.status() != null && query.currency() != null) {
+      list = byStatusAndCurrency[query.status().ordinal() * CURRENCIES
+          + query.currency().ordinal()];
+    } else if (query.status() != null) {
+      list = byStatus[query.status().ordinal()];
+    } else if (query.currency() != null) {
+      list = byCurrency[query.currency().ordinal()];
+    } else {
+      // No indexed filter: walk every entry
+      return new Search(query, null);
+    }
+    return new Search(query, list != null ? list : EMPTY);
+  }
+
+  private static void append(PostingList[] lists, int value, int sequence) {
+    PostingList list = lists[value];
+    if (list == null) {
+      list = new PostingList();
+      lists[value] = list;
+    }
+    list.add(sequence);
+  }
+
+  void reserve(int entries) {
+    int capacity = indexTimes.length;
+    while (capacity < size + entries) {
+      capacity *= 2;
+    }
+    if (capacity > indexTimes.length) {
+      grow(capacity);
+    }
+  }
+
+  private void grow() {
+    grow(indexTimes.length * 2);
+  }
+
+  private void grow(int capacity) {
+    ids = Arrays.copyOf(ids, capacity * 2);
+    indexTimes = Arrays.copyOf(indexTimes, capacity);
+    createdAts = Arrays.copyOf(createdAts, capacity);
+    attributes = Arrays.copyOf(attributes, capacity);
+  }
+
+  /**
+   * Descending walk over the entries of one posting list, or over all entries. Each call to
+   * {@link #next} resumes where the previous one stopped.
+   */
+  final class Search {
+
+    private final PaymentQuery query;
+    private final PostingList list;
+    // Index time from which no entry can have been created before the end of the time range
+    private final long indexTimeLimit;
+    // Exclusive upper bound, as a position in the posting list or the entry sequence
+    private int position;
+
+    private Search(PaymentQuery query, PostingList list) {
+      this.query = query;
+      this.list = list;
+      long to = query.toMillis();
+      this.indexTimeLimit = to > Long.MAX_VALUE - maxSkew ? Long.MAX_VALUE : to + maxSkew;
+      this.position = upperBound();
+    }
+
+    /**
+     * Collects up to {@code max} matching entries into {@code out}, newest first.
+     *
+     * @return false once the walk has passed the oldest candidate
+     */
+    boolean next(int max, Matches out) {
+      while (position > 0 && out.size < max) {
+        int sequence = list == null ? position - 1 : list.get(position - 1);
+        if (indexTimes[sequence] < query.fromMillis()) {
+          position = 0;
+          break;
+        }
+        position--;
+        if (matches(sequence)) {
+          out.add(indexTimes[sequence], stripe, sequence, ids[sequence * 2],
+              ids[sequence * 2 + 1]);
+        }
+      }
+      return position > 0;
+    }
+
+    private boolean matches(int sequence) {
+      int attribute = attributes[sequence];
+      long createdAt = createdAts[sequence];
+      return (query.status() == null || attribute >>> 24 == query.status().ordinal())
+          && (query.currency() == null || (attribute >>> 16 & 0xFF) == query.currency().ordinal())
+          && (query.lastFour() < 0 || (attribute & 0xFFFF) == query.lastFour())
+          && createdAt >= query.fromMillis()
+          && createdAt < query.toMillis();
+    }
+
+    /**
+     * First position whose entry is not below both the cursor and the index time limit. Entries
+     * below the limit but created after the range are left to {@link #matches}.
+     */
+    private int upperBound() {
+      int low = 0;
+      int high = list == null ? size : list.size;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        int sequence = list == null ? mid : list.get(mid);
+        if (below(sequence)) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    private boolean below(int sequence) {
+      long indexTime = indexTimes[sequence];
+      if (indexTime >= indexTimeLimit) {
+        return false;
+      }
+      PaymentCursor cursor = query.cursor();
+      return cursor == null || cursor.isAfter(indexTime, stripe, sequence);
+    }
+  }
+
+  /**
+   * Growable buffer of search results, as parallel primitive arrays.
+   */
+  static final class Matches {
+
+    long[] keys = new long[16];
+    long[] ids = new long[32];
+    int[] sequences = new int[16];
+    int[] stripes = new int[16];
+    int size;
+    int read;
+
+    void add(long indexTime, int stripe, int sequence, long msb, long lsb) {
+      if (size == keys.length) {
+        keys = Arrays.copyOf(keys, size * 2);
+        ids = Arrays.copyOf(ids, size * 4);
+        sequences = Arrays.copyOf(sequences, size * 2);
+        stripes = Arrays.copyOf(stripes, size * 2);
+      }
+      keys[size] = indexTime;
+      stripes[size] = stripe;
+      sequences[size] = sequence;
+      ids[size * 2] = msb;
+      ids[size * 2 + 1] = lsb;
+      size++;
+    }
+
+    boolean hasNext() {
+      return read < size;
+    }
+
+    void clear() {
+      size = 0;
+      read = 0;
+    }
+  }
+
+  private static final class PostingList {
+
+    private int[] sequences = new int[4];
+    private int size;
+
+    void add(int sequence) {
+      if (size == sequences.length) {
+        sequences = Arrays.copyOf(sequences, size * 2);
+      }
+      sequences[size++] = sequence;
+    }
+
+    int get(int position) {
+      return sequences[position];
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package com.checkout.payment.gateway.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Append side of one stripe's journal directory. Not thread-safe: the owning stripe only
+ * appends while holding its write lock. {@link #force()} may be called from any thread.
+ *
+ * <p>Records are written straight into a memory-mapped segment, so the common append is a
+ * handful of memory stores and no system call. Only rolling over to a fresh segment maps a new
+ * file.
+ */
+final class StripeJournal {
+
+  private final Path directory;
+  private final long segmentBytes;
+  private final CRC32C crc = new CRC32C();
+
+  private long sequence;
+  // Read by committing threads; the previous segment is always forced before this changes
+  private volatile MappedByteBuffer segment;
+  private ByteBuffer checksumView;
+  private int position;
+  // Records appended and records known to be on the device; -1 forces whatever replay left behind
+  private volatile long appended;
+  private volatile long forced = -1;
+
+  StripeJournal(Path directory, long segmentBytes, long sequence, MappedByteBuffer segment,
+      int position) {
+    this.directory = directory;
+    this.segmentBytes = segmentBytes;
+    this.sequence = sequence;
+    this.segment = segment;
+    this.checksumView = segment == null ? null : segment.duplicate();
+    this.position = position;
+  }
+
+  void append(long msb, long lsb, long amount, long meta, long createdAt) {
+    MappedByteBuffer segment = this.segment;
+    if (segment == null || position + JournalFormat.RECORD_BYTES > segment.capacity()) {
+      segment = roll();
+    }
+    int offset = position;
+    segment.putLong(offset + JournalFormat.PAYLOAD_OFFSET, msb);
+    segment.putLong(offset + JournalFormat.PAYLOAD_OFFSET + 8, lsb);
+    segment.putLong(offset + JournalFormat.PAYLOAD_OFFSET + 16, amount);
+    segment.putLong(offset + JournalFormat.PAYLOAD_OFFSET + 24, meta);
+    segment.putLong(offset + JournalFormat.PAYLOAD_OFFSET + 32, createdAt);
+    segment.putInt(offset + 4, checksum(offset));
+    // The marker goes last so a record is never marked before its payload is in place
+    segment.putInt(offset, JournalFormat.RECORD_MARKER);
+    position = offset + JournalFormat.RECORD_BYTES;
+    appended++;
+  }
+
+  /**
+   * Where the next record will be appended. A position at the end of a full segment replays as
+   * the start of the next one.
+   */
+  JournalPosition position() {
+    return new JournalPosition(sequence, position);
+  }
+
+  /**
+   * Flushes the current segment's dirty pages to the storage device, unless nothing was
+   * appended since the last flush. Group commit syncs every stripe per batch, so idle stripes
+   * must not cost a system call each.
+   */
+  void force() {
+    long target = appended;
+    if (target == forced) {
+      return;
+    }
+    // Records in earlier segments were forced by roll() before the segment changed
+    MappedByteBuffer segment = this.segment;
+    if (segment != null) {
+      segment.force();
+    }
+    forced = target;
+  }
+
+  private int checksum(int offset) {
+    checksumView.clear()
+        .position(offset + JournalFormat.PAYLOAD_OFFSET)
+        .limit(offset + JournalFormat.RECORD_BYTES);
+    crc.reset();
+    crc.update(checksumView);
+    return (int) crc.getValue();
+  }
+
+  private MappedByteBuffer roll() {
+    force();
+    sequence++;
+    MappedByteBuffer next = createSegment(directory, sequence, segmentBytes);
+    checksumView = next.duplicate();
+    position = JournalFormat.HEADER_BYTES;
+    segment = next;
+    return next;
+  }
+
+  static MappedByteBuffer createSegment(Path directory, long sequence, long segmentBytes) {
+    Path file = directory.resolve(JournalFormat.segmentName(sequence));
+    try {
+      Files.createDirectories(directory);
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+          StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        mapped.putLong(0, JournalFormat.SEGMENT_MAGIC);
+        mapped.putInt(8, JournalFormat.VERSION);
+        mapped.putInt(12, JournalFormat.RECORD_BYTES);
+        return mapped;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to create journal segment " + file, e);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package com.checkout.payment.gateway.service;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One acquiring bank's endpoints, and what the {@link AcquirerRouter} has learned of it: a moving
+ * average of its latency, its failures, and the calls in flight to it, held in a
+ * {@link Bulkhead} so one acquirer cannot take every connection. All of it is updated without
+ * locks.
+ */
+public final class Acquirer {
+
+  private final String name;
+  private final URI url;
+  private final URI batchUrl;
+  // The average as raw double bits, so it can be updated by compare-and-set; 0 until sampled
+  final AtomicLong latencyBits = new AtomicLong(Double.doubleToRawLongBits(0));
+  private final Bulkhead bulkhead;
+  final AtomicInteger consecutiveFailures = new AtomicInteger();
+  // System.nanoTime() until which the acquirer is out of rotation; set by the router
+  final AtomicLong ejectedUntil = new AtomicLong();
+  final LongAdder ejections = new LongAdder();
+
+  public Acquirer(String name, URI url, URI batchUrl, int maxConcurrent) {
+    this.name = name;
+    this.url = url;
+    this.batchUrl = batchUrl;
+    this.bulkhead = new Bulkhead(name, maxConcurrent);
+  }
+
+  public String name() {
+    return name;
+  }
+
+  public URI url() {
+    return url;
+  }
+
+  public URI batchUrl() {
+    return batchUrl;
+  }
+
+  /**
+   * Moving average of the acquirer's answer times, in nanoseconds; 0 before its first answer.
+   */
+  public double latencyNanos() {
+    return Double.longBitsToDouble(latencyBits.get());
+  }
+
+  public int inFlight() {
+    return bulkhead.inUse();
+  }
+
+  public Bulkhead bulkhead() {
+    return bulkhead;
+  }
+
+  /**
+   * Times the acquirer has been taken out of rotation.
+   */
+  public long ejections() {
+    return ejections.sum();
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
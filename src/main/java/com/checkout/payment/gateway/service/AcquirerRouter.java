@@ -0,0 +1,208 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.configuration.BankClientProperties;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Spreads bank calls over several acquirers, favouring the ones answering fastest.
+ *
+ * <p>Each call goes to the cheaper of two acquirers chosen at random, the cost being the
+ * acquirer's average latency times one more than its calls in flight. Comparing two random
+ * acquirers rather than all of them keeps the choice cheap and stops every gateway thread from
+ * piling onto whichever acquirer looked best a moment ago. The average weighs each new answer by
+ * {@value #LATENCY_WEIGHT}, so it follows a change in an acquirer's speed within a few calls.
+ *
+ * <p>An acquirer that fails {@code ejectAfter} calls in a row is taken out of rotation for
+ * {@code ejectFor}. It then gets calls again; another failure before a success ejects it once
+ * more. An acquirer whose bulkhead is full is passed over too. If every acquirer is ejected or
+ * full, calls are routed as if none were, since there is nowhere better to send them.
+ *
+ * <p>Picking an acquirer takes no lock: it reads atomics only.
+ */
+public final class AcquirerRouter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AcquirerRouter.class);
+
+  /**
+   * Weight of the newest answer time in an acquirer's moving average.
+   */
+  static final double LATENCY_WEIGHT = 0.2;
+
+  private final Acquirer[] acquirers;
+  private final int ejectAfter;
+  private final long ejectNanos;
+  private final LongSupplier nanoTime;
+
+  public AcquirerRouter(List<Acquirer> acquirers, int ejectAfter, Duration ejectFor) {
+    this(acquirers, ejectAfter, ejectFor, System::nanoTime);
+  }
+
+  AcquirerRouter(List<Acquirer> acquirers, int ejectAfter, Duration ejectFor,
+      LongSupplier nanoTime) {
+    if (acquirers.isEmpty() || ejectAfter < 1 || ejectFor.isNegative()) {
+      throw new IllegalArgumentException("routing needs an acquirer, at least one failure "
+          + "before ejecting and a non-negative ejection time");
+    }
+    this.acquirers = acquirers.toArray(new Acquirer[0]);
+    this.ejectAfter = ejectAfter;
+    this.ejectNanos = ejectFor.toNanos();
+    this.nanoTime = nanoTime;
+    long now = nanoTime.getAsLong();
+    for (Acquirer acquirer : this.acquirers) {
+      acquirer.ejectedUntil.set(now);
+    }
+  }
+
+  /**
+   * Routes over the acquirers in {@code properties}. One without a name is named after its host,
+   * one without a batch URL takes batches at its URL plus {@code /batch}, and one without a
+   * concurrency cap takes {@code bulkheads.max-per-acquirer}.
+   */
+  public static AcquirerRouter from(BankClientProperties properties) {
+    List<Acquirer> acquirers = new ArrayList<>();
+    for (BankClientProperties.Acquirer acquirer : properties.acquirers()) {
+      URI url = acquirer.getUrl();
+      acquirers.add(new Acquirer(
+          acquirer.getName() != null ? acquirer.getName() : url.getAuthority(), url,
+          acquirer.getBatchUrl() != null ? acquirer.getBatchUrl() : URI.create(url + "/batch"),
+          acquirer.getMaxConcurrent() != null
+              ? acquirer.getMaxConcurrent() : properties.getBulkheads().getMaxPerAcquirer()));
+    }
+    BankClientProperties.Routing routing = properties.getRouting();
+    return new AcquirerRouter(acquirers, routing.getEjectAfter(), routing.getEjectFor());
+  }
+
+  public List<Acquirer> acquirers() {
+    return List.of(acquirers);
+  }
+
+  /**
+   * Picks the acquirer for a new call.
+   */
+  public Acquirer pick() {
+    return choose(null);
+  }
+
+  /**
+   * Picks another acquirer for a call {@code failed} did not answer.
+   *
+   * @return an acquirer in rotation other than {@code failed}, or null if there is none
+   */
+  public Acquirer failover(Acquirer failed) {
+    return choose(failed);
+  }
+
+  /**
+   * Counts a call about to be sent to {@code acquirer}, if its bulkhead has room. A started call
+   * must be followed by exactly one {@link #finished} or {@link #cancelled}.
+   *
+   * @return false if the acquirer already has as many calls in flight as it may
+   */
+  public boolean tryStart(Acquirer acquirer) {
+    return acquirer.bulkhead().tryAcquire();
+  }
+
+  /**
+   * Ends a call sent to {@code acquirer}.
+   *
+   * @param latencyNanos how long the acquirer took, to feed its average, or a negative number
+   *                     when the time says nothing of its speed
+   * @param failed       whether the acquirer failed to answer the call properly
+   */
+  public void finished(Acquirer acquirer, long latencyNanos, boolean failed) {
+    acquirer.bulkhead().release();
+    if (latencyNanos >= 0) {
+      long bits;
+      double updated;
+      do {
+        bits = acquirer.latencyBits.get();
+        double average = Double.longBitsToDouble(bits);
+        updated = average == 0
+            ? latencyNanos : average + LATENCY_WEIGHT * (latencyNanos - average);
+      } while (!acquirer.latencyBits.compareAndSet(bits, Double.doubleToRawLongBits(updated)));
+    }
+    if (!failed) {
+      acquirer.consecutiveFailures.set(0);
+      return;
+    }
+    int failures = acquirer.consecutiveFailures.incrementAndGet();
+    long now = nanoTime.getAsLong();
+    long until = acquirer.ejectedUntil.get();
+    // Of the calls failing together, only the one that moves the deadline ejects
+    if (failures >= ejectAfter && now - until >= 0
+        && acquirer.ejectedUntil.compareAndSet(until, now + ejectNanos)) {
+      acquirer.ejections.increment();
+      LOG.warn("Ejecting acquirer {} for {} ms after {} failures in a row", acquirer,
+          ejectNanos / 1_000_000, failures);
+    }
+  }
+
+  /**
+   * Ends a call sent to {@code acquirer} that was given up on, learning nothing from it.
+   */
+  public void cancelled(Acquirer acquirer) {
+    acquirer.bulkhead().release();
+  }
+
+  /**
+   * Whether {@code acquirer} is out of rotation now.
+   */
+  public boolean ejected(Acquirer acquirer) {
+    return nanoTime.getAsLong() - acquirer.ejectedUntil.get() < 0;
+  }
+
+  private Acquirer choose(Acquirer avoid) {
+    int count = acquirers.length;
+    if (count == 1) {
+      return avoid == null ? acquirers[0] : null;
+    }
+    long now = nanoTime.getAsLong();
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int first = random.nextInt(count);
+    int second = random.nextInt(count - 1);
+    if (second >= first) {
+      second++;
+    }
+    Acquirer a = acquirers[first];
+    Acquirer b = acquirers[second];
+    if (usable(a, avoid, now) && usable(b, avoid, now)) {
+      return cheaper(a, b);
+    }
+    // Some are out or full: compare the first two in rotation from a random starting point instead
+    Acquirer found = null;
+    for (int i = 0; i < count; i++) {
+      Acquirer candidate = acquirers[(first + i) % count];
+      if (usable(candidate, avoid, now)) {
+        if (found != null) {
+          return cheaper(found, candidate);
+        }
+        found = candidate;
+      }
+    }
+    if (found != null || avoid != null) {
+      return found;
+    }
+    return cheaper(a, b);
+  }
+
+  private static boolean usable(Acquirer acquirer, Acquirer avoid, long now) {
+    return acquirer != avoid && now - acquirer.ejectedUntil.get() >= 0
+        && !acquirer.bulkhead().full();
+  }
+
+  private static Acquirer cheaper(Acquirer a, Acquirer b) {
+    return cost(b) < cost(a) ? b : a;
+  }
+
+  // An acquirer not yet sampled costs only its calls in flight, so it is tried early
+  private static double cost(Acquirer acquirer) {
+    return (acquirer.latencyNanos() + 1) * (acquirer.inFlight() + 1);
+  }
+}
@@ -0,0 +1,37 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.configuration.BankClientProperties;
+import com.checkout.payment.gateway.configuration.BankHttpClients;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Opens bank connections once the application is ready, so the first payments do not pay for
+ * TCP handshakes. A bank that is down only costs a warning.
+ */
+@Component
+public class BankConnectionWarmer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BankConnectionWarmer.class);
+
+  private final CloseableHttpAsyncClient bankHttpClient;
+  private final BankClientProperties properties;
+
+  public BankConnectionWarmer(CloseableHttpAsyncClient bankHttpClient,
+      BankClientProperties properties) {
+    this.bankHttpClient = bankHttpClient;
+    this.properties = properties;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmUp() {
+    if (properties.getWarmUpConnections() > 0) {
+      int answered = BankHttpClients.warmUp(bankHttpClient, properties);
+      LOG.info("Warmed up bank connections with {} requests", answered);
+    }
+  }
+}
@@ -1,66 +1,907 @@
 package com.checkout.payment.gateway.service;
 
+import com.checkout.payment.gateway.configuration.BankClientProperties;
+import com.checkout.payment.gateway.enums.Currency;
 import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.BankUnavailableException;
+import com.checkout.payment.gateway.exception.DeadlineExceededException;
+import com.checkout.payment.gateway.model.BankBatchRequestItem;
+import com.checkout.payment.gateway.model.BankBatchResponseItem;
 import com.checkout.payment.gateway.model.BankSimulatorRequest;
 import com.checkout.payment.gateway.model.BankSimulatorResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpServerErrorException;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
+/**
+ * Calls the bank without blocking the caller.
+ *
+ * <p>{@link #callBank} hands the request to the non-blocking client and returns at once; no thread
+ * waits while the call is in flight. Futures are completed on a small callback pool rather than on
+ * the client's I/O threads, so the stages callers chain on them, storing the payment included,
+ * cannot stall the I/O of other bank calls. With virtual threads on, each completion gets a
+ * virtual thread instead, so stages that block do not queue behind each other. A call that finally
+ * fails is mapped to a decline.
+ *
+ * <p>Transport failures and 5xx answers are retried up to {@code maxAttempts} times in all, after
+ * an exponential backoff with jitter, as long as the {@link RetryBudget} allows. With hedging on,
+ * an attempt still unanswered after the recent latency percentile gets a second, identical call,
+ * and whichever answers first wins. Every attempt for one payment carries the same
+ * {@value #IDEMPOTENCY_KEY_HEADER}, so the bank can recognise retries and hedges as one payment
+ * and authorize it once.
+ *
+ * <p>With batching on, attempts are gathered by a {@link MicroBatcher} and sent to the bank's
+ * batch endpoint together, each with its own idempotency key; the answers are handed back to
+ * their attempts in order. A batch then counts as one call below.
+ *
+ * <p>A payment's first request goes to the acquirer the {@link AcquirerRouter} picks, and its
+ * retries and hedges follow it there, since an idempotency key only means something to the
+ * acquirer that saw it. An acquirer that answers 503, or cannot be connected to, has not
+ * authorized the payment, and is swapped at once for another, up to {@code maxFailovers} times per
+ * attempt, without waiting for a retry. One that timed out or failed mid-request may have, so the
+ * payment stays with it. So does a payment with another request still in flight.
+ *
+ * <p>Calls are fenced off from each other by {@link Bulkhead}s: one per currency around the whole
+ * call, retries included, and one per acquirer around each request to it. A currency whose calls
+ * are stuck on a slow bank path can then hold only its own share of the connections and limiter,
+ * and the other currencies keep theirs. A call its currency's bulkhead turns away fails at once
+ * with a {@link BankUnavailableException}; a full acquirer is passed over by the router.
+ *
+ * <p>Every attempt passes a {@link ConcurrencyLimiter} and a {@link CircuitBreaker} first.
+ * Transport failures and 5xx answers count against both, slow answers against the limiter only. A
+ * first attempt either of them turns away is never sent: its future fails at once with a
+ * {@link BankUnavailableException}, rather than waiting out the read timeout on a bank that is
+ * already struggling. A retry or hedge they turn away is simply not made.
+ *
+ * <p>Each call has a deadline: the caller's {@link Deadline}, less a reserve for storing the
+ * payment, or a default when there is none. The bank is told what is left of it in the
+ * {@value Deadline#HEADER} header. Once it passes, the call's future fails with a
+ * {@link DeadlineExceededException} and its requests still in flight are cancelled, freeing their
+ * connections, limiter and bulkhead places for callers still waiting; no retry or hedge is made
+ * that could not finish in time. Deadlines, per-request timeouts, backoffs and hedge delays are
+ * all timers on one shared {@link TimingWheel}, rather than a scheduled task each.
+ */
 @Service
-public class BankSimulatorClient {
+public class BankSimulatorClient implements AutoCloseable {
+
+  /**
+   * Header carrying the key shared by all attempts of one payment's bank call.
+   */
+  public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
 
   private static final Logger LOG = LoggerFactory.getLogger(BankSimulatorClient.class);
-  private static final String BANK_SIMULATOR_URL = "http://localhost:8080/payments";
 
-  private final RestTemplate restTemplate;
+  private final CloseableHttpAsyncClient httpClient;
+  private final ObjectMapper objectMapper;
+  private final ExecutorService callbacks;
+  private final ConcurrencyLimiter limiter;
+  private final CircuitBreaker breaker;
+  private final RetryBudget budget;
+  private final AcquirerRouter router;
+  private final int maxFailovers;
+  private final Map<Currency, Bulkhead> currencyBulkheads = new EnumMap<>(Currency.class);
+  private final int maxAttempts;
+  private final long initialBackoffNanos;
+  private final long maxBackoffNanos;
+  private final boolean hedging;
+  private final long hedgeMinDelayNanos;
+  private final LatencyWindow latencies;
+  private final LongAdder retries = new LongAdder();
+  private final LongAdder hedges = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+  private final LongAdder failovers = new LongAdder();
+  private final TimingWheel timers;
+  private final long defaultTimeoutNanos;
+  private final long maxTimeoutNanos;
+  private final long reserveNanos;
+  private final long readTimeoutNanos;
+  private final boolean adaptiveAttemptTimeout;
+  private final double attemptTimeoutMultiplier;
+  private final long minAttemptTimeoutNanos;
+  private final LatencyWindow attemptLatencies = new LatencyWindow(0.99);
+  private final LongAdder deadlinesExceeded = new LongAdder();
+  private final LongAdder attemptTimeouts = new LongAdder();
+  // Null unless calls are batched
+  private final MicroBatcher<BankCall, Outcome> batcher;
+
+  public BankSimulatorClient(CloseableHttpAsyncClient bankHttpClient, ObjectMapper objectMapper,
+      BankClientProperties properties, ConcurrencyLimiter bankConcurrencyLimiter,
+      CircuitBreaker bankCircuitBreaker, RetryBudget bankRetryBudget,
+      AcquirerRouter bankAcquirerRouter) {
+    BankClientProperties.Retry retry = properties.getRetry();
+    BankClientProperties.Hedge hedge = properties.getHedge();
+    if (retry.getMaxAttempts() < 1) {
+      throw new IllegalArgumentException("bank calls need at least one attempt");
+    }
+    this.httpClient = bankHttpClient;
+    this.objectMapper = objectMapper;
+    this.limiter = bankConcurrencyLimiter;
+    this.breaker = bankCircuitBreaker;
+    this.budget = bankRetryBudget;
+    this.router = bankAcquirerRouter;
+    this.maxFailovers = properties.getRouting().getMaxFailovers();
+    BankClientProperties.Bulkheads bulkheads = properties.getBulkheads();
+    for (Currency currency : Currency.values()) {
+      currencyBulkheads.put(currency, new Bulkhead(currency.getName(),
+          bulkheads.getCurrencies().getOrDefault(currency, bulkheads.getMaxPerCurrency())));
+    }
+    this.maxAttempts = retry.getMaxAttempts();
+    this.initialBackoffNanos = retry.getInitialBackoff().toNanos();
+    this.maxBackoffNanos = retry.getMaxBackoff().toNanos();
+    this.hedging = hedge.isEnabled();
+    this.hedgeMinDelayNanos = hedge.getMinDelay().toNanos();
+    this.latencies = new LatencyWindow(hedge.getPercentile());
+    BankClientProperties.Deadlines deadlines = properties.getDeadlines();
+    this.defaultTimeoutNanos = deadlines.getDefaultTimeout().toNanos();
+    this.maxTimeoutNanos = deadlines.getMaxTimeout().toNanos();
+    this.reserveNanos = deadlines.getReserve().toNanos();
+    this.readTimeoutNanos = properties.getReadTimeout().toNanos();
+    this.adaptiveAttemptTimeout = deadlines.isAdaptiveAttemptTimeout();
+    this.attemptTimeoutMultiplier = deadlines.getAttemptTimeoutMultiplier();
+    this.minAttemptTimeoutNanos = deadlines.getMinAttemptTimeout().toNanos();
+    this.timers = new TimingWheel(deadlines.getTick(), "bank-timers");
+    BankClientProperties.Batch batch = properties.getBatch();
+    this.batcher = batch.isEnabled()
+        ? new MicroBatcher<>(batch.getMaxSize(), batch.getMaxWait(), this::sendBatch,
+            "bank-batcher")
+        : null;
+    if (properties.isVirtualThreads()) {
+      // A stage that blocks, such as a store waiting for its journal sync, then holds no carrier
+      this.callbacks = Executors.newThreadPerTaskExecutor(
+          Thread.ofVirtual().name("bank-callback-", 1).factory());
+    } else {
+      int threads = properties.getCallbackThreads() > 0
+          ? properties.getCallbackThreads()
+          : Runtime.getRuntime().availableProcessors();
+      AtomicInteger created = new AtomicInteger();
+      this.callbacks = Executors.newFixedThreadPool(threads, runnable -> {
+        Thread thread = new Thread(runnable, "bank-callback-" + created.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
 
-  public BankSimulatorClient(RestTemplate restTemplate) {
-    this.restTemplate = restTemplate;
+  public CompletableFuture<PaymentStatus> callBank(BankSimulatorRequest request) {
+    return callBank(request, null);
   }
 
-  public PaymentStatus callBank(BankSimulatorRequest request) {
+  /**
+   * @param deadline when the caller stops waiting, or null for the default timeout
+   */
+  public CompletableFuture<PaymentStatus> callBank(BankSimulatorRequest request,
+      Deadline deadline) {
+    LOG.debug("Calling bank simulator with card ending in: {}", request.getCardNumber().substring(request.getCardNumber().length() - 1));
+
+    long timeout = Math.min(maxTimeoutNanos,
+        deadline == null ? defaultTimeoutNanos : deadline.remainingNanos() - reserveNanos);
+    if (timeout <= 0) {
+      deadlinesExceeded.increment();
+      return CompletableFuture.failedFuture(
+          new DeadlineExceededException("too little time left to call the bank"));
+    }
+    Bulkhead bulkhead = currencyBulkheads.get(request.getCurrency());
+    if (bulkhead != null && !bulkhead.tryAcquire()) {
+      return CompletableFuture.failedFuture(new BankUnavailableException("all "
+          + bulkhead.maxConcurrent() + " bank calls allowed for " + bulkhead.name()
+          + " are in flight"));
+    }
+    BankCall call;
     try {
-      LOG.debug("Calling bank simulator with card ending in: {}", request.getCardNumber().substring(request.getCardNumber().length() - 1));
+      // A batched call is encoded with the rest of its batch instead
+      call = new BankCall(request, UUID.randomUUID().toString(),
+          batcher == null ? objectMapper.writeValueAsBytes(request) : null,
+          System.nanoTime() + timeout);
+    } catch (JsonProcessingException e) {
+      LOG.error("Failed to encode bank simulator request", e);
+      if (bulkhead != null) {
+        bulkhead.release();
+      }
+      return CompletableFuture.completedFuture(PaymentStatus.DECLINED);
+    }
+    budget.recordCall();
+    CompletableFuture<PaymentStatus> status = new CompletableFuture<>();
+    Runnable exceeded = () -> {
+      if (status.completeExceptionally(new DeadlineExceededException("no bank answer within "
+          + TimeUnit.NANOSECONDS.toMillis(timeout) + " ms"))) {
+        deadlinesExceeded.increment();
+      }
+    };
+    TimingWheel.Timer expiry = timers.schedule(timeout, () -> {
+      call.expire();
+      callbacks.execute(exceeded);
+    });
+    // The bulkhead place is held until the call's requests are done, not just its caller
+    attempt(call, 1).whenComplete((outcome, failure) -> {
+      expiry.cancel();
+      if (bulkhead != null) {
+        bulkhead.release();
+      }
+      if (failure != null) {
+        status.completeExceptionally(failure);
+      } else if (outcome.shedReason != null && call.expired) {
+        exceeded.run();
+      } else if (outcome.shedReason != null) {
+        status.completeExceptionally(new BankUnavailableException(outcome.shedReason));
+      } else {
+        status.complete(outcome.status);
+      }
+    });
+    return status;
+  }
 
-      ResponseEntity<BankSimulatorResponse> response = restTemplate.postForEntity(
-          BANK_SIMULATOR_URL,
-          request,
-          BankSimulatorResponse.class
-      );
+  /**
+   * The bulkhead of each currency's bank calls.
+   */
+  public Map<Currency, Bulkhead> currencyBulkheads() {
+    return Collections.unmodifiableMap(currencyBulkheads);
+  }
 
-      if (response.getStatusCode() == HttpStatus.OK) {
-        BankSimulatorResponse body = response.getBody();
-        if (body != null) {
-          return body.isAuthorized() ? PaymentStatus.AUTHORIZED : PaymentStatus.DECLINED;
+  /**
+   * Retries made after a failed attempt.
+   */
+  public long retries() {
+    return retries.sum();
+  }
+
+  /**
+   * Second calls sent because an attempt was slower than the hedge delay.
+   */
+  public long hedges() {
+    return hedges.sum();
+  }
+
+  /**
+   * Batch requests sent, when calls are batched.
+   */
+  public long batches() {
+    return batches.sum();
+  }
+
+  /**
+   * Requests resent to another acquirer after one answered 503 or could not be connected to.
+   */
+  public long failovers() {
+    return failovers.sum();
+  }
+
+  /**
+   * Calls failed because their deadline passed before the bank answered.
+   */
+  public long deadlinesExceeded() {
+    return deadlinesExceeded.sum();
+  }
+
+  /**
+   * Requests given up on after the per-request timeout, short of the call's deadline.
+   */
+  public long attemptTimeouts() {
+    return attemptTimeouts.sum();
+  }
+
+  /**
+   * How long a request to the bank may take before it is given up on and retried.
+   */
+  public long attemptTimeoutMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(attemptTimeoutNanos());
+  }
+
+  @Override
+  public void close() {
+    if (batcher != null) {
+      batcher.close();
+    }
+    timers.close();
+    callbacks.shutdown();
+  }
+
+  private CompletableFuture<Outcome> attempt(BankCall call, int attempt) {
+    return hedged(call).thenCompose(outcome -> {
+      if (!outcome.retryable || attempt == maxAttempts) {
+        return CompletableFuture.completedFuture(outcome);
+      }
+      long backoff = backoff(attempt);
+      if (backoff >= call.remainingNanos()) {
+        LOG.info("Not retrying failed bank call that could not finish before its deadline");
+        return CompletableFuture.completedFuture(outcome);
+      }
+      if (!budget.tryAcquire()) {
+        LOG.info("Retry budget spent; not retrying failed bank call");
+        return CompletableFuture.completedFuture(outcome);
+      }
+      retries.increment();
+      return CompletableFuture.supplyAsync(() -> attempt(call, attempt + 1), after(backoff))
+          // A retry that is not let through leaves the failure it was retrying
+          .thenCompose(next -> next.thenApply(retried -> retried.shedReason != null
+              ? outcome : retried));
+    });
+  }
+
+  // Runs tasks on the callback pool once the delay has passed
+  private Executor after(long delayNanos) {
+    return task -> timers.schedule(delayNanos, () -> callbacks.execute(task));
+  }
+
+  // Half the capped exponential delay, plus up to as much again at random
+  private long backoff(int attempt) {
+    long capped = Math.min(maxBackoffNanos, initialBackoffNanos << Math.min(attempt - 1, 30));
+    return capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1);
+  }
+
+  private CompletableFuture<Outcome> hedged(BankCall call) {
+    CompletableFuture<Outcome> primary = send(call);
+    long delay = latencies.nanos();
+    if (!hedging || delay < 0 || primary.isDone()) {
+      return primary;
+    }
+    CompletableFuture<Outcome> result = new CompletableFuture<>();
+    AtomicInteger pending = new AtomicInteger(1);
+    AtomicReference<Outcome> failure = new AtomicReference<>();
+    // The first answer wins; failures only count once neither call can still answer
+    Consumer<Outcome> onDone = outcome -> {
+      boolean answered = !outcome.retryable && outcome.shedReason == null;
+      if (!answered && outcome.shedReason == null) {
+        failure.set(outcome);
+      }
+      if (pending.decrementAndGet() == 0 || answered) {
+        result.complete(answered || failure.get() == null ? outcome : failure.get());
+      }
+    };
+    after(Math.max(delay, hedgeMinDelayNanos)).execute(() -> {
+      if (result.isDone() || call.expired || !budget.tryAcquire()
+          || pending.getAndUpdate(calls -> calls == 0 ? 0 : calls + 1) == 0) {
+        return;
+      }
+      hedges.increment();
+      send(call).thenAccept(onDone);
+    });
+    primary.thenAccept(onDone);
+    return result;
+  }
+
+  private CompletableFuture<Outcome> send(BankCall call) {
+    if (call.expired) {
+      return CompletableFuture.completedFuture(Outcome.shed("deadline passed"));
+    }
+    if (batcher != null) {
+      return batcher.submit(call).exceptionally(e -> {
+        LOG.error("Bank batch failed", e);
+        return Outcome.answered(PaymentStatus.DECLINED);
+      });
+    }
+    return exchange(call, List.of(call), call.start(router),
+        acquirer -> SimpleRequestBuilder.post(acquirer.url())
+        .setHeader(IDEMPOTENCY_KEY_HEADER, call.idempotencyKey)
+        .setHeader(Deadline.HEADER, Long.toString(
+            Math.max(1, TimeUnit.NANOSECONDS.toMillis(call.remainingNanos()))))
+        .setBody(call.body, ContentType.APPLICATION_JSON)
+        .build(), response -> response.getCode() >= HttpStatus.SC_SERVER_ERROR
+        ? Outcome.failed(toStatus(response))
+        : Outcome.answered(toStatus(response)), outcome -> outcome);
+  }
+
+  // Calls go to the acquirers of their first requests, so a batch spanning several is split
+  private CompletableFuture<List<Outcome>> sendBatch(List<BankCall> calls) {
+    Map<Acquirer, List<Integer>> byAcquirer = new LinkedHashMap<>();
+    for (int i = 0; i < calls.size(); i++) {
+      byAcquirer.computeIfAbsent(calls.get(i).start(router), acquirer -> new ArrayList<>())
+          .add(i);
+    }
+    if (byAcquirer.size() == 1) {
+      return sendBatch(byAcquirer.keySet().iterator().next(), calls);
+    }
+    Outcome[] outcomes = new Outcome[calls.size()];
+    CompletableFuture<?>[] sent = new CompletableFuture<?>[byAcquirer.size()];
+    int next = 0;
+    for (Map.Entry<Acquirer, List<Integer>> group : byAcquirer.entrySet()) {
+      List<Integer> indices = group.getValue();
+      List<BankCall> routed = new ArrayList<>(indices.size());
+      for (int index : indices) {
+        routed.add(calls.get(index));
+      }
+      sent[next++] = sendBatch(group.getKey(), routed).thenAccept(answers -> {
+        for (int i = 0; i < answers.size(); i++) {
+          outcomes[indices.get(i)] = answers.get(i);
         }
-      } else if (response.getStatusCode() == HttpStatus.BAD_REQUEST) {
-        LOG.info("Bank simulator returned 400 Bad Request - invalid request format");
-        return PaymentStatus.DECLINED;
-      } else if (response.getStatusCode() == HttpStatus.SERVICE_UNAVAILABLE) {
-        LOG.info("Bank simulator returned 503 Service Unavailable");
-        return PaymentStatus.DECLINED;
+      });
+    }
+    return CompletableFuture.allOf(sent).thenApply(done -> Arrays.asList(outcomes));
+  }
+
+  private CompletableFuture<List<Outcome>> sendBatch(Acquirer to, List<BankCall> calls) {
+    batches.increment();
+    List<BankBatchRequestItem> items = new ArrayList<>(calls.size());
+    for (BankCall call : calls) {
+      items.add(new BankBatchRequestItem(call.idempotencyKey, call.request));
+    }
+    byte[] body;
+    try {
+      body = objectMapper.writeValueAsBytes(items);
+    } catch (JsonProcessingException e) {
+      LOG.error("Failed to encode bank batch request", e);
+      BankCall.endAll(calls, false);
+      return CompletableFuture.completedFuture(
+          Collections.nCopies(calls.size(), Outcome.answered(PaymentStatus.DECLINED)));
+    }
+    // A batch is not cancelled with one of its calls; the others may still be waiting for it
+    return exchange(null, calls, to, acquirer -> SimpleRequestBuilder.post(acquirer.batchUrl())
+        .setBody(body, ContentType.APPLICATION_JSON)
+        .build(), response -> toOutcomes(response, calls.size()),
+        outcome -> Collections.nCopies(calls.size(), outcome));
+  }
+
+  /**
+   * Sends one HTTP request for the {@code routed} calls, built by {@code request} for the acquirer
+   * it goes to, through the acquirer's bulkhead, the limiter and the breaker. The calls must have
+   * been started at {@code acquirer}. A request failed over to another acquirer is still one call
+   * to them. The answer is read by {@code read}; a request that is shed or fails without an answer
+   * is described by an outcome for {@code otherwise} to convert. Either runs on the callback pool,
+   * or at once when shed. The request is cancelled if the deadline of {@code call}, when there is
+   * one, passes first.
+   */
+  private <R> CompletableFuture<R> exchange(BankCall call, List<BankCall> routed,
+      Acquirer acquirer, Function<Acquirer, SimpleHttpRequest> request,
+      Function<SimpleHttpResponse, R> read, Function<Outcome, R> otherwise) {
+    if (!router.tryStart(acquirer)) {
+      BankCall.endAll(routed, false);
+      return CompletableFuture.completedFuture(otherwise.apply(Outcome.shed("all "
+          + acquirer.bulkhead().maxConcurrent() + " calls allowed to acquirer " + acquirer
+          + " are in flight")));
+    }
+    if (!limiter.tryAcquire()) {
+      router.cancelled(acquirer);
+      BankCall.endAll(routed, false);
+      return CompletableFuture.completedFuture(otherwise.apply(
+          Outcome.shed("concurrency limit of " + limiter.limit() + " reached")));
+    }
+    long permit = breaker.tryAcquire();
+    if (permit == CircuitBreaker.REFUSED) {
+      limiter.cancel();
+      router.cancelled(acquirer);
+      BankCall.endAll(routed, false);
+      return CompletableFuture.completedFuture(otherwise.apply(
+          Outcome.shed("circuit breaker is " + breaker.state())));
+    }
+    CompletableFuture<R> result = new CompletableFuture<>();
+    Exchange<R> exchange = new Exchange<>(call, routed, request, read, otherwise, permit, result);
+    if (call != null) {
+      call.exchanges.add(exchange);
+      result.whenComplete((answer, failure) -> call.exchanges.remove(exchange));
+      if (call.expired) {
+        // Missed by expire()
+        exchange.abandon();
       }
+    }
+    exchange.send(acquirer);
+    return result;
+  }
 
-      LOG.error("Unexpected response from bank simulator: {}", response.getStatusCode());
-      return PaymentStatus.DECLINED;
+  // The recent p99 times the multiplier when adaptive, within the configured bounds
+  private long attemptTimeoutNanos() {
+    long p99 = adaptiveAttemptTimeout ? attemptLatencies.nanos() : -1;
+    if (p99 < 0) {
+      return readTimeoutNanos;
+    }
+    return Math.max(minAttemptTimeoutNanos,
+        Math.min(readTimeoutNanos, (long) (p99 * attemptTimeoutMultiplier)));
+  }
 
-    } catch (HttpServerErrorException e) {
-      if (e.getStatusCode() == HttpStatus.SERVICE_UNAVAILABLE) {
-        LOG.info("Bank simulator returned 503 Service Unavailable");
-        return PaymentStatus.DECLINED;
+  /**
+   * One admitted request, sent to an acquirer and possibly failed over to others.
+   */
+  private final class Exchange<R> implements FutureCallback<SimpleHttpResponse> {
+
+    // Null for a batch
+    private final BankCall call;
+    // The calls the request carries, one unless it is a batch
+    private final List<BankCall> routed;
+    private final Function<Acquirer, SimpleHttpRequest> request;
+    private final Function<SimpleHttpResponse, R> read;
+    private final Function<Outcome, R> otherwise;
+    private final long permit;
+    private final CompletableFuture<R> result;
+    private final long started = System.nanoTime();
+    // Set before each send; the client hands them to the callback with the response
+    private Acquirer acquirer;
+    private long sentAt;
+    private int failedOver;
+    // Written on send and read by whichever thread ends the request
+    private volatile Future<SimpleHttpResponse> inFlight;
+    private volatile TimingWheel.Timer timeout;
+    private volatile boolean timedOut;
+    private volatile boolean abandoned;
+
+    Exchange(BankCall call, List<BankCall> routed, Function<Acquirer, SimpleHttpRequest> request,
+        Function<SimpleHttpResponse, R> read, Function<Outcome, R> otherwise, long permit,
+        CompletableFuture<R> result) {
+      this.call = call;
+      this.routed = routed;
+      this.request = request;
+      this.read = read;
+      this.otherwise = otherwise;
+      this.permit = permit;
+      this.result = result;
+    }
+
+    // The router must have started the call to the acquirer
+    void send(Acquirer to) {
+      acquirer = to;
+      sentAt = System.nanoTime();
+      timedOut = false;
+      // The client's own read timeout covers the rest
+      long limit = attemptTimeoutNanos();
+      timeout = limit < readTimeoutNanos && (call == null || limit < call.remainingNanos())
+          ? timers.schedule(limit, this::timeOut)
+          : null;
+      inFlight = httpClient.execute(request.apply(to), this);
+      if (abandoned || timedOut) {
+        inFlight.cancel(true);
+      }
+    }
+
+    // Called when the call's deadline passes, from the wheel's thread
+    void abandon() {
+      abandoned = true;
+      Future<SimpleHttpResponse> sent = inFlight;
+      if (sent != null) {
+        sent.cancel(true);
+      }
+    }
+
+    private void timeOut() {
+      timedOut = true;
+      Future<SimpleHttpResponse> sent = inFlight;
+      if (sent != null) {
+        sent.cancel(true);
+      }
+    }
+
+    private void ended() {
+      TimingWheel.Timer timer = timeout;
+      if (timer != null) {
+        timer.cancel();
+      }
+    }
+
+    @Override
+    public void completed(SimpleHttpResponse response) {
+      ended();
+      boolean failed = response.getCode() >= HttpStatus.SC_SERVER_ERROR;
+      long finished = System.nanoTime();
+      // A quick error says nothing of how fast the acquirer answers payments
+      router.finished(acquirer, failed ? -1 : finished - sentAt, failed);
+      // Only a 503 says the payment was not taken on
+      boolean unavailable = response.getCode() == HttpStatus.SC_SERVICE_UNAVAILABLE;
+      if (unavailable && failOver()) {
+        return;
+      }
+      finish(finished, failed);
+      if (!failed) {
+        latencies.record(finished - started);
+        attemptLatencies.record(finished - sentAt);
+      }
+      complete(failed && !unavailable, () -> read.apply(response));
+    }
+
+    @Override
+    public void failed(Exception e) {
+      ended();
+      LOG.error("Failed to call bank simulator at acquirer {}", acquirer, e);
+      long finished = System.nanoTime();
+      // Timing out is slow, and should make the acquirer look slow
+      router.finished(acquirer, finished - sentAt, true);
+      boolean sent = !neverSent(e);
+      if (!sent && failOver()) {
+        return;
+      }
+      finish(finished, true);
+      complete(sent, () -> otherwise.apply(Outcome.failed(PaymentStatus.DECLINED)));
+    }
+
+    @Override
+    public void cancelled() {
+      ended();
+      long finished = System.nanoTime();
+      if (abandoned) {
+        // The caller gave up; the bank may have been about to answer, so nothing is learnt
+        LOG.info("Bank call to acquirer {} abandoned at its deadline", acquirer);
+        router.cancelled(acquirer);
+        limiter.release(started, finished, false);
+        breaker.release(permit);
+        complete(true, () -> otherwise.apply(Outcome.shed("deadline passed")));
+        return;
+      }
+      if (timedOut) {
+        // The acquirer may have authorized the payment without answering in time, so the
+        // payment is not failed over, and its retries go back to the same acquirer
+        LOG.warn("Bank call to acquirer {} timed out", acquirer);
+        attemptTimeouts.increment();
+        router.finished(acquirer, finished - sentAt, true);
+        finish(finished, true);
+        complete(true, () -> otherwise.apply(Outcome.failed(PaymentStatus.DECLINED)));
+        return;
+      }
+      LOG.warn("Bank simulator call was cancelled");
+      router.cancelled(acquirer);
+      finish(finished, true);
+      complete(true, () -> otherwise.apply(Outcome.answered(PaymentStatus.DECLINED)));
+    }
+
+    // Ends the request for its calls before handing the result on, so a retry finds it ended
+    private void complete(boolean unsure, Supplier<R> value) {
+      callbacks.execute(() -> {
+        BankCall.endAll(routed, unsure);
+        result.complete(value.get());
+      });
+    }
+
+    // Only after an answer that the acquirer did not authorize the payments
+    private boolean failOver() {
+      if (failedOver >= maxFailovers || abandoned) {
+        return false;
+      }
+      Acquirer next = router.failover(acquirer);
+      if (next == null || !router.tryStart(next)) {
+        return false;
+      }
+      if (!BankCall.moveAll(routed, acquirer, next)) {
+        router.cancelled(next);
+        return false;
+      }
+      LOG.info("Failing over bank call from acquirer {} to {}", acquirer, next);
+      failedOver++;
+      failovers.increment();
+      send(next);
+      return true;
+    }
+
+    private void finish(long finished, boolean failed) {
+      limiter.release(started, finished, failed);
+      breaker.record(permit, failed);
+    }
+  }
+
+  // Failures before the request reached the acquirer, which therefore cannot have authorized it
+  private static boolean neverSent(Throwable failure) {
+    for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+      if (cause instanceof ConnectException || cause instanceof ConnectTimeoutException
+          || cause instanceof UnknownHostException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private List<Outcome> toOutcomes(SimpleHttpResponse response, int calls) {
+    if (response.getCode() != HttpStatus.SC_OK) {
+      LOG.warn("Bank simulator returned {} for a batch of {}", response.getCode(), calls);
+      return Collections.nCopies(calls, response.getCode() >= HttpStatus.SC_SERVER_ERROR
+          ? Outcome.failed(PaymentStatus.DECLINED)
+          : Outcome.answered(PaymentStatus.DECLINED));
+    }
+    BankBatchResponseItem[] answers;
+    try {
+      answers = objectMapper.readValue(response.getBodyBytes(), BankBatchResponseItem[].class);
+    } catch (IOException | IllegalArgumentException e) {
+      LOG.error("Unreadable batch response from bank simulator", e);
+      answers = null;
+    }
+    if (answers == null || answers.length != calls) {
+      LOG.error("Bank batch response does not answer each of its {} payments", calls);
+      return Collections.nCopies(calls, Outcome.answered(PaymentStatus.DECLINED));
+    }
+    List<Outcome> outcomes = new ArrayList<>(calls);
+    for (BankBatchResponseItem answer : answers) {
+      if (answer.getStatusCode() == HttpStatus.SC_OK) {
+        outcomes.add(Outcome.answered(
+            answer.isAuthorized() ? PaymentStatus.AUTHORIZED : PaymentStatus.DECLINED));
+      } else if (answer.getStatusCode() >= HttpStatus.SC_SERVER_ERROR) {
+        outcomes.add(Outcome.failed(PaymentStatus.DECLINED));
       } else {
-        LOG.warn("Bank simulator returned server error: {}", e.getStatusCode());
+        outcomes.add(Outcome.answered(PaymentStatus.DECLINED));
+      }
+    }
+    return outcomes;
+  }
+
+  private PaymentStatus toStatus(SimpleHttpResponse response) {
+    if (response.getCode() == HttpStatus.SC_OK) {
+      try {
+        BankSimulatorResponse body = objectMapper.readValue(response.getBodyBytes(),
+            BankSimulatorResponse.class);
+        if (body != null) {
+          return body.isAuthorized() ? PaymentStatus.AUTHORIZED : PaymentStatus.DECLINED;
+        }
+      } catch (IOException | IllegalArgumentException e) {
+        LOG.error("Unreadable response from bank simulator", e);
         return PaymentStatus.DECLINED;
       }
-    } catch (RestClientException e) {
-      LOG.error("Failed to call bank simulator", e);
+    } else if (response.getCode() == HttpStatus.SC_BAD_REQUEST) {
+      LOG.info("Bank simulator returned 400 Bad Request - invalid request format");
+      return PaymentStatus.DECLINED;
+    } else if (response.getCode() == HttpStatus.SC_SERVICE_UNAVAILABLE) {
+      LOG.info("Bank simulator returned 503 Service Unavailable");
+      return PaymentStatus.DECLINED;
+    } else if (response.getCode() >= HttpStatus.SC_SERVER_ERROR) {
+      LOG.warn("Bank simulator returned server error: {}", response.getCode());
       return PaymentStatus.DECLINED;
     }
+
+    LOG.error("Unexpected response from bank simulator: {}", response.getCode());
+    return PaymentStatus.DECLINED;
+  }
+
+  /**
+   * One payment's bank call, shared by all of its attempts.
+   */
+  private static final class BankCall {
+
+    final BankSimulatorRequest request;
+    final String idempotencyKey;
+    // Null when calls are batched
+    final byte[] body;
+    // On the System.nanoTime() clock
+    final long deadline;
+    // Requests of this call in flight, cancelled when the deadline passes
+    final Set<Exchange<?>> exchanges = ConcurrentHashMap.newKeySet();
+    final AtomicReference<Route> route = new AtomicReference<>(Route.UNROUTED);
+    volatile boolean expired;
+
+    BankCall(BankSimulatorRequest request, String idempotencyKey, byte[] body, long deadline) {
+      this.request = request;
+      this.idempotencyKey = idempotencyKey;
+      this.body = body;
+      this.deadline = deadline;
+    }
+
+    long remainingNanos() {
+      return deadline - System.nanoTime();
+    }
+
+    void expire() {
+      expired = true;
+      for (Exchange<?> exchange : exchanges) {
+        exchange.abandon();
+      }
+    }
+
+    /**
+     * Counts a request of the call about to be sent, to the acquirer that got its first, or to
+     * one {@code router} picks if this is the first.
+     */
+    Acquirer start(AcquirerRouter router) {
+      while (true) {
+        Route current = route.get();
+        Acquirer acquirer = current.acquirer != null ? current.acquirer : router.pick();
+        if (route.compareAndSet(current,
+            new Route(acquirer, current.sending + 1, current.unsure))) {
+          return acquirer;
+        }
+      }
+    }
+
+    /**
+     * Ends a request of the call, sent or not.
+     *
+     * @param unsure whether the acquirer may have authorized the payment without saying so
+     */
+    void end(boolean unsure) {
+      route.updateAndGet(current ->
+          new Route(current.acquirer, current.sending - 1, current.unsure || unsure));
+    }
+
+    /**
+     * Moves the call from {@code from} to {@code to}, if its only request in flight is the one
+     * being moved and no earlier request to {@code from} might have been authorized.
+     */
+    boolean move(Acquirer from, Acquirer to) {
+      Route current = route.get();
+      return current.acquirer == from && current.sending == 1 && !current.unsure
+          && route.compareAndSet(current, new Route(to, 1, false));
+    }
+
+    static void endAll(List<BankCall> calls, boolean unsure) {
+      for (BankCall call : calls) {
+        call.end(unsure);
+      }
+    }
+
+    // All or none; one left behind by a failed undo was taken up by a request started since
+    static boolean moveAll(List<BankCall> calls, Acquirer from, Acquirer to) {
+      for (int i = 0; i < calls.size(); i++) {
+        if (!calls.get(i).move(from, to)) {
+          for (int moved = 0; moved < i; moved++) {
+            calls.get(moved).move(to, from);
+          }
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Where a call's requests go, and how many are in flight. Replaced as a whole, so that no
+   * request can start at an acquirer a failover is moving the call away from.
+   */
+  private static final class Route {
+
+    static final Route UNROUTED = new Route(null, 0, false);
+
+    // Null until the first request is sent
+    final Acquirer acquirer;
+    final int sending;
+    // Set once a request to the acquirer ended without saying whether it authorized the payment
+    final boolean unsure;
+
+    Route(Acquirer acquirer, int sending, boolean unsure) {
+      this.acquirer = acquirer;
+      this.sending = sending;
+      this.unsure = unsure;
+    }
+  }
+
+  /**
+   * What one attempt came to: an answer, a failure worth retrying, or a call never sent.
+   */
+  private static final class Outcome {
+
+    final PaymentStatus status;
+    final boolean retryable;
+    final String shedReason;
+
+    private Outcome(PaymentStatus status, boolean retryable, String shedReason) {
+      this.status = status;
+      this.retryable = retryable;
+      this.shedReason = shedReason;
+    }
+
+    static Outcome answered(PaymentStatus status) {
+      return new Outcome(status, false, null);
+    }
+
+    static Outcome failed(PaymentStatus status) {
+      return new Outcome(status, true, null);
+    }
+
+    static Outcome shed(String reason) {
+      return new Outcome(PaymentStatus.DECLINED, false, reason);
+    }
   }
 }
@@ -0,0 +1,71 @@
+package com.checkout.payment.gateway.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps the bank calls in flight for one share of the traffic, such as a currency or an acquirer,
+ * so that share cannot take over capacity the others need. A call beyond the cap is turned away at
+ * once rather than queued. Lock-free.
+ */
+public final class Bulkhead {
+
+  private final String name;
+  private final int maxConcurrent;
+  private final AtomicInteger inUse = new AtomicInteger();
+  private final LongAdder rejected = new LongAdder();
+
+  public Bulkhead(String name, int maxConcurrent) {
+    if (maxConcurrent < 1) {
+      throw new IllegalArgumentException("bulkhead " + name + " must allow a call");
+    }
+    this.name = name;
+    this.maxConcurrent = maxConcurrent;
+  }
+
+  /**
+   * Admits a call if fewer than {@code maxConcurrent} are in flight. An admitted call must be
+   * followed by exactly one {@link #release}.
+   */
+  public boolean tryAcquire() {
+    int current;
+    do {
+      current = inUse.get();
+      if (current >= maxConcurrent) {
+        rejected.increment();
+        return false;
+      }
+    } while (!inUse.compareAndSet(current, current + 1));
+    return true;
+  }
+
+  public void release() {
+    inUse.decrementAndGet();
+  }
+
+  /**
+   * Whether a call would be turned away now.
+   */
+  public boolean full() {
+    return inUse.get() >= maxConcurrent;
+  }
+
+  public String name() {
+    return name;
+  }
+
+  public int maxConcurrent() {
+    return maxConcurrent;
+  }
+
+  public int inUse() {
+    return inUse.get();
+  }
+
+  /**
+   * Calls turned away because the bulkhead was full.
+   */
+  public long rejected() {
+    return rejected.sum();
+  }
+}
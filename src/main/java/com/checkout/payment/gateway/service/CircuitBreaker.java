@@ -0,0 +1,179 @@
+package com.checkout.payment.gateway.service;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stops calling the bank while most recent calls are failing, so callers get an answer at once
+ * instead of each waiting out the read timeout.
+ *
+ * <p>While {@link State#CLOSED} the outcomes of the last {@code windowSize} calls are kept. Once
+ * at least {@code minimumCalls} are known and the share of failures reaches
+ * {@code failureRateThreshold}, the breaker opens and refuses every call for
+ * {@code openDuration}. It then lets {@code halfOpenCalls} trial calls through: one failure opens
+ * it again, and all of them succeeding closes it with an empty window.
+ *
+ * <p>Each permit carries the generation it was issued in, which changes on every transition.
+ * Outcomes of calls admitted before the last transition are ignored, so a slow call from before
+ * the breaker opened can neither count as a trial nor skew the fresh window.
+ */
+public final class CircuitBreaker {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CircuitBreaker.class);
+
+  /**
+   * Returned by {@link #tryAcquire()} when the call is refused.
+   */
+  public static final long REFUSED = -1;
+
+  public enum State {
+    CLOSED, HALF_OPEN, OPEN
+  }
+
+  private final double failureRateThreshold;
+  private final int minimumCalls;
+  private final long openNanos;
+  private final int halfOpenCalls;
+  private final LongSupplier nanoTime;
+  // Guarded by this: ring of the last calls' outcomes while closed
+  private final boolean[] window;
+  // Guarded by this
+  private final Map<State, Long> transitions = new EnumMap<>(State.class);
+
+  // Guarded by this
+  private State state = State.CLOSED;
+  private long generation;
+  private int recorded;
+  private int next;
+  private int failures;
+  private long openedAt;
+  private int trialsIssued;
+  private int trialsSucceeded;
+  private long rejected;
+
+  public CircuitBreaker(double failureRateThreshold, int windowSize, int minimumCalls,
+      Duration openDuration, int halfOpenCalls) {
+    this(failureRateThreshold, windowSize, minimumCalls, openDuration, halfOpenCalls,
+        System::nanoTime);
+  }
+
+  CircuitBreaker(double failureRateThreshold, int windowSize, int minimumCalls,
+      Duration openDuration, int halfOpenCalls, LongSupplier nanoTime) {
+    if (failureRateThreshold <= 0 || failureRateThreshold > 1 || minimumCalls < 1
+        || minimumCalls > windowSize || openDuration.isNegative()
+        || openDuration.isZero() || halfOpenCalls < 1) {
+      throw new IllegalArgumentException("a circuit breaker needs a failure rate in (0, 1], "
+          + "1 <= minimum calls <= window size, a positive open duration and a trial call");
+    }
+    this.failureRateThreshold = failureRateThreshold;
+    this.window = new boolean[windowSize];
+    this.minimumCalls = minimumCalls;
+    this.openNanos = openDuration.toNanos();
+    this.halfOpenCalls = halfOpenCalls;
+    this.nanoTime = nanoTime;
+    for (State target : State.values()) {
+      transitions.put(target, 0L);
+    }
+  }
+
+  /**
+   * Asks to make a call.
+   *
+   * @return a permit to pass to {@link #record} or {@link #release}, or {@link #REFUSED}
+   */
+  public synchronized long tryAcquire() {
+    if (state == State.OPEN) {
+      if (nanoTime.getAsLong() - openedAt < openNanos) {
+        rejected++;
+        return REFUSED;
+      }
+      transition(State.HALF_OPEN);
+    }
+    if (state == State.HALF_OPEN) {
+      if (trialsIssued == halfOpenCalls) {
+        rejected++;
+        return REFUSED;
+      }
+      trialsIssued++;
+    }
+    return generation;
+  }
+
+  /**
+   * Records the outcome of a call made with {@code permit}.
+   */
+  public synchronized void record(long permit, boolean failed) {
+    if (permit != generation) {
+      return;
+    }
+    if (state == State.HALF_OPEN) {
+      if (failed) {
+        LOG.warn("Bank trial call failed; reopening the circuit breaker");
+        open();
+      } else if (++trialsSucceeded == halfOpenCalls) {
+        transition(State.CLOSED);
+      }
+      return;
+    }
+    if (recorded == window.length) {
+      failures -= window[next] ? 1 : 0;
+    } else {
+      recorded++;
+    }
+    window[next] = failed;
+    failures += failed ? 1 : 0;
+    next = (next + 1) % window.length;
+    if (recorded >= minimumCalls && failures >= failureRateThreshold * recorded) {
+      LOG.warn("Opening bank circuit breaker after {} failures in {} calls", failures, recorded);
+      open();
+    }
+  }
+
+  /**
+   * Gives back a permit whose call was never made.
+   */
+  public synchronized void release(long permit) {
+    if (permit == generation && state == State.HALF_OPEN) {
+      trialsIssued--;
+    }
+  }
+
+  public synchronized State state() {
+    return state;
+  }
+
+  /**
+   * Times the breaker has moved into {@code target}.
+   */
+  public synchronized long transitions(State target) {
+    return transitions.get(target);
+  }
+
+  /**
+   * Calls refused while open, or half open with every trial taken.
+   */
+  public synchronized long rejected() {
+    return rejected;
+  }
+
+  private void open() {
+    openedAt = nanoTime.getAsLong();
+    transition(State.OPEN);
+  }
+
+  private void transition(State target) {
+    LOG.info("Bank circuit breaker is now {}", target);
+    state = target;
+    generation++;
+    transitions.merge(target, 1L, Long::sum);
+    trialsIssued = 0;
+    trialsSucceeded = 0;
+    recorded = 0;
+    next = 0;
+    failures = 0;
+  }
+}
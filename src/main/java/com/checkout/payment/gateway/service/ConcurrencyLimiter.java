@@ -0,0 +1,99 @@
+package com.checkout.payment.gateway.service;
+
+import java.time.Duration;
+
+/**
+ * Caps the number of bank calls in flight at a limit that adapts to how the bank is coping,
+ * additive-increase/multiplicative-decrease style.
+ *
+ * <p>A call that fails, or takes longer than {@code latencyThreshold}, is a sign of overload and
+ * cuts the limit by {@code backoffRatio}. Calls already in flight when the limit was cut cannot
+ * cut it again, so a burst of timeouts from one slow period shrinks the limit once rather than
+ * once per call. A call answered in time grows the limit by {@code 1/limit}, about one per limit's
+ * worth of calls, but only while at least half the limit is in use; a lightly loaded gateway
+ * learns nothing about the bank's capacity and keeps its limit.
+ */
+public final class ConcurrencyLimiter {
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final long latencyThresholdNanos;
+  private final double backoffRatio;
+
+  // Guarded by this
+  private double limit;
+  private int inFlight;
+  private boolean decreased;
+  private long decreasedAt;
+  private long rejected;
+
+  public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+      Duration latencyThreshold, double backoffRatio) {
+    if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit
+        || latencyThreshold.isNegative() || latencyThreshold.isZero()
+        || backoffRatio <= 0 || backoffRatio >= 1) {
+      throw new IllegalArgumentException("concurrency limits need 1 <= min <= initial <= max, "
+          + "a positive latency threshold and a backoff ratio between 0 and 1");
+    }
+    this.limit = initialLimit;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.latencyThresholdNanos = latencyThreshold.toNanos();
+    this.backoffRatio = backoffRatio;
+  }
+
+  /**
+   * Admits a call if fewer than the current limit are in flight. An admitted call must be
+   * followed by exactly one {@link #release} or {@link #cancel}.
+   */
+  public synchronized boolean tryAcquire() {
+    if (inFlight >= (int) limit) {
+      rejected++;
+      return false;
+    }
+    inFlight++;
+    return true;
+  }
+
+  /**
+   * Ends an admitted call and adjusts the limit from its outcome.
+   *
+   * @param startedNanos  {@link System#nanoTime()} when the call was sent
+   * @param finishedNanos {@link System#nanoTime()} when it completed
+   * @param failed        whether the bank failed to answer the call properly
+   */
+  public synchronized void release(long startedNanos, long finishedNanos, boolean failed) {
+    inFlight--;
+    if (failed || finishedNanos - startedNanos > latencyThresholdNanos) {
+      if (!decreased || startedNanos - decreasedAt > 0) {
+        limit = Math.max(minLimit, limit * backoffRatio);
+        decreased = true;
+        decreasedAt = finishedNanos;
+      }
+    } else if ((inFlight + 1) * 2 >= limit) {
+      limit = Math.min(maxLimit, limit + 1 / limit);
+    }
+  }
+
+  /**
+   * Ends an admitted call that was never sent, leaving the limit as it is.
+   */
+  public synchronized void cancel() {
+    inFlight--;
+  }
+
+  public synchronized int limit() {
+    return (int) limit;
+  }
+
+  public synchronized int inFlight() {
+    return inFlight;
+  }
+
+  /**
+   * Calls turned away because the limit was reached.
+   */
+  public synchronized long rejected() {
+    return rejected;
+  }
+}
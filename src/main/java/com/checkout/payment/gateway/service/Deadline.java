@@ -0,0 +1,52 @@
+package com.checkout.payment.gateway.service;
+
+import java.time.Duration;
+
+/**
+ * The moment by which a client wants its answer, carried with a payment down to the bank call so
+ * that no work goes on for a caller who has stopped waiting.
+ *
+ * <p>Clients send it as the milliseconds they are prepared to wait, in {@value #HEADER}, rather
+ * than as a wall-clock time, so that the gateway's clock need not agree with theirs. The gateway
+ * sends the bank what is left of it in the same header.
+ */
+public final class Deadline {
+
+  /**
+   * Header carrying the milliseconds the caller will wait for the answer.
+   */
+  public static final String HEADER = "X-Request-Timeout-Ms";
+
+  // Longer timeouts are cut to this, nearly 150 years, so that dueAt less System.nanoTime()
+  // cannot overflow
+  private static final Duration MAX_TIMEOUT = Duration.ofNanos(Long.MAX_VALUE / 2);
+
+  // On the System.nanoTime() clock
+  private final long dueAt;
+
+  private Deadline(long dueAt) {
+    this.dueAt = dueAt;
+  }
+
+  /**
+   * A deadline {@code timeout} from now. A negative timeout has already passed, and one of more
+   * than about 150 years saturates there instead of overflowing.
+   */
+  public static Deadline after(Duration timeout) {
+    long nanos = timeout.isNegative()
+        ? 0
+        : timeout.compareTo(MAX_TIMEOUT) > 0 ? MAX_TIMEOUT.toNanos() : timeout.toNanos();
+    return new Deadline(System.nanoTime() + nanos);
+  }
+
+  /**
+   * What is left of the deadline, negative once it has passed.
+   */
+  public long remainingNanos() {
+    return dueAt - System.nanoTime();
+  }
+
+  public boolean expired() {
+    return remainingNanos() <= 0;
+  }
+}
@@ -0,0 +1,189 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.exception.IdempotencyKeyReusedException;
+import com.checkout.payment.gateway.exception.InvalidIdempotencyKeyException;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the payment made for each {@value #HEADER}, so that a client retrying a payment it
+ * got no answer for gets the first attempt's answer instead of a second bank authorization.
+ *
+ * <p>A key seen for the first time is claimed and the payment made. A duplicate arriving while
+ * that attempt is in flight is handed the same future, so it waits without holding a thread; one
+ * arriving later replays the stored answer at once. An attempt that fails, shed or past its
+ * deadline, frees its key, as no payment was stored and the client is expected to retry. A key
+ * sent again with a different payment is refused.
+ *
+ * <p>Keys live in a concurrent map for the lookup made on every {@code POST}. Once its payment is
+ * answered, a key also joins a queue in the order answers came, which is also the order they
+ * expire in. Each claim and each answer drops keys from the head of the queue that were answered
+ * longer ago than the time to live, or beyond {@code maxKeys}, the oldest first. A key in flight is
+ * not in the queue, so it is never dropped however full the table gets, and one whose attempt
+ * failed never joins it. Memory stays bounded by {@code maxKeys} answered entries of at most
+ * {@value #MAX_KEY_LENGTH} characters, plus those in flight, however many keys clients send.
+ */
+public final class IdempotencyTable {
+
+  /**
+   * Header carrying the client's key for a payment.
+   */
+  public static final String HEADER = "Idempotency-Key";
+
+  static final int MAX_KEY_LENGTH = 255;
+
+  private final int maxKeys;
+  private final long ttlNanos;
+  private final LongSupplier nanoTime;
+  private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+  // Answered entries, oldest first; holds entries gone from the map until they reach the head
+  private final Queue<Entry> answered = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger queued = new AtomicInteger();
+  // Only one caller at a time trims the queue; the others need not wait for it
+  private final AtomicBoolean evicting = new AtomicBoolean();
+  private final LongAdder replays = new LongAdder();
+  private final LongAdder conflicts = new LongAdder();
+
+  public IdempotencyTable(int maxKeys, Duration ttl) {
+    this(maxKeys, ttl, System::nanoTime);
+  }
+
+  IdempotencyTable(int maxKeys, Duration ttl, LongSupplier nanoTime) {
+    if (maxKeys < 1 || ttl.isNegative() || ttl.isZero()) {
+      throw new IllegalArgumentException("an idempotency table needs room and a positive ttl");
+    }
+    this.maxKeys = maxKeys;
+    this.ttlNanos = ttl.toNanos();
+    this.nanoTime = nanoTime;
+  }
+
+  /**
+   * The answer to the payment made for {@code key}, making it with {@code attempt} unless a payment
+   * is already in flight or made for the key.
+   *
+   * @param fingerprint digest of the payment requested, to tell a retry from a reused key
+   * @throws InvalidIdempotencyKeyException if the key is empty, too long or not printable ASCII
+   */
+  public CompletableFuture<PostPaymentResponse> claim(String key, byte[] fingerprint,
+      Supplier<CompletableFuture<PostPaymentResponse>> attempt) {
+    validate(key);
+    long now = nanoTime.getAsLong();
+    evict(now);
+    Entry entry = new Entry(key, fingerprint);
+    while (true) {
+      Entry existing = entries.putIfAbsent(key, entry);
+      if (existing == null) {
+        break;
+      }
+      if (existing.response.isDone() && now - existing.answeredAt >= ttlNanos) {
+        // Expired but not yet trimmed; the new claim takes its place
+        entries.remove(key, existing);
+        continue;
+      }
+      if (!MessageDigest.isEqual(existing.fingerprint, fingerprint)) {
+        conflicts.increment();
+        return CompletableFuture.failedFuture(new IdempotencyKeyReusedException(
+            "idempotency key reused for a different payment"));
+      }
+      replays.increment();
+      // A copy, so that no caller can complete the answer the others are waiting on
+      return existing.response.copy();
+    }
+    CompletableFuture<PostPaymentResponse> made;
+    try {
+      made = attempt.get();
+    } catch (RuntimeException e) {
+      made = CompletableFuture.failedFuture(e);
+    }
+    made.whenComplete((response, failure) -> {
+      if (failure != null) {
+        // Freed before the waiting duplicates hear of the failure, so that their retries run
+        entries.remove(key, entry);
+        entry.response.completeExceptionally(failure);
+        return;
+      }
+      long answeredAt = nanoTime.getAsLong();
+      entry.answeredAt = answeredAt;
+      entry.response.complete(response);
+      answered.add(entry);
+      queued.incrementAndGet();
+      evict(answeredAt);
+    });
+    return entry.response.copy();
+  }
+
+  /**
+   * Keys held, including those in flight, which may take the table past {@code maxKeys}.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Payments answered from the table rather than made again.
+   */
+  public long replays() {
+    return replays.sum();
+  }
+
+  /**
+   * Payments refused for reusing a key held for a different payment.
+   */
+  public long conflicts() {
+    return conflicts.sum();
+  }
+
+  private void evict(long now) {
+    if (!evicting.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      for (Entry head = answered.peek(); head != null
+          && (queued.get() > maxKeys || now - head.answeredAt >= ttlNanos);
+          head = answered.peek()) {
+        answered.poll();
+        queued.decrementAndGet();
+        entries.remove(head.key, head);
+      }
+    } finally {
+      evicting.set(false);
+    }
+  }
+
+  private static void validate(String key) {
+    if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+      throw new InvalidIdempotencyKeyException("idempotency key must be 1-" + MAX_KEY_LENGTH
+          + " characters");
+    }
+    for (int i = 0; i < key.length(); i++) {
+      char c = key.charAt(i);
+      if (c < 0x20 || c > 0x7e) {
+        throw new InvalidIdempotencyKeyException("idempotency key must be printable ASCII");
+      }
+    }
+  }
+
+  private static final class Entry {
+
+    private final String key;
+    private final byte[] fingerprint;
+    private final CompletableFuture<PostPaymentResponse> response = new CompletableFuture<>();
+    // Set before the response completes, so it is seen by whoever sees the response done
+    private volatile long answeredAt;
+
+    private Entry(String key, byte[] fingerprint) {
+      this.key = key;
+      this.fingerprint = fingerprint;
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package com.checkout.payment.gateway.service;
+
+import java.util.Arrays;
+
+/**
+ * A percentile of the latencies of the last {@value #SIZE} bank calls that were answered.
+ *
+ * <p>Samples go into a ring; the percentile is recomputed from a sorted copy once every
+ * {@value #RECOMPUTE_EVERY} samples, so reading it costs a volatile load rather than a sort.
+ */
+final class LatencyWindow {
+
+  static final int SIZE = 1024;
+  static final int RECOMPUTE_EVERY = 64;
+  // Fewer samples than this give no percentile worth acting on
+  static final int MIN_SAMPLES = 100;
+
+  private final double percentile;
+
+  // Guarded by this
+  private final long[] samples = new long[SIZE];
+  private long recorded;
+
+  private volatile long current = -1;
+
+  LatencyWindow(double percentile) {
+    if (percentile <= 0 || percentile >= 1) {
+      throw new IllegalArgumentException("percentile must be between 0 and 1");
+    }
+    this.percentile = percentile;
+  }
+
+  void record(long nanos) {
+    long[] sorted = null;
+    synchronized (this) {
+      samples[(int) (recorded++ % SIZE)] = nanos;
+      if (recorded >= MIN_SAMPLES && recorded % RECOMPUTE_EVERY == 0) {
+        sorted = Arrays.copyOf(samples, (int) Math.min(recorded, SIZE));
+      }
+    }
+    if (sorted != null) {
+      Arrays.sort(sorted);
+      current = sorted[(int) Math.min(sorted.length - 1, (long) (sorted.length * percentile))];
+    }
+  }
+
+  /**
+   * The percentile in nanoseconds, or -1 until enough calls have been answered.
+   */
+  long nanos() {
+    return current;
+  }
+}
@@ -0,0 +1,160 @@
+package com.checkout.payment.gateway.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Gathers items submitted concurrently into batches and hands each batch to a sender, which
+ * answers with one result per item in the same order.
+ *
+ * <p>A batch is sent as soon as it holds {@code maxSize} items, by the thread that added the last
+ * one, or {@code maxWait} after its first item arrived, by the batcher's own thread. An item
+ * therefore waits at most {@code maxWait} for company. A sender failure fails every item of the
+ * batch.
+ */
+final class MicroBatcher<T, R> implements AutoCloseable {
+
+  private final int maxSize;
+  private final long maxWaitNanos;
+  private final Function<List<T>, CompletableFuture<List<R>>> sender;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition pending = lock.newCondition();
+  private final Thread flusher;
+
+  // Guarded by lock
+  private List<T> items;
+  private List<CompletableFuture<R>> results;
+  private long firstAddedAt;
+  private long batch;
+  private boolean closed;
+
+  MicroBatcher(int maxSize, Duration maxWait, Function<List<T>, CompletableFuture<List<R>>> sender,
+      String threadName) {
+    if (maxSize < 1 || maxWait.isNegative()) {
+      throw new IllegalArgumentException(
+          "batching needs a positive batch size and a non-negative wait");
+    }
+    this.maxSize = maxSize;
+    this.maxWaitNanos = maxWait.toNanos();
+    this.sender = sender;
+    reset();
+    this.flusher = new Thread(this::run, threadName);
+    flusher.setDaemon(true);
+    flusher.start();
+  }
+
+  CompletableFuture<R> submit(T item) {
+    CompletableFuture<R> result = new CompletableFuture<>();
+    List<T> fullItems = null;
+    List<CompletableFuture<R>> fullResults = null;
+    lock.lock();
+    try {
+      if (closed) {
+        return CompletableFuture.failedFuture(new IllegalStateException("batcher is closed"));
+      }
+      if (items.isEmpty()) {
+        firstAddedAt = System.nanoTime();
+        pending.signal();
+      }
+      items.add(item);
+      results.add(result);
+      if (items.size() == maxSize) {
+        fullItems = items;
+        fullResults = results;
+        reset();
+      }
+    } finally {
+      lock.unlock();
+    }
+    if (fullItems != null) {
+      send(fullItems, fullResults);
+    }
+    return result;
+  }
+
+  /**
+   * Sends whatever is waiting and stops the batcher's thread.
+   */
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      closed = true;
+      pending.signal();
+    } finally {
+      lock.unlock();
+    }
+    try {
+      flusher.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void run() {
+    while (true) {
+      List<T> dueItems;
+      List<CompletableFuture<R>> dueResults;
+      lock.lock();
+      try {
+        while (items.isEmpty() && !closed) {
+          pending.awaitUninterruptibly();
+        }
+        if (items.isEmpty()) {
+          return;
+        }
+        long waitingFor = batch;
+        long deadline = firstAddedAt + maxWaitNanos;
+        long remaining;
+        while (!closed && batch == waitingFor && (remaining = deadline - System.nanoTime()) > 0) {
+          pending.awaitNanos(remaining);
+        }
+        if (batch != waitingFor) {
+          // Filled up and sent by a submitter meanwhile
+          continue;
+        }
+        dueItems = items;
+        dueResults = results;
+        reset();
+      } catch (InterruptedException e) {
+        continue;
+      } finally {
+        lock.unlock();
+      }
+      send(dueItems, dueResults);
+    }
+  }
+
+  private void reset() {
+    items = new ArrayList<>(maxSize);
+    results = new ArrayList<>(maxSize);
+    batch++;
+  }
+
+  private void send(List<T> batchItems, List<CompletableFuture<R>> batchResults) {
+    CompletableFuture<List<R>> sent;
+    try {
+      sent = sender.apply(batchItems);
+    } catch (RuntimeException e) {
+      sent = CompletableFuture.failedFuture(e);
+    }
+    sent.whenComplete((answers, failure) -> {
+      if (failure == null && answers.size() != batchResults.size()) {
+        failure = new IllegalStateException("batch of " + batchResults.size()
+            + " items got " + answers.size() + " results");
+      }
+      for (int i = 0; i < batchResults.size(); i++) {
+        if (failure != null) {
+          batchResults.get(i).completeExceptionally(failure);
+        } else {
+          batchResults.get(i).complete(answers.get(i));
+        }
+      }
+    });
+  }
+}
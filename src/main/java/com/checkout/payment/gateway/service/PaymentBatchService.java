@@ -0,0 +1,166 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.configuration.PaymentBatchProperties;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.InvalidBatchException;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.model.RejectedPaymentResponse;
+import com.checkout.payment.gateway.util.RejectionMessages;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Processes a batch of payments as {@link PaymentGatewayService#processPayment} processes each,
+ * reporting every payment's outcome as soon as it is known.
+ *
+ * <p>The whole batch is validated first, so rejections are reported before any bank call is
+ * made. The valid payments are then sent to the bank with at most {@code payments.batch.parallelism}
+ * calls in flight: each call that completes starts the next, on the thread that completed it, so no
+ * thread waits on the batch. Outcomes are therefore reported in completion order, not batch order.
+ */
+@Service
+public class PaymentBatchService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PaymentBatchService.class);
+
+  private final PaymentGatewayService paymentGatewayService;
+  private final PaymentBatchProperties properties;
+
+  public PaymentBatchService(PaymentGatewayService paymentGatewayService,
+      PaymentBatchProperties properties) {
+    if (properties.getParallelism() < 1) {
+      throw new IllegalArgumentException("payments.batch.parallelism must be at least 1");
+    }
+    this.paymentGatewayService = paymentGatewayService;
+    this.properties = properties;
+  }
+
+  /**
+   * Receives the outcome of each payment of a batch, from whichever thread produced it.
+   */
+  @FunctionalInterface
+  public interface Outcomes {
+
+    /**
+     * @param index    position of the payment in the batch
+     * @param response the payment's response, or null if it failed
+     * @param failure  why the payment failed, as {@code POST /payment} would have thrown it, or null
+     */
+    void completed(int index, PostPaymentResponse response, Throwable failure);
+  }
+
+  /**
+   * @param deadline when the client stops waiting for the whole batch, or null for the bank
+   *                 client's default per payment
+   * @return completes once every payment's outcome has been reported
+   */
+  public CompletableFuture<Void> processBatch(List<PostPaymentRequest> requests,
+      Deadline deadline, Outcomes outcomes) {
+    if (requests.isEmpty()) {
+      throw new InvalidBatchException("empty batch");
+    }
+    if (requests.size() > properties.getMaxSize()) {
+      throw new InvalidBatchException("batch larger than " + properties.getMaxSize()
+          + " payments");
+    }
+    LOG.info("Processing batch of {} payment requests", requests.size());
+
+    int[] valid = new int[requests.size()];
+    int count = 0;
+    for (int index = 0; index < requests.size(); index++) {
+      PostPaymentRequest request = requests.get(index);
+      RejectedPaymentResponse rejected = request == null
+          ? new RejectedPaymentResponse(PaymentStatus.REJECTED, RejectionMessages.MALFORMED_REQUEST)
+          : paymentGatewayService.validate(request);
+      if (rejected == null) {
+        valid[count++] = index;
+      } else {
+        report(outcomes, index, rejected, null);
+      }
+    }
+    FanOut fanOut = new FanOut(requests, Arrays.copyOf(valid, count), deadline, outcomes);
+    fanOut.start(Math.min(properties.getParallelism(), count));
+    return fanOut.done;
+  }
+
+  private static void report(Outcomes outcomes, int index, PostPaymentResponse response,
+      Throwable failure) {
+    if (failure instanceof CompletionException && failure.getCause() != null) {
+      failure = failure.getCause();
+    }
+    try {
+      outcomes.completed(index, response, failure);
+    } catch (RuntimeException e) {
+      // The payment is processed regardless; only its report is lost
+      LOG.warn("Batch outcome not reported for payment {}", index, e);
+    }
+  }
+
+  /**
+   * The valid payments of one batch, sent to the bank along a fixed number of lanes, each of
+   * which sends its next payment once its last has completed.
+   */
+  private final class FanOut {
+
+    private final List<PostPaymentRequest> requests;
+    private final int[] valid;
+    private final Deadline deadline;
+    private final Outcomes outcomes;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger lanes = new AtomicInteger();
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    FanOut(List<PostPaymentRequest> requests, int[] valid, Deadline deadline,
+        Outcomes outcomes) {
+      this.requests = requests;
+      this.valid = valid;
+      this.deadline = deadline;
+      this.outcomes = outcomes;
+    }
+
+    void start(int lanes) {
+      if (lanes == 0) {
+        done.complete(null);
+        return;
+      }
+      this.lanes.set(lanes);
+      for (int lane = 0; lane < lanes; lane++) {
+        lane();
+      }
+    }
+
+    // Payments that complete at once, such as those shed or past the deadline, are handled in a
+    // loop rather than by recursion, so that a long run of them cannot overflow the stack
+    private void lane() {
+      for (int n = next.getAndIncrement(); n < valid.length; n = next.getAndIncrement()) {
+        int index = valid[n];
+        CompletableFuture<PostPaymentResponse> payment;
+        try {
+          payment = paymentGatewayService.authorize(requests.get(index), deadline);
+        } catch (RuntimeException e) {
+          payment = CompletableFuture.failedFuture(e);
+        }
+        boolean pending = !payment.isDone();
+        payment.whenComplete((response, failure) -> {
+          report(outcomes, index, response, failure);
+          if (pending) {
+            lane();
+          }
+        });
+        if (pending) {
+          return;
+        }
+      }
+      if (lanes.decrementAndGet() == 0) {
+        done.complete(null);
+      }
+    }
+  }
+}
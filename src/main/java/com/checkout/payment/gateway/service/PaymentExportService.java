@@ -0,0 +1,69 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.model.PaymentPage;
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import com.checkout.payment.gateway.repository.PaymentQuery;
+import com.checkout.payment.gateway.repository.PaymentStore;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Writes stored payments as newline-delimited JSON, newest first.
+ *
+ * <p>Payments are read one listing page at a time and encoded by a single generator straight onto
+ * the output stream, which is flushed after every page. Memory use therefore stays at one page
+ * and one generator buffer however many payments are exported. Payments added after the export
+ * started are not included, since the listing walks backwards from the newest payment at the
+ * start.
+ */
+@Service
+public class PaymentExportService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PaymentExportService.class);
+
+  private final PaymentStore paymentStore;
+  private final ObjectWriter writer;
+
+  public PaymentExportService(PaymentStore paymentStore, ObjectMapper objectMapper) {
+    this.paymentStore = paymentStore;
+    // Flushing is per page, not per payment, so the response goes out in buffer-sized chunks
+    this.writer = objectMapper.writerFor(SuccessfulPaymentResponse.class)
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+  }
+
+  /**
+   * @param from inclusive lower bound on the creation time, or null
+   * @param to   exclusive upper bound on the creation time, or null
+   * @return number of payments written
+   */
+  public long export(Instant from, Instant to, OutputStream out) throws IOException {
+    long exported = 0;
+    try (JsonGenerator generator = writer.createGenerator(out)) {
+      // The caller owns the stream; lines are separated explicitly
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      generator.setRootValueSeparator(null);
+      String cursor = null;
+      do {
+        PaymentPage page = paymentStore.find(
+            new PaymentQuery(null, null, null, from, to, PaymentQuery.MAX_LIMIT, cursor));
+        for (SuccessfulPaymentResponse payment : page.getPayments()) {
+          writer.writeValue(generator, payment);
+          generator.writeRaw('\n');
+        }
+        generator.flush();
+        exported += page.getPayments().size();
+        cursor = page.getNextCursor();
+      } while (cursor != null);
+    }
+    LOG.info("Exported {} payments", exported);
+    return exported;
+  }
+}
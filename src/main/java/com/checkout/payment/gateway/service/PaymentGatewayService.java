@@ -1,19 +1,31 @@
 package com.checkout.payment.gateway.service;
 
+import com.checkout.payment.gateway.cluster.PaymentRouting;
 import com.checkout.payment.gateway.enums.Currency;
 import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.DeadlineExceededException;
 import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.exception.InvalidQueryException;
+import com.checkout.payment.gateway.metrics.PaymentStatistics;
 import com.checkout.payment.gateway.util.RejectionMessages;
 import com.checkout.payment.gateway.model.BankSimulatorRequest;
+import com.checkout.payment.gateway.model.PaymentPage;
+import com.checkout.payment.gateway.model.PaymentStatisticsResponse;
 import com.checkout.payment.gateway.model.PostPaymentRequest;
 import com.checkout.payment.gateway.model.PostPaymentResponse;
 import com.checkout.payment.gateway.model.RejectedPaymentResponse;
 import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
-import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.repository.PaymentQuery;
+import com.checkout.payment.gateway.repository.PaymentStore;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validator;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,49 +36,141 @@ public class PaymentGatewayService {
 
   private static final Logger LOG = LoggerFactory.getLogger(PaymentGatewayService.class);
 
-  private final PaymentsRepository paymentsRepository;
+  private final PaymentStore paymentStore;
   private final BankSimulatorClient bankSimulatorClient;
   private final Validator validator;
+  private final PaymentStatistics paymentStatistics;
+  private final PaymentRouting paymentRouting;
+  private final IdempotencyTable idempotencyTable;
 
-  public PaymentGatewayService(PaymentsRepository paymentsRepository, BankSimulatorClient bankSimulatorClient, Validator validator) {
-    this.paymentsRepository = paymentsRepository;
+  public PaymentGatewayService(PaymentStore paymentStore, BankSimulatorClient bankSimulatorClient, Validator validator,
+      PaymentStatistics paymentStatistics, PaymentRouting paymentRouting,
+      IdempotencyTable idempotencyTable) {
+    this.paymentStore = paymentStore;
     this.bankSimulatorClient = bankSimulatorClient;
     this.validator = validator;
+    this.paymentStatistics = paymentStatistics;
+    this.paymentRouting = paymentRouting;
+    this.idempotencyTable = idempotencyTable;
   }
 
-  public SuccessfulPaymentResponse getPaymentById(UUID id) {
-    SuccessfulPaymentResponse payment = paymentsRepository.get(id)
+  /**
+   * @param forwarded whether another cluster node forwarded the lookup here
+   */
+  public SuccessfulPaymentResponse getPaymentById(UUID id, boolean forwarded) {
+    SuccessfulPaymentResponse payment = paymentRouting.find(id, forwarded)
         .orElseThrow(() -> new EventProcessingException("invalid payment ID"));
 
     LOG.info("Payment retrieved for ID {}", id);
     return payment;
   }
 
-  public PostPaymentResponse processPayment(PostPaymentRequest paymentRequest) {
+  public PaymentPage listPayments(String status, String currency, String cardNumberLastFour,
+      Instant from, Instant to, int limit, String cursor) {
+    PaymentQuery query;
+    try {
+      query = new PaymentQuery(parseStatus(status), parseCurrency(currency), cardNumberLastFour,
+          from, to, limit, cursor);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidQueryException(e.getMessage());
+    }
+    PaymentPage page = paymentStore.find(query);
+
+    LOG.info("Listed {} payments", page.getPayments().size());
+    return page;
+  }
+
+  public PaymentStatisticsResponse getStatistics(int minutes) {
+    try {
+      return paymentStatistics.snapshot(minutes);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidQueryException(e.getMessage());
+    }
+  }
+
+  /**
+   * Validates the request and, if it is valid, sends it to the bank. The returned future
+   * completes once the bank has answered and the payment is stored; no thread waits meanwhile.
+   */
+  public CompletableFuture<PostPaymentResponse> processPayment(PostPaymentRequest paymentRequest) {
+    return processPayment(paymentRequest, null);
+  }
+
+  /**
+   * As {@link #processPayment(PostPaymentRequest)}, giving up with a
+   * {@link DeadlineExceededException} once {@code deadline} has passed without a bank answer.
+   *
+   * @param deadline when the client stops waiting, or null for the bank client's default
+   */
+  public CompletableFuture<PostPaymentResponse> processPayment(PostPaymentRequest paymentRequest,
+      Deadline deadline) {
+    return processPayment(paymentRequest, deadline, null);
+  }
+
+  /**
+   * As {@link #processPayment(PostPaymentRequest, Deadline)}, making the payment at most once for
+   * {@code idempotencyKey}: a request repeating the key gets the answer to the first, waiting for
+   * it if it is still in flight. Rejected requests are not remembered, so a corrected request may
+   * reuse the key.
+   *
+   * @param idempotencyKey the client's key for the payment, or null to make it regardless
+   */
+  public CompletableFuture<PostPaymentResponse> processPayment(PostPaymentRequest paymentRequest,
+      Deadline deadline, String idempotencyKey) {
     LOG.info("Processing payment request");
 
-    // Validate the request
+    RejectedPaymentResponse rejected = validate(paymentRequest);
+    if (rejected != null) {
+      return CompletableFuture.completedFuture(rejected);
+    }
+    if (idempotencyKey == null) {
+      return authorize(paymentRequest, deadline);
+    }
+    return idempotencyTable.claim(idempotencyKey, fingerprint(paymentRequest),
+        () -> authorize(paymentRequest, deadline));
+  }
+
+  /**
+   * The rejection of an invalid request, counted as such, or null if it is valid.
+   */
+  RejectedPaymentResponse validate(PostPaymentRequest paymentRequest) {
     Set<ConstraintViolation<PostPaymentRequest>> violations = validator.validate(paymentRequest);
     if (!violations.isEmpty()) {
       LOG.info("Payment validation failed for payment request: {}", violations);
-      return new RejectedPaymentResponse(PaymentStatus.REJECTED, generateRejectionReason(violations));
+      paymentStatistics.recordRejected(paymentRequest.getCurrency());
+      return new RejectedPaymentResponse(PaymentStatus.REJECTED,
+          generateRejectionReason(violations));
     }
-
-    // Validation passed, proceed with bank call
     LOG.info("Payment validation passed");
-    PaymentStatus bankStatus = sendBankRequest(paymentRequest);
+    return null;
+  }
 
-    // Create payment response
-    SuccessfulPaymentResponse response = createSuccessfulResponse(bankStatus, paymentRequest);
+  /**
+   * Sends a valid request to the bank and stores the payment it answers.
+   */
+  CompletableFuture<PostPaymentResponse> authorize(PostPaymentRequest paymentRequest,
+      Deadline deadline) {
+    if (deadline != null && deadline.expired()) {
+      return CompletableFuture.failedFuture(
+          new DeadlineExceededException("passed before the bank was called"));
+    }
+    // Once the bank has answered the payment is stored, however late, as the bank has acted on it
+    return sendBankRequest(paymentRequest, deadline).thenApply(bankStatus -> {
+      // Create payment response
+      SuccessfulPaymentResponse response = createSuccessfulResponse(bankStatus, paymentRequest);
 
-    // Store the payment
-    paymentsRepository.add(response);
+      // Store the payment
+      paymentStore.add(response);
+      paymentStatistics.recordProcessed(bankStatus, response.getCurrency(), response.getAmount(),
+          paymentRequest.getCardNumber());
 
-    LOG.info("Payment processed with status: {}", bankStatus);
-    return response;
+      LOG.info("Payment processed with status: {}", bankStatus);
+      return response;
+    });
   }
 
-  private PaymentStatus sendBankRequest(PostPaymentRequest request) {
+  private CompletableFuture<PaymentStatus> sendBankRequest(PostPaymentRequest request,
+      Deadline deadline) {
     final BankSimulatorRequest bankRequest = new BankSimulatorRequest(
         request.getCardNumber(),
         request.getExpiryDate(),
@@ -74,11 +178,11 @@ public class PaymentGatewayService {
         Integer.parseInt(request.getAmount()),
         request.getCvv()
     );
-    return bankSimulatorClient.callBank(bankRequest);
+    return bankSimulatorClient.callBank(bankRequest, deadline);
   }
 
   private SuccessfulPaymentResponse createSuccessfulResponse(PaymentStatus status, PostPaymentRequest request) {
-    UUID paymentId = UUID.randomUUID();
+    UUID paymentId = paymentRouting.newPaymentId();
     String lastFour = request.getCardNumber().substring(request.getCardNumber().length() - 4);
 
     return new SuccessfulPaymentResponse(
@@ -92,6 +196,46 @@ public class PaymentGatewayService {
     );
   }
 
+  // SHA-256 of the validated request's fields, leading zeros stripped from the amount. Unlike a
+  // 32-bit hash, no two payments share one, and the table holds no card details
+  static byte[] fingerprint(PostPaymentRequest request) {
+    String canonical = String.join("|", request.getCardNumber(),
+        request.getExpiryMonth().toString(), request.getExpiryYear().toString(),
+        request.getCurrency(), request.getAmount().replaceFirst("^0+(?=\\d)", ""),
+        request.getCvv());
+    try {
+      return MessageDigest.getInstance("SHA-256")
+          .digest(canonical.getBytes(StandardCharsets.UTF_8));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  // Accepts both the enum constant and the name used in responses, e.g. DECLINED or Declined
+  private static PaymentStatus parseStatus(String status) {
+    if (status == null) {
+      return null;
+    }
+    for (PaymentStatus candidate : PaymentStatus.values()) {
+      if (candidate.name().equalsIgnoreCase(status) || candidate.getName().equalsIgnoreCase(status)) {
+        return candidate;
+      }
+    }
+    throw new IllegalArgumentException("invalid status");
+  }
+
+  private static Currency parseCurrency(String currency) {
+    if (currency == null) {
+      return null;
+    }
+    for (Currency candidate : Currency.values()) {
+      if (candidate.name().equalsIgnoreCase(currency)) {
+        return candidate;
+      }
+    }
+    throw new IllegalArgumentException("invalid currency");
+  }
+
   String generateRejectionReason(Set<ConstraintViolation<PostPaymentRequest>> violations) {
     // Check for missing fields
     boolean hasMissing = violations.stream().anyMatch(v -> RejectionMessages.MALFORMED_REQUEST.equals(v.getMessage()));
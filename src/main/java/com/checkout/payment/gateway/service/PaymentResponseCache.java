@@ -0,0 +1,233 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.enums.Currency;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * The JSON body of {@code GET /payment/{id}} for recently read payments, serialized once and
+ * written as is on every later read.
+ *
+ * <p>A stored payment never changes, and eviction to the cold store does not remove it, so a
+ * cached body never goes stale and is never invalidated. For the same reason the payment's id and
+ * the version of the body format identify its bytes, and make its strong ETag. The version is a
+ * hash of a fixed sample payment as the writer serializes it, so any change to the JSON written
+ * changes every tag without anyone having to remember to. A conditional GET naming the tag is
+ * answered without serializing the payment, once it is known to exist. Bodies are cached on first
+ * read rather than when payments are added, so memory goes to payments that are read, not to
+ * every payment stored.
+ *
+ * <p>At most {@code maxEntries} bodies are held, the oldest cached dropped first, in a concurrent
+ * map with a queue in the order they were cached. With {@code maxEntries} of 0 nothing is cached
+ * and every read serializes the payment afresh.
+ */
+public final class PaymentResponseCache {
+
+  // Serialized at startup to version the body format; every field set
+  private static final SuccessfulPaymentResponse SAMPLE = new SuccessfulPaymentResponse(
+      new UUID(0, 1), PaymentStatus.AUTHORIZED, "0123", 1, 2030, Currency.GBP, 100,
+      Instant.EPOCH);
+
+  private final ObjectWriter writer;
+  private final String formatVersion;
+  private final int maxEntries;
+  private final ConcurrentHashMap<UUID, Cached> entries = new ConcurrentHashMap<>();
+  // Oldest first
+  private final Queue<UUID> cached = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger queued = new AtomicInteger();
+  // Only one caller at a time trims the queue; the others need not wait for it
+  private final AtomicBoolean evicting = new AtomicBoolean();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder revalidations = new LongAdder();
+
+  public PaymentResponseCache(ObjectMapper objectMapper, int maxEntries) {
+    if (maxEntries < 0) {
+      throw new IllegalArgumentException("a response cache cannot hold fewer than 0 entries");
+    }
+    this.writer = objectMapper.writerFor(SuccessfulPaymentResponse.class);
+    this.formatVersion = formatVersion(writer);
+    this.maxEntries = maxEntries;
+  }
+
+  /**
+   * The body of the payment {@code id}, looking the payment up with {@code lookup}, and
+   * serializing it, only if it is not cached.
+   *
+   * @throws RuntimeException whatever {@code lookup} throws for a payment not found
+   */
+  public Cached get(UUID id, Supplier<SuccessfulPaymentResponse> lookup) {
+    Cached entry = entries.get(id);
+    if (entry != null) {
+      hits.increment();
+      return entry;
+    }
+    misses.increment();
+    entry = serialize(lookup.get());
+    if (maxEntries == 0) {
+      return entry;
+    }
+    // A concurrent reader may have cached it first; both hold the same bytes
+    Cached existing = entries.putIfAbsent(id, entry);
+    if (existing != null) {
+      return existing;
+    }
+    cached.add(id);
+    queued.incrementAndGet();
+    evict();
+    return entry;
+  }
+
+  /**
+   * The strong ETag, quoted, of the body of payment {@code id}.
+   */
+  public String etag(UUID id) {
+    return "\"" + formatVersion + "-" + id + "\"";
+  }
+
+  /**
+   * Whether {@code ifNoneMatch}, a request's {@code If-None-Match} header, names the body of
+   * payment {@code id}, so that the copy the client holds is current. A tag naming the payment, or
+   * {@code *}, only matches a payment that exists: one whose body is cached, or else one that
+   * {@code lookup} finds. The payment is never serialized here.
+   *
+   * @param ifNoneMatch the header, or null if the request had none
+   * @throws RuntimeException whatever {@code lookup} throws for a payment not found
+   */
+  public boolean notModified(UUID id, String ifNoneMatch,
+      Supplier<SuccessfulPaymentResponse> lookup) {
+    if (ifNoneMatch == null || !names(id, ifNoneMatch)) {
+      return false;
+    }
+    if (!entries.containsKey(id)) {
+      lookup.get();
+    }
+    revalidations.increment();
+    return true;
+  }
+
+  private boolean names(UUID id, String ifNoneMatch) {
+    String etag = etag(id);
+    for (String tag : ifNoneMatch.split(",")) {
+      tag = tag.trim();
+      // If-None-Match compares weakly: a weak tag with the same value matches too
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+      if (tag.equals(etag) || tag.equals("*")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Reads answered from the cache.
+   */
+  public long hits() {
+    return hits.sum();
+  }
+
+  /**
+   * Reads that had to look the payment up and serialize it.
+   */
+  public long misses() {
+    return misses.sum();
+  }
+
+  /**
+   * Conditional reads answered as not modified, without serializing the payment.
+   */
+  public long revalidations() {
+    return revalidations.sum();
+  }
+
+  private Cached serialize(SuccessfulPaymentResponse payment) {
+    byte[] body;
+    try {
+      body = writer.writeValueAsBytes(payment);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Could not serialize payment " + payment.getId(), e);
+    }
+    return new Cached(body, etag(payment.getId()));
+  }
+
+  /**
+   * The first eight hex digits of the SHA-256 of the sample payment as {@code writer} serializes
+   * it.
+   */
+  private static String formatVersion(ObjectWriter writer) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(writer.writeValueAsBytes(SAMPLE));
+      return HexFormat.of().formatHex(digest, 0, 4);
+    } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+      throw new IllegalStateException("Could not version the payment body format", e);
+    }
+  }
+
+  private void evict() {
+    if (!evicting.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      while (queued.get() > maxEntries) {
+        UUID oldest = cached.poll();
+        if (oldest == null) {
+          break;
+        }
+        queued.decrementAndGet();
+        entries.remove(oldest);
+      }
+    } finally {
+      evicting.set(false);
+    }
+  }
+
+  /**
+   * A payment's response body and its ETag.
+   */
+  public static final class Cached {
+
+    private final byte[] body;
+    private final String etag;
+
+    private Cached(byte[] body, String etag) {
+      this.body = body;
+      this.etag = etag;
+    }
+
+    /**
+     * The JSON bytes, shared by every reader and not to be modified.
+     */
+    public byte[] body() {
+      return body;
+    }
+
+    /**
+     * Strong ETag, quoted, identifying the bytes; the same as
+     * {@link PaymentResponseCache#etag(UUID)}.
+     */
+    public String etag() {
+      return etag;
+    }
+  }
+}
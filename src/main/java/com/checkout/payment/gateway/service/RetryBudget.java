@@ -0,0 +1,92 @@
+package com.checkout.payment.gateway.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounds extra bank calls, retries and hedges, to a share of the calls made for payments, so
+ * that a failing bank sees at most that much more load than it would without them.
+ *
+ * <p>Calls and extra calls are counted in one-second buckets over the last {@link #SECONDS}
+ * seconds. An extra call is allowed while the extra calls in the window stay below
+ * {@code ratio} of the payment calls plus a floor of {@code minPerSecond} per second, which lets a
+ * quiet gateway still retry the odd blip.
+ */
+public final class RetryBudget {
+
+  static final int SECONDS = 10;
+
+  private final double ratio;
+  private final int minPerSecond;
+  private final LongSupplier nanoTime;
+
+  // Guarded by this
+  private final long[] calls = new long[SECONDS];
+  private final long[] extra = new long[SECONDS];
+  private long bucketSecond;
+  private long denied;
+
+  public RetryBudget(double ratio, int minPerSecond) {
+    this(ratio, minPerSecond, System::nanoTime);
+  }
+
+  RetryBudget(double ratio, int minPerSecond, LongSupplier nanoTime) {
+    if (ratio < 0 || minPerSecond < 0) {
+      throw new IllegalArgumentException("a retry budget needs a non-negative ratio and floor");
+    }
+    this.ratio = ratio;
+    this.minPerSecond = minPerSecond;
+    this.nanoTime = nanoTime;
+    this.bucketSecond = second();
+  }
+
+  /**
+   * Counts a first call for a payment, which earns {@code ratio} extra calls.
+   */
+  public synchronized void recordCall() {
+    calls[advance()]++;
+  }
+
+  /**
+   * Takes one extra call from the budget if there is room for it.
+   */
+  public synchronized boolean tryAcquire() {
+    int bucket = advance();
+    long totalCalls = 0;
+    long totalExtra = 0;
+    for (int i = 0; i < SECONDS; i++) {
+      totalCalls += calls[i];
+      totalExtra += extra[i];
+    }
+    if (totalExtra >= ratio * totalCalls + (long) minPerSecond * SECONDS) {
+      denied++;
+      return false;
+    }
+    extra[bucket]++;
+    return true;
+  }
+
+  /**
+   * Extra calls refused because the budget was spent.
+   */
+  public synchronized long denied() {
+    return denied;
+  }
+
+  // Clears the buckets of seconds that passed since the last call and returns the current one
+  private int advance() {
+    long now = second();
+    long stale = Math.min(now - bucketSecond, SECONDS);
+    for (long s = 1; s <= stale; s++) {
+      int bucket = (int) Math.floorMod(bucketSecond + s, (long) SECONDS);
+      calls[bucket] = 0;
+      extra[bucket] = 0;
+    }
+    bucketSecond = Math.max(bucketSecond, now);
+    return (int) Math.floorMod(bucketSecond, (long) SECONDS);
+  }
+
+  private long second() {
+    return TimeUnit.NANOSECONDS.toSeconds(nanoTime.getAsLong());
+  }
+}
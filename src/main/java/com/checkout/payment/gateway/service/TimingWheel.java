@@ -0,0 +1,252 @@
+package com.checkout.payment.gateway.service;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs tasks after a delay, for any number of timers at a small, constant cost each.
+ *
+ * <p>A hierarchical timing wheel: {@value #LEVELS} wheels of {@value #SLOTS} slots, the first
+ * turning one slot a tick and each of the others one slot per turn of the wheel below it. A timer
+ * is dropped into the slot of the coarsest wheel its delay needs, and moves down to finer wheels as
+ * its time draws near, so scheduling and cancelling cost the same however many timers are pending,
+ * where a delay queue pays a heap operation and a lock for each. Timers fire up to a tick late,
+ * never early; delays beyond the top wheel's reach are carried round it until they are due.
+ *
+ * <p>One thread turns the wheels and runs the due tasks, which must therefore be quick, handing
+ * any real work to an executor. Other threads only touch two lock-free queues, of new and of
+ * cancelled timers, which the thread drains each tick. While no timer is pending it sleeps.
+ */
+final class TimingWheel implements AutoCloseable {
+
+  static final int SLOTS = 64;
+  static final int LEVELS = 4;
+  private static final int SLOT_BITS = 6;
+  private static final int MASK = SLOTS - 1;
+
+  private static final Logger LOG = LoggerFactory.getLogger(TimingWheel.class);
+
+  private final long tickNanos;
+  private final long startedAt = System.nanoTime();
+  private final Slot[][] wheels = new Slot[LEVELS][SLOTS];
+  private final Queue<Timer> scheduled = new ConcurrentLinkedQueue<>();
+  private final Queue<Timer> cancelled = new ConcurrentLinkedQueue<>();
+  private final Thread thread;
+  private volatile boolean sleeping;
+  private volatile boolean closed;
+
+  // Only touched by the wheel's thread
+  private long tick;
+  private int pending;
+
+  TimingWheel(Duration tick, String threadName) {
+    if (tick.isNegative() || tick.isZero()) {
+      throw new IllegalArgumentException("a timing wheel needs a positive tick");
+    }
+    this.tickNanos = tick.toNanos();
+    for (Slot[] wheel : wheels) {
+      for (int slot = 0; slot < SLOTS; slot++) {
+        wheel[slot] = new Slot();
+      }
+    }
+    this.thread = new Thread(this::run, threadName);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Runs {@code task} on the wheel's thread once {@code delayNanos} have passed, unless the
+   * returned timer is cancelled first.
+   */
+  Timer schedule(long delayNanos, Runnable task) {
+    Timer timer = new Timer(this, System.nanoTime() + Math.max(0, delayNanos), task);
+    if (closed) {
+      // Nothing will ever turn the wheel again
+      timer.state = Timer.CANCELLED;
+      return timer;
+    }
+    scheduled.add(timer);
+    if (sleeping) {
+      LockSupport.unpark(thread);
+    }
+    return timer;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    LockSupport.unpark(thread);
+  }
+
+  private void run() {
+    while (!closed) {
+      long now = System.nanoTime();
+      long reached = (now - startedAt) / tickNanos;
+      if (pending == 0) {
+        // Turning empty wheels would do nothing but take time
+        tick = Math.max(tick, reached);
+      }
+      drain();
+      while (tick < reached) {
+        advance(++tick);
+      }
+      if (pending == 0) {
+        sleeping = true;
+        if (scheduled.isEmpty() && !closed) {
+          LockSupport.park(this);
+        }
+        sleeping = false;
+      } else {
+        LockSupport.parkNanos(this, startedAt + (tick + 1) * tickNanos - System.nanoTime());
+      }
+    }
+  }
+
+  private void drain() {
+    Timer timer;
+    while ((timer = cancelled.poll()) != null) {
+      if (timer.slot != null) {
+        timer.slot.remove(timer);
+        pending--;
+      }
+    }
+    while ((timer = scheduled.poll()) != null) {
+      if (timer.state != Timer.WAITING) {
+        continue;
+      }
+      // Rounded up, so that the timer cannot fire early
+      timer.tick = (timer.dueAt - startedAt + tickNanos - 1) / tickNanos;
+      if (timer.tick <= tick) {
+        expire(timer);
+      } else {
+        place(timer);
+        pending++;
+      }
+    }
+  }
+
+  // Moves the timers of every coarse slot that comes round on this tick down, then fires the
+  // timers of the finest wheel's slot
+  private void advance(long now) {
+    for (int level = LEVELS - 1; level > 0; level--) {
+      int shift = SLOT_BITS * level;
+      if ((now & ((1L << shift) - 1)) == 0) {
+        Slot slot = wheels[level][(int) ((now >>> shift) & MASK)];
+        for (Timer timer = slot.poll(); timer != null; timer = slot.poll()) {
+          place(timer);
+        }
+      }
+    }
+    Slot due = wheels[0][(int) (now & MASK)];
+    for (Timer timer = due.poll(); timer != null; timer = due.poll()) {
+      pending--;
+      expire(timer);
+    }
+  }
+
+  private void place(Timer timer) {
+    long delta = timer.tick - tick;
+    int level = 0;
+    while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+      level++;
+    }
+    // A timer beyond the top wheel waits in its last slot and is placed again from there
+    long at = Math.min(timer.tick, tick + (1L << (SLOT_BITS * LEVELS)) - 1);
+    wheels[level][(int) ((at >>> (SLOT_BITS * level)) & MASK)].add(timer);
+  }
+
+  private void expire(Timer timer) {
+    if (!Timer.STATE.compareAndSet(timer, Timer.WAITING, Timer.EXPIRED)) {
+      return;
+    }
+    try {
+      timer.task.run();
+    } catch (RuntimeException e) {
+      LOG.error("Timer task failed", e);
+    }
+  }
+
+  /**
+   * A scheduled task, which may be cancelled until it runs.
+   */
+  static final class Timer {
+
+    private static final int WAITING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+    private static final AtomicIntegerFieldUpdater<Timer> STATE =
+        AtomicIntegerFieldUpdater.newUpdater(Timer.class, "state");
+
+    private final TimingWheel wheel;
+    private final long dueAt;
+    private final Runnable task;
+    private volatile int state;
+    // Only touched by the wheel's thread
+    private long tick;
+    private Slot slot;
+    private Timer previous;
+    private Timer next;
+
+    private Timer(TimingWheel wheel, long dueAt, Runnable task) {
+      this.wheel = wheel;
+      this.dueAt = dueAt;
+      this.task = task;
+    }
+
+    /**
+     * Stops the task from running, unless it already has; true if this call stopped it.
+     */
+    boolean cancel() {
+      if (!STATE.compareAndSet(this, WAITING, CANCELLED)) {
+        return false;
+      }
+      wheel.cancelled.add(this);
+      return true;
+    }
+  }
+
+  /**
+   * The timers of one slot, linked so that any of them can be taken out at once.
+   */
+  private static final class Slot {
+
+    private Timer head;
+
+    void add(Timer timer) {
+      timer.slot = this;
+      timer.previous = null;
+      timer.next = head;
+      if (head != null) {
+        head.previous = timer;
+      }
+      head = timer;
+    }
+
+    Timer poll() {
+      Timer timer = head;
+      if (timer != null) {
+        remove(timer);
+      }
+      return timer;
+    }
+
+    void remove(Timer timer) {
+      if (timer.previous == null) {
+        head = timer.next;
+      } else {
+        timer.previous.next = timer.next;
+      }
+      if (timer.next != null) {
+        timer.next.previous = timer.previous;
+      }
+      timer.slot = null;
+      timer.previous = null;
+      timer.next = null;
+    }
+  }
+}
@@ -0,0 +1,206 @@
+package com.checkout.payment.gateway.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.PaymentGatewayApplication;
+import com.checkout.payment.gateway.enums.Currency;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import com.checkout.payment.gateway.repository.PaymentStore;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Runs several gateway instances in cluster mode on loopback ports.
+ */
+class ClusterLoopbackTest {
+
+  private final HttpClient client = HttpClient.newHttpClient();
+  private final List<ConfigurableApplicationContext> running = new ArrayList<>();
+
+  @AfterEach
+  void stopNodes() {
+    running.forEach(ConfigurableApplicationContext::close);
+  }
+
+  @Test
+  void whenPaymentIsStoredOnItsOwnerThenEveryNodeReturnsIt() throws Exception {
+    // Given
+    List<String> members = freeUrls(3);
+    List<ConfigurableApplicationContext> nodes = startAll(members, members);
+    List<UUID> payments = new ArrayList<>();
+    for (ConfigurableApplicationContext node : nodes) {
+      payments.add(storeOn(node));
+    }
+
+    // When / Then
+    for (String member : members) {
+      for (UUID id : payments) {
+        HttpResponse<String> response = get(member, id, false);
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains(id.toString()));
+      }
+    }
+  }
+
+  @Test
+  void whenNodeJoinsThenEarlierPaymentsStayReadableAndNewOnesAreServedEverywhere()
+      throws Exception {
+    // Given
+    List<String> urls = freeUrls(4);
+    List<String> before = urls.subList(0, 3);
+    List<ConfigurableApplicationContext> nodes = new ArrayList<>(startAll(before, before));
+    List<UUID> earlier = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      earlier.add(storeOn(nodes.get(i % nodes.size())));
+    }
+
+    // When
+    nodes.add(start(urls.get(3), urls));
+    for (ConfigurableApplicationContext node : nodes.subList(0, before.size())) {
+      assertEquals(200, updateMembers(node, urls).statusCode());
+    }
+    UUID joined = storeOn(nodes.get(3));
+
+    // Then
+    for (String member : urls) {
+      for (UUID id : earlier) {
+        assertEquals(200, get(member, id, false).statusCode());
+      }
+      assertEquals(200, get(member, joined, false).statusCode());
+    }
+  }
+
+  @Test
+  void whenMembershipIsChangedOnThePaymentsPortThenItIsRefused() throws Exception {
+    // Given
+    List<String> members = freeUrls(2);
+    List<ConfigurableApplicationContext> nodes = startAll(members, members);
+
+    // When
+    HttpResponse<String> response = client.send(HttpRequest.newBuilder(
+            URI.create(members.get(0) + "/cluster/nodes"))
+        .header("Content-Type", "application/json")
+        .PUT(HttpRequest.BodyPublishers.ofString(json(List.of("http://169.254.169.254"))))
+        .build(), HttpResponse.BodyHandlers.ofString());
+
+    // Then
+    assertTrue(response.statusCode() >= 400);
+    assertEquals(members, nodes.get(0).getBean(ClusterPaymentRouting.class).members());
+  }
+
+  @Test
+  void whenForwardedLookupMissesLocallyThenItIsNotForwardedAgain() throws Exception {
+    // Given
+    List<String> members = freeUrls(2);
+    List<ConfigurableApplicationContext> nodes = startAll(members, members);
+    UUID id = storeOn(nodes.get(1));
+
+    // When
+    HttpResponse<String> forwarded = get(members.get(0), id, true);
+
+    // Then
+    assertEquals(404, forwarded.statusCode());
+    assertEquals(200, get(members.get(0), id, false).statusCode());
+  }
+
+  @Test
+  void whenOwnerIsDownThenLookupIsServiceUnavailable() throws Exception {
+    // Given
+    List<String> members = freeUrls(2);
+    List<ConfigurableApplicationContext> nodes = startAll(members, members);
+    UUID id = storeOn(nodes.get(1));
+    nodes.get(1).close();
+
+    // When
+    HttpResponse<String> response = get(members.get(0), id, false);
+
+    // Then
+    assertEquals(503, response.statusCode());
+  }
+
+  private List<ConfigurableApplicationContext> startAll(List<String> urls, List<String> members) {
+    List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+    for (String url : urls) {
+      nodes.add(start(url, members));
+    }
+    return nodes;
+  }
+
+  private ConfigurableApplicationContext start(String url, List<String> members) {
+    // Command line arguments, so they override application.properties
+    ConfigurableApplicationContext context = new SpringApplicationBuilder(
+        PaymentGatewayApplication.class).run(
+        "--server.address=127.0.0.1",
+        "--server.port=" + URI.create(url).getPort(),
+        "--management.server.address=127.0.0.1",
+        "--management.server.port=0",
+        "--payments.cluster.enabled=true",
+        "--payments.cluster.self=" + url,
+        "--payments.cluster.nodes=" + String.join(",", members));
+    running.add(context);
+    return context;
+  }
+
+  /**
+   * Stores a payment on the node the way processing a payment request there would.
+   */
+  private static UUID storeOn(ConfigurableApplicationContext node) {
+    UUID id = node.getBean(PaymentRouting.class).newPaymentId();
+    node.getBean(PaymentStore.class).add(new SuccessfulPaymentResponse(id,
+        PaymentStatus.AUTHORIZED, "4242", 12, 2030, Currency.GBP, 1000));
+    return id;
+  }
+
+  /**
+   * Changes the node's members through the cluster endpoint on its management port.
+   */
+  private HttpResponse<String> updateMembers(ConfigurableApplicationContext node,
+      List<String> members) throws Exception {
+    String management = "http://127.0.0.1:"
+        + node.getEnvironment().getProperty("local.management.port");
+    return client.send(HttpRequest.newBuilder(URI.create(management + "/actuator/cluster"))
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString("{\"nodes\":" + json(members) + "}"))
+        .build(), HttpResponse.BodyHandlers.ofString());
+  }
+
+  private HttpResponse<String> get(String node, UUID id, boolean forwarded) throws Exception {
+    HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(node + "/payment/" + id));
+    if (forwarded) {
+      request.header(PaymentRouting.FORWARDED_HEADER, "true");
+    }
+    return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+  }
+
+  private static List<String> freeUrls(int count) throws IOException {
+    // All held open together so that no port is handed out twice
+    List<ServerSocket> sockets = new ArrayList<>();
+    try {
+      for (int i = 0; i < count; i++) {
+        sockets.add(new ServerSocket(0));
+      }
+      return sockets.stream().map(socket -> "http://127.0.0.1:" + socket.getLocalPort()).toList();
+    } finally {
+      for (ServerSocket socket : sockets) {
+        socket.close();
+      }
+    }
+  }
+
+  private static String json(List<String> urls) {
+    return "[\"" + String.join("\",\"", urls) + "\"]";
+  }
+}
@@ -0,0 +1,80 @@
+package com.checkout.payment.gateway.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class ClusterMembershipTest {
+
+  private static final String A = "http://127.0.0.1:9001";
+  private static final String B = "http://127.0.0.1:9002";
+  private static final String C = "http://127.0.0.1:9003";
+
+  @Test
+  void whenIdIsGeneratedThenThisNodeOwnsIt() {
+    // Given
+    ClusterMembership membership = new ClusterMembership(B + "/", List.of(A, B, C), 64, 8);
+
+    // When / Then
+    for (int i = 0; i < 1_000; i++) {
+      assertEquals(B, membership.current().owner(membership.newLocalId()));
+    }
+  }
+
+  @Test
+  void whenMembershipChangesThenCurrentOwnerComesFirstAndPreviousOwnerFollows() {
+    // Given
+    ClusterMembership membership = new ClusterMembership(A, List.of(A, B), 64, 8);
+    UUID id = idOwnedBy(membership, B);
+
+    // When
+    membership.update(List.of(A, C));
+
+    // Then
+    List<String> owners = List.copyOf(membership.owners(id));
+    assertEquals(List.of(A, C), membership.current().nodes());
+    assertEquals(membership.current().owner(id), owners.get(0));
+    assertEquals(B, owners.get(owners.size() - 1));
+  }
+
+  @Test
+  void whenEarlierMembershipReturnsThenItBecomesCurrentAgain() {
+    // Given
+    ClusterMembership membership = new ClusterMembership(A, List.of(A, B), 64, 8);
+    UUID id = idOwnedBy(membership, B);
+    membership.update(List.of(A, C));
+
+    // When
+    membership.update(List.of(B, A));
+
+    // Then
+    assertEquals(List.of(A, B), membership.current().nodes());
+    assertEquals(B, membership.owners(id).iterator().next());
+  }
+
+  @Test
+  void whenMoreMembershipsThanMaxRingsAreSeenThenTheOldestIsForgotten() {
+    // Given
+    ClusterMembership membership = new ClusterMembership(A, List.of(A, B), 64, 2);
+    UUID id = idOwnedBy(membership, B);
+    membership.update(List.of(A, C));
+
+    // When
+    membership.update(List.of(A));
+
+    // Then
+    assertEquals(List.of(A), membership.current().nodes());
+    assertFalse(membership.owners(id).contains(B));
+  }
+
+  private static UUID idOwnedBy(ClusterMembership membership, String node) {
+    UUID id = UUID.randomUUID();
+    while (!membership.current().owner(id).equals(node)) {
+      id = UUID.randomUUID();
+    }
+    return id;
+  }
+}
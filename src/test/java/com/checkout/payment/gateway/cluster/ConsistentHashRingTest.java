@@ -0,0 +1,69 @@
+package com.checkout.payment.gateway.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class ConsistentHashRingTest {
+
+  private static final List<String> NODES = List.of("http://127.0.0.1:9001",
+      "http://127.0.0.1:9002", "http://127.0.0.1:9003", "http://127.0.0.1:9004");
+  private static final int IDS = 100_000;
+
+  @Test
+  void whenIdsAreSpreadOverVirtualNodesThenEachNodeOwnsAboutItsShare() {
+    // Given
+    ConsistentHashRing ring = new ConsistentHashRing(NODES, 128);
+    SplittableRandom random = new SplittableRandom(1);
+    Map<String, Integer> owned = new HashMap<>();
+
+    // When
+    for (int i = 0; i < IDS; i++) {
+      owned.merge(ring.owner(new UUID(random.nextLong(), random.nextLong())), 1, Integer::sum);
+    }
+
+    // Then
+    assertEquals(NODES.size(), owned.size());
+    for (int count : owned.values()) {
+      assertTrue(Math.abs(count - IDS / NODES.size()) < IDS / NODES.size() * 0.2,
+          "owned " + count);
+    }
+  }
+
+  @Test
+  void whenNodeIsAddedThenOnlyIdsMovingToItChangeOwner() {
+    // Given
+    ConsistentHashRing before = new ConsistentHashRing(NODES, 128);
+    String added = "http://127.0.0.1:9005";
+    ConsistentHashRing after = new ConsistentHashRing(
+        List.of(NODES.get(3), added, NODES.get(0), NODES.get(2), NODES.get(1)), 128);
+    SplittableRandom random = new SplittableRandom(2);
+    int moved = 0;
+
+    // When
+    for (int i = 0; i < IDS; i++) {
+      UUID id = new UUID(random.nextLong(), random.nextLong());
+      String owner = after.owner(id);
+      if (!owner.equals(before.owner(id))) {
+        assertEquals(added, owner);
+        moved++;
+      }
+    }
+
+    // Then
+    assertTrue(Math.abs(moved - IDS / 5) < IDS / 5 * 0.2, "moved " + moved);
+  }
+
+  @Test
+  void whenRingHasNoNodesThenRejected() {
+    assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(List.of(), 128));
+    assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(NODES, 0));
+  }
+}
@@ -0,0 +1,98 @@
+package com.checkout.payment.gateway.configuration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.sun.net.httpserver.HttpServer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.pool.PoolStats;
+import org.junit.jupiter.api.Test;
+
+class BankHttpClientsTest {
+
+  private final BankClientProperties properties = new BankClientProperties();
+
+  @Test
+  void whenBankIsUpThenWarmUpLeavesConnectionsIdleInThePool() throws Exception {
+    // Given
+    HttpServer bank = HttpServer.create(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 16);
+    // Hold every answer until all warm-up requests have arrived, so none can share a connection
+    CountDownLatch arrived = new CountDownLatch(4);
+    bank.createContext("/payments", exchange -> {
+      arrived.countDown();
+      try {
+        arrived.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      exchange.sendResponseHeaders(405, -1);
+      exchange.close();
+    });
+    bank.setExecutor(Executors.newCachedThreadPool());
+    bank.start();
+    configure(bank.getAddress().getPort(), 4);
+    try (PoolingAsyncClientConnectionManager manager =
+            BankHttpClients.connectionManager(properties);
+        CloseableHttpAsyncClient client = BankHttpClients.httpClient(manager, properties)) {
+
+      // When
+      int answered = BankHttpClients.warmUp(client, properties);
+
+      // Then
+      PoolStats stats = manager.getTotalStats();
+      assertEquals(4, answered);
+      assertEquals(4, stats.getAvailable());
+      assertEquals(0, stats.getLeased());
+    } finally {
+      bank.stop(0);
+    }
+  }
+
+  @Test
+  void whenBankIsDownThenWarmUpOpensNothingAndLeasesNothing() throws Exception {
+    // Given
+    int port;
+    try (ServerSocket closed = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      port = closed.getLocalPort();
+    }
+    configure(port, 4);
+    try (PoolingAsyncClientConnectionManager manager =
+            BankHttpClients.connectionManager(properties);
+        CloseableHttpAsyncClient client = BankHttpClients.httpClient(manager, properties)) {
+
+      // When
+      int answered = BankHttpClients.warmUp(client, properties);
+
+      // Then
+      assertEquals(0, answered);
+      assertEquals(0, manager.getTotalStats().getLeased());
+      assertEquals(0, manager.getTotalStats().getAvailable());
+    }
+  }
+
+  @Test
+  void whenHttp2IsForcedOverPlainHttpThenTheConnectionManagerIsRefused() {
+    // Given
+    configure(8080, 0);
+    properties.setHttpVersion(HttpVersionPolicy.FORCE_HTTP_2);
+
+    // When / Then
+    assertThrows(IllegalStateException.class,
+        () -> BankHttpClients.connectionManager(properties));
+  }
+
+  private void configure(int port, int warmUpConnections) {
+    properties.setUrl(URI.create("http://127.0.0.1:" + port + "/payments"));
+    properties.setWarmUpConnections(warmUpConnections);
+  }
+}
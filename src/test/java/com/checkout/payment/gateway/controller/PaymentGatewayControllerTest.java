@@ -1,7 +1,11 @@
 package com.checkout.payment.gateway.controller;
 
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.hamcrest.Matchers.containsString;
 
@@ -9,8 +13,13 @@ import com.checkout.payment.gateway.enums.Currency;
 import com.checkout.payment.gateway.enums.PaymentStatus;
 import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
 import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.service.Deadline;
+import com.checkout.payment.gateway.service.IdempotencyTable;
+import com.checkout.payment.gateway.service.PaymentResponseCache;
 import com.checkout.payment.gateway.util.RejectionMessages;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Instant;
 import java.util.UUID;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,6 +28,8 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 @SpringBootTest
@@ -31,6 +42,8 @@ class PaymentGatewayControllerTest {
   PaymentsRepository paymentsRepository;
   @Autowired
   ObjectMapper objectMapper;
+  @Autowired
+  PaymentResponseCache paymentResponseCache;
 
   // Endpoint: POST /payment
   // Authorized
@@ -47,9 +60,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson))
+    postPayment(requestJson)
         .andExpect(status().isOk())
         .andExpect(jsonPath("$.id").exists())
         .andExpect(jsonPath("$.status").value(PaymentStatus.AUTHORIZED.getName()))
@@ -74,9 +85,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson))
+    postPayment(requestJson)
         .andExpect(status().isOk())
         .andExpect(jsonPath("$.id").exists())
         .andExpect(jsonPath("$.status").value(PaymentStatus.DECLINED.getName()))
@@ -100,9 +109,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson))
+    postPayment(requestJson)
         .andExpect(status().isOk())
         .andExpect(jsonPath("$.id").exists())
         .andExpect(jsonPath("$.status").value(PaymentStatus.DECLINED.getName()))
@@ -124,9 +131,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson))
+    postPayment(requestJson)
         .andExpect(status().isBadRequest())
         .andExpect(jsonPath("$.id").doesNotExist())
         .andExpect(jsonPath("$.status").value(PaymentStatus.REJECTED.getName()))
@@ -146,9 +151,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson))
+    postPayment(requestJson)
         .andExpect(status().isUnprocessableEntity())
         .andExpect(jsonPath("$.id").doesNotExist())
         .andExpect(jsonPath("$.status").value(PaymentStatus.REJECTED.getName()))
@@ -168,9 +171,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson))
+    postPayment(requestJson)
         .andExpect(status().isUnprocessableEntity())
         .andExpect(jsonPath("$.id").doesNotExist())
         .andExpect(jsonPath("$.status").value(PaymentStatus.REJECTED.getName()))
@@ -189,9 +190,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson))
+    postPayment(requestJson)
         .andExpect(status().isBadRequest())
         .andExpect(jsonPath("$.id").doesNotExist())
         .andExpect(jsonPath("$.status").value(PaymentStatus.REJECTED.getName()))
@@ -211,9 +210,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson))
+    postPayment(requestJson)
         .andExpect(status().isUnprocessableEntity())
         .andExpect(jsonPath("$.id").doesNotExist())
         .andExpect(jsonPath("$.status").value(PaymentStatus.REJECTED.getName()))
@@ -233,9 +230,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson))
+    postPayment(requestJson)
         .andExpect(status().isUnprocessableEntity())
         .andExpect(jsonPath("$.id").doesNotExist())
         .andExpect(jsonPath("$.status").value(PaymentStatus.REJECTED.getName()))
@@ -255,9 +250,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson))
+    postPayment(requestJson)
         .andExpect(status().isUnprocessableEntity())
         .andExpect(jsonPath("$.id").doesNotExist())
         .andExpect(jsonPath("$.status").value(PaymentStatus.REJECTED.getName()))
@@ -276,9 +269,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson))
+    postPayment(requestJson)
         .andExpect(status().isBadRequest())
         .andExpect(jsonPath("$.id").doesNotExist())
         .andExpect(jsonPath("$.status").value(PaymentStatus.REJECTED.getName()))
@@ -298,9 +289,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson))
+    postPayment(requestJson)
         .andExpect(status().isUnprocessableEntity())
         .andExpect(jsonPath("$.id").doesNotExist())
         .andExpect(jsonPath("$.status").value(PaymentStatus.REJECTED.getName()))
@@ -320,9 +309,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson))
+    postPayment(requestJson)
         .andExpect(status().isUnprocessableEntity())
         .andExpect(jsonPath("$.id").doesNotExist())
         .andExpect(jsonPath("$.status").value(PaymentStatus.REJECTED.getName()))
@@ -341,9 +328,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson))
+    postPayment(requestJson)
         .andExpect(status().isBadRequest())
         .andExpect(jsonPath("$.id").doesNotExist())
         .andExpect(jsonPath("$.status").value(PaymentStatus.REJECTED.getName()))
@@ -362,9 +347,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson))
+    postPayment(requestJson)
         .andExpect(status().isBadRequest())
         .andExpect(jsonPath("$.id").doesNotExist())
         .andExpect(jsonPath("$.status").value(PaymentStatus.REJECTED.getName()))
@@ -384,9 +367,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson))
+    postPayment(requestJson)
         .andExpect(status().isUnprocessableEntity())
         .andExpect(jsonPath("$.id").doesNotExist())
         .andExpect(jsonPath("$.status").value(PaymentStatus.REJECTED.getName()))
@@ -406,9 +387,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson))
+    postPayment(requestJson)
         .andExpect(status().isUnprocessableEntity())
         .andExpect(jsonPath("$.id").doesNotExist())
         .andExpect(jsonPath("$.status").value(PaymentStatus.REJECTED.getName()))
@@ -428,9 +407,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson))
+    postPayment(requestJson)
         .andExpect(status().isUnprocessableEntity())
         .andExpect(jsonPath("$.id").doesNotExist())
         .andExpect(jsonPath("$.status").value(PaymentStatus.REJECTED.getName()))
@@ -449,9 +426,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson))
+    postPayment(requestJson)
         .andExpect(status().isBadRequest())
         .andExpect(jsonPath("$.id").doesNotExist())
         .andExpect(jsonPath("$.status").value(PaymentStatus.REJECTED.getName()))
@@ -471,9 +446,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson))
+    postPayment(requestJson)
         .andExpect(status().isUnprocessableEntity())
         .andExpect(jsonPath("$.id").doesNotExist())
         .andExpect(jsonPath("$.status").value(PaymentStatus.REJECTED.getName()))
@@ -493,9 +466,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson))
+    postPayment(requestJson)
         .andExpect(status().isUnprocessableEntity())
         .andExpect(jsonPath("$.id").doesNotExist())
         .andExpect(jsonPath("$.status").value(PaymentStatus.REJECTED.getName()))
@@ -515,9 +486,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson))
+    postPayment(requestJson)
         .andExpect(status().isUnprocessableEntity())
         .andExpect(jsonPath("$.id").doesNotExist())
         .andExpect(jsonPath("$.status").value(PaymentStatus.REJECTED.getName()))
@@ -536,9 +505,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson))
+    postPayment(requestJson)
         .andExpect(status().isBadRequest())
         .andExpect(jsonPath("$.id").doesNotExist())
         .andExpect(jsonPath("$.status").value(PaymentStatus.REJECTED.getName()))
@@ -558,9 +525,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson))
+    postPayment(requestJson)
         .andExpect(status().isUnprocessableEntity())
         .andExpect(jsonPath("$.id").doesNotExist())
         .andExpect(jsonPath("$.status").value(PaymentStatus.REJECTED.getName()))
@@ -594,6 +559,62 @@ class PaymentGatewayControllerTest {
         .andExpect(jsonPath("$.amount").value(payment.getAmount()));
   }
 
+  @Test
+  void whenPaymentIsReadThenItCarriesAnEtagAndLongLivedCacheControl() throws Exception {
+    SuccessfulPaymentResponse payment = new SuccessfulPaymentResponse(UUID.randomUUID(),
+        PaymentStatus.AUTHORIZED, "4321", 12, 2030, Currency.USD, 10);
+    paymentsRepository.add(payment);
+
+    String etag = mvc.perform(MockMvcRequestBuilders.get("/payment/" + payment.getId()))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Cache-Control", containsString("max-age=")))
+        .andExpect(header().string("Cache-Control", containsString("private")))
+        .andExpect(header().string("Cache-Control", containsString("immutable")))
+        .andReturn().getResponse().getHeader("ETag");
+
+    mvc.perform(MockMvcRequestBuilders.get("/payment/" + payment.getId()))
+        .andExpect(status().isOk())
+        .andExpect(header().string("ETag", etag));
+  }
+
+  @Test
+  void whenPaymentIsReadWithMatchingEtagThen304IsReturnedWithoutBody() throws Exception {
+    SuccessfulPaymentResponse payment = new SuccessfulPaymentResponse(UUID.randomUUID(),
+        PaymentStatus.AUTHORIZED, "4321", 12, 2030, Currency.USD, 10);
+    paymentsRepository.add(payment);
+    // Not read yet, so its body is not cached; the tag is what an earlier read, here or on
+    // another node, would have sent
+    String etag = paymentResponseCache.etag(payment.getId());
+    long misses = paymentResponseCache.misses();
+    long hits = paymentResponseCache.hits();
+
+    mvc.perform(MockMvcRequestBuilders.get("/payment/" + payment.getId())
+            .header("If-None-Match", etag))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string("ETag", etag))
+        .andExpect(header().string("Cache-Control", containsString("immutable")))
+        .andExpect(content().string(""));
+
+    assertEquals(misses, paymentResponseCache.misses());
+    assertEquals(hits, paymentResponseCache.hits());
+    mvc.perform(MockMvcRequestBuilders.get("/payment/" + payment.getId()))
+        .andExpect(status().isOk())
+        .andExpect(header().string("ETag", etag));
+  }
+
+  @Test
+  void whenIfNoneMatchNamesAPaymentThatDoesNotExistThen404IsReturned() throws Exception {
+    UUID id = UUID.randomUUID();
+
+    for (String ifNoneMatch : new String[] {"*", paymentResponseCache.etag(id)}) {
+      mvc.perform(MockMvcRequestBuilders.get("/payment/" + id)
+              .header("If-None-Match", ifNoneMatch))
+          .andExpect(status().isNotFound())
+          .andExpect(header().doesNotExist("ETag"))
+          .andExpect(jsonPath("$.message").value("payment not found"));
+    }
+  }
+
   @Test
   void whenPaymentWithIdDoesNotExistThen404IsReturned() throws Exception {
     mvc.perform(MockMvcRequestBuilders.get("/payment/" + UUID.randomUUID()))
@@ -608,9 +629,52 @@ class PaymentGatewayControllerTest {
         .andExpect(jsonPath("$.message").value("invalid payment id"));
   }
 
-  // Pseudo Integration Tests
+  // Endpoint: GET /payments
   @Test
-  void whenApprovedPaymentIsPostedThenCanRetrieveItById() throws Exception {
+  void whenPaymentsAreListedThenPagesFollowTheCursor() throws Exception {
+    Instant createdAt = Instant.parse("2001-01-01T00:00:00Z");
+    for (int i = 0; i < 3; i++) {
+      paymentsRepository.add(new SuccessfulPaymentResponse(UUID.randomUUID(), PaymentStatus.DECLINED,
+          "4242", 12, 2030, Currency.GBP, 100 + i, createdAt.plusSeconds(i)));
+    }
+
+    MvcResult first = mvc.perform(MockMvcRequestBuilders.get("/payments")
+            .param("status", "Declined")
+            .param("currency", "GBP")
+            .param("from", "2001-01-01T00:00:00Z")
+            .param("to", "2001-01-02T00:00:00Z")
+            .param("limit", "2"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.payments.length()").value(2))
+        .andExpect(jsonPath("$.payments[0].amount").value(102))
+        .andExpect(jsonPath("$.payments[1].amount").value(101))
+        .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+        .andReturn();
+    String cursor = objectMapper.readTree(first.getResponse().getContentAsString())
+        .get("nextCursor").asText();
+
+    mvc.perform(MockMvcRequestBuilders.get("/payments")
+            .param("cardNumberLastFour", "4242")
+            .param("from", "2001-01-01T00:00:00Z")
+            .param("to", "2001-01-02T00:00:00Z")
+            .param("limit", "2")
+            .param("cursor", cursor))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.payments.length()").value(1))
+        .andExpect(jsonPath("$.payments[0].amount").value(100))
+        .andExpect(jsonPath("$.nextCursor").doesNotExist());
+  }
+
+  @Test
+  void whenPaymentListCursorIsInvalidThenBadRequestIsReturned() throws Exception {
+    mvc.perform(MockMvcRequestBuilders.get("/payments").param("cursor", "not-a-cursor"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message").value("invalid cursor"));
+  }
+
+  // Idempotency-Key
+  @Test
+  void whenPaymentIsRetriedWithTheSameIdempotencyKeyThenTheFirstPaymentIsReturned() throws Exception {
     String requestJson = """
         {
           "card_number": "4111111111111111",
@@ -621,10 +685,216 @@ class PaymentGatewayControllerTest {
           "cvv": "123"
         }
         """;
+    String key = UUID.randomUUID().toString();
 
-    MvcResult postResult = mvc.perform(MockMvcRequestBuilders.post("/payment")
+    String first = postPayment(requestJson, key)
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString();
+    String retried = postPayment(requestJson, key)
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString();
+
+    assertEquals(objectMapper.readTree(first).get("id"), objectMapper.readTree(retried).get("id"));
+  }
+
+  @Test
+  void whenIdempotencyKeyIsReusedForAnotherPaymentThenUnprocessableEntityIsReturned() throws Exception {
+    String requestJson = """
+        {
+          "card_number": "4111111111111111",
+          "expiry_month": 1,
+          "expiry_year": 99,
+          "currency": "USD",
+          "amount": %d,
+          "cvv": "123"
+        }
+        """;
+    String key = UUID.randomUUID().toString();
+
+    postPayment(requestJson.formatted(1000), key)
+        .andExpect(status().isOk());
+    postPayment(requestJson.formatted(2000), key)
+        .andExpect(status().isUnprocessableEntity())
+        .andExpect(jsonPath("$.message").value("idempotency key reused for a different payment"));
+  }
+
+  @Test
+  void whenIdempotencyKeyIsReusedForPaymentWithCollidingHashCodeThenUnprocessableEntityIsReturned()
+      throws Exception {
+    // Month up by 1 and year down by 31 leave a 31-based polynomial hash unchanged
+    String requestJson = """
+        {
+          "card_number": "4111111111111111",
+          "expiry_month": %d,
+          "expiry_year": %d,
+          "currency": "USD",
+          "amount": 1000,
+          "cvv": "123"
+        }
+        """;
+    String key = UUID.randomUUID().toString();
+
+    postPayment(requestJson.formatted(4, 99), key)
+        .andExpect(status().isOk());
+    postPayment(requestJson.formatted(5, 68), key)
+        .andExpect(status().isUnprocessableEntity())
+        .andExpect(jsonPath("$.message").value("idempotency key reused for a different payment"));
+  }
+
+  @Test
+  void whenRequestTimeoutIsNegativeThenBadRequestIsReturned() throws Exception {
+    postPaymentWithTimeout(-1)
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message").value("X-Request-Timeout-Ms must be positive"));
+  }
+
+  @Test
+  void whenRequestTimeoutIsZeroThenBadRequestIsReturned() throws Exception {
+    postPaymentWithTimeout(0)
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message").value("X-Request-Timeout-Ms must be positive"));
+  }
+
+  @Test
+  void whenRequestTimeoutIsLongMaxValueThenItIsCutToTheMaxTimeout() throws Exception {
+    MvcResult started = postPaymentWithTimeout(Long.MAX_VALUE)
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    mvc.perform(MockMvcRequestBuilders.asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.status").value(PaymentStatus.AUTHORIZED.getName()));
+  }
+
+  // Endpoint: POST /payments/batch
+  @Test
+  void whenBatchIsSubmittedThenEachPaymentGetsTheOutcomeItWouldHaveAlone() throws Exception {
+    String requestJson = """
+        [
+          {"card_number": "4111111111111111", "expiry_month": 1, "expiry_year": 99, "currency": "USD", "amount": 1000, "cvv": "123"},
+          {"card_number": "4111111111111112", "expiry_month": 1, "expiry_year": 99, "currency": "USD", "amount": 1000, "cvv": "123"},
+          {"card_number": "4111111111111111", "expiry_month": 1, "expiry_year": 99, "currency": "CAD", "amount": 1000, "cvv": "123"},
+          {"card_number": "4111111111111111", "expiry_month": 1, "expiry_year": 99, "amount": 1000, "cvv": "123"}
+        ]
+        """;
+
+    MvcResult started = mvc.perform(MockMvcRequestBuilders.post("/payments/batch")
             .contentType(MediaType.APPLICATION_JSON)
             .content(requestJson))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    String body = mvc.perform(MockMvcRequestBuilders.asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("application/x-ndjson"))
+        .andReturn().getResponse().getContentAsString();
+    String[] lines = body.split("\n");
+    assertEquals(4, lines.length);
+    JsonNode[] outcomes = new JsonNode[lines.length];
+    for (String line : lines) {
+      JsonNode outcome = objectMapper.readTree(line);
+      outcomes[outcome.get("index").asInt()] = outcome;
+    }
+    assertEquals(200, outcomes[0].get("status").asInt());
+    assertEquals(PaymentStatus.AUTHORIZED.getName(), outcomes[0].get("body").get("status").asText());
+    assertEquals("1111", outcomes[0].get("body").get("cardNumberLastFour").asText());
+    assertEquals(200, outcomes[1].get("status").asInt());
+    assertEquals(PaymentStatus.DECLINED.getName(), outcomes[1].get("body").get("status").asText());
+    assertEquals(422, outcomes[2].get("status").asInt());
+    assertEquals(PaymentStatus.REJECTED.getName(), outcomes[2].get("body").get("status").asText());
+    assertEquals(400, outcomes[3].get("status").asInt());
+    assertEquals(RejectionMessages.MALFORMED_REQUEST,
+        outcomes[3].get("body").get("rejectionReason").asText());
+  }
+
+  @Test
+  void whenBatchRequestTimeoutIsNegativeThenBadRequestIsReturned() throws Exception {
+    mvc.perform(MockMvcRequestBuilders.post("/payments/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .header(Deadline.HEADER, -1)
+            .content("[]"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message").value("X-Request-Timeout-Ms must be positive"));
+  }
+
+  @Test
+  void whenBatchIsEmptyThenBadRequestIsReturned() throws Exception {
+    mvc.perform(MockMvcRequestBuilders.post("/payments/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[]"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message").value("empty batch"));
+  }
+
+  // Endpoint: GET /payments/export
+  @Test
+  void whenPaymentsAreExportedThenEachPaymentInRangeIsOneJsonLine() throws Exception {
+    Instant createdAt = Instant.parse("2002-01-01T00:00:00Z");
+    for (int i = 0; i < 3; i++) {
+      paymentsRepository.add(new SuccessfulPaymentResponse(UUID.randomUUID(), PaymentStatus.AUTHORIZED,
+          "1234", 12, 2030, Currency.EUR, 200 + i, createdAt.plusSeconds(i)));
+    }
+
+    MvcResult started = mvc.perform(MockMvcRequestBuilders.get("/payments/export")
+            .param("from", "2002-01-01T00:00:01Z")
+            .param("to", "2002-01-02T00:00:00Z"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    String body = mvc.perform(MockMvcRequestBuilders.asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("application/x-ndjson"))
+        .andReturn().getResponse().getContentAsString();
+    String[] lines = body.split("\n");
+    assertEquals(2, lines.length);
+    JsonNode newest = objectMapper.readTree(lines[0]);
+    assertEquals(202, newest.get("amount").asInt());
+    assertEquals("1234", newest.get("cardNumberLastFour").asText());
+    assertEquals(201, objectMapper.readTree(lines[1]).get("amount").asInt());
+  }
+
+  // Endpoint: GET /payments/stats
+  @Test
+  void whenRequestIsRejectedThenItIsCountedInStatistics() throws Exception {
+    String requestJson = """
+        {
+          "card_number": "4111111111111111",
+          "expiry_month": 1,
+          "expiry_year": 99,
+          "currency": "JPY",
+          "cvv": "123"
+        }
+        """;
+    long before = rejectedWithoutSupportedCurrency();
+
+    postPayment(requestJson)
+        .andExpect(status().isBadRequest());
+
+    assertEquals(before + 1, rejectedWithoutSupportedCurrency());
+  }
+
+  @Test
+  void whenStatisticsWindowIsTooLongThenBadRequestIsReturned() throws Exception {
+    mvc.perform(MockMvcRequestBuilders.get("/payments/stats").param("minutes", "61"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message").value("minutes must be between 1 and 60"));
+  }
+
+  // Pseudo Integration Tests
+  @Test
+  void whenApprovedPaymentIsPostedThenCanRetrieveItById() throws Exception {
+    String requestJson = """
+        {
+          "card_number": "4111111111111111",
+          "expiry_month": 1,
+          "expiry_year": 99,
+          "currency": "USD",
+          "amount": 1000,
+          "cvv": "123"
+        }
+        """;
+
+    MvcResult postResult = postPayment(requestJson)
         .andExpect(status().isOk())
         .andExpect(jsonPath("$.status").value(PaymentStatus.AUTHORIZED.getName()))
         .andReturn();
@@ -655,9 +925,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    MvcResult postResult = mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson))
+    MvcResult postResult = postPayment(requestJson)
         .andExpect(status().isOk())
         .andExpect(jsonPath("$.status").value(PaymentStatus.DECLINED.getName()))
         .andReturn();
@@ -688,9 +956,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    MvcResult postResult1 = mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson1))
+    MvcResult postResult1 = postPayment(requestJson1)
         .andExpect(status().isOk())
         .andReturn();
 
@@ -708,9 +974,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    MvcResult postResult2 = mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson2))
+    MvcResult postResult2 = postPayment(requestJson2)
         .andExpect(status().isOk())
         .andReturn();
 
@@ -749,9 +1013,7 @@ class PaymentGatewayControllerTest {
         }
         """;
 
-    mvc.perform(MockMvcRequestBuilders.post("/payment")
-            .contentType(MediaType.APPLICATION_JSON)
-            .content(requestJson))
+    postPayment(requestJson)
         .andExpect(status().isUnprocessableEntity())
         .andExpect(jsonPath("$.status").value(PaymentStatus.REJECTED.getName()))
         .andExpect(jsonPath("$.rejectionReason").value(RejectionMessages.CURRENCY_NOT_SUPPORTED));
@@ -759,4 +1021,55 @@ class PaymentGatewayControllerTest {
     // Check that no payment was stored
     assert paymentsRepository.size() == 0;
   }
+
+  // POST /payment completes asynchronously, so its response is only there after the dispatch
+  private ResultActions postPayment(String requestJson) throws Exception {
+    return postPayment(requestJson, null);
+  }
+
+  private ResultActions postPaymentWithTimeout(long timeoutMillis) throws Exception {
+    String requestJson = """
+        {
+          "card_number": "4111111111111111",
+          "expiry_month": 1,
+          "expiry_year": 99,
+          "currency": "USD",
+          "amount": 1000,
+          "cvv": "123"
+        }
+        """;
+    return mvc.perform(MockMvcRequestBuilders.post("/payment")
+        .contentType(MediaType.APPLICATION_JSON)
+        .header(Deadline.HEADER, timeoutMillis)
+        .content(requestJson));
+  }
+
+  private ResultActions postPayment(String requestJson, String idempotencyKey) throws Exception {
+    MockHttpServletRequestBuilder post = MockMvcRequestBuilders.post("/payment")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(requestJson);
+    if (idempotencyKey != null) {
+      post.header(IdempotencyTable.HEADER, idempotencyKey);
+    }
+    MvcResult started = mvc.perform(post)
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    return mvc.perform(MockMvcRequestBuilders.asyncDispatch(started));
+  }
+
+  private long rejectedWithoutSupportedCurrency() throws Exception {
+    MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/payments/stats"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.minutes.length()").value(60))
+        .andReturn();
+    long rejected = 0;
+    for (JsonNode minute : objectMapper.readTree(result.getResponse().getContentAsString()).get("minutes")) {
+      for (JsonNode currency : minute.get("currencies")) {
+        if (!currency.hasNonNull("currency")) {
+          rejected += currency.get("rejected").asLong();
+        }
+      }
+    }
+    return rejected;
+  }
 }
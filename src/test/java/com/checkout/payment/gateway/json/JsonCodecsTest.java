@@ -0,0 +1,167 @@
+package com.checkout.payment.gateway.json;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.Currency;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.BankBatchRequestItem;
+import com.checkout.payment.gateway.model.BankSimulatorRequest;
+import com.checkout.payment.gateway.model.BankSimulatorResponse;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.RejectedPaymentResponse;
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class JsonCodecsTest {
+
+  private final ObjectMapper codecs = mapper();
+  // Same settings, but ignores the codecs and falls back to Jackson's bean (de)serializers
+  private final ObjectMapper beans = mapper().setAnnotationIntrospector(
+      new JacksonAnnotationIntrospector() {
+        @Override
+        public Object findSerializer(Annotated annotated) {
+          return null;
+        }
+
+        @Override
+        public Object findDeserializer(Annotated annotated) {
+          return null;
+        }
+      });
+
+  @Test
+  void whenPaymentsAreWrittenThenJsonMatchesTheBeanSerializer() throws Exception {
+    // Given
+    List<Object> payments = List.of(
+        new SuccessfulPaymentResponse(UUID.randomUUID(), PaymentStatus.AUTHORIZED, "8877", 4,
+            2099, Currency.GBP, 100, Instant.parse("2024-05-01T10:15:30.123Z")),
+        new SuccessfulPaymentResponse(null, null, null, null, null, null, null, null),
+        new RejectedPaymentResponse(PaymentStatus.REJECTED, "Invalid card number"));
+
+    for (Object payment : payments) {
+      // When
+      String written = codecs.writeValueAsString(payment);
+
+      // Then
+      assertEquals(beans.readTree(beans.writeValueAsString(payment)), codecs.readTree(written));
+    }
+  }
+
+  @Test
+  void whenBankRequestsAreWrittenThenJsonMatchesTheBeanSerializer() throws Exception {
+    // Given
+    BankSimulatorRequest request =
+        new BankSimulatorRequest("2222405343248877", "04/2099", Currency.GBP, 100, "123");
+
+    // When
+    String written = codecs.writeValueAsString(request);
+    String item = codecs.writeValueAsString(new BankBatchRequestItem("key-1", request));
+
+    // Then
+    assertEquals(beans.readTree(beans.writeValueAsString(request)), codecs.readTree(written));
+    assertEquals(codecs.readTree("{\"idempotency_key\":\"key-1\"," + written.substring(1)),
+        codecs.readTree(item));
+  }
+
+  @Test
+  void whenPaymentRequestsAreReadThenFieldsMatchTheBeanDeserializer() throws Exception {
+    // Given
+    List<String> bodies = List.of(
+        "{\"card_number\":\"2222405343248877\",\"expiry_month\":4,\"expiry_year\":99,"
+            + "\"currency\":\"GBP\",\"amount\":\"100\",\"cvv\":\"123\"}",
+        // Numbers where strings are expected, and the reverse, are coerced
+        "{\"card_number\":2222405343248877,\"expiry_month\":\"4\",\"amount\":100,\"cvv\":123}",
+        "{\"card_number\":null,\"expiry_month\":null,\"unknown\":{\"nested\":[1,2]},"
+            + "\"currency\":\"GBP\"}",
+        "{}");
+
+    for (String body : bodies) {
+      // When
+      PostPaymentRequest read = codecs.readValue(body, PostPaymentRequest.class);
+
+      // Then
+      assertEquals(beans.readValue(body, PostPaymentRequest.class).toString(), read.toString());
+    }
+  }
+
+  @Test
+  void whenPaymentRequestsAreMalformedThenBothFailAlike() {
+    // Given
+    List<String> bodies = List.of("{\"expiry_month\":\"April\"}", "{\"expiry_month\":4000000000}",
+        "{\"cvv\":{\"digits\":123}}", "[]");
+
+    for (String body : bodies) {
+      // When
+      Exception expected = assertThrows(Exception.class,
+          () -> beans.readValue(body, PostPaymentRequest.class));
+      Exception actual = assertThrows(Exception.class,
+          () -> codecs.readValue(body, PostPaymentRequest.class));
+
+      // Then
+      assertEquals(expected.getClass(), actual.getClass());
+    }
+  }
+
+  @Test
+  void whenUnknownFieldsAreRejectedThenCodecRejectsThemToo() {
+    // Given
+    ObjectMapper strict = mapper().enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    // When / Then
+    assertThrows(UnrecognizedPropertyException.class,
+        () -> strict.readValue("{\"unknown\":1}", PostPaymentRequest.class));
+    assertThrows(UnrecognizedPropertyException.class,
+        () -> strict.readValue("{\"authorized\":true,\"unknown\":1}",
+            BankSimulatorResponse.class));
+  }
+
+  @Test
+  void whenBankResponsesAreReadThenFieldsMatchTheBeanDeserializer() throws Exception {
+    // Given
+    List<String> bodies = List.of(
+        "{\"authorized\":true,\"authorization_code\":\"0bb07405-6d44-4b50-a14f-7ae0beff13ad\"}",
+        "{\"authorized\":false,\"authorization_code\":\"\"}",
+        "{\"authorized\":\"true\",\"other\":[{}]}",
+        "{\"authorized\":null}",
+        "{}");
+
+    for (String body : bodies) {
+      // When
+      BankSimulatorResponse read = codecs.readValue(body, BankSimulatorResponse.class);
+
+      // Then
+      BankSimulatorResponse expected = beans.readValue(body, BankSimulatorResponse.class);
+      assertEquals(expected.isAuthorized(), read.isAuthorized());
+      assertEquals(expected.getAuthorizationCode(), read.getAuthorizationCode());
+    }
+  }
+
+  @Test
+  void whenBankResponseIsNotAnObjectThenReadingFails() throws Exception {
+    // When / Then
+    assertThrows(MismatchedInputException.class,
+        () -> codecs.readValue("[true]", BankSimulatorResponse.class));
+    assertTrue(codecs.readValue("{\"authorized\":1}", BankSimulatorResponse.class).isAuthorized());
+    assertFalse(codecs.readValue("{\"authorized\":0}", BankSimulatorResponse.class).isAuthorized());
+  }
+
+  // The settings Spring Boot gives its mapper
+  private static ObjectMapper mapper() {
+    return new ObjectMapper().findAndRegisterModules()
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+  }
+}
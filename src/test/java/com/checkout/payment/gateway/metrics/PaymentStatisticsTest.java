@@ -0,0 +1,166 @@
+package com.checkout.payment.gateway.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.Currency;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.CurrencyStatistics;
+import com.checkout.payment.gateway.model.MinuteStatistics;
+import com.checkout.payment.gateway.model.PaymentStatisticsResponse;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class PaymentStatisticsTest {
+
+  private static final Instant START = Instant.parse("2024-06-01T12:00:30Z");
+
+  private final MovingClock clock = new MovingClock(START);
+  private final PaymentStatistics statistics = new PaymentStatistics(clock);
+
+  @Test
+  void whenPaymentsAreRecordedThenMinuteHasCountsVolumesAndRatesPerCurrency() {
+    // Given
+    statistics.recordProcessed(PaymentStatus.AUTHORIZED, Currency.GBP, 100, "4111111111111111");
+    statistics.recordProcessed(PaymentStatus.AUTHORIZED, Currency.GBP, 250, "4111111111111112");
+    statistics.recordProcessed(PaymentStatus.DECLINED, Currency.GBP, 40, "4111111111111113");
+    statistics.recordRejected("GBP");
+    statistics.recordRejected("XYZ");
+
+    // When
+    PaymentStatisticsResponse response = statistics.snapshot(1);
+
+    // Then
+    assertEquals(Instant.parse("2024-06-01T12:00:00Z"), response.getFrom());
+    assertEquals(Instant.parse("2024-06-01T12:01:00Z"), response.getTo());
+    assertEquals(3, response.getDistinctCards());
+    List<CurrencyStatistics> currencies = response.getMinutes().get(0).getCurrencies();
+    assertEquals(2, currencies.size());
+    CurrencyStatistics gbp = currencies.get(0);
+    assertEquals("GBP", gbp.getCurrency());
+    assertEquals(2, gbp.getAuthorized());
+    assertEquals(1, gbp.getDeclined());
+    assertEquals(1, gbp.getRejected());
+    assertEquals(350, gbp.getAuthorizedVolume());
+    assertEquals(40, gbp.getDeclinedVolume());
+    assertEquals(0.5, gbp.getAuthorizationRate());
+    assertEquals(0.25, gbp.getDeclineRate());
+    CurrencyStatistics unknown = currencies.get(1);
+    assertNull(unknown.getCurrency());
+    assertEquals(1, unknown.getRejected());
+  }
+
+  @Test
+  void whenAnHourPassesThenOldMinutesAreDroppedAndSeriesCoversTheWindow() {
+    // Given
+    statistics.recordProcessed(PaymentStatus.AUTHORIZED, Currency.USD, 10, "4111111111111111");
+    clock.advance(Duration.ofMinutes(2));
+    statistics.recordProcessed(PaymentStatus.DECLINED, Currency.EUR, 20, "4111111111111112");
+
+    // When
+    PaymentStatisticsResponse recent = statistics.snapshot(3);
+    clock.advance(Duration.ofMinutes(PaymentStatistics.MINUTES));
+    PaymentStatisticsResponse hourLater = statistics.snapshot(PaymentStatistics.MINUTES);
+
+    // Then
+    List<MinuteStatistics> minutes = recent.getMinutes();
+    assertEquals(3, minutes.size());
+    assertEquals("USD", minutes.get(0).getCurrencies().get(0).getCurrency());
+    assertTrue(minutes.get(1).getCurrencies().isEmpty());
+    assertEquals("EUR", minutes.get(2).getCurrencies().get(0).getCurrency());
+    assertEquals(2, recent.getDistinctCards());
+    assertEquals(PaymentStatistics.MINUTES, hourLater.getMinutes().size());
+    assertTrue(hourLater.getMinutes().stream().allMatch(m -> m.getCurrencies().isEmpty()));
+    assertEquals(0, hourLater.getDistinctCards());
+  }
+
+  @Test
+  void whenRecordingConcurrentlyThenNoIncrementIsLost() throws Exception {
+    // Given
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<?>> writers = new ArrayList<>();
+
+    // When
+    for (int t = 0; t < 8; t++) {
+      writers.add(executor.submit(() -> {
+        for (int i = 0; i < 10_000; i++) {
+          statistics.recordProcessed(PaymentStatus.AUTHORIZED, Currency.EUR, 1,
+              "4111111111111111");
+        }
+      }));
+    }
+    for (Future<?> writer : writers) {
+      writer.get(30, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+
+    // Then
+    CurrencyStatistics eur = statistics.snapshot(1).getMinutes().get(0).getCurrencies().get(0);
+    assertEquals(80_000, eur.getAuthorized());
+    assertEquals(80_000, eur.getAuthorizedVolume());
+  }
+
+  @Test
+  void whenManyDistinctCardsAreSeenThenEstimateIsWithinThreePercent() {
+    // Given
+    int cards = 100_000;
+    for (int i = 0; i < cards; i++) {
+      String cardNumber = Long.toString(4_000_000_000_000_000L + i * 7919L);
+      statistics.recordProcessed(PaymentStatus.AUTHORIZED, Currency.USD, 1, cardNumber);
+      statistics.recordProcessed(PaymentStatus.DECLINED, Currency.USD, 1, cardNumber);
+    }
+
+    // When
+    long estimate = statistics.snapshot(1).getDistinctCards();
+
+    // Then
+    assertTrue(Math.abs(estimate - cards) < cards * 0.03, "estimate " + estimate);
+  }
+
+  @Test
+  void whenMinutesAreOutOfRangeThenRejected() {
+    assertThrows(IllegalArgumentException.class, () -> statistics.snapshot(0));
+    assertThrows(IllegalArgumentException.class,
+        () -> statistics.snapshot(PaymentStatistics.MINUTES + 1));
+  }
+
+  private static final class MovingClock extends Clock {
+
+    private Instant now;
+
+    MovingClock(Instant now) {
+      this.now = now;
+    }
+
+    void advance(Duration duration) {
+      now = now.plus(duration);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return now;
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class ColdIndexTest {
+
+  @Test
+  void whenIndexGrowsThenEveryPaymentKeepsItsSegment() {
+    // Given
+    ColdIndex index = new ColdIndex();
+
+    // When
+    for (int i = 0; i < 100_000; i++) {
+      index.put(i, ~i, i / 1000);
+    }
+
+    // Then
+    assertEquals(100_000, index.size());
+    for (int i = 0; i < 100_000; i++) {
+      assertEquals(i / 1000, index.segmentOf(i, ~i));
+    }
+    assertEquals(-1, index.segmentOf(100_000, ~100_000));
+  }
+
+  @Test
+  void whenPaymentIsWrittenAgainThenTheLaterSegmentHoldsIt() {
+    // Given
+    ColdIndex index = new ColdIndex();
+    index.put(1, 2, 0);
+
+    // When
+    index.put(1, 2, 3);
+
+    // Then
+    assertEquals(1, index.size());
+    assertEquals(3, index.segmentOf(1, 2));
+  }
+}
@@ -0,0 +1,9 @@
+package com.checkout.payment.gateway.repository;
+
+class ConcurrentMapPaymentStoreConformanceTest extends PaymentStoreConformanceTest {
+
+  @Override
+  protected PaymentStore createStore() {
+    return new ConcurrentMapPaymentStore();
+  }
+}
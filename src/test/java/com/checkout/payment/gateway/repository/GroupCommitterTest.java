@@ -0,0 +1,83 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class GroupCommitterTest {
+
+  @Test
+  void whenWritersWaitConcurrentlyThenOneSyncCoversMany() throws Exception {
+    // Given
+    AtomicInteger syncs = new AtomicInteger();
+    GroupCommitter committer = new GroupCommitter(() -> {
+      syncs.incrementAndGet();
+      sleep(2);
+    }, 64, Duration.ofMillis(5));
+    ExecutorService executor = Executors.newFixedThreadPool(16);
+    List<Future<?>> writers = new ArrayList<>();
+
+    // When
+    for (int t = 0; t < 16; t++) {
+      writers.add(executor.submit(() -> {
+        for (int i = 0; i < 50; i++) {
+          committer.awaitDurable();
+        }
+      }));
+    }
+    for (Future<?> writer : writers) {
+      writer.get(30, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+    committer.close();
+
+    // Then
+    assertEquals(syncs.get(), committer.commits());
+    assertTrue(syncs.get() < 16 * 50 / 4, "syncs " + syncs.get());
+  }
+
+  @Test
+  void whenSyncFailsThenWaitingAndLaterWritersFail() throws Exception {
+    // Given
+    UncheckedIOException failure = new UncheckedIOException(new IOException("device gone"));
+    GroupCommitter committer = new GroupCommitter(() -> {
+      sleep(20);
+      throw failure;
+    }, 64, Duration.ZERO);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    // When
+    Future<?> waiting = executor.submit(committer::awaitDurable);
+    ExecutionException waitingFailure = assertThrows(ExecutionException.class,
+        () -> waiting.get(30, TimeUnit.SECONDS));
+    executor.shutdown();
+
+    // Then
+    assertSame(failure, waitingFailure.getCause());
+    assertSame(failure, assertThrows(UncheckedIOException.class, committer::awaitDurable));
+    assertEquals(0, committer.commits());
+    committer.close();
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,222 @@
+package com.checkout.payment.gateway.repository;
+
+import static com.checkout.payment.gateway.repository.PaymentStoreConformanceTest.payment;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PaymentJournalTest {
+
+  private static final long SEGMENT_BYTES = JournalFormat.HEADER_BYTES
+      + 10L * JournalFormat.RECORD_BYTES;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void whenRepositoryIsReopenedThenJournaledPaymentsAreRecovered() {
+    // Given
+    List<SuccessfulPaymentResponse> payments = new ArrayList<>();
+    PaymentsRepository repository = journaled(StorageMode.OBJECTS);
+    for (int i = 0; i < 100; i++) {
+      SuccessfulPaymentResponse payment = payment(i);
+      repository.add(payment);
+      payments.add(payment);
+    }
+    repository.close();
+
+    // When
+    PaymentsRepository reopened = journaled(StorageMode.PACKED);
+
+    // Then
+    assertEquals(100, reopened.size());
+    for (SuccessfulPaymentResponse payment : payments) {
+      SuccessfulPaymentResponse recovered = reopened.get(payment.getId()).orElseThrow();
+      assertEquals(payment.getStatus(), recovered.getStatus());
+      assertEquals(payment.getCardNumberLastFour(), recovered.getCardNumberLastFour());
+      assertEquals(payment.getCurrency(), recovered.getCurrency());
+      assertEquals(payment.getAmount(), recovered.getAmount());
+    }
+  }
+
+  @Test
+  void whenLastRecordIsTornThenItIsDroppedAndAppendsContinue() throws IOException {
+    // Given
+    PaymentsRepository repository = journaled(StorageMode.OBJECTS);
+    SuccessfulPaymentResponse kept = payment(1);
+    SuccessfulPaymentResponse torn = payment(2);
+    repository.add(kept);
+    repository.add(torn);
+    repository.close();
+    corruptLastRecord(torn.getId());
+
+    // When
+    PaymentsRepository recovered = journaled(StorageMode.OBJECTS);
+    SuccessfulPaymentResponse later = payment(3);
+    recovered.add(later);
+    recovered.close();
+    PaymentsRepository reopened = journaled(StorageMode.OBJECTS);
+
+    // Then
+    assertTrue(reopened.get(kept.getId()).isPresent());
+    assertTrue(reopened.get(torn.getId()).isEmpty());
+    assertTrue(reopened.get(later.getId()).isPresent());
+    assertEquals(2, reopened.size());
+  }
+
+  @Test
+  void whenSegmentIsFullThenJournalRollsToNewSegment() throws IOException {
+    // Given
+    PaymentsRepository repository = new PaymentsRepository(StorageMode.OBJECTS, 1, directory,
+        SEGMENT_BYTES);
+
+    // When
+    for (int i = 0; i < 25; i++) {
+      repository.add(payment(i));
+    }
+    repository.close();
+
+    // Then
+    try (Stream<Path> segments = Files.list(directory.resolve(JournalFormat.stripeDirectoryName(0)))) {
+      assertEquals(3, segments.count());
+    }
+    assertEquals(25, new PaymentsRepository(StorageMode.OBJECTS, 1, directory, SEGMENT_BYTES).size());
+  }
+
+  @Test
+  void whenAddsAreGroupCommittedThenAllAreDurableOnReturnAndRecovered() throws Exception {
+    // Given
+    PaymentsRepository repository = new PaymentsRepository(StorageMode.PACKED, 4, directory,
+        SEGMENT_BYTES, null, null, new CommitPolicy(JournalSync.GROUP, 8, Duration.ofMillis(1)),
+        Clock.systemUTC());
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<?>> writers = new ArrayList<>();
+
+    // When
+    for (int t = 0; t < 8; t++) {
+      int writer = t;
+      writers.add(executor.submit(() -> {
+        for (int i = 0; i < 25; i++) {
+          repository.add(payment(writer * 25 + i));
+        }
+      }));
+    }
+    for (Future<?> writer : writers) {
+      writer.get(30, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+    repository.close();
+
+    // Then
+    assertEquals(200, journaled(StorageMode.OBJECTS).size());
+  }
+
+  @Test
+  void whenVirtualThreadsAddEvictAndSnapshotConcurrentlyThenNoneIsPinnedToItsCarrier()
+      throws Exception {
+    // Given
+    PaymentsRepository repository = new PaymentsRepository(StorageMode.PACKED, 4,
+        directory.resolve("journal"), SEGMENT_BYTES,
+        new RetentionPolicy(directory.resolve("cold"), 100, 1, 0, Duration.ofDays(1),
+            Duration.ZERO, 64),
+        new SnapshotPolicy(directory.resolve("snapshots"), Duration.ZERO, 2),
+        new CommitPolicy(JournalSync.GROUP, 8, Duration.ofMillis(1)), Clock.systemUTC());
+    List<String> pinned = new CopyOnWriteArrayList<>();
+    List<Future<?>> tasks = new ArrayList<>();
+
+    // When
+    try (RecordingStream recording = new RecordingStream()) {
+      recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+      recording.onEvent("jdk.VirtualThreadPinned",
+          event -> pinned.add(String.valueOf(event.getStackTrace())));
+      recording.startAsync();
+      try (ExecutorService virtualThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+        // Writers park in the group commit, maintainers on each other's eviction and snapshot locks
+        for (int t = 0; t < 40; t++) {
+          int writer = t;
+          tasks.add(virtualThreads.submit(() -> {
+            for (int i = 0; i < 25; i++) {
+              repository.add(payment(writer * 25 + i));
+            }
+          }));
+        }
+        for (int t = 0; t < 2; t++) {
+          tasks.add(virtualThreads.submit(() -> {
+            for (int i = 0; i < 10; i++) {
+              repository.evict();
+              repository.snapshot();
+            }
+          }));
+          tasks.add(virtualThreads.submit(() -> {
+            for (int i = 0; i < 10; i++) {
+              repository.snapshot();
+              repository.evict();
+            }
+          }));
+        }
+        for (Future<?> task : tasks) {
+          task.get(30, TimeUnit.SECONDS);
+        }
+      }
+      recording.stop();
+    }
+
+    // Then
+    assertEquals(1_000, repository.size());
+    assertTrue(repository.coldSize() > 0);
+    assertTrue(pinned.isEmpty(), "pinned: " + pinned);
+    repository.close();
+  }
+
+  private PaymentsRepository journaled(StorageMode storageMode) {
+    return new PaymentsRepository(storageMode, 4, directory, SEGMENT_BYTES);
+  }
+
+  /**
+   * Flips a payload byte of the record holding the given payment, as a crash mid-write would.
+   */
+  private void corruptLastRecord(UUID id) throws IOException {
+    List<Path> segments;
+    try (Stream<Path> files = Files.walk(directory)) {
+      segments = files.filter(Files::isRegularFile).toList();
+    }
+    for (Path segment : segments) {
+      try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ,
+          StandardOpenOption.WRITE)) {
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        channel.read(buffer, 0);
+        for (int offset = JournalFormat.HEADER_BYTES;
+            offset + JournalFormat.RECORD_BYTES <= buffer.capacity();
+            offset += JournalFormat.RECORD_BYTES) {
+          if (buffer.getLong(offset + JournalFormat.PAYLOAD_OFFSET) == id.getMostSignificantBits()) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7F}),
+                offset + JournalFormat.PAYLOAD_OFFSET + 20);
+            return;
+          }
+        }
+      }
+    }
+    throw new IllegalStateException("record not found");
+  }
+}
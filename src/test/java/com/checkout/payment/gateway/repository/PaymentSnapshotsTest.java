@@ -0,0 +1,134 @@
+package com.checkout.payment.gateway.repository;
+
+import static com.checkout.payment.gateway.repository.PaymentStoreConformanceTest.payment;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class PaymentSnapshotsTest {
+
+  private static final long SEGMENT_BYTES = JournalFormat.HEADER_BYTES
+      + 10L * JournalFormat.RECORD_BYTES;
+
+  @TempDir
+  Path directory;
+
+  private final List<SuccessfulPaymentResponse> payments = new ArrayList<>();
+  private long clockMillis = Instant.parse("2024-06-01T00:00:00Z").toEpochMilli();
+
+  @ParameterizedTest
+  @EnumSource(StorageMode.class)
+  void whenReopenedAfterSnapshotThenSnapshotAndJournalTailAreRestored(StorageMode storageMode)
+      throws IOException {
+    // Given
+    PaymentsRepository repository = snapshotted(storageMode, 4);
+    addPayments(repository, 200);
+    repository.snapshot();
+    addPayments(repository, 15);
+    // No close: the process dies with the tail only in the journal
+    repository.flush();
+
+    // When
+    PaymentsRepository reopened = snapshotted(storageMode, 4);
+
+    // Then
+    assertAllPresent(reopened);
+    assertTrue(segmentCount() < 215 / 10, "journal segments before the snapshot are deleted");
+  }
+
+  @Test
+  void whenStripeCountChangesThenSnapshotIsStillLoaded() {
+    // Given
+    PaymentsRepository repository = snapshotted(StorageMode.PACKED, 8);
+    addPayments(repository, 100);
+    repository.snapshot();
+    addPayments(repository, 5);
+    repository.flush();
+
+    // When
+    PaymentsRepository reopened = snapshotted(StorageMode.PACKED, 2);
+
+    // Then
+    assertAllPresent(reopened);
+  }
+
+  @Test
+  void whenNewestSnapshotIsCorruptThenOlderOneAndLongerTailAreUsed() throws IOException {
+    // Given
+    PaymentsRepository repository = snapshotted(StorageMode.OBJECTS, 4);
+    addPayments(repository, 100);
+    repository.snapshot();
+    addPayments(repository, 100);
+    repository.snapshot();
+    addPayments(repository, 5);
+    repository.flush();
+    corruptNewestSnapshot();
+
+    // When
+    PaymentsRepository reopened = snapshotted(StorageMode.OBJECTS, 4);
+
+    // Then
+    assertAllPresent(reopened);
+  }
+
+  private PaymentsRepository snapshotted(StorageMode storageMode, int stripes) {
+    // Each snapshot gets a later timestamp, and so a later file name
+    clockMillis += 1000;
+    Clock clock = Clock.fixed(Instant.ofEpochMilli(clockMillis), ZoneOffset.UTC);
+    return new PaymentsRepository(storageMode, stripes, directory.resolve("journal"),
+        SEGMENT_BYTES, null,
+        new SnapshotPolicy(directory.resolve("snapshots"), Duration.ZERO, 2), clock);
+  }
+
+  private void addPayments(PaymentsRepository repository, int count) {
+    for (int i = 0; i < count; i++) {
+      SuccessfulPaymentResponse payment = payment(i);
+      repository.add(payment);
+      payments.add(payment);
+    }
+  }
+
+  private void assertAllPresent(PaymentsRepository repository) {
+    assertEquals(payments.size(), repository.size());
+    for (SuccessfulPaymentResponse payment : payments) {
+      SuccessfulPaymentResponse restored = repository.get(payment.getId()).orElseThrow();
+      assertEquals(payment.getAmount(), restored.getAmount());
+      assertEquals(payment.getCardNumberLastFour(), restored.getCardNumberLastFour());
+      assertEquals(payment.getCreatedAt(), restored.getCreatedAt());
+    }
+  }
+
+  private long segmentCount() throws IOException {
+    try (Stream<Path> files = Files.walk(directory.resolve("journal"))) {
+      return files.filter(Files::isRegularFile).count();
+    }
+  }
+
+  private void corruptNewestSnapshot() throws IOException {
+    Path newest;
+    try (Stream<Path> files = Files.list(directory.resolve("snapshots"))) {
+      newest = files.sorted().reduce((first, second) -> second).orElseThrow();
+    }
+    try (FileChannel channel = FileChannel.open(newest, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[]{0x7F, 0x7F}), channel.size() - 30);
+    }
+  }
+}
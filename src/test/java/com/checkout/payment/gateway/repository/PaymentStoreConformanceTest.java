@@ -0,0 +1,217 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.Currency;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PaymentPage;
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Behaviour every {@link PaymentStore} must have. Extend it with {@link #createStore()} returning
+ * a fresh, empty store of the engine under test.
+ */
+abstract class PaymentStoreConformanceTest {
+
+  static final Instant START = Instant.parse("2024-06-01T00:00:00Z");
+  private static final int THREADS = 8;
+  private static final int PAYMENTS_PER_THREAD = 2_000;
+
+  private PaymentStore store;
+
+  protected abstract PaymentStore createStore();
+
+  @BeforeEach
+  void openStore() {
+    store = createStore();
+  }
+
+  @AfterEach
+  void closeStore() {
+    store.close();
+  }
+
+  @Test
+  void whenPaymentIsAddedThenEveryFieldIsReturnedById() {
+    // Given
+    SuccessfulPaymentResponse payment = new SuccessfulPaymentResponse(UUID.randomUUID(),
+        PaymentStatus.DECLINED, "0042", 7, 2031, Currency.EUR, Integer.MAX_VALUE, START);
+
+    // When
+    store.add(payment);
+
+    // Then
+    SuccessfulPaymentResponse stored = store.get(payment.getId()).orElseThrow();
+    assertEquals(payment.getId(), stored.getId());
+    assertEquals(payment.getStatus(), stored.getStatus());
+    assertEquals(payment.getCardNumberLastFour(), stored.getCardNumberLastFour());
+    assertEquals(payment.getExpiryMonth(), stored.getExpiryMonth());
+    assertEquals(payment.getExpiryYear(), stored.getExpiryYear());
+    assertEquals(payment.getCurrency(), stored.getCurrency());
+    assertEquals(payment.getAmount(), stored.getAmount());
+    assertEquals(payment.getCreatedAt(), stored.getCreatedAt());
+    assertEquals(1, store.size());
+  }
+
+  @Test
+  void whenIdIsUnknownThenNothingIsReturned() {
+    store.add(payment(0));
+
+    assertTrue(store.get(UUID.randomUUID()).isEmpty());
+  }
+
+  @Test
+  void whenSameIdIsAddedAgainThenItIsReplacedAndCountedOnce() {
+    // Given
+    SuccessfulPaymentResponse first = payment(1);
+    SuccessfulPaymentResponse second = new SuccessfulPaymentResponse(first.getId(),
+        first.getStatus(), first.getCardNumberLastFour(), first.getExpiryMonth(),
+        first.getExpiryYear(), first.getCurrency(), first.getAmount() + 1, first.getCreatedAt());
+
+    // When
+    store.add(first);
+    store.add(second);
+
+    // Then
+    assertEquals(second.getAmount(), store.get(first.getId()).orElseThrow().getAmount());
+    assertEquals(1, store.size());
+  }
+
+  @Test
+  void whenWritersRunConcurrentlyThenEveryPaymentIsVisibleToItsWriterAndAfterwards()
+      throws Exception {
+    // Given
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<List<UUID>>> writers = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      int thread = t;
+      writers.add(executor.submit(() -> {
+        start.await();
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < PAYMENTS_PER_THREAD; i++) {
+          SuccessfulPaymentResponse payment = payment(thread * PAYMENTS_PER_THREAD + i);
+          store.add(payment);
+          assertTrue(store.get(payment.getId()).isPresent());
+          ids.add(payment.getId());
+        }
+        return ids;
+      }));
+    }
+
+    // When
+    start.countDown();
+    List<UUID> ids = new ArrayList<>();
+    for (Future<List<UUID>> writer : writers) {
+      ids.addAll(writer.get(30, TimeUnit.SECONDS));
+    }
+    executor.shutdown();
+
+    // Then
+    assertEquals(THREADS * PAYMENTS_PER_THREAD, store.size());
+    for (UUID id : ids) {
+      assertTrue(store.get(id).isPresent());
+    }
+  }
+
+  @Test
+  void whenPagingThroughFilteredListingThenEveryMatchIsReturnedOnceNewestFirst() {
+    // Given
+    List<SuccessfulPaymentResponse> payments = addPayments(1000);
+    Instant from = START.plusSeconds(100);
+    Instant to = START.plusSeconds(900);
+
+    // When
+    List<SuccessfulPaymentResponse> declinedGbp = pageThrough(PaymentStatus.DECLINED,
+        Currency.GBP, null, null, null, 7);
+    List<SuccessfulPaymentResponse> lastFourInRange = pageThrough(null, null, "0007", from, to, 3);
+    List<SuccessfulPaymentResponse> all = pageThrough(null, null, null, null, null, 100);
+
+    // Then
+    assertListing(payments, p -> p.getStatus() == PaymentStatus.DECLINED
+        && p.getCurrency() == Currency.GBP, declinedGbp);
+    assertListing(payments, p -> p.getCardNumberLastFour().equals("0007")
+        && !p.getCreatedAt().isBefore(from) && p.getCreatedAt().isBefore(to), lastFourInRange);
+    assertListing(payments, p -> true, all);
+  }
+
+  @Test
+  void whenNothingMatchesThenPageIsEmptyWithoutCursor() {
+    // Given
+    addPayments(10);
+
+    // When
+    PaymentPage page = store.find(new PaymentQuery(null, null, "9999", null, null, 10, null));
+
+    // Then
+    assertTrue(page.getPayments().isEmpty());
+    assertNull(page.getNextCursor());
+  }
+
+  private List<SuccessfulPaymentResponse> addPayments(int count) {
+    List<SuccessfulPaymentResponse> payments = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      SuccessfulPaymentResponse payment = payment(i);
+      store.add(payment);
+      payments.add(payment);
+    }
+    return payments;
+  }
+
+  private List<SuccessfulPaymentResponse> pageThrough(PaymentStatus status, Currency currency,
+      String lastFour, Instant from, Instant to, int limit) {
+    List<SuccessfulPaymentResponse> listed = new ArrayList<>();
+    String cursor = null;
+    do {
+      PaymentPage page = store.find(
+          new PaymentQuery(status, currency, lastFour, from, to, limit, cursor));
+      assertTrue(page.getPayments().size() <= limit);
+      listed.addAll(page.getPayments());
+      cursor = page.getNextCursor();
+    } while (cursor != null);
+    return listed;
+  }
+
+  private static void assertListing(List<SuccessfulPaymentResponse> payments,
+      Predicate<SuccessfulPaymentResponse> filter, List<SuccessfulPaymentResponse> listed) {
+    List<UUID> expected = payments.stream()
+        .filter(filter)
+        .sorted(Comparator.comparing(SuccessfulPaymentResponse::getCreatedAt).reversed())
+        .map(SuccessfulPaymentResponse::getId)
+        .toList();
+    assertTrue(expected.size() > 0);
+    assertEquals(expected, listed.stream().map(SuccessfulPaymentResponse::getId).toList());
+  }
+
+  /**
+   * The {@code i}th of a spread of test payments, shared by the repository tests: alternating
+   * status, three currencies, 50 distinct last four digits, created a second apart from
+   * {@link #START}.
+   */
+  static SuccessfulPaymentResponse payment(int i) {
+    return payment(i, START.plusSeconds(i));
+  }
+
+  static SuccessfulPaymentResponse payment(int i, Instant createdAt) {
+    return new SuccessfulPaymentResponse(UUID.randomUUID(),
+        i % 2 == 0 ? PaymentStatus.AUTHORIZED : PaymentStatus.DECLINED,
+        String.format("%04d", i % 50), 1 + i % 12, 2030, Currency.values()[i % 3], 1000 + i,
+        createdAt);
+  }
+}
@@ -0,0 +1,24 @@
+package com.checkout.payment.gateway.repository;
+
+import org.junit.jupiter.api.Nested;
+
+class PaymentsRepositoryConformanceTest {
+
+  @Nested
+  class Objects extends PaymentStoreConformanceTest {
+
+    @Override
+    protected PaymentStore createStore() {
+      return new PaymentsRepository(StorageMode.OBJECTS, 8);
+    }
+  }
+
+  @Nested
+  class Packed extends PaymentStoreConformanceTest {
+
+    @Override
+    protected PaymentStore createStore() {
+      return new PaymentsRepository(StorageMode.PACKED, 8);
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package com.checkout.payment.gateway.repository;
+
+import static com.checkout.payment.gateway.repository.PaymentStoreConformanceTest.START;
+import static com.checkout.payment.gateway.repository.PaymentStoreConformanceTest.payment;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.Currency;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PaymentPage;
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class PaymentsRepositoryQueryTest {
+
+
+  @ParameterizedTest
+  @EnumSource(StorageMode.class)
+  void whenPagingThroughFilteredPaymentsThenEveryMatchIsReturnedOnceNewestFirst(
+      StorageMode storageMode) {
+    // Given
+    PaymentsRepository repository = new PaymentsRepository(storageMode, 8);
+    List<SuccessfulPaymentResponse> payments = addPayments(repository, 2000);
+
+    // When
+    List<SuccessfulPaymentResponse> declinedGbp = pageThrough(repository,
+        PaymentStatus.DECLINED, Currency.GBP, null, null, null, 7);
+
+    // Then
+    assertListing(payments, p -> p.getStatus() == PaymentStatus.DECLINED
+        && p.getCurrency() == Currency.GBP, declinedGbp);
+  }
+
+  @Test
+  void whenFilteringByLastFourAndTimeThenOnlyMatchesInRangeAreReturned() {
+    // Given
+    PaymentsRepository repository = new PaymentsRepository(StorageMode.OBJECTS, 4);
+    List<SuccessfulPaymentResponse> payments = addPayments(repository, 2000);
+    Instant from = START.plusSeconds(500);
+    Instant to = START.plusSeconds(1500);
+
+    // When
+    List<SuccessfulPaymentResponse> listed = pageThrough(repository, null, null, "0042", from, to,
+        3);
+
+    // Then
+    assertListing(payments, p -> p.getCardNumberLastFour().equals("0042")
+        && !p.getCreatedAt().isBefore(from) && p.getCreatedAt().isBefore(to), listed);
+  }
+
+  @Test
+  void whenPaymentsAreAddedOutOfOrderAroundTheEndOfTheRangeThenEveryOneInRangeIsListed() {
+    // Given
+    PaymentsRepository repository = new PaymentsRepository(StorageMode.PACKED, 1);
+    List<SuccessfulPaymentResponse> payments = new ArrayList<>();
+    // Added after the one at 20 s, those at 5, 11 and 15 s are indexed at 20 s, past the range
+    for (int seconds : new int[] {10, 20, 5, 15, 11, 25}) {
+      SuccessfulPaymentResponse payment = payment(seconds, START.plusSeconds(seconds));
+      repository.add(payment);
+      payments.add(payment);
+    }
+    Instant to = START.plusSeconds(12);
+
+    // When
+    List<SuccessfulPaymentResponse> listed = pageThrough(repository, null, null, null, null, to,
+        1);
+
+    // Then
+    List<UUID> expected = payments.stream()
+        .filter(p -> p.getCreatedAt().isBefore(to))
+        .map(SuccessfulPaymentResponse::getId)
+        .sorted()
+        .toList();
+    assertEquals(3, expected.size());
+    assertEquals(expected, listed.stream().map(SuccessfulPaymentResponse::getId).sorted().toList());
+  }
+
+  @Test
+  void whenNoFilterIsGivenThenAllPaymentsAreListed() {
+    // Given
+    PaymentsRepository repository = new PaymentsRepository(StorageMode.PACKED, 4);
+    List<SuccessfulPaymentResponse> payments = addPayments(repository, 250);
+
+    // When
+    List<SuccessfulPaymentResponse> listed = pageThrough(repository, null, null, null, null, null,
+        100);
+
+    // Then
+    assertListing(payments, p -> true, listed);
+  }
+
+  @Test
+  void whenNothingMatchesThenPageIsEmptyWithoutCursor() {
+    // Given
+    PaymentsRepository repository = new PaymentsRepository(StorageMode.OBJECTS, 4);
+    addPayments(repository, 10);
+
+    // When
+    PaymentPage page = repository.find(new PaymentQuery(null, null, "9999", null, null, 10, null));
+
+    // Then
+    assertTrue(page.getPayments().isEmpty());
+    assertNull(page.getNextCursor());
+  }
+
+  @Test
+  void whenQueryIsInvalidThenRejected() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new PaymentQuery(null, null, null, null, null, 0, null));
+    assertThrows(IllegalArgumentException.class,
+        () -> new PaymentQuery(null, null, "42", null, null, 10, null));
+    assertThrows(IllegalArgumentException.class,
+        () -> new PaymentQuery(null, null, null, null, null, 10, "bm90LWEtY3Vyc29y"));
+  }
+
+  private static List<SuccessfulPaymentResponse> addPayments(PaymentsRepository repository,
+      int count) {
+    List<SuccessfulPaymentResponse> payments = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      SuccessfulPaymentResponse payment = payment(i);
+      repository.add(payment);
+      payments.add(payment);
+    }
+    return payments;
+  }
+
+  private static List<SuccessfulPaymentResponse> pageThrough(PaymentsRepository repository,
+      PaymentStatus status, Currency currency, String lastFour, Instant from, Instant to,
+      int limit) {
+    List<SuccessfulPaymentResponse> listed = new ArrayList<>();
+    String cursor = null;
+    do {
+      PaymentPage page = repository.find(
+          new PaymentQuery(status, currency, lastFour, from, to, limit, cursor));
+      assertTrue(page.getPayments().size() <= limit);
+      listed.addAll(page.getPayments());
+      cursor = page.getNextCursor();
+    } while (cursor != null);
+    return listed;
+  }
+
+  private static void assertListing(List<SuccessfulPaymentResponse> payments,
+      Predicate<SuccessfulPaymentResponse> filter, List<SuccessfulPaymentResponse> listed) {
+    List<UUID> expected = payments.stream()
+        .filter(filter)
+        .sorted(Comparator.comparing(SuccessfulPaymentResponse::getCreatedAt).reversed())
+        .map(SuccessfulPaymentResponse::getId)
+        .toList();
+    assertTrue(expected.size() > 0);
+    assertEquals(expected, listed.stream().map(SuccessfulPaymentResponse::getId).toList());
+  }
+}
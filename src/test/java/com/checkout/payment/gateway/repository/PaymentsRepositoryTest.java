@@ -0,0 +1,138 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.Currency;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class PaymentsRepositoryTest {
+
+  private static final int THREADS = 8;
+  private static final int PAYMENTS_PER_THREAD = 5_000;
+
+  @Test
+  void whenPaymentIsAddedThenItCanBeRetrievedById() {
+    // Given
+    PaymentsRepository repository = new PaymentsRepository();
+    SuccessfulPaymentResponse payment = payment(UUID.randomUUID());
+
+    // When
+    repository.add(payment);
+
+    // Then
+    assertSame(payment, repository.get(payment.getId()).orElseThrow());
+    assertEquals(1, repository.size());
+  }
+
+  @Test
+  void whenPaymentIsUnknownThenEmptyIsReturned() {
+    PaymentsRepository repository = new PaymentsRepository();
+
+    assertTrue(repository.get(UUID.randomUUID()).isEmpty());
+  }
+
+  @Test
+  void whenStripeCountIsNotPowerOfTwoThenRejected() {
+    assertThrows(IllegalArgumentException.class, () -> new PaymentsRepository(StorageMode.OBJECTS, 12));
+  }
+
+  @Test
+  void whenPackedPaymentIsRetrievedThenAllFieldsRoundTrip() {
+    // Given
+    PaymentsRepository repository = new PaymentsRepository(StorageMode.PACKED, 4);
+    SuccessfulPaymentResponse payment = new SuccessfulPaymentResponse(UUID.randomUUID(),
+        PaymentStatus.DECLINED, "0042", 7, 2024, Currency.EUR, Integer.MAX_VALUE);
+
+    // When
+    repository.add(payment);
+    SuccessfulPaymentResponse stored = repository.get(payment.getId()).orElseThrow();
+
+    // Then
+    assertEquals(payment.getId(), stored.getId());
+    assertEquals(PaymentStatus.DECLINED, stored.getStatus());
+    assertEquals("0042", stored.getCardNumberLastFour());
+    assertEquals(7, stored.getExpiryMonth());
+    assertEquals(2024, stored.getExpiryYear());
+    assertEquals(Currency.EUR, stored.getCurrency());
+    assertEquals(Integer.MAX_VALUE, stored.getAmount());
+  }
+
+  @Test
+  void whenPackedPaymentIsAddedTwiceThenItIsStoredOnce() {
+    PaymentsRepository repository = new PaymentsRepository(StorageMode.PACKED, 1);
+    UUID id = UUID.randomUUID();
+
+    repository.add(payment(id));
+    repository.add(payment(id));
+
+    assertEquals(1, repository.size());
+  }
+
+  @Test
+  void whenPackedPaymentHasNonNumericLastFourThenRejected() {
+    PaymentsRepository repository = new PaymentsRepository(StorageMode.PACKED, 1);
+    SuccessfulPaymentResponse payment = new SuccessfulPaymentResponse(UUID.randomUUID(),
+        PaymentStatus.AUTHORIZED, "12a4", 1, 30, Currency.USD, 100);
+
+    assertThrows(IllegalArgumentException.class, () -> repository.add(payment));
+    assertEquals(0, repository.size());
+  }
+
+  @ParameterizedTest
+  @EnumSource(StorageMode.class)
+  void whenPaymentsAreAddedConcurrentlyThenNoneAreLost(StorageMode storageMode) throws Exception {
+    // Given
+    PaymentsRepository repository = new PaymentsRepository(storageMode, 4);
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<List<UUID>>> results = new ArrayList<>();
+
+    // When
+    for (int t = 0; t < THREADS; t++) {
+      results.add(executor.submit(() -> {
+        List<UUID> ids = new ArrayList<>(PAYMENTS_PER_THREAD);
+        start.await();
+        for (int i = 0; i < PAYMENTS_PER_THREAD; i++) {
+          SuccessfulPaymentResponse payment = payment(UUID.randomUUID());
+          repository.add(payment);
+          ids.add(payment.getId());
+          // Interleave reads with writes on the same stripes
+          repository.get(ids.get(i / 2));
+        }
+        return ids;
+      }));
+    }
+    start.countDown();
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+    // Then
+    assertEquals(THREADS * PAYMENTS_PER_THREAD, repository.size());
+    for (Future<List<UUID>> result : results) {
+      for (UUID id : result.get()) {
+        assertEquals(id, repository.get(id).orElseThrow().getId());
+      }
+    }
+    assertEquals(4, repository.contentionCounts().length);
+  }
+
+  private static SuccessfulPaymentResponse payment(UUID id) {
+    return new SuccessfulPaymentResponse(id, PaymentStatus.AUTHORIZED, "4242", 12, 30,
+        Currency.GBP, 1050);
+  }
+}
@@ -0,0 +1,158 @@
+package com.checkout.payment.gateway.repository;
+
+import static com.checkout.payment.gateway.repository.PaymentStoreConformanceTest.payment;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class PaymentsRetentionTest {
+
+  private static final Instant NOW = Instant.parse("2024-06-01T12:00:00Z");
+  private static final Clock CLOCK = Clock.fixed(NOW, ZoneOffset.UTC);
+
+  @TempDir
+  Path directory;
+
+  @ParameterizedTest
+  @EnumSource(StorageMode.class)
+  void whenOverBudgetThenOldestPaymentsAreServedFromColdStore(StorageMode storageMode) {
+    // Given
+    PaymentsRepository repository = retained(storageMode, 4, 400, Duration.ofDays(1), null);
+    List<SuccessfulPaymentResponse> payments = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      SuccessfulPaymentResponse payment = payment(i, NOW.minusSeconds(1000 - i));
+      repository.add(payment);
+      payments.add(payment);
+    }
+
+    // When
+    long evicted = repository.evict();
+
+    // Then
+    assertEquals(600, evicted);
+    assertEquals(400, repository.hotSize());
+    assertEquals(600, repository.coldSize());
+    assertEquals(1000, repository.size());
+    for (SuccessfulPaymentResponse payment : payments) {
+      SuccessfulPaymentResponse found = repository.get(payment.getId()).orElseThrow();
+      assertEquals(payment.getAmount(), found.getAmount());
+      assertEquals(payment.getCardNumberLastFour(), found.getCardNumberLastFour());
+      assertEquals(payment.getCreatedAt(), found.getCreatedAt());
+    }
+    assertEquals(400, repository.hotReads());
+    assertEquals(600, repository.coldReads());
+    assertTrue(repository.get(UUID.randomUUID()).isEmpty());
+    assertEquals(1, repository.missedReads());
+    repository.close();
+  }
+
+  @Test
+  void whenPaymentsExpireThenOnlyExpiredOnesAreEvicted() {
+    // Given
+    PaymentsRepository repository = retained(StorageMode.PACKED, 4, 1000, Duration.ofHours(1),
+        null);
+    SuccessfulPaymentResponse expired = payment(1, NOW.minus(Duration.ofHours(2)));
+    SuccessfulPaymentResponse fresh = payment(2, NOW.minus(Duration.ofMinutes(5)));
+    repository.add(expired);
+    repository.add(fresh);
+
+    // When
+    long evicted = repository.evict();
+
+    // Then
+    assertEquals(1, evicted);
+    assertEquals(1, repository.hotSize());
+    assertTrue(repository.get(expired.getId()).isPresent());
+    assertEquals(1, repository.coldReads());
+    repository.close();
+  }
+
+  @Test
+  void whenJournaledRepositoryIsReopenedThenEvictedPaymentsStayCold() {
+    // Given
+    Path journal = directory.resolve("journal");
+    PaymentsRepository repository = retained(StorageMode.OBJECTS, 1, 100, Duration.ofDays(1),
+        journal);
+    List<SuccessfulPaymentResponse> payments = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      // Spaced well beyond the watermark slack so the evicted ones fall below it
+      SuccessfulPaymentResponse payment = payment(i,
+          NOW.minus(Duration.ofMinutes(2L * (300 - i))));
+      repository.add(payment);
+      payments.add(payment);
+    }
+    repository.evict();
+    repository.close();
+
+    // When
+    PaymentsRepository reopened = retained(StorageMode.OBJECTS, 1, 100, Duration.ofDays(1),
+        journal);
+
+    // Then
+    assertEquals(100, reopened.hotSize());
+    assertEquals(200, reopened.coldSize());
+    for (SuccessfulPaymentResponse payment : payments) {
+      assertTrue(reopened.get(payment.getId()).isPresent());
+    }
+    reopened.close();
+  }
+
+  @Test
+  void whenEvictedPaymentsKeepHeapThenTheHotBudgetShrinksAsTheStoreGrows() {
+    // Given
+    RetentionPolicy policy = new RetentionPolicy(directory.resolve("cold"), 1000, 2, 1,
+        Duration.ofDays(1), Duration.ZERO, 128);
+    PaymentsRepository repository = new PaymentsRepository(StorageMode.PACKED, 1, null, 0,
+        policy, null, CLOCK);
+    for (int i = 0; i < 600; i++) {
+      repository.add(payment(i, NOW.minusSeconds(600 - i)));
+    }
+
+    // When
+    long evicted = repository.evict();
+
+    // Then
+    assertEquals(400, evicted);
+    assertEquals(200, repository.hotSize());
+    assertEquals(1000, policy.maxStoredPayments());
+    assertEquals(0, policy.hotBudget(1000));
+    repository.close();
+  }
+
+  @Test
+  void whenJournaledRepositoryHasRetentionButNoSnapshotsThenItIsRefused() {
+    // Given
+    RetentionPolicy policy = new RetentionPolicy(directory.resolve("cold"), 100, 1, 0,
+        Duration.ofDays(1), Duration.ZERO, 128);
+
+    // When / Then
+    assertThrows(IllegalArgumentException.class, () -> new PaymentsRepository(
+        StorageMode.OBJECTS, 1, directory.resolve("journal"), 1 << 20, policy, null, CLOCK));
+  }
+
+  private PaymentsRepository retained(StorageMode storageMode, int stripes, long maxPayments,
+      Duration ttl, Path journal) {
+    // One heap byte per hot payment and none retained, so the budget is a payment count
+    RetentionPolicy policy = new RetentionPolicy(directory.resolve("cold"), maxPayments, 1, 0,
+        ttl, Duration.ZERO, 128);
+    SnapshotPolicy snapshots = journal != null
+        ? new SnapshotPolicy(directory.resolve("snapshots"), Duration.ZERO, 2)
+        : null;
+    return new PaymentsRepository(storageMode, stripes, journal, 1 << 20, policy, snapshots,
+        CLOCK);
+  }
+}
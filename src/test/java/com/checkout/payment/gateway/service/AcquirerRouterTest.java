@@ -0,0 +1,132 @@
+package com.checkout.payment.gateway.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class AcquirerRouterTest {
+
+  private long now;
+  private final Acquirer fast = acquirer("fast");
+  private final Acquirer slow = acquirer("slow");
+  private final AcquirerRouter router =
+      new AcquirerRouter(List.of(fast, slow), 3, Duration.ofSeconds(30), () -> now);
+
+  @Test
+  void whenOneAcquirerAnswersSlowerThenCallsGoToTheOther() {
+    // Given
+    answer(fast, TimeUnit.MILLISECONDS.toNanos(10));
+    answer(slow, TimeUnit.MILLISECONDS.toNanos(100));
+
+    // When / Then
+    for (int i = 0; i < 100; i++) {
+      assertSame(fast, router.pick());
+    }
+  }
+
+  @Test
+  void whenFasterAcquirerIsBusyEnoughThenCallsGoToTheIdleOne() {
+    // Given
+    answer(fast, TimeUnit.MILLISECONDS.toNanos(10));
+    answer(slow, TimeUnit.MILLISECONDS.toNanos(20));
+    for (int i = 0; i < 2; i++) {
+      router.tryStart(fast);
+    }
+
+    // When
+    Acquirer picked = router.pick();
+
+    // Then
+    assertSame(slow, picked);
+  }
+
+  @Test
+  void whenAcquirerBulkheadIsFullThenItIsPassedOverAndCannotStartMoreCalls() {
+    // Given
+    answer(fast, TimeUnit.MILLISECONDS.toNanos(1));
+    answer(slow, TimeUnit.MILLISECONDS.toNanos(1_000));
+    for (int i = 0; i < 10; i++) {
+      assertTrue(router.tryStart(fast));
+    }
+
+    // When
+    boolean started = router.tryStart(fast);
+    Acquirer picked = router.pick();
+
+    // Then
+    assertFalse(started);
+    assertEquals(1, fast.bulkhead().rejected());
+    assertSame(slow, picked);
+    router.cancelled(fast);
+    assertSame(fast, router.pick());
+  }
+
+  @Test
+  void whenAcquirerFailsEnoughTimesInARowThenItIsOutOfRotationForTheEjectionTime() {
+    // Given
+    answer(fast, TimeUnit.MILLISECONDS.toNanos(10));
+    answer(slow, TimeUnit.MILLISECONDS.toNanos(100));
+
+    // When
+    for (int i = 0; i < 3; i++) {
+      router.tryStart(fast);
+      router.finished(fast, -1, true);
+    }
+
+    // Then
+    assertTrue(router.ejected(fast));
+    assertEquals(1, fast.ejections());
+    assertSame(slow, router.pick());
+    assertNull(router.failover(slow));
+    now += TimeUnit.SECONDS.toNanos(30);
+    assertFalse(router.ejected(fast));
+    assertSame(fast, router.pick());
+  }
+
+  @Test
+  void whenEveryAcquirerIsEjectedThenCallsAreStillRoutedButNotFailedOver() {
+    // Given
+    for (Acquirer acquirer : List.of(fast, slow)) {
+      for (int i = 0; i < 3; i++) {
+        router.tryStart(acquirer);
+        router.finished(acquirer, -1, true);
+      }
+    }
+
+    // When
+    Acquirer picked = router.pick();
+
+    // Then
+    assertNotNull(picked);
+    assertNull(router.failover(picked));
+  }
+
+  @Test
+  void whenAcquirerFailsThenFailoverPicksAnotherAcquirer() {
+    // When
+    Acquirer other = router.failover(slow);
+
+    // Then
+    assertSame(fast, other);
+    assertNull(new AcquirerRouter(List.of(slow), 1, Duration.ZERO).failover(slow));
+  }
+
+  private void answer(Acquirer acquirer, long latencyNanos) {
+    router.tryStart(acquirer);
+    router.finished(acquirer, latencyNanos, false);
+  }
+
+  private static Acquirer acquirer(String name) {
+    URI url = URI.create("http://" + name + ".example/payments");
+    return new Acquirer(name, url, URI.create(url + "/batch"), 10);
+  }
+}
@@ -0,0 +1,323 @@
+package com.checkout.payment.gateway.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.configuration.BankClientProperties;
+import com.checkout.payment.gateway.configuration.BankHttpClients;
+import com.checkout.payment.gateway.enums.Currency;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.BankUnavailableException;
+import com.checkout.payment.gateway.exception.DeadlineExceededException;
+import com.checkout.payment.gateway.model.BankBatchResponseItem;
+import com.checkout.payment.gateway.model.BankSimulatorRequest;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class BankSimulatorClientTest {
+
+  private static final BankSimulatorRequest REQUEST =
+      new BankSimulatorRequest("2222405343248877", "04/2099", Currency.GBP, 100, "123");
+  private static final byte[] AUTHORIZED =
+      "{\"authorized\":true,\"authorization_code\":\"0bb07405\"}".getBytes(StandardCharsets.UTF_8);
+
+  private final BankClientProperties properties = new BankClientProperties();
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final List<String> idempotencyKeys = new CopyOnWriteArrayList<>();
+  private final List<String> timeouts = new CopyOnWriteArrayList<>();
+  private final List<String> paths = new CopyOnWriteArrayList<>();
+  private final AtomicInteger requests = new AtomicInteger();
+  private HttpServer bank;
+  private PoolingAsyncClientConnectionManager manager;
+  private CloseableHttpAsyncClient httpClient;
+  private BankSimulatorClient client;
+
+  @AfterEach
+  void tearDown() throws Exception {
+    client.close();
+    httpClient.close();
+    manager.close();
+    bank.stop(0);
+  }
+
+  @Test
+  void whenBankFailsOnceThenCallIsRetriedWithTheSameIdempotencyKey() throws Exception {
+    // Given
+    startBank(request -> request == 1 ? 503 : 200);
+
+    // When
+    PaymentStatus status = client.callBank(REQUEST).get(5, TimeUnit.SECONDS);
+
+    // Then
+    assertEquals(PaymentStatus.AUTHORIZED, status);
+    assertEquals(1, client.retries());
+    assertEquals(2, idempotencyKeys.size());
+    assertNotNull(idempotencyKeys.get(0));
+    assertEquals(idempotencyKeys.get(0), idempotencyKeys.get(1));
+  }
+
+  @Test
+  void whenBankKeepsFailingThenCallIsDeclinedAfterMaxAttempts() throws Exception {
+    // Given
+    startBank(request -> 503);
+
+    // When
+    PaymentStatus status = client.callBank(REQUEST).get(5, TimeUnit.SECONDS);
+
+    // Then
+    assertEquals(PaymentStatus.DECLINED, status);
+    assertEquals(properties.getRetry().getMaxAttempts(), requests.get());
+  }
+
+  @Test
+  void whenAttemptIsSlowerThanTheHedgeDelayThenSecondCallAnswersFirst() throws Exception {
+    // Given
+    properties.getHedge().setEnabled(true);
+    properties.getRetry().setMinPerSecond(100);
+    int primed = 128;
+    startBank(request -> request == primed + 1 ? -1 : 200);
+    for (int i = 0; i < primed; i++) {
+      client.callBank(REQUEST).get(5, TimeUnit.SECONDS);
+    }
+    idempotencyKeys.clear();
+
+    // When
+    long started = System.nanoTime();
+    PaymentStatus status = client.callBank(REQUEST).get(5, TimeUnit.SECONDS);
+    long elapsed = System.nanoTime() - started;
+
+    // Then
+    assertEquals(PaymentStatus.AUTHORIZED, status);
+    assertEquals(1, client.hedges());
+    assertEquals(2, idempotencyKeys.size());
+    assertEquals(idempotencyKeys.get(0), idempotencyKeys.get(1));
+    assertTrue(elapsed < Duration.ofSeconds(1).toNanos(), "took " + elapsed + "ns");
+  }
+
+  @Test
+  void whenCallsAreBatchedThenConcurrentCallsShareOneRequestAndGetTheirOwnAnswers()
+      throws Exception {
+    // Given
+    properties.getBatch().setEnabled(true);
+    properties.getBatch().setMaxSize(4);
+    properties.getBatch().setMaxWait(Duration.ofSeconds(5));
+    startBank(request -> request == 2 ? 400 : 200);
+
+    // When
+    List<CompletableFuture<PaymentStatus>> calls = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      calls.add(client.callBank(REQUEST));
+    }
+
+    // Then
+    assertEquals(PaymentStatus.AUTHORIZED, calls.get(0).get(5, TimeUnit.SECONDS));
+    assertEquals(PaymentStatus.DECLINED, calls.get(1).get(5, TimeUnit.SECONDS));
+    assertEquals(PaymentStatus.AUTHORIZED, calls.get(2).get(5, TimeUnit.SECONDS));
+    assertEquals(PaymentStatus.AUTHORIZED, calls.get(3).get(5, TimeUnit.SECONDS));
+    assertEquals(1, client.batches());
+    assertEquals(4, new HashSet<>(idempotencyKeys).size());
+  }
+
+  @Test
+  void whenAcquirerAnswers503ThenCallFailsOverToAnotherWithoutRetrying() throws Exception {
+    // Given
+    properties.getRetry().setMaxAttempts(1);
+    addAcquirers("first", "second");
+    startBank(request -> request == 1 ? 503 : 200);
+
+    // When
+    PaymentStatus status = client.callBank(REQUEST).get(5, TimeUnit.SECONDS);
+
+    // Then
+    assertEquals(PaymentStatus.AUTHORIZED, status);
+    assertEquals(1, client.failovers());
+    assertEquals(0, client.retries());
+    assertEquals(2, idempotencyKeys.size());
+    assertEquals(idempotencyKeys.get(0), idempotencyKeys.get(1));
+    assertNotEquals(paths.get(0), paths.get(1));
+  }
+
+  @Test
+  void whenAcquirerTimesOutAfterAuthorizingThenCallIsRetriedThereAndNotFailedOver()
+      throws Exception {
+    // Given
+    properties.setReadTimeout(Duration.ofMillis(200));
+    addAcquirers("first", "second");
+    startBank(request -> request == 1 ? -1 : 200);
+
+    // When
+    PaymentStatus status = client.callBank(REQUEST).get(5, TimeUnit.SECONDS);
+
+    // Then
+    assertEquals(PaymentStatus.AUTHORIZED, status);
+    assertEquals(0, client.failovers());
+    assertEquals(1, client.retries());
+    assertEquals(2, paths.size());
+    assertEquals(paths.get(0), paths.get(1));
+    assertEquals(idempotencyKeys.get(0), idempotencyKeys.get(1));
+  }
+
+  @Test
+  void whenCurrencyBulkheadIsFullThenItsCallsAreTurnedAwayWhileOtherCurrenciesGoThrough()
+      throws Exception {
+    // Given
+    properties.getBulkheads().setMaxPerCurrency(2);
+    startBank(request -> request <= 2 ? -1 : 200);
+    BankSimulatorRequest euros =
+        new BankSimulatorRequest("2222405343248877", "04/2099", Currency.EUR, 100, "123");
+    client.callBank(euros);
+    client.callBank(euros);
+    while (requests.get() < 2) {
+      Thread.sleep(10);
+    }
+
+    // When
+    CompletableFuture<PaymentStatus> turnedAway = client.callBank(euros);
+    long started = System.nanoTime();
+    PaymentStatus pounds = client.callBank(REQUEST).get(5, TimeUnit.SECONDS);
+    long elapsed = System.nanoTime() - started;
+
+    // Then
+    ExecutionException failure = assertThrows(ExecutionException.class,
+        () -> turnedAway.get(1, TimeUnit.SECONDS));
+    assertInstanceOf(BankUnavailableException.class, failure.getCause());
+    assertEquals(1, client.currencyBulkheads().get(Currency.EUR).rejected());
+    assertEquals(PaymentStatus.AUTHORIZED, pounds);
+    assertTrue(elapsed < Duration.ofSeconds(1).toNanos(), "took " + elapsed + "ns");
+  }
+
+  @Test
+  void whenBankStallsPastTheDeadlineThenCallFailsAtTheDeadlineWithoutRetrying() throws Exception {
+    // Given
+    properties.getDeadlines().setReserve(Duration.ZERO);
+    startBank(request -> -1);
+
+    // When
+    long started = System.nanoTime();
+    CompletableFuture<PaymentStatus> call =
+        client.callBank(REQUEST, Deadline.after(Duration.ofMillis(300)));
+    ExecutionException failure = assertThrows(ExecutionException.class,
+        () -> call.get(5, TimeUnit.SECONDS));
+    long elapsed = System.nanoTime() - started;
+
+    // Then
+    assertInstanceOf(DeadlineExceededException.class, failure.getCause());
+    assertTrue(elapsed >= Duration.ofMillis(300).toNanos(), "took " + elapsed + "ns");
+    assertTrue(elapsed < Duration.ofSeconds(1).toNanos(), "took " + elapsed + "ns");
+    assertEquals(1, client.deadlinesExceeded());
+    assertEquals(1, requests.get());
+    long sentTimeout = Long.parseLong(timeouts.get(0));
+    assertTrue(sentTimeout > 0 && sentTimeout <= 300, sentTimeout + " ms sent to the bank");
+  }
+
+  @Test
+  void whenDeadlineHasAlreadyPassedThenBankIsNotCalled() throws Exception {
+    // Given
+    startBank(request -> 200);
+
+    // When
+    CompletableFuture<PaymentStatus> call =
+        client.callBank(REQUEST, Deadline.after(Duration.ofMillis(5)));
+
+    // Then
+    ExecutionException failure = assertThrows(ExecutionException.class,
+        () -> call.get(1, TimeUnit.SECONDS));
+    assertInstanceOf(DeadlineExceededException.class, failure.getCause());
+    assertEquals(0, requests.get());
+  }
+
+  private void addAcquirers(String... names) {
+    for (String name : names) {
+      BankClientProperties.Acquirer acquirer = new BankClientProperties.Acquirer();
+      acquirer.setName(name);
+      properties.getRouting().getAcquirers().add(acquirer);
+    }
+  }
+
+  // Answers each payment with the status chosen for its number, counted from 1; -1 stalls it
+  private void startBank(IntUnaryOperator statusForRequest) throws Exception {
+    bank = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 64);
+    bank.createContext("/payments", exchange -> {
+      idempotencyKeys.add(
+          exchange.getRequestHeaders().getFirst(BankSimulatorClient.IDEMPOTENCY_KEY_HEADER));
+      timeouts.add(exchange.getRequestHeaders().getFirst(Deadline.HEADER));
+      paths.add(exchange.getRequestURI().getPath());
+      exchange.getRequestBody().readAllBytes();
+      int status = statusForRequest.applyAsInt(requests.incrementAndGet());
+      if (status < 0) {
+        try {
+          Thread.sleep(2_000);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        status = 200;
+      }
+      if (status == 200) {
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, AUTHORIZED.length);
+        exchange.getResponseBody().write(AUTHORIZED);
+      } else {
+        exchange.sendResponseHeaders(status, -1);
+      }
+      exchange.close();
+    });
+    bank.createContext("/payments/batch", exchange -> {
+      List<Map<String, Object>> items = objectMapper.readValue(exchange.getRequestBody(),
+          new TypeReference<>() {});
+      List<BankBatchResponseItem> answers = new ArrayList<>();
+      for (Map<String, Object> item : items) {
+        idempotencyKeys.add((String) item.get("idempotency_key"));
+        int status = statusForRequest.applyAsInt(requests.incrementAndGet());
+        answers.add(new BankBatchResponseItem(status, status == 200, status == 200 ? "a" : ""));
+      }
+      byte[] body = objectMapper.writeValueAsBytes(answers);
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, body.length);
+      exchange.getResponseBody().write(body);
+      exchange.close();
+    });
+    bank.setExecutor(Executors.newCachedThreadPool());
+    bank.start();
+    properties.setUrl(URI.create("http://127.0.0.1:" + bank.getAddress().getPort() + "/payments"));
+    properties.getBatch().setUrl(URI.create(properties.getUrl() + "/batch"));
+    // Acquirers a test configures all point at this bank, each at a path of its own
+    for (BankClientProperties.Acquirer acquirer : properties.getRouting().getAcquirers()) {
+      acquirer.setUrl(URI.create(properties.getUrl() + "/" + acquirer.getName()));
+      acquirer.setBatchUrl(properties.getBatch().getUrl());
+    }
+    properties.getRetry().setInitialBackoff(Duration.ofMillis(1));
+    manager = BankHttpClients.connectionManager(properties);
+    httpClient = BankHttpClients.httpClient(manager, properties);
+    client = new BankSimulatorClient(httpClient, objectMapper, properties,
+        new ConcurrencyLimiter(50, 1, 1000, Duration.ofSeconds(1), 0.9),
+        new CircuitBreaker(0.5, 100, 20, Duration.ofSeconds(5), 5),
+        new RetryBudget(properties.getRetry().getBudgetRatio(),
+            properties.getRetry().getMinPerSecond()),
+        AcquirerRouter.from(properties));
+  }
+}
@@ -0,0 +1,38 @@
+package com.checkout.payment.gateway.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class BulkheadTest {
+
+  private final Bulkhead bulkhead = new Bulkhead("EUR", 3);
+
+  @Test
+  void whenBulkheadIsFullThenFurtherCallsAreTurnedAwayUntilOneIsReleased() {
+    // Given
+    for (int i = 0; i < 3; i++) {
+      assertTrue(bulkhead.tryAcquire());
+    }
+
+    // When
+    boolean admitted = bulkhead.tryAcquire();
+    bulkhead.release();
+    boolean admittedAfterRelease = bulkhead.tryAcquire();
+
+    // Then
+    assertFalse(admitted);
+    assertTrue(admittedAfterRelease);
+    assertTrue(bulkhead.full());
+    assertEquals(3, bulkhead.inUse());
+    assertEquals(1, bulkhead.rejected());
+  }
+
+  @Test
+  void whenBulkheadWouldAdmitNoCallThenItIsRefused() {
+    assertThrows(IllegalArgumentException.class, () -> new Bulkhead("EUR", 0));
+  }
+}
@@ -0,0 +1,91 @@
+package com.checkout.payment.gateway.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import com.checkout.payment.gateway.service.CircuitBreaker.State;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+  private long now;
+  private final CircuitBreaker breaker =
+      new CircuitBreaker(0.5, 10, 4, Duration.ofSeconds(5), 2, () -> now);
+
+  @Test
+  void whenFailureRateReachesThresholdThenBreakerOpensAndRefusesCalls() {
+    // Given
+    record(false, false, true);
+    assertEquals(State.CLOSED, breaker.state());
+
+    // When
+    record(true);
+
+    // Then
+    assertEquals(State.OPEN, breaker.state());
+    assertEquals(CircuitBreaker.REFUSED, breaker.tryAcquire());
+    assertEquals(1, breaker.rejected());
+    assertEquals(1, breaker.transitions(State.OPEN));
+  }
+
+  @Test
+  void whenOpenDurationPassesAndTrialsSucceedThenBreakerCloses() {
+    // Given
+    record(true, true, true, true);
+    now += Duration.ofSeconds(5).toNanos();
+
+    // When
+    long first = breaker.tryAcquire();
+    long second = breaker.tryAcquire();
+    long third = breaker.tryAcquire();
+    breaker.record(first, false);
+    breaker.record(second, false);
+
+    // Then
+    assertNotEquals(CircuitBreaker.REFUSED, first);
+    assertEquals(CircuitBreaker.REFUSED, third);
+    assertEquals(State.CLOSED, breaker.state());
+    assertEquals(1, breaker.transitions(State.HALF_OPEN));
+    assertEquals(1, breaker.transitions(State.CLOSED));
+  }
+
+  @Test
+  void whenTrialFailsThenBreakerOpensAgain() {
+    // Given
+    record(true, true, true, true);
+    now += Duration.ofSeconds(5).toNanos();
+
+    // When
+    breaker.record(breaker.tryAcquire(), true);
+
+    // Then
+    assertEquals(State.OPEN, breaker.state());
+    assertEquals(2, breaker.transitions(State.OPEN));
+    assertEquals(CircuitBreaker.REFUSED, breaker.tryAcquire());
+  }
+
+  @Test
+  void whenCallFromBeforeOpeningCompletesLateThenItIsNotCountedAsATrial() {
+    // Given
+    long late = breaker.tryAcquire();
+    record(true, true, true, true);
+    now += Duration.ofSeconds(5).toNanos();
+    long trial = breaker.tryAcquire();
+
+    // When
+    breaker.record(late, false);
+    breaker.release(trial);
+
+    // Then
+    assertEquals(State.HALF_OPEN, breaker.state());
+    assertNotEquals(CircuitBreaker.REFUSED, breaker.tryAcquire());
+    assertNotEquals(CircuitBreaker.REFUSED, breaker.tryAcquire());
+  }
+
+  private void record(boolean... failures) {
+    for (boolean failed : failures) {
+      breaker.record(breaker.tryAcquire(), failed);
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package com.checkout.payment.gateway.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class ConcurrencyLimiterTest {
+
+  private static final long FAST = Duration.ofMillis(10).toNanos();
+  private static final long SLOW = Duration.ofSeconds(2).toNanos();
+
+  private final ConcurrencyLimiter limiter =
+      new ConcurrencyLimiter(10, 2, 12, Duration.ofSeconds(1), 0.5);
+
+  @Test
+  void whenLimitIsReachedThenFurtherCallsAreRejected() {
+    // Given
+    for (int i = 0; i < 10; i++) {
+      assertTrue(limiter.tryAcquire());
+    }
+
+    // When
+    boolean admitted = limiter.tryAcquire();
+    limiter.cancel();
+    boolean admittedAfterCancel = limiter.tryAcquire();
+
+    // Then
+    assertFalse(admitted);
+    assertTrue(admittedAfterCancel);
+    assertEquals(1, limiter.rejected());
+    assertEquals(10, limiter.inFlight());
+  }
+
+  @Test
+  void whenBusyCallsAreFastThenLimitGrowsUpToTheMaximum() {
+    // Given
+    for (int i = 0; i < 10; i++) {
+      limiter.tryAcquire();
+    }
+
+    // When
+    long now = 0;
+    for (int i = 0; i < 1_000; i++) {
+      limiter.release(now, now + FAST, false);
+      now += FAST;
+      limiter.tryAcquire();
+    }
+
+    // Then
+    assertEquals(12, limiter.limit());
+  }
+
+  @Test
+  void whenLightlyLoadedThenFastCallsLeaveTheLimitAlone() {
+    // When
+    for (int i = 0; i < 1_000; i++) {
+      limiter.tryAcquire();
+      limiter.release(i * FAST, (i + 1) * FAST, false);
+    }
+
+    // Then
+    assertEquals(10, limiter.limit());
+  }
+
+  @Test
+  void whenCallsInFlightTogetherAreSlowThenLimitIsCutOnce() {
+    // Given
+    for (int i = 0; i < 8; i++) {
+      limiter.tryAcquire();
+    }
+
+    // When
+    for (int i = 0; i < 8; i++) {
+      limiter.release(0, SLOW + i, false);
+    }
+    int afterFirstBurst = limiter.limit();
+    limiter.tryAcquire();
+    limiter.release(SLOW + 8, SLOW + 8 + FAST, true);
+
+    // Then
+    assertEquals(5, afterFirstBurst);
+    assertEquals(2, limiter.limit());
+  }
+}
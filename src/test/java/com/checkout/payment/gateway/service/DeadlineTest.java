@@ -0,0 +1,29 @@
+package com.checkout.payment.gateway.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class DeadlineTest {
+
+  @Test
+  void whenTimeoutOverflowsNanosThenTheDeadlineSaturatesInsteadOfPassing() {
+    // When
+    Deadline deadline = Deadline.after(Duration.ofMillis(Long.MAX_VALUE));
+
+    // Then
+    assertFalse(deadline.expired());
+    assertTrue(deadline.remainingNanos() > Duration.ofDays(365 * 100).toNanos());
+  }
+
+  @Test
+  void whenTimeoutIsNegativeThenTheDeadlineHasPassed() {
+    // When
+    Deadline deadline = Deadline.after(Duration.ofMillis(-1));
+
+    // Then
+    assertTrue(deadline.expired());
+  }
+}
@@ -0,0 +1,194 @@
+package com.checkout.payment.gateway.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.BankUnavailableException;
+import com.checkout.payment.gateway.exception.IdempotencyKeyReusedException;
+import com.checkout.payment.gateway.exception.InvalidIdempotencyKeyException;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.model.RejectedPaymentResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class IdempotencyTableTest {
+
+  private static final PostPaymentResponse ANSWER =
+      new RejectedPaymentResponse(PaymentStatus.REJECTED, "stand-in");
+  private static final byte[] PAYMENT = {1};
+  private static final byte[] OTHER_PAYMENT = {2};
+
+  private final AtomicLong now = new AtomicLong();
+  private final AtomicInteger attempts = new AtomicInteger();
+
+  @Test
+  void whenDuplicateArrivesWhileFirstIsInFlightThenItWaitsForTheFirstAnswer() throws Exception {
+    // Given
+    IdempotencyTable table = new IdempotencyTable(10, Duration.ofMinutes(1), now::get);
+    CompletableFuture<PostPaymentResponse> bank = new CompletableFuture<>();
+    CompletableFuture<PostPaymentResponse> first = table.claim("key", PAYMENT, () -> attempt(bank));
+
+    // When
+    CompletableFuture<PostPaymentResponse> duplicate =
+        table.claim("key", PAYMENT, () -> attempt(bank));
+    boolean answeredEarly = duplicate.isDone();
+    bank.complete(ANSWER);
+
+    // Then
+    assertFalse(answeredEarly);
+    assertSame(ANSWER, first.get(1, TimeUnit.SECONDS));
+    assertSame(ANSWER, duplicate.get(1, TimeUnit.SECONDS));
+    assertEquals(1, attempts.get());
+    assertEquals(1, table.replays());
+  }
+
+  @Test
+  void whenCompletedKeyIsSentAgainThenAnswerIsReplayedUntilItExpires() throws Exception {
+    // Given
+    IdempotencyTable table = new IdempotencyTable(10, Duration.ofSeconds(10), now::get);
+    table.claim("key", PAYMENT, () -> attempt(CompletableFuture.completedFuture(ANSWER)));
+
+    // When
+    now.addAndGet(TimeUnit.SECONDS.toNanos(9));
+    CompletableFuture<PostPaymentResponse> replayed =
+        table.claim("key", PAYMENT, () -> attempt(new CompletableFuture<>()));
+    now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+    CompletableFuture<PostPaymentResponse> afterExpiry =
+        table.claim("key", PAYMENT, () -> attempt(new CompletableFuture<>()));
+
+    // Then
+    assertSame(ANSWER, replayed.getNow(null));
+    assertFalse(afterExpiry.isDone());
+    assertEquals(2, attempts.get());
+  }
+
+  @Test
+  void whenAttemptFailsThenDuplicatesFailAlikeAndTheKeyIsFreed() {
+    // Given
+    IdempotencyTable table = new IdempotencyTable(10, Duration.ofMinutes(1), now::get);
+    CompletableFuture<PostPaymentResponse> bank = new CompletableFuture<>();
+    table.claim("key", PAYMENT, () -> attempt(bank));
+    CompletableFuture<PostPaymentResponse> duplicate =
+        table.claim("key", PAYMENT, () -> attempt(bank));
+
+    // When
+    bank.completeExceptionally(new BankUnavailableException("shed"));
+    CompletableFuture<PostPaymentResponse> retry =
+        table.claim("key", PAYMENT, () -> attempt(CompletableFuture.completedFuture(ANSWER)));
+
+    // Then
+    ExecutionException failure = assertThrows(ExecutionException.class, duplicate::get);
+    assertTrue(failure.getCause() instanceof BankUnavailableException);
+    assertSame(ANSWER, retry.getNow(null));
+    assertEquals(2, attempts.get());
+  }
+
+  @Test
+  void whenKeyIsReusedForAnotherPaymentThenItIsRefused() {
+    // Given
+    IdempotencyTable table = new IdempotencyTable(10, Duration.ofMinutes(1), now::get);
+    table.claim("key", PAYMENT, () -> attempt(CompletableFuture.completedFuture(ANSWER)));
+
+    // When
+    CompletableFuture<PostPaymentResponse> reused =
+        table.claim("key", OTHER_PAYMENT,
+            () -> attempt(CompletableFuture.completedFuture(ANSWER)));
+
+    // Then
+    ExecutionException failure = assertThrows(ExecutionException.class, reused::get);
+    assertTrue(failure.getCause() instanceof IdempotencyKeyReusedException);
+    assertEquals(1, attempts.get());
+    assertEquals(1, table.conflicts());
+  }
+
+  @Test
+  void whenTableIsFullThenOldestKeysAreForgottenFirst() {
+    // Given
+    IdempotencyTable table = new IdempotencyTable(3, Duration.ofHours(1), now::get);
+
+    // When
+    for (int i = 0; i < 5; i++) {
+      now.incrementAndGet();
+      table.claim("key-" + i, PAYMENT, () -> attempt(CompletableFuture.completedFuture(ANSWER)));
+    }
+    table.claim("key-4", PAYMENT, () -> attempt(CompletableFuture.completedFuture(ANSWER)));
+    table.claim("key-0", PAYMENT, () -> attempt(CompletableFuture.completedFuture(ANSWER)));
+
+    // Then
+    assertEquals(3, table.size());
+    assertEquals(6, attempts.get());
+    assertEquals(1, table.replays());
+  }
+
+  @Test
+  void whenTableFillsWhileClaimIsInFlightThenItsKeyIsKeptUntilAnsweredAndPastItsTtl()
+      throws Exception {
+    // Given
+    IdempotencyTable table = new IdempotencyTable(3, Duration.ofSeconds(10), now::get);
+    CompletableFuture<PostPaymentResponse> bank = new CompletableFuture<>();
+    table.claim("pending", PAYMENT, () -> attempt(bank));
+
+    // When
+    for (int i = 0; i < 5; i++) {
+      table.claim("key-" + i, PAYMENT, () -> attempt(CompletableFuture.completedFuture(ANSWER)));
+    }
+    now.addAndGet(TimeUnit.SECONDS.toNanos(11));
+    CompletableFuture<PostPaymentResponse> duplicate =
+        table.claim("pending", PAYMENT, () -> attempt(bank));
+    bank.complete(ANSWER);
+
+    // Then
+    assertSame(ANSWER, duplicate.get(1, TimeUnit.SECONDS));
+    assertEquals(6, attempts.get());
+    assertEquals(1, table.replays());
+    assertEquals(1, table.size());
+  }
+
+  @Test
+  void whenAttemptsFailThenTheirKeysDoNotTakeRoomFromAnsweredOnes() {
+    // Given
+    IdempotencyTable table = new IdempotencyTable(3, Duration.ofHours(1), now::get);
+    table.claim("kept", PAYMENT, () -> attempt(CompletableFuture.completedFuture(ANSWER)));
+
+    // When
+    for (int i = 0; i < 10; i++) {
+      table.claim("failed-" + i, PAYMENT,
+          () -> attempt(CompletableFuture.failedFuture(new BankUnavailableException("shed"))));
+    }
+    table.claim("kept", PAYMENT, () -> attempt(CompletableFuture.completedFuture(ANSWER)));
+
+    // Then
+    assertEquals(11, attempts.get());
+    assertEquals(1, table.replays());
+    assertEquals(1, table.size());
+  }
+
+  @Test
+  void whenKeyIsTooLongOrNotPrintableThenItIsRefused() {
+    // Given
+    IdempotencyTable table = new IdempotencyTable(10, Duration.ofMinutes(1), now::get);
+
+    // When / Then
+    assertThrows(InvalidIdempotencyKeyException.class, () -> table.claim(
+        "k".repeat(IdempotencyTable.MAX_KEY_LENGTH + 1), PAYMENT,
+        () -> attempt(CompletableFuture.completedFuture(ANSWER))));
+    assertThrows(InvalidIdempotencyKeyException.class, () -> table.claim("key\n", PAYMENT,
+        () -> attempt(CompletableFuture.completedFuture(ANSWER))));
+    assertEquals(0, attempts.get());
+  }
+
+  private CompletableFuture<PostPaymentResponse> attempt(
+      CompletableFuture<PostPaymentResponse> answer) {
+    attempts.incrementAndGet();
+    return answer;
+  }
+}
@@ -0,0 +1,94 @@
+package com.checkout.payment.gateway.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class MicroBatcherTest {
+
+  private final List<List<Integer>> sent = new CopyOnWriteArrayList<>();
+
+  @Test
+  void whenBatchFillsUpThenItIsSentAtOnceAndResultsGoBackInOrder() throws Exception {
+    // Given
+    try (MicroBatcher<Integer, String> batcher = new MicroBatcher<>(3, Duration.ofSeconds(30),
+        this::echo, "test-batcher")) {
+
+      // When
+      List<CompletableFuture<String>> results = new ArrayList<>();
+      for (int i = 0; i < 6; i++) {
+        results.add(batcher.submit(i));
+      }
+
+      // Then
+      for (int i = 0; i < 6; i++) {
+        assertEquals("item-" + i, results.get(i).get(1, TimeUnit.SECONDS));
+      }
+      assertEquals(List.of(List.of(0, 1, 2), List.of(3, 4, 5)), sent);
+    }
+  }
+
+  @Test
+  void whenBatchDoesNotFillUpThenItIsSentAfterMaxWait() throws Exception {
+    // Given
+    try (MicroBatcher<Integer, String> batcher = new MicroBatcher<>(100, Duration.ofMillis(20),
+        this::echo, "test-batcher")) {
+
+      // When
+      CompletableFuture<String> first = batcher.submit(1);
+      CompletableFuture<String> second = batcher.submit(2);
+
+      // Then
+      assertEquals("item-1", first.get(1, TimeUnit.SECONDS));
+      assertEquals("item-2", second.get(1, TimeUnit.SECONDS));
+      assertEquals(List.of(List.of(1, 2)), sent);
+    }
+  }
+
+  @Test
+  void whenSenderFailsThenEveryItemOfTheBatchFails() {
+    // Given
+    try (MicroBatcher<Integer, String> batcher = new MicroBatcher<>(2, Duration.ofSeconds(30),
+        items -> CompletableFuture.failedFuture(new IllegalStateException("bank down")),
+        "test-batcher")) {
+
+      // When
+      CompletableFuture<String> first = batcher.submit(1);
+      CompletableFuture<String> second = batcher.submit(2);
+
+      // Then
+      assertThrows(ExecutionException.class, () -> first.get(1, TimeUnit.SECONDS));
+      assertThrows(ExecutionException.class, () -> second.get(1, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  void whenClosedThenWaitingItemsAreSent() throws Exception {
+    // Given
+    MicroBatcher<Integer, String> batcher = new MicroBatcher<>(100, Duration.ofSeconds(30),
+        this::echo, "test-batcher");
+    CompletableFuture<String> waiting = batcher.submit(7);
+
+    // When
+    batcher.close();
+
+    // Then
+    assertEquals("item-7", waiting.get(1, TimeUnit.SECONDS));
+    assertThrows(ExecutionException.class, () -> batcher.submit(8).get(1, TimeUnit.SECONDS));
+  }
+
+  private CompletableFuture<List<String>> echo(List<Integer> items) {
+    sent.add(items);
+    return CompletableFuture.completedFuture(
+        items.stream().map(i -> "item-" + i).collect(Collectors.toList()));
+  }
+}
@@ -0,0 +1,151 @@
+package com.checkout.payment.gateway.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.configuration.PaymentBatchProperties;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.BankUnavailableException;
+import com.checkout.payment.gateway.exception.InvalidBatchException;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.model.RejectedPaymentResponse;
+import com.checkout.payment.gateway.util.RejectionMessages;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class PaymentBatchServiceTest {
+
+  private static final RejectedPaymentResponse REJECTED =
+      new RejectedPaymentResponse(PaymentStatus.REJECTED, RejectionMessages.CURRENCY_NOT_SUPPORTED);
+
+  private final PaymentBatchProperties properties = new PaymentBatchProperties();
+  private final Queue<CompletableFuture<PostPaymentResponse>> sent = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+
+  // Rejects payments in CAD; leaves the others pending until the test completes them
+  private final PaymentGatewayService gateway = new PaymentGatewayService(null, null, null, null,
+      null, null) {
+    @Override
+    RejectedPaymentResponse validate(PostPaymentRequest request) {
+      return "CAD".equals(request.getCurrency()) ? REJECTED : null;
+    }
+
+    @Override
+    CompletableFuture<PostPaymentResponse> authorize(PostPaymentRequest request,
+        Deadline deadline) {
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      CompletableFuture<PostPaymentResponse> payment = new CompletableFuture<>();
+      sent.add(payment);
+      return payment.whenComplete((response, failure) -> inFlight.decrementAndGet());
+    }
+  };
+
+  @Test
+  void whenBatchIsProcessedThenRejectionsComeFirstAndBankCallsStayWithinParallelism()
+      throws Exception {
+    // Given
+    properties.setParallelism(3);
+    PaymentBatchService service = new PaymentBatchService(gateway, properties);
+    List<PostPaymentRequest> requests = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      requests.add(request(i % 5 == 0 ? "CAD" : "USD"));
+    }
+    requests.add(null);
+    Map<Integer, Object> outcomes = new ConcurrentHashMap<>();
+    List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+
+    // When
+    CompletableFuture<Void> done = service.processBatch(requests, null,
+        (index, response, failure) -> {
+          order.add(index);
+          outcomes.put(index, failure == null ? response : failure);
+        });
+    BankUnavailableException shed = new BankUnavailableException("shed");
+    int completed = 0;
+    for (CompletableFuture<PostPaymentResponse> payment; (payment = sent.poll()) != null; ) {
+      assertTrue(inFlight.get() <= 3);
+      if (completed++ % 2 == 0) {
+        payment.completeExceptionally(shed);
+      } else {
+        payment.complete(REJECTED);
+      }
+    }
+
+    // Then
+    done.get(5, TimeUnit.SECONDS);
+    assertEquals(11, outcomes.size());
+    assertEquals(List.of(0, 5, 10), order.subList(0, 3));
+    assertSame(REJECTED, outcomes.get(0));
+    assertEquals(RejectionMessages.MALFORMED_REQUEST,
+        ((RejectedPaymentResponse) outcomes.get(10)).getRejectionReason());
+    assertEquals(8, completed);
+    assertEquals(3, maxInFlight.get());
+    assertSame(shed, outcomes.get(order.get(3)));
+  }
+
+  @Test
+  void whenBankCallsCompleteAtOnceThenLongBatchDoesNotRecurse() throws Exception {
+    // Given
+    PaymentGatewayService immediate = new PaymentGatewayService(null, null, null, null, null,
+        null) {
+      @Override
+      RejectedPaymentResponse validate(PostPaymentRequest request) {
+        return null;
+      }
+
+      @Override
+      CompletableFuture<PostPaymentResponse> authorize(PostPaymentRequest request,
+          Deadline deadline) {
+        return CompletableFuture.failedFuture(new BankUnavailableException("shed"));
+      }
+    };
+    properties.setMaxSize(200_000);
+    PaymentBatchService service = new PaymentBatchService(immediate, properties);
+    List<PostPaymentRequest> requests = Collections.nCopies(200_000, request("USD"));
+    AtomicInteger failed = new AtomicInteger();
+
+    // When
+    CompletableFuture<Void> done = service.processBatch(requests, null,
+        (index, response, failure) -> {
+          assertNull(response);
+          failed.incrementAndGet();
+        });
+
+    // Then
+    assertTrue(done.isDone());
+    assertEquals(200_000, failed.get());
+  }
+
+  @Test
+  void whenBatchIsTooLargeThenItIsRefused() {
+    // Given
+    properties.setMaxSize(2);
+    PaymentBatchService service = new PaymentBatchService(gateway, properties);
+
+    // When / Then
+    assertThrows(InvalidBatchException.class, () -> service.processBatch(
+        List.of(request("USD"), request("USD"), request("USD")), null,
+        (index, response, failure) -> { }));
+    assertTrue(sent.isEmpty());
+  }
+
+  private static PostPaymentRequest request(String currency) {
+    PostPaymentRequest request = new PostPaymentRequest();
+    request.setCurrency(currency);
+    return request;
+  }
+}
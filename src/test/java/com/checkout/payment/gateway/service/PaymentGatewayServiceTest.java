@@ -14,7 +14,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class PaymentGatewayServiceTest {
 
-    private final PaymentGatewayService paymentGatewayService = new PaymentGatewayService(null, null, null);
+    private final PaymentGatewayService paymentGatewayService = new PaymentGatewayService(null, null, null, null, null, null);
 
     @Test
     void whenViolationsContainMalformedRequestThenReturnMalformedRequest() {
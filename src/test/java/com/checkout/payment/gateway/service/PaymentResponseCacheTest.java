@@ -0,0 +1,180 @@
+package com.checkout.payment.gateway.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.Currency;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.model.SuccessfulPaymentResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+class PaymentResponseCacheTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+      .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+  private final AtomicInteger lookups = new AtomicInteger();
+
+  @Test
+  void whenPaymentIsReadAgainThenCachedBytesAreReturnedWithoutLookingItUp() throws Exception {
+    // Given
+    PaymentResponseCache cache = new PaymentResponseCache(objectMapper, 10);
+    SuccessfulPaymentResponse payment = payment(1000);
+
+    // When
+    PaymentResponseCache.Cached first = cache.get(payment.getId(), lookup(payment));
+    PaymentResponseCache.Cached second = cache.get(payment.getId(), lookup(payment));
+
+    // Then
+    assertSame(first, second);
+    assertEquals(1, lookups.get());
+    assertArrayEquals(objectMapper.writeValueAsBytes(payment), first.body());
+    assertEquals(cache.etag(payment.getId()), first.etag());
+    assertEquals(1, cache.hits());
+    assertEquals(1, cache.misses());
+  }
+
+  @Test
+  void whenPaymentsDifferThenTheirEtagsDiffer() {
+    // Given
+    PaymentResponseCache cache = new PaymentResponseCache(objectMapper, 10);
+    SuccessfulPaymentResponse payment = payment(1000);
+    SuccessfulPaymentResponse other = payment(1001);
+
+    // When
+    String etag = cache.get(payment.getId(), lookup(payment)).etag();
+    String otherEtag = cache.get(other.getId(), lookup(other)).etag();
+
+    // Then
+    assertNotEquals(etag, otherEtag);
+  }
+
+  @Test
+  void whenIfNoneMatchNamesACachedPaymentThenItIsNotModifiedWithoutLookingItUp() {
+    // Given
+    PaymentResponseCache cache = new PaymentResponseCache(objectMapper, 10);
+    SuccessfulPaymentResponse payment = payment(1000);
+    UUID id = payment.getId();
+    String etag = cache.get(id, lookup(payment)).etag();
+
+    // When / Then
+    assertTrue(cache.notModified(id, etag, lookup(payment)));
+    assertTrue(cache.notModified(id, "\"other\", W/" + etag, lookup(payment)));
+    assertTrue(cache.notModified(id, "*", lookup(payment)));
+    assertFalse(cache.notModified(id, cache.etag(UUID.randomUUID()), lookup(payment)));
+    assertFalse(cache.notModified(id, null, lookup(payment)));
+    assertEquals(1, lookups.get());
+    assertEquals(3, cache.revalidations());
+  }
+
+  @Test
+  void whenIfNoneMatchNamesAnUncachedPaymentThenItIsLookedUpButNotSerialized() {
+    // Given
+    PaymentResponseCache cache = new PaymentResponseCache(objectMapper, 10);
+    SuccessfulPaymentResponse payment = payment(1000);
+
+    // When / Then
+    assertTrue(cache.notModified(payment.getId(), cache.etag(payment.getId()), lookup(payment)));
+    assertEquals(1, lookups.get());
+    assertEquals(0, cache.misses());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void whenIfNoneMatchNamesAMissingPaymentThenLookupFailureIsThrown() {
+    // Given
+    PaymentResponseCache cache = new PaymentResponseCache(objectMapper, 10);
+    UUID id = UUID.randomUUID();
+    Supplier<SuccessfulPaymentResponse> missing = () -> {
+      throw new EventProcessingException("invalid payment ID");
+    };
+
+    // When / Then
+    assertThrows(EventProcessingException.class, () -> cache.notModified(id, "*", missing));
+    assertThrows(EventProcessingException.class,
+        () -> cache.notModified(id, cache.etag(id), missing));
+    assertEquals(0, cache.revalidations());
+  }
+
+  @Test
+  void whenBodyFormatChangesThenEveryEtagChanges() {
+    // Given
+    UUID id = UUID.randomUUID();
+    PaymentResponseCache cache = new PaymentResponseCache(objectMapper, 10);
+    PaymentResponseCache sameFormat = new PaymentResponseCache(objectMapper, 0);
+    PaymentResponseCache otherFormat = new PaymentResponseCache(new ObjectMapper()
+        .findAndRegisterModules().enable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS), 10);
+
+    // When / Then
+    assertEquals(cache.etag(id), sameFormat.etag(id));
+    assertNotEquals(cache.etag(id), otherFormat.etag(id));
+  }
+
+  @Test
+  void whenCacheIsFullThenOldestBodiesAreDroppedFirst() {
+    // Given
+    PaymentResponseCache cache = new PaymentResponseCache(objectMapper, 2);
+    SuccessfulPaymentResponse[] payments = {payment(1), payment(2), payment(3)};
+
+    // When
+    for (SuccessfulPaymentResponse payment : payments) {
+      cache.get(payment.getId(), lookup(payment));
+    }
+    cache.get(payments[2].getId(), lookup(payments[2]));
+    cache.get(payments[0].getId(), lookup(payments[0]));
+
+    // Then
+    assertEquals(2, cache.size());
+    assertEquals(4, lookups.get());
+  }
+
+  @Test
+  void whenCacheHoldsNothingThenEveryReadSerializes() {
+    // Given
+    PaymentResponseCache cache = new PaymentResponseCache(objectMapper, 0);
+    SuccessfulPaymentResponse payment = payment(1000);
+
+    // When
+    String etag = cache.get(payment.getId(), lookup(payment)).etag();
+
+    // Then
+    assertEquals(etag, cache.get(payment.getId(), lookup(payment)).etag());
+    assertEquals(2, lookups.get());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void whenPaymentIsMissingThenLookupFailureIsThrownAndNothingIsCached() {
+    // Given
+    PaymentResponseCache cache = new PaymentResponseCache(objectMapper, 10);
+
+    // When / Then
+    assertThrows(EventProcessingException.class, () -> cache.get(UUID.randomUUID(), () -> {
+      throw new EventProcessingException("invalid payment ID");
+    }));
+    assertEquals(0, cache.size());
+  }
+
+  private Supplier<SuccessfulPaymentResponse> lookup(SuccessfulPaymentResponse payment) {
+    return () -> {
+      lookups.incrementAndGet();
+      return payment;
+    };
+  }
+
+  private static SuccessfulPaymentResponse payment(int amount) {
+    return new SuccessfulPaymentResponse(UUID.randomUUID(), PaymentStatus.AUTHORIZED, "4321", 12,
+        2030, Currency.GBP, amount, Instant.parse("2024-01-01T00:00:00Z"));
+  }
+}
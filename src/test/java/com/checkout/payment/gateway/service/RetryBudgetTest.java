@@ -0,0 +1,70 @@
+package com.checkout.payment.gateway.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class RetryBudgetTest {
+
+  private long now;
+  private final RetryBudget budget = new RetryBudget(0.1, 0, () -> now);
+
+  @Test
+  void whenRetriesReachTheRatioOfCallsThenFurtherRetriesAreDenied() {
+    // Given
+    for (int i = 0; i < 100; i++) {
+      budget.recordCall();
+    }
+
+    // When
+    int granted = 0;
+    while (budget.tryAcquire()) {
+      granted++;
+    }
+
+    // Then
+    assertEquals(10, granted);
+    assertEquals(1, budget.denied());
+  }
+
+  @Test
+  void whenWindowPassesThenOldCallsAndRetriesAreForgotten() {
+    // Given
+    for (int i = 0; i < 100; i++) {
+      budget.recordCall();
+    }
+    while (budget.tryAcquire()) {
+      // spend the budget
+    }
+
+    // When
+    now += TimeUnit.SECONDS.toNanos(RetryBudget.SECONDS);
+    boolean afterWindow = budget.tryAcquire();
+    for (int i = 0; i < 10; i++) {
+      budget.recordCall();
+    }
+    boolean afterNewCalls = budget.tryAcquire();
+
+    // Then
+    assertFalse(afterWindow);
+    assertTrue(afterNewCalls);
+  }
+
+  @Test
+  void whenGatewayIsQuietThenFloorStillAllowsRetries() {
+    // Given
+    RetryBudget floored = new RetryBudget(0.1, 1, () -> now);
+
+    // When
+    int granted = 0;
+    while (floored.tryAcquire()) {
+      granted++;
+    }
+
+    // Then
+    assertEquals(RetryBudget.SECONDS, granted);
+  }
+}
@@ -0,0 +1,87 @@
+package com.checkout.payment.gateway.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class TimingWheelTest {
+
+  private final TimingWheel wheel = new TimingWheel(Duration.ofMillis(1), "test-timers");
+
+  @AfterEach
+  void tearDown() {
+    wheel.close();
+  }
+
+  @Test
+  void whenTimersAreScheduledThenEachFiresNoSoonerThanItsDelayAndInOrder() throws Exception {
+    // Given
+    List<Integer> fired = new CopyOnWriteArrayList<>();
+    List<Long> lateness = new CopyOnWriteArrayList<>();
+    CountDownLatch done = new CountDownLatch(3);
+    long started = System.nanoTime();
+
+    // When
+    for (int millis : new int[] {150, 10, 70}) {
+      long due = started + TimeUnit.MILLISECONDS.toNanos(millis);
+      wheel.schedule(due - System.nanoTime(), () -> {
+        fired.add(millis);
+        lateness.add(System.nanoTime() - due);
+        done.countDown();
+      });
+    }
+
+    // Then
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertEquals(List.of(10, 70, 150), fired);
+    for (long late : lateness) {
+      assertTrue(late >= 0, "fired " + -late + "ns early");
+    }
+  }
+
+  @Test
+  void whenTimerIsCancelledThenItNeverFires() throws Exception {
+    // Given
+    AtomicBoolean ran = new AtomicBoolean();
+    CountDownLatch later = new CountDownLatch(1);
+    TimingWheel.Timer timer = wheel.schedule(TimeUnit.MILLISECONDS.toNanos(20),
+        () -> ran.set(true));
+
+    // When
+    boolean cancelled = timer.cancel();
+    wheel.schedule(TimeUnit.MILLISECONDS.toNanos(60), later::countDown);
+
+    // Then
+    assertTrue(cancelled);
+    assertTrue(later.await(5, TimeUnit.SECONDS));
+    assertFalse(ran.get());
+    assertFalse(timer.cancel());
+  }
+
+  @Test
+  void whenDelayNeedsACoarserWheelThenTimerMovesDownAndFiresOnTime() throws Exception {
+    // Given, a delay past the first wheel's 64 ticks and the second's 4096
+    CountDownLatch fired = new CountDownLatch(1);
+    long delay = TimeUnit.MILLISECONDS.toNanos(4_200);
+    long started = System.nanoTime();
+
+    // When
+    wheel.schedule(delay, fired::countDown);
+
+    // Then
+    assertTrue(fired.await(10, TimeUnit.SECONDS));
+    long elapsed = System.nanoTime() - started;
+    assertTrue(elapsed >= delay, "fired after " + elapsed + "ns");
+    assertTrue(elapsed < delay + TimeUnit.MILLISECONDS.toNanos(500),
+        "fired after " + elapsed + "ns");
+  }
+}
@@ -0,0 +1,126 @@
+package com.checkout.payment.gateway.standin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class BankStandInTest {
+
+  private final HttpClient http = HttpClient.newHttpClient();
+  private BankStandIn bank;
+
+  @AfterEach
+  void tearDown() {
+    bank.close();
+  }
+
+  @Test
+  void whenPaymentIsPostedThenItIsAnsweredByTheLastDigitOfTheCardNumber() throws Exception {
+    // Given
+    bank = new BankStandIn(0, 1, LatencyModel.none(), ErrorBursts.none());
+
+    // When
+    HttpResponse<String> authorized = post(bank.url(), payment("2222405343248877"));
+    HttpResponse<String> declined = post(bank.url(), payment("2222405343248878"));
+    HttpResponse<String> unavailable = post(bank.url(), payment("2222405343248870"));
+    HttpResponse<String> incomplete = post(bank.url(), "{\"card_number\":\"2222405343248877\"}");
+
+    // Then
+    assertEquals(200, authorized.statusCode());
+    assertTrue(authorized.body().matches(
+        "\\{\"authorized\":true,\"authorization_code\":\"[0-9a-f-]{36}\"}"), authorized.body());
+    assertEquals(200, declined.statusCode());
+    assertEquals("{\"authorized\":false,\"authorization_code\":\"\"}", declined.body());
+    assertEquals(503, unavailable.statusCode());
+    assertEquals(400, incomplete.statusCode());
+    assertEquals(4, bank.requests());
+  }
+
+  @Test
+  void whenBatchIsPostedThenEachPaymentGetsItsOwnAnswer() throws Exception {
+    // Given
+    bank = new BankStandIn(0, 1, LatencyModel.none(), ErrorBursts.none());
+
+    // When
+    HttpResponse<String> response = post(URI.create(bank.url() + "/batch"),
+        "[" + payment("2222405343248878") + "," + payment("2222405343248870") + ",{}]");
+
+    // Then
+    assertEquals(200, response.statusCode());
+    assertEquals("[{\"status_code\":200,\"authorized\":false,\"authorization_code\":\"\"},"
+        + "{\"status_code\":503,\"authorized\":false,\"authorization_code\":\"\"},"
+        + "{\"status_code\":400,\"authorized\":false,\"authorization_code\":\"\"}]",
+        response.body());
+  }
+
+  @Test
+  void whenLatencyIsFixedThenAnswersAreHeldBackForIt() throws Exception {
+    // Given
+    bank = new BankStandIn(0, 1, LatencyModel.fixed(Duration.ofMillis(200)), ErrorBursts.none());
+    post(bank.url(), payment("2222405343248877"));
+
+    // When
+    long started = System.nanoTime();
+    HttpResponse<String> response = post(bank.url(), payment("2222405343248877"));
+    long elapsed = System.nanoTime() - started;
+
+    // Then
+    assertEquals(200, response.statusCode());
+    assertTrue(elapsed >= Duration.ofMillis(200).toNanos(), "took " + elapsed + "ns");
+  }
+
+  @Test
+  void whenErrorBurstIsOnThenPaymentsAreAnswered503() throws Exception {
+    // Given
+    bank = new BankStandIn(0, 1, LatencyModel.none(),
+        new ErrorBursts(Duration.ofHours(1), Duration.ofHours(1), 1));
+
+    // When
+    HttpResponse<String> response = post(bank.url(), payment("2222405343248877"));
+
+    // Then
+    assertEquals(503, response.statusCode());
+    assertEquals(1, bank.failed());
+  }
+
+  @Test
+  void whenBimodalLatencyIsParsedThenDelaysComeFromEitherMode() {
+    // Given
+    LatencyModel latency = LatencyModel.parse("bimodal:5ms:1s:0.1");
+    Random random = new Random(42);
+
+    // When
+    int slow = 0;
+    for (int i = 0; i < 10_000; i++) {
+      long nanos = latency.nextNanos(random);
+      assertTrue(nanos == 5_000_000 || nanos == 1_000_000_000, nanos + "ns");
+      if (nanos == 1_000_000_000) {
+        slow++;
+      }
+    }
+
+    // Then
+    assertTrue(slow > 800 && slow < 1_200, slow + " slow answers");
+  }
+
+  private HttpResponse<String> post(URI url, String body) throws Exception {
+    return http.send(HttpRequest.newBuilder(url)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build(),
+        HttpResponse.BodyHandlers.ofString());
+  }
+
+  private static String payment(String cardNumber) {
+    return "{\"card_number\":\"" + cardNumber + "\",\"expiry_date\":\"04/2099\","
+        + "\"currency\":\"GBP\",\"amount\":100,\"cvv\":\"123\"}";
+  }
+}